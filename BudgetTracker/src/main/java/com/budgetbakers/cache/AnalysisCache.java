@@ -0,0 +1,183 @@
+package com.budgetbakers.cache;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.budgetbakers.utils.DateRange;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Caches the results of analysis reports, such as a graph of the Analysis page or the totals
+ * behind the Dashboard KPIs, for the same user, report, period, accounts and currency.
+ * <p>
+ * Every key carries the user's current version, which each write to the user's data bumps
+ * through {@link #invalidate(int)}. Results computed before a write are then never looked up
+ * again, even if their computation finishes after it; they are evicted by size or age like any
+ * other entry.
+ */
+public final class AnalysisCache {
+
+    /** Maximum number of cached results, configurable with the {@code budgettracker.cache.analysis.maxEntries} system property; 0 disables the cache. */
+    public static final long MAX_ENTRIES = Long.getLong("budgettracker.cache.analysis.maxEntries", 10_000);
+    /** How long a result is kept after it is computed, configurable with the {@code budgettracker.cache.analysis.ttlSeconds} system property. */
+    public static final long TTL_SECONDS = Long.getLong("budgettracker.cache.analysis.ttlSeconds", 300);
+
+    /**
+     * Computes a result on a cache miss.
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        /**
+         * @return The result, which is shared by every caller until it is evicted.
+         * @throws SQLException if a database error occurs; nothing is cached then.
+         */
+        T load() throws SQLException;
+    }
+
+    private final Cache<Key, Object> results;
+    private final ConcurrentHashMap<Integer, Long> versions = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxEntries The maximum number of cached results; 0 disables the cache.
+     * @param ttlSeconds How long a result is kept after it is computed, in seconds.
+     */
+    public AnalysisCache(long maxEntries, long ttlSeconds) {
+        this.results = maxEntries > 0
+                ? CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).recordStats().build()
+                : null;
+    }
+
+    /**
+     * Returns a cached result, computing it if it is not cached. Concurrent requests for the same
+     * result wait for one computation.
+     * @param <T> The type of the result.
+     * @param userId The ID of the user.
+     * @param report The name of the report, e.g. "cashFlow".
+     * @param range The period of the report.
+     * @param accountIds The selected account IDs, or null for all; the order does not matter.
+     * @param currency The currency of the report, or null if it has none.
+     * @param loader Computes the result on a miss.
+     * @return The result.
+     * @throws SQLException if the result had to be computed and a database error occurred.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(int userId, String report, DateRange range, List<Integer> accountIds, String currency,
+                     Loader<T> loader) throws SQLException {
+        if (results == null) {
+            return loader.load();
+        }
+        Key key = new Key(userId, versions.getOrDefault(userId, 0L), report, range, accountIds, currency);
+        try {
+            return (T) results.get(key, loader::load);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Makes every cached result of a user stale, after a write to the user's transactions or accounts.
+     * @param userId The ID of the user.
+     */
+    public void invalidate(int userId) {
+        versions.merge(userId, 1L, Long::sum);
+    }
+
+    /**
+     * @return The hit, miss, load time and eviction counts since the cache was created, or
+     *         empty counts if it is disabled.
+     */
+    public CacheStats getStats() {
+        return results != null ? results.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @return The fraction of lookups answered from the cache.
+     */
+    public double getHitRate() {
+        return getStats().hitRate();
+    }
+
+    /**
+     * @return The average time spent computing a missed result, in milliseconds.
+     */
+    public double getAverageLoadMillis() {
+        return getStats().averageLoadPenalty() / 1_000_000.0;
+    }
+
+    /**
+     * @return The number of results evicted by size or age.
+     */
+    public long getEvictionCount() {
+        return getStats().evictionCount();
+    }
+
+    /**
+     * @return The approximate number of cached results.
+     */
+    public long size() {
+        return results != null ? results.size() : 0;
+    }
+
+    /**
+     * Identifies a result. Account IDs are sorted so that the same selection always has the same key.
+     */
+    private static final class Key {
+        private final int userId;
+        private final long version;
+        private final String report;
+        private final DateRange range;
+        private final List<Integer> accountIds;
+        private final String currency;
+        private final int hash;
+
+        private Key(int userId, long version, String report, DateRange range, List<Integer> accountIds, String currency) {
+            this.userId = userId;
+            this.version = version;
+            this.report = report;
+            this.range = range;
+            if (accountIds == null || accountIds.isEmpty()) {
+                this.accountIds = Collections.emptyList();
+            } else {
+                List<Integer> sorted = new ArrayList<>(accountIds);
+                Collections.sort(sorted);
+                this.accountIds = sorted;
+            }
+            this.currency = currency;
+            this.hash = Objects.hash(userId, version, report, range, this.accountIds, currency);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return userId == other.userId && version == other.version && report.equals(other.report)
+                    && Objects.equals(range, other.range) && accountIds.equals(other.accountIds)
+                    && Objects.equals(currency, other.currency);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
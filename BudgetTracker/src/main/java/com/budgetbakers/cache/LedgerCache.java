@@ -0,0 +1,339 @@
+package com.budgetbakers.cache;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.entities.Transaction;
+import com.budgetbakers.repository.Repositories;
+
+/**
+ * Keeps the ledgers of recently active users in memory as {@link LedgerColumns}, so that the
+ * Analysis page is answered without querying the database. A user's ledger is loaded on first
+ * use and kept current by the writes that go through this process; users that have not been
+ * seen for the longest time are evicted when the ledgers together exceed the memory budget.
+ * <p>
+ * Writes made by other processes (another web node, a maintenance job) are not seen, so a
+ * ledger is also reloaded once it is older than {@link #MAX_AGE_MILLIS}.
+ * <p>
+ * A ledger larger than the whole memory budget is not cached, and its user is served from the
+ * repository queries instead. The user is remembered as oversized for {@link #MAX_AGE_MILLIS},
+ * so the history is not read in full again on every request.
+ */
+public final class LedgerCache {
+
+    private static final Logger logger = LogManager.getLogger(LedgerCache.class);
+
+    /** Memory budget of all cached ledgers in bytes, configurable with the {@code budgettracker.cache.ledger.maxBytes} system property; 0 disables the cache. */
+    public static final long MAX_BYTES = Long.getLong("budgettracker.cache.ledger.maxBytes", 64L * 1024 * 1024);
+    /** How long a ledger is used before it is reloaded, configurable with the {@code budgettracker.cache.ledger.maxAgeSeconds} system property. */
+    public static final long MAX_AGE_MILLIS = Long.getLong("budgettracker.cache.ledger.maxAgeSeconds", 600) * 1000;
+
+    /**
+     * The number of rows above which a write drops the user's ledger instead of applying it to
+     * a copy, configurable with the {@code budgettracker.cache.ledger.writeThroughMaxRows} system
+     * property; copying a larger ledger on every form post costs more than reloading it once.
+     */
+    public static final int WRITE_THROUGH_MAX_ROWS = Integer.getInteger("budgettracker.cache.ledger.writeThroughMaxRows", 100_000);
+
+    /** Number of write counters users are spread over. */
+    private static final int STRIPES = 256;
+
+    private final Repositories repositories;
+    private final long maxBytes;
+
+    /** The cached ledgers in access order, least recently used first. Guarded by this. */
+    private final LinkedHashMap<Integer, LedgerColumns> ledgers = new LinkedHashMap<>(16, 0.75f, true);
+    /** Sum of the estimated sizes of the cached ledgers. Guarded by this. */
+    private long totalBytes;
+    /** When the last ledger loaded for a user was found to exceed the budget, by user ID. Guarded by this. */
+    private final Map<Integer, Long> oversized = new HashMap<>();
+
+    /**
+     * Counts writes per stripe of users, once when a write starts and again when it is applied. A
+     * ledger loaded while one of its user's writes was in progress may or may not include that
+     * write, so it is only cached if the count is unchanged.
+     */
+    private final AtomicLongArray writes = new AtomicLongArray(STRIPES);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+
+    /**
+     * @param repositories The repositories ledgers are loaded from.
+     * @param maxBytes The memory budget of all cached ledgers in bytes; 0 disables the cache.
+     */
+    public LedgerCache(Repositories repositories, long maxBytes) {
+        this.repositories = repositories;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return Whether ledgers are cached at all.
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Returns a user's ledger, loading it if it is not cached or too old.
+     * @param userId The ID of the user.
+     * @return The user's ledger, or null if the cache is disabled or the ledger does not fit in
+     *         the memory budget; callers then query the repository.
+     * @throws SQLException if the ledger has to be loaded and a database error occurs.
+     */
+    public LedgerColumns get(int userId) throws SQLException {
+        if (!isEnabled()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            LedgerColumns ledger = ledgers.get(userId);
+            if (ledger != null && now - ledger.getLoadedAtMillis() < MAX_AGE_MILLIS) {
+                hits.incrementAndGet();
+                return ledger;
+            }
+            Long oversizedAt = oversized.get(userId);
+            if (oversizedAt != null) {
+                if (now - oversizedAt < MAX_AGE_MILLIS) {
+                    bypasses.incrementAndGet();
+                    return null;
+                }
+                oversized.remove(userId);
+            }
+        }
+        misses.incrementAndGet();
+
+        // Loaded outside the lock: other users are served while this one's history is read
+        long writesBefore = writes.get(stripe(userId));
+        LedgerColumns ledger = load(userId);
+        synchronized (this) {
+            if (ledger.getEstimatedBytes() > maxBytes) {
+                markOversized(ledger);
+                return null;
+            }
+            if (writes.get(stripe(userId)) == writesBefore) {
+                put(ledger);
+            }
+        }
+        return ledger;
+    }
+
+    /**
+     * Called before a user's transactions are written to the database, so that a ledger whose
+     * load overlaps the write is not cached. A successful write is then applied with
+     * {@link #transactionAdded}, {@link #transactionDeleted} or {@link #invalidate}.
+     * @param userId The ID of the user.
+     */
+    public void writeStarting(int userId) {
+        if (isEnabled()) {
+            writes.incrementAndGet(stripe(userId));
+        }
+    }
+
+    /**
+     * Adds a saved transaction to its user's ledger, if it is cached and does not hold it yet.
+     * @param tx The transaction, with the ID it was saved with.
+     */
+    public void transactionAdded(Transaction tx) {
+        if (!isEnabled()) {
+            return;
+        }
+        writes.incrementAndGet(stripe(tx.getUserId()));
+        LedgerColumns ledger = cachedForWrite(tx.getUserId());
+        if (ledger != null) {
+            replace(ledger, ledger.with(tx));
+        }
+    }
+
+    /**
+     * Removes a deleted transaction from its user's ledger, if it is cached.
+     * @param userId The ID of the user who owned the transaction.
+     * @param transactionId The ID of the deleted transaction.
+     */
+    public void transactionDeleted(int userId, int transactionId) {
+        if (!isEnabled()) {
+            return;
+        }
+        writes.incrementAndGet(stripe(userId));
+        LedgerColumns ledger = cachedForWrite(userId);
+        if (ledger != null) {
+            replace(ledger, ledger.without(transactionId));
+        }
+    }
+
+    /**
+     * Drops a user's ledger after a change this cache cannot apply, such as an import or a new
+     * or deleted account. It is reloaded on next use.
+     * @param userId The ID of the user.
+     */
+    public void invalidate(int userId) {
+        if (!isEnabled()) {
+            return;
+        }
+        writes.incrementAndGet(stripe(userId));
+        synchronized (this) {
+            remove(userId);
+        }
+    }
+
+    /**
+     * @return The number of cached ledgers.
+     */
+    public synchronized int size() {
+        return ledgers.size();
+    }
+
+    /**
+     * @return The estimated memory used by the cached ledgers, in bytes.
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return The number of lookups answered from memory.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of lookups that loaded the ledger from the database.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of ledgers evicted to stay within the memory budget.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The number of lookups sent to the repository because the user's ledger is known
+     *         not to fit in the memory budget.
+     */
+    public long getBypasses() {
+        return bypasses.get();
+    }
+
+    /**
+     * Reads a user's accounts, categories and transactions into columns.
+     */
+    private LedgerColumns load(int userId) throws SQLException {
+        long start = System.currentTimeMillis();
+        List<Account> accounts = repositories.accounts().findByUser(userId);
+        List<Category> categories = repositories.categories().findByUser(userId);
+        LedgerColumns.Builder builder = LedgerColumns.builder(userId, accounts, categories);
+        try {
+            repositories.ledger().streamForUser(userId, null, builder::add);
+        } catch (IOException e) {
+            // The builder does not throw
+            throw new IllegalStateException(e);
+        }
+        LedgerColumns ledger = builder.build();
+        logger.debug("Loaded {} transactions (~{} KB) of user {} in {} ms", ledger.size(),
+                ledger.getEstimatedBytes() / 1024, userId, System.currentTimeMillis() - start);
+        return ledger;
+    }
+
+    /**
+     * Returns the cached ledger a write is applied to, or drops it if it has more than
+     * {@link #WRITE_THROUGH_MAX_ROWS} rows.
+     * @return The ledger, or null if there is nothing to update.
+     */
+    private synchronized LedgerColumns cachedForWrite(int userId) {
+        LedgerColumns ledger = ledgers.get(userId);
+        if (ledger != null && ledger.size() > WRITE_THROUGH_MAX_ROWS) {
+            remove(userId);
+            return null;
+        }
+        return ledger;
+    }
+
+    /**
+     * Replaces a ledger with the copy a write produced outside the lock, so that other users'
+     * requests do not wait for the copy. If another write replaced the ledger in the meantime,
+     * neither copy has both writes, so the ledger is dropped and reloaded on next use.
+     * @param ledger The ledger the copy was made from.
+     * @param updated The copy, or null if the ledger must be reloaded.
+     */
+    private synchronized void replace(LedgerColumns ledger, LedgerColumns updated) {
+        if (ledgers.get(ledger.getUserId()) != ledger) {
+            remove(ledger.getUserId());
+            return;
+        }
+        remove(ledger.getUserId());
+        if (updated != null) {
+            put(updated);
+        }
+    }
+
+    /**
+     * Caches a ledger and evicts the least recently used ones while over budget. Must hold the lock.
+     */
+    private void put(LedgerColumns ledger) {
+        if (ledger.getEstimatedBytes() > maxBytes) {
+            markOversized(ledger);
+            return;
+        }
+        LedgerColumns previous = ledgers.put(ledger.getUserId(), ledger);
+        if (previous != null) {
+            totalBytes -= previous.getEstimatedBytes();
+        }
+        totalBytes += ledger.getEstimatedBytes();
+
+        Iterator<Map.Entry<Integer, LedgerColumns>> eldest = ledgers.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Integer, LedgerColumns> entry = eldest.next();
+            if (entry.getKey() == ledger.getUserId()) {
+                continue;
+            }
+            totalBytes -= entry.getValue().getEstimatedBytes();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drops a ledger larger than the whole budget and remembers its user, so that the next
+     * requests go to the repository instead of loading it again. Must hold the lock.
+     */
+    private void markOversized(LedgerColumns ledger) {
+        remove(ledger.getUserId());
+        if (oversized.put(ledger.getUserId(), ledger.getLoadedAtMillis()) == null) {
+            logger.info("Ledger of user {} ({} transactions, ~{} KB) exceeds the cache budget; serving it from the database.",
+                    ledger.getUserId(), ledger.size(), ledger.getEstimatedBytes() / 1024);
+        }
+    }
+
+    /**
+     * Drops a user's ledger. Must hold the lock.
+     */
+    private void remove(int userId) {
+        LedgerColumns previous = ledgers.remove(userId);
+        if (previous != null) {
+            totalBytes -= previous.getEstimatedBytes();
+        }
+    }
+
+    private static int stripe(int userId) {
+        return Math.floorMod(userId, STRIPES);
+    }
+}
@@ -0,0 +1,688 @@
+package com.budgetbakers.cache;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.entities.CategorySpending;
+import com.budgetbakers.entities.MonthlyCashFlow;
+import com.budgetbakers.entities.Transaction;
+import com.budgetbakers.repository.RowHandler;
+import com.budgetbakers.utils.DateRange;
+
+/**
+ * An immutable, column-oriented copy of one user's ledger, from which the Analysis page is
+ * answered with loops over primitive arrays instead of SQL. Rows are sorted oldest first by
+ * date and then by ID, so a date range is a contiguous slice found by binary search.
+ * <p>
+ * Accounts and categories are numbered with dense slots so that an account selection is a
+ * {@code boolean[]} and category totals are a {@code double[]}. Writes produce a new instance
+ * ({@link #with(Transaction)}, {@link #without(int)}); readers never see a partial update.
+ * <p>
+ * Every query returns what the corresponding {@link com.budgetbakers.repository.LedgerRepository}
+ * method returns for the same arguments.
+ */
+public final class LedgerColumns {
+
+    private static final byte INCOME = 0;
+    private static final byte EXPENSE = 1;
+    private static final byte TRANSFER = 2;
+    private static final byte OTHER = 3;
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    /** Approximate heap cost of one row across all columns, without its note. */
+    private static final int BYTES_PER_ROW = 4 + 4 + 4 + 8 + 1 + 4 + 4 + 8;
+    /** Approximate heap cost of a note string beyond its characters. */
+    private static final int BYTES_PER_NOTE = 40;
+
+    private final int userId;
+    private final int size;
+    private final int[] ids;
+    private final int[] epochDays;
+    private final int[] millisOfDay;
+    private final double[] amounts;
+    private final byte[] types;
+    private final int[] accountSlots;
+    /** The category slot of each row, or -1 if it has no category. */
+    private final int[] categorySlots;
+    private final String[] notes;
+
+    /** The user's accounts, indexed by slot. */
+    private final Account[] accounts;
+    /** The user's categories, indexed by slot. */
+    private final Category[] categories;
+    private final Map<Integer, Integer> accountSlotsById;
+    private final Map<Integer, Integer> categorySlotsById;
+
+    private final long loadedAtMillis;
+    private final long estimatedBytes;
+
+    private LedgerColumns(int userId, int size, int[] ids, int[] epochDays, int[] millisOfDay, double[] amounts,
+                          byte[] types, int[] accountSlots, int[] categorySlots, String[] notes,
+                          Account[] accounts, Category[] categories, Map<Integer, Integer> accountSlotsById,
+                          Map<Integer, Integer> categorySlotsById, long loadedAtMillis) {
+        this.userId = userId;
+        this.size = size;
+        this.ids = ids;
+        this.epochDays = epochDays;
+        this.millisOfDay = millisOfDay;
+        this.amounts = amounts;
+        this.types = types;
+        this.accountSlots = accountSlots;
+        this.categorySlots = categorySlots;
+        this.notes = notes;
+        this.accounts = accounts;
+        this.categories = categories;
+        this.accountSlotsById = accountSlotsById;
+        this.categorySlotsById = categorySlotsById;
+        this.loadedAtMillis = loadedAtMillis;
+
+        long bytes = 1024L + (long) size * BYTES_PER_ROW;
+        for (int i = 0; i < size; i++) {
+            if (notes[i] != null) {
+                bytes += BYTES_PER_NOTE + notes[i].length();
+            }
+        }
+        this.estimatedBytes = bytes;
+    }
+
+    /**
+     * Starts collecting a user's ledger.
+     * @param userId The ID of the user.
+     * @param accounts All of the user's accounts.
+     * @param categories All of the user's categories.
+     * @return A builder to add the user's transactions to, in any order.
+     */
+    public static Builder builder(int userId, List<Account> accounts, List<Category> categories) {
+        return new Builder(userId, accounts, categories);
+    }
+
+    /**
+     * @return The ID of the user whose ledger this is.
+     */
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return The number of transactions.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return When the ledger was read from the database, in epoch milliseconds.
+     */
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    /**
+     * @return An estimate of the heap this copy occupies, in bytes.
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Returns a copy with a new transaction added.
+     * @param tx The saved transaction, with its ID.
+     * @return The new copy, this one if it already holds the transaction (it was loaded after the
+     *         transaction was saved), or null if the transaction refers to an account or category
+     *         this copy does not know, in which case the ledger must be reloaded.
+     */
+    public LedgerColumns with(Transaction tx) {
+        Integer accountSlot = accountSlotsById.get(tx.getAccount().getId());
+        int categoryId = tx.getCategory() != null ? tx.getCategory().getId() : 0;
+        Integer categorySlot = categoryId == 0 ? Integer.valueOf(-1) : categorySlotsById.get(categoryId);
+        if (accountSlot == null || categorySlot == null) {
+            return null;
+        }
+        LocalDateTime date = tx.getTransactionDate().toLocalDateTime();
+        int day = (int) date.toLocalDate().toEpochDay();
+        int millis = (int) (date.toLocalTime().toNanoOfDay() / 1_000_000);
+
+        // Insert after every row that sorts before it; a row with the same date and ID is this one
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(epochDays[mid], millisOfDay[mid], ids[mid], day, millis, tx.getId()) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int at = low;
+        if (at < size && ids[at] == tx.getId() && epochDays[at] == day && millisOfDay[at] == millis) {
+            return this;
+        }
+        int newSize = size + 1;
+        LedgerColumns next = new LedgerColumns(userId, newSize,
+                insert(ids, at, tx.getId()), insert(epochDays, at, day), insert(millisOfDay, at, millis),
+                insert(amounts, at, tx.getAmount()), insert(types, at, typeOf(tx.getTransactionType())),
+                insert(accountSlots, at, accountSlot), insert(categorySlots, at, categorySlot),
+                insert(notes, at, tx.getNote()),
+                accounts, categories, accountSlotsById, categorySlotsById, loadedAtMillis);
+        return next;
+    }
+
+    /**
+     * Returns a copy without a transaction.
+     * @param transactionId The ID of the deleted transaction.
+     * @return The new copy, or this one if it does not hold the transaction.
+     */
+    public LedgerColumns without(int transactionId) {
+        int at = -1;
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == transactionId) {
+                at = i;
+                break;
+            }
+        }
+        if (at < 0) {
+            return this;
+        }
+        return new LedgerColumns(userId, size - 1,
+                remove(ids, at), remove(epochDays, at), remove(millisOfDay, at), remove(amounts, at),
+                remove(types, at), remove(accountSlots, at), remove(categorySlots, at), remove(notes, at),
+                accounts, categories, accountSlotsById, categorySlotsById, loadedAtMillis);
+    }
+
+    /**
+     * Selects the user's accounts in a currency, optionally restricted to some of them.
+     * @param currency The currency code.
+     * @param accountIds The selected account IDs, or null or empty for all accounts in the currency.
+     * @return Whether each account slot is selected.
+     */
+    public boolean[] selectAccounts(String currency, List<Integer> accountIds) {
+        Set<Integer> requested = accountIds == null || accountIds.isEmpty() ? null : new HashSet<>(accountIds);
+        boolean[] selected = new boolean[accounts.length];
+        for (int slot = 0; slot < accounts.length; slot++) {
+            Account account = accounts[slot];
+            selected[slot] = currency != null && currency.equals(account.getCurrency()) && (requested == null || requested.contains(account.getId()));
+        }
+        return selected;
+    }
+
+    /**
+     * Sums the initial balances of the selected accounts.
+     * @param selected The account selection from {@link #selectAccounts}.
+     * @return The total initial balance.
+     */
+    public double sumInitialBalance(boolean[] selected) {
+        double total = 0;
+        for (int slot = 0; slot < accounts.length; slot++) {
+            if (selected[slot]) {
+                total += accounts[slot].getInitialBalance();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sums income minus expense of the selected accounts before a date.
+     * @param selected The account selection from {@link #selectAccounts}.
+     * @param date The first day not included.
+     * @return The net amount.
+     */
+    public double sumNetBefore(boolean[] selected, LocalDate date) {
+        int end = lowerBound((int) date.toEpochDay());
+        double net = 0;
+        for (int i = 0; i < end; i++) {
+            if (selected[accountSlots[i]]) {
+                net += netOf(i);
+            }
+        }
+        return net;
+    }
+
+    /**
+     * Sums income minus expense of the selected accounts per day of a range.
+     * @param selected The account selection from {@link #selectAccounts}.
+     * @param range The days to include.
+     * @return The net change of each day that has transactions.
+     */
+    public Map<LocalDate, Double> findDailyNetChanges(boolean[] selected, DateRange range) {
+        int startDay = (int) range.getStart().toEpochDay();
+        int from = lowerBound(startDay);
+        int to = lowerBound((int) range.getEnd().toEpochDay());
+        double[] net = new double[Math.max(0, (int) (range.getEnd().toEpochDay() - startDay))];
+        boolean[] present = new boolean[net.length];
+        for (int i = from; i < to; i++) {
+            if (selected[accountSlots[i]]) {
+                net[epochDays[i] - startDay] += netOf(i);
+                present[epochDays[i] - startDay] = true;
+            }
+        }
+        Map<LocalDate, Double> dailyChanges = new LinkedHashMap<>();
+        for (int d = 0; d < net.length; d++) {
+            if (present[d]) {
+                dailyChanges.put(LocalDate.ofEpochDay(startDay + d), net[d]);
+            }
+        }
+        return dailyChanges;
+    }
+
+    /**
+     * Totals income and expense of the selected accounts per day, or per month for ranges that are not daily.
+     * @param selected The account selection from {@link #selectAccounts}.
+     * @param range The period to total.
+     * @return One entry per period that has transactions, oldest first.
+     */
+    public List<MonthlyCashFlow> findCashFlow(boolean[] selected, DateRange range) {
+        int startDay = (int) range.getStart().toEpochDay();
+        int from = lowerBound(startDay);
+        int to = lowerBound((int) range.getEnd().toEpochDay());
+        int days = Math.max(0, (int) (range.getEnd().toEpochDay() - startDay));
+        double[] income = new double[days];
+        double[] expense = new double[days];
+        boolean[] present = new boolean[days];
+        for (int i = from; i < to; i++) {
+            if (selected[accountSlots[i]]) {
+                int d = epochDays[i] - startDay;
+                present[d] = true;
+                if (types[i] == INCOME) {
+                    income[d] += amounts[i];
+                } else if (types[i] == EXPENSE) {
+                    expense[d] += amounts[i];
+                }
+            }
+        }
+
+        DateTimeFormatter format = range.isDaily() ? DAY_FORMAT : MONTH_FORMAT;
+        Map<String, double[]> periods = new TreeMap<>();
+        for (int d = 0; d < days; d++) {
+            if (present[d]) {
+                double[] totals = periods.computeIfAbsent(LocalDate.ofEpochDay(startDay + d).format(format), p -> new double[2]);
+                totals[0] += income[d];
+                totals[1] += expense[d];
+            }
+        }
+        List<MonthlyCashFlow> cashFlowList = new ArrayList<>();
+        for (Map.Entry<String, double[]> period : periods.entrySet()) {
+            MonthlyCashFlow mcf = new MonthlyCashFlow();
+            mcf.setMonth(period.getKey());
+            mcf.setTotalIncome(period.getValue()[0]);
+            mcf.setTotalExpense(period.getValue()[1]);
+            cashFlowList.add(mcf);
+        }
+        return cashFlowList;
+    }
+
+    /**
+     * Totals the expenses of the selected accounts per category name.
+     * @param selected The account selection from {@link #selectAccounts}.
+     * @param range The period to total.
+     * @return The spending per category, highest total first.
+     */
+    public List<CategorySpending> findSpendingByCategory(boolean[] selected, DateRange range) {
+        int from = lowerBound((int) range.getStart().toEpochDay());
+        int to = lowerBound((int) range.getEnd().toEpochDay());
+        double[] totals = new double[categories.length];
+        boolean[] present = new boolean[categories.length];
+        for (int i = from; i < to; i++) {
+            int category = categorySlots[i];
+            if (types[i] == EXPENSE && category >= 0 && selected[accountSlots[i]]) {
+                totals[category] += amounts[i];
+                present[category] = true;
+            }
+        }
+
+        // Sub-categories of different parents may share a name; they are reported together
+        Map<String, Double> byName = new HashMap<>();
+        for (int slot = 0; slot < categories.length; slot++) {
+            if (present[slot]) {
+                byName.merge(categories[slot].getName(), totals[slot], Double::sum);
+            }
+        }
+        List<CategorySpending> spendingList = new ArrayList<>();
+        byName.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(total -> {
+                    CategorySpending spending = new CategorySpending();
+                    spending.setCategoryName(total.getKey());
+                    spending.setTotalAmount(total.getValue());
+                    spendingList.add(spending);
+                });
+        return spendingList;
+    }
+
+    /**
+     * Hands the transactions of the selected accounts within a range to a handler, newest first.
+     * @param selected The account selection from {@link #selectAccounts}.
+     * @param range The period to list.
+     * @param handler Receives each transaction, with account and category names.
+     * @throws IOException if the handler fails.
+     */
+    public void forEachTransaction(boolean[] selected, DateRange range, RowHandler<Transaction> handler) throws IOException {
+        int from = lowerBound((int) range.getStart().toEpochDay());
+        int to = lowerBound((int) range.getEnd().toEpochDay());
+        for (int i = to - 1; i >= from; i--) {
+            if (selected[accountSlots[i]]) {
+                handler.handle(toTransaction(i));
+            }
+        }
+    }
+
+    /**
+     * Lists the transactions of the selected accounts within a range, newest first.
+     * @param selected The account selection from {@link #selectAccounts}.
+     * @param range The period to list.
+     * @return The transactions, with account and category names.
+     */
+    public List<Transaction> findTransactions(boolean[] selected, DateRange range) {
+        List<Transaction> transactions = new ArrayList<>();
+        try {
+            forEachTransaction(selected, range, transactions::add);
+        } catch (IOException e) {
+            // Adding to a list does not throw
+            throw new IllegalStateException(e);
+        }
+        return transactions;
+    }
+
+    /**
+     * Returns the index of the first row on or after a day.
+     */
+    private int lowerBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private double netOf(int row) {
+        return types[row] == INCOME ? amounts[row] : types[row] == EXPENSE ? -amounts[row] : 0;
+    }
+
+    /**
+     * Builds a transaction like the joined SQL queries: with account and category names.
+     */
+    private Transaction toTransaction(int row) {
+        Transaction tx = new Transaction();
+        tx.setId(ids[row]);
+        tx.setUserId(userId);
+        tx.setTransactionType(typeName(types[row]));
+        tx.setAmount(amounts[row]);
+        tx.setTransactionDate(Timestamp.valueOf(LocalDate.ofEpochDay(epochDays[row]).atTime(LocalTime.ofNanoOfDay(millisOfDay[row] * 1_000_000L))));
+        tx.setNote(notes[row]);
+
+        Account stored = accounts[accountSlots[row]];
+        Account account = new Account();
+        account.setId(stored.getId());
+        account.setName(stored.getName());
+        tx.setAccount(account);
+
+        if (categorySlots[row] >= 0) {
+            Category storedCategory = categories[categorySlots[row]];
+            Category category = new Category();
+            category.setId(storedCategory.getId());
+            category.setName(storedCategory.getName());
+            tx.setCategory(category);
+        }
+        return tx;
+    }
+
+    private static int compare(int dayA, int millisA, int idA, int dayB, int millisB, int idB) {
+        if (dayA != dayB) {
+            return Integer.compare(dayA, dayB);
+        }
+        if (millisA != millisB) {
+            return Integer.compare(millisA, millisB);
+        }
+        return Integer.compare(idA, idB);
+    }
+
+    private static byte typeOf(String type) {
+        if ("Income".equals(type)) {
+            return INCOME;
+        } else if ("Expense".equals(type)) {
+            return EXPENSE;
+        } else if ("Transfer".equals(type)) {
+            return TRANSFER;
+        }
+        return OTHER;
+    }
+
+    private static String typeName(byte type) {
+        switch (type) {
+        case INCOME:
+            return "Income";
+        case EXPENSE:
+            return "Expense";
+        case TRANSFER:
+            return "Transfer";
+        default:
+            return null;
+        }
+    }
+
+    private static int[] insert(int[] column, int at, int value) {
+        int[] copy = new int[column.length + 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(column, at, copy, at + 1, column.length - at);
+        return copy;
+    }
+
+    private static double[] insert(double[] column, int at, double value) {
+        double[] copy = new double[column.length + 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(column, at, copy, at + 1, column.length - at);
+        return copy;
+    }
+
+    private static byte[] insert(byte[] column, int at, byte value) {
+        byte[] copy = new byte[column.length + 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(column, at, copy, at + 1, column.length - at);
+        return copy;
+    }
+
+    private static String[] insert(String[] column, int at, String value) {
+        String[] copy = new String[column.length + 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(column, at, copy, at + 1, column.length - at);
+        return copy;
+    }
+
+    private static int[] remove(int[] column, int at) {
+        int[] copy = new int[column.length - 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        System.arraycopy(column, at + 1, copy, at, column.length - at - 1);
+        return copy;
+    }
+
+    private static double[] remove(double[] column, int at) {
+        double[] copy = new double[column.length - 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        System.arraycopy(column, at + 1, copy, at, column.length - at - 1);
+        return copy;
+    }
+
+    private static byte[] remove(byte[] column, int at) {
+        byte[] copy = new byte[column.length - 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        System.arraycopy(column, at + 1, copy, at, column.length - at - 1);
+        return copy;
+    }
+
+    private static String[] remove(String[] column, int at) {
+        String[] copy = new String[column.length - 1];
+        System.arraycopy(column, 0, copy, 0, at);
+        System.arraycopy(column, at + 1, copy, at, column.length - at - 1);
+        return copy;
+    }
+
+    /**
+     * Collects a user's transactions into columns. Rows may be added in any order; they are
+     * sorted when the ledger is built.
+     */
+    public static final class Builder {
+        private final int userId;
+        private final Account[] accounts;
+        private final Category[] categories;
+        private final Map<Integer, Integer> accountSlotsById = new HashMap<>();
+        private final Map<Integer, Integer> categorySlotsById = new HashMap<>();
+        private final long startedAtMillis = System.currentTimeMillis();
+
+        private int size;
+        private int[] ids = new int[256];
+        private int[] epochDays = new int[256];
+        private int[] millisOfDay = new int[256];
+        private double[] amounts = new double[256];
+        private byte[] types = new byte[256];
+        private int[] accountSlots = new int[256];
+        private int[] categorySlots = new int[256];
+        private String[] notes = new String[256];
+
+        private Builder(int userId, List<Account> accounts, List<Category> categories) {
+            this.userId = userId;
+            this.accounts = new Account[accounts.size()];
+            for (int slot = 0; slot < accounts.size(); slot++) {
+                Account source = accounts.get(slot);
+                Account account = new Account();
+                account.setId(source.getId());
+                account.setName(source.getName());
+                account.setCurrency(source.getCurrency());
+                account.setInitialBalance(source.getInitialBalance());
+                this.accounts[slot] = account;
+                accountSlotsById.put(account.getId(), slot);
+            }
+            this.categories = new Category[categories.size()];
+            for (int slot = 0; slot < categories.size(); slot++) {
+                Category source = categories.get(slot);
+                Category category = new Category();
+                category.setId(source.getId());
+                category.setName(source.getName());
+                this.categories[slot] = category;
+                categorySlotsById.put(category.getId(), slot);
+            }
+        }
+
+        /**
+         * Adds a transaction. Transactions of accounts that are not the user's are skipped.
+         * @param tx The transaction.
+         */
+        public void add(Transaction tx) {
+            Integer accountSlot = accountSlotsById.get(tx.getAccount().getId());
+            if (accountSlot == null) {
+                return;
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                millisOfDay = Arrays.copyOf(millisOfDay, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                types = Arrays.copyOf(types, capacity);
+                accountSlots = Arrays.copyOf(accountSlots, capacity);
+                categorySlots = Arrays.copyOf(categorySlots, capacity);
+                notes = Arrays.copyOf(notes, capacity);
+            }
+            LocalDateTime date = tx.getTransactionDate().toLocalDateTime();
+            Integer categorySlot = tx.getCategory() != null ? categorySlotsById.get(tx.getCategory().getId()) : null;
+            ids[size] = tx.getId();
+            epochDays[size] = (int) date.toLocalDate().toEpochDay();
+            millisOfDay[size] = (int) (date.toLocalTime().toNanoOfDay() / 1_000_000);
+            amounts[size] = tx.getAmount();
+            types[size] = typeOf(tx.getTransactionType());
+            accountSlots[size] = accountSlot;
+            categorySlots[size] = categorySlot != null ? categorySlot : -1;
+            notes[size] = tx.getNote();
+            size++;
+        }
+
+        /**
+         * Sorts the collected rows oldest first and builds the ledger.
+         * @return The user's ledger.
+         */
+        public LedgerColumns build() {
+            // Sorted as packed primitive keys rather than boxed indices: rank the rows by ID, sort
+            // by day and rank, then re-sort each day by time of day and rank
+            long[] byId = new long[size];
+            for (int i = 0; i < size; i++) {
+                byId[i] = (long) ids[i] << 32 | i;
+            }
+            Arrays.sort(byId);
+            int[] rankOf = new int[size];
+            for (int rank = 0; rank < size; rank++) {
+                rankOf[(int) byId[rank]] = rank;
+            }
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = (long) epochDays[i] << 32 | rankOf[i];
+            }
+            Arrays.sort(keys);
+            for (int start = 0, end; start < size; start = end) {
+                int day = (int) (keys[start] >> 32);
+                end = start + 1;
+                while (end < size && (int) (keys[end] >> 32) == day) {
+                    end++;
+                }
+                if (end - start > 1) {
+                    for (int k = start; k < end; k++) {
+                        int rank = (int) keys[k];
+                        keys[k] = (long) millisOfDay[(int) byId[rank]] << 32 | rank;
+                    }
+                    Arrays.sort(keys, start, end);
+                }
+            }
+            int[] order = new int[size];
+            for (int k = 0; k < size; k++) {
+                order[k] = (int) byId[(int) keys[k]];
+            }
+
+            int[] sortedIds = new int[size];
+            int[] sortedDays = new int[size];
+            int[] sortedMillis = new int[size];
+            double[] sortedAmounts = new double[size];
+            byte[] sortedTypes = new byte[size];
+            int[] sortedAccounts = new int[size];
+            int[] sortedCategories = new int[size];
+            String[] sortedNotes = new String[size];
+            for (int i = 0; i < size; i++) {
+                int from = order[i];
+                sortedIds[i] = ids[from];
+                sortedDays[i] = epochDays[from];
+                sortedMillis[i] = millisOfDay[from];
+                sortedAmounts[i] = amounts[from];
+                sortedTypes[i] = types[from];
+                sortedAccounts[i] = accountSlots[from];
+                sortedCategories[i] = categorySlots[from];
+                sortedNotes[i] = notes[from];
+            }
+            return new LedgerColumns(userId, size, sortedIds, sortedDays, sortedMillis, sortedAmounts, sortedTypes,
+                    sortedAccounts, sortedCategories, sortedNotes, accounts, categories, accountSlotsById,
+                    categorySlotsById, startedAtMillis);
+        }
+    }
+}
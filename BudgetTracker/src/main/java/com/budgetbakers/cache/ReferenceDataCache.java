@@ -0,0 +1,112 @@
+package com.budgetbakers.cache;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.budgetbakers.entities.ReferenceData;
+import com.budgetbakers.repository.AccountRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Caches each user's {@link ReferenceData}, so that pages showing account and category
+ * dropdowns do not query them on every request.
+ * <p>
+ * As in the {@link AnalysisCache}, entries are keyed by the user's version, which
+ * {@link #invalidate(int)} bumps when one of the user's accounts or categories changes; a
+ * snapshot loaded before the change is then never returned again. Snapshots also expire after
+ * {@link #TTL_SECONDS}, which bounds how long changes made by another process go unseen.
+ */
+public final class ReferenceDataCache {
+
+    /** Maximum number of cached snapshots, configurable with the {@code budgettracker.cache.reference.maxEntries} system property; 0 disables the cache. */
+    public static final long MAX_ENTRIES = Long.getLong("budgettracker.cache.reference.maxEntries", 10_000);
+    /** How long a snapshot is kept after it is loaded, configurable with the {@code budgettracker.cache.reference.ttlSeconds} system property. */
+    public static final long TTL_SECONDS = Long.getLong("budgettracker.cache.reference.ttlSeconds", 3600);
+
+    private final AccountRepository accounts;
+    private final Cache<Key, ReferenceData> snapshots;
+    private final ConcurrentHashMap<Integer, Long> versions = new ConcurrentHashMap<>();
+
+    /**
+     * @param accounts The repository snapshots are loaded from.
+     * @param maxEntries The maximum number of cached snapshots; 0 disables the cache.
+     * @param ttlSeconds How long a snapshot is kept after it is loaded, in seconds.
+     */
+    public ReferenceDataCache(AccountRepository accounts, long maxEntries, long ttlSeconds) {
+        this.accounts = accounts;
+        this.snapshots = maxEntries > 0
+                ? CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).recordStats().build()
+                : null;
+    }
+
+    /**
+     * Returns a user's reference data, loading it in one round trip if it is not cached.
+     * @param userId The ID of the user.
+     * @return The user's {@link ReferenceData}.
+     * @throws SQLException if the snapshot had to be loaded and a database error occurred.
+     */
+    public ReferenceData get(int userId) throws SQLException {
+        if (snapshots == null) {
+            return accounts.findReferenceData(userId);
+        }
+        Key key = new Key(userId, versions.getOrDefault(userId, 0L));
+        try {
+            return snapshots.get(key, () -> accounts.findReferenceData(userId));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Makes a user's cached snapshot stale, after one of the user's accounts or categories changed.
+     * @param userId The ID of the user.
+     */
+    public void invalidate(int userId) {
+        versions.merge(userId, 1L, Long::sum);
+    }
+
+    /**
+     * @return The hit, miss, load time and eviction counts since the cache was created, or
+     *         empty counts if it is disabled.
+     */
+    public CacheStats getStats() {
+        return snapshots != null ? snapshots.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Identifies the snapshot of one version of a user's reference data.
+     */
+    private static final class Key {
+        private final int userId;
+        private final long version;
+
+        private Key(int userId, long version) {
+            this.userId = userId;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return userId == other.userId && version == other.version;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * userId + Long.hashCode(version);
+        }
+    }
+}
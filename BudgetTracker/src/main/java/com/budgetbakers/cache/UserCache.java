@@ -0,0 +1,137 @@
+package com.budgetbakers.cache;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.budgetbakers.entities.User;
+import com.budgetbakers.repository.UserRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Caches user lookups by email for a short time, so that the steps of a login (email, temporary
+ * password, password) and bursts of logins do not query the {@code users} table repeatedly.
+ * <p>
+ * Emails that have no user are cached too, for a shorter time, so that repeated attempts with
+ * an unknown email do not reach the database either. The services writing users call
+ * {@link #invalidate(String)} after each write; the time limits bound how long writes made by
+ * another process go unseen. Emails are compared ignoring case, as the database does.
+ */
+public final class UserCache {
+
+    /** How long a found user is kept, configurable with the {@code budgettracker.cache.user.ttlSeconds} system property; 0 disables the cache. */
+    public static final long TTL_SECONDS = Long.getLong("budgettracker.cache.user.ttlSeconds", 60);
+    /** How long an unknown email is remembered, configurable with the {@code budgettracker.cache.user.negativeTtlSeconds} system property. */
+    public static final long NEGATIVE_TTL_SECONDS = Long.getLong("budgettracker.cache.user.negativeTtlSeconds", 10);
+    /** Maximum number of cached emails of each kind. */
+    private static final long MAX_ENTRIES = 10_000;
+
+    private final UserRepository users;
+    private final Cache<String, User> found;
+    private final Cache<String, Boolean> unknown;
+    /**
+     * Counts invalidations, so that a lookup that raced with one is not cached. The check and the
+     * put that follows it hold this cache's lock, as does {@link #invalidate(String)}, so an
+     * invalidation cannot slip in between them.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param users The repository users are looked up in.
+     * @param ttlSeconds How long a found user is kept, in seconds; 0 disables the cache.
+     * @param negativeTtlSeconds How long an unknown email is remembered, in seconds.
+     */
+    public UserCache(UserRepository users, long ttlSeconds, long negativeTtlSeconds) {
+        this.users = users;
+        if (ttlSeconds > 0) {
+            this.found = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).recordStats().build();
+            this.unknown = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).expireAfterWrite(negativeTtlSeconds, TimeUnit.SECONDS).recordStats().build();
+        } else {
+            this.found = null;
+            this.unknown = null;
+        }
+    }
+
+    /**
+     * Looks up a user by email.
+     * @param email The email address.
+     * @return A copy of the {@link User}, or null if no user has this email.
+     * @throws SQLException if the user had to be looked up and a database error occurred.
+     */
+    public User findByEmail(String email) throws SQLException {
+        if (found == null || email == null) {
+            return users.findByEmail(email);
+        }
+        String key = key(email);
+        User user = found.getIfPresent(key);
+        if (user != null) {
+            return copy(user);
+        }
+        if (unknown.getIfPresent(key) != null) {
+            return null;
+        }
+
+        long invalidationsBefore = invalidations.get();
+        user = users.findByEmail(email);
+        synchronized (this) {
+            if (invalidations.get() == invalidationsBefore) {
+                if (user != null) {
+                    found.put(key, copy(user));
+                } else {
+                    unknown.put(key, Boolean.TRUE);
+                }
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Forgets what is cached for an email, after its user was created or changed.
+     * @param email The email address.
+     */
+    public void invalidate(String email) {
+        if (found != null && email != null) {
+            synchronized (this) {
+                invalidations.incrementAndGet();
+                found.invalidate(key(email));
+                unknown.invalidate(key(email));
+            }
+        }
+    }
+
+    /**
+     * @return The hit, miss and eviction counts of found users.
+     */
+    public CacheStats getStats() {
+        return found != null ? found.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @return The hit, miss and eviction counts of unknown emails.
+     */
+    public CacheStats getNegativeStats() {
+        return unknown != null ? unknown.stats() : new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    private static String key(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Copies a user, so that neither callers nor the session can change the cached one.
+     */
+    private static User copy(User source) {
+        User user = new User();
+        user.setId(source.getId());
+        user.setEmail(source.getEmail());
+        user.setPassword(source.getPassword());
+        user.setTempPassword(source.getTempPassword());
+        user.setTemp(source.isTemp());
+        user.setCreatedAt(source.getCreatedAt());
+        user.setAuthProvider(source.getAuthProvider());
+        return user;
+    }
+}
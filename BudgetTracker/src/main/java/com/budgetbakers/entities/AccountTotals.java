@@ -0,0 +1,99 @@
+package com.budgetbakers.entities;
+
+/**
+ * A Data Transfer Object (DTO) holding the all-time transaction totals of a single account,
+ * as maintained in the `account_balances` table.
+ */
+public class AccountTotals {
+
+    /** The ID of the account the totals belong to. */
+    private int accountId;
+    /** The sum of all income transactions of the account. */
+    private double totalIncome;
+    /** The sum of all expense transactions of the account. */
+    private double totalExpense;
+    /** The sum of all transfers into the account. */
+    private double transferIn;
+    /** The sum of all transfers out of the account. */
+    private double transferOut;
+
+    /**
+     * Gets the ID of the account.
+     * @return The account ID.
+     */
+    public int getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * Sets the ID of the account.
+     * @param accountId The account ID.
+     */
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    /**
+     * Gets the total income of the account.
+     * @return The total income.
+     */
+    public double getTotalIncome() {
+        return totalIncome;
+    }
+
+    /**
+     * Sets the total income of the account.
+     * @param totalIncome The total income.
+     */
+    public void setTotalIncome(double totalIncome) {
+        this.totalIncome = totalIncome;
+    }
+
+    /**
+     * Gets the total expense of the account.
+     * @return The total expense.
+     */
+    public double getTotalExpense() {
+        return totalExpense;
+    }
+
+    /**
+     * Sets the total expense of the account.
+     * @param totalExpense The total expense.
+     */
+    public void setTotalExpense(double totalExpense) {
+        this.totalExpense = totalExpense;
+    }
+
+    /**
+     * Gets the total of all transfers into the account.
+     * @return The incoming transfer total.
+     */
+    public double getTransferIn() {
+        return transferIn;
+    }
+
+    /**
+     * Sets the total of all transfers into the account.
+     * @param transferIn The incoming transfer total.
+     */
+    public void setTransferIn(double transferIn) {
+        this.transferIn = transferIn;
+    }
+
+    /**
+     * Gets the total of all transfers out of the account.
+     * @return The outgoing transfer total.
+     */
+    public double getTransferOut() {
+        return transferOut;
+    }
+
+    /**
+     * Sets the total of all transfers out of the account.
+     * @param transferOut The outgoing transfer total.
+     */
+    public void setTransferOut(double transferOut) {
+        this.transferOut = transferOut;
+    }
+}
@@ -0,0 +1,94 @@
+package com.budgetbakers.entities;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An aggregate holding everything the Dashboard and Accounts pages show for one user, loaded
+ * once per request. The account summaries (with their totals and top spending categories)
+ * and the current month's income and expense totals are fetched together; the KPIs and the
+ * primary currency are derived from them in memory, so no page needs to query a second time.
+ */
+public class DashboardSnapshot {
+
+    /** The currency shown for the KPIs when the user has no accounts yet. */
+    private static final String DEFAULT_CURRENCY = "INR";
+
+    /** The user's accounts, each populated with summary data. */
+    private final List<Account> accountSummaries;
+    /** The total income of the current month. */
+    private final double monthlyIncome;
+    /** The total expense of the current month. */
+    private final double monthlyExpense;
+    /** The sum of the current balances of all accounts. */
+    private final double totalBalance;
+
+    /**
+     * @param accountSummaries The user's accounts with summary data (current balance, totals, top categories).
+     * @param monthlyTotals The current month's totals keyed by transaction type ("Income", "Expense", ...).
+     */
+    public DashboardSnapshot(List<Account> accountSummaries, Map<String, Double> monthlyTotals) {
+        this.accountSummaries = Collections.unmodifiableList(accountSummaries);
+        this.monthlyIncome = monthlyTotals.getOrDefault("Income", 0.0);
+        this.monthlyExpense = monthlyTotals.getOrDefault("Expense", 0.0);
+        double balance = 0.0;
+        for (Account account : accountSummaries) {
+            balance += account.getCurrentBalance();
+        }
+        this.totalBalance = balance;
+    }
+
+    /**
+     * Gets the user's accounts with their summary data.
+     * @return An unmodifiable list of {@link Account} objects.
+     */
+    public List<Account> getAccountSummaries() {
+        return accountSummaries;
+    }
+
+    /**
+     * Gets the sum of the current balances of all accounts.
+     * @return The total balance.
+     */
+    public double getTotalBalance() {
+        return totalBalance;
+    }
+
+    /**
+     * Gets the total expense of the current month.
+     * @return The monthly spending.
+     */
+    public double getMonthlySpending() {
+        return monthlyExpense;
+    }
+
+    /**
+     * Gets the net cash flow (income minus expense) of the current month.
+     * @return The monthly cash flow.
+     */
+    public double getMonthlyCashFlow() {
+        return monthlyIncome - monthlyExpense;
+    }
+
+    /**
+     * Gets the Key Performance Indicators in the shape the dashboard view expects.
+     * @return A Map with the keys "totalBalance", "monthlySpending" and "monthlyCashFlow".
+     */
+    public Map<String, Double> getKpis() {
+        Map<String, Double> kpis = new HashMap<>();
+        kpis.put("totalBalance", getTotalBalance());
+        kpis.put("monthlySpending", getMonthlySpending());
+        kpis.put("monthlyCashFlow", getMonthlyCashFlow());
+        return kpis;
+    }
+
+    /**
+     * Gets the currency the KPIs are displayed in: that of the user's first account.
+     * @return A currency code, e.g. "INR".
+     */
+    public String getPrimaryCurrency() {
+        return accountSummaries.isEmpty() ? DEFAULT_CURRENCY : accountSummaries.get(0).getCurrency();
+    }
+}
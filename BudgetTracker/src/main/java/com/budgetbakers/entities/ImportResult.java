@@ -0,0 +1,162 @@
+package com.budgetbakers.entities;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The progress and outcome of a statement import. It is updated by the importing request as
+ * rows are read and chunks are committed, and can be read concurrently (e.g. serialized to JSON
+ * by a progress report on another thread), so its counters are volatile and its error list is thread-safe.
+ */
+public class ImportResult {
+
+    /** At most this many row errors are kept; further failed rows are only counted. */
+    public static final int MAX_ERRORS = 100;
+
+    /** The name of the uploaded file. */
+    private final String fileName;
+    /** The number of rows read from the file so far. */
+    private volatile int rowsRead;
+    /** The number of rows committed to the ledger so far. */
+    private volatile int rowsImported;
+    /** The number of rows that were rejected or whose chunk failed to commit. */
+    private volatile int rowsFailed;
+    /** Whether the import has ended, successfully or not. */
+    private volatile boolean finished;
+    /** Why the import stopped early, or null if the whole file was read. */
+    private volatile String failure;
+    /** The first {@link #MAX_ERRORS} row errors. */
+    private final List<RowError> errors = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param fileName The name of the uploaded file.
+     */
+    public ImportResult(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Counts a row read from the file.
+     */
+    public void rowRead() {
+        rowsRead++;
+    }
+
+    /**
+     * Counts rows committed to the ledger.
+     * @param count The number of rows in the committed chunk.
+     */
+    public void rowsImported(int count) {
+        rowsImported += count;
+    }
+
+    /**
+     * Counts a failed row and records why, unless {@link #MAX_ERRORS} errors are already recorded.
+     * @param line The line of the file the row starts on.
+     * @param message What was wrong with the row.
+     */
+    public void rowFailed(int line, String message) {
+        rowsFailed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    /**
+     * Marks the import as ended.
+     * @param failure Why the import stopped before the end of the file, or null if it did not.
+     */
+    public void finish(String failure) {
+        this.failure = failure;
+        this.finished = true;
+    }
+
+    /**
+     * Gets the name of the uploaded file.
+     * @return The file name.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Gets the number of rows read from the file so far.
+     * @return The row count.
+     */
+    public int getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Gets the number of rows committed to the ledger so far.
+     * @return The row count.
+     */
+    public int getRowsImported() {
+        return rowsImported;
+    }
+
+    /**
+     * Gets the number of rows that were not imported.
+     * @return The row count.
+     */
+    public int getRowsFailed() {
+        return rowsFailed;
+    }
+
+    /**
+     * Checks whether the import has ended.
+     * @return true once the import has ended, successfully or not.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Gets why the import stopped before the end of the file.
+     * @return The reason, or null if the whole file was read.
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return An unmodifiable view of the recorded row errors, in file order.
+     */
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * A row of the file that was not imported, and why.
+     */
+    public static class RowError {
+        private final int line;
+        private final String message;
+
+        /**
+         * @param line The line of the file the row starts on.
+         * @param message What was wrong with the row.
+         */
+        public RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * Gets the line of the file the row starts on.
+         * @return The line number, counting from 1.
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * Gets what was wrong with the row.
+         * @return The error message.
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.budgetbakers.entities;
+
+import java.sql.Timestamp;
+import java.util.function.IntFunction;
+
+/**
+ * A {@link User} known from a verified login cookie: its ID and auth provider come from the
+ * cookie, and the rest of its details are loaded on first use. Most requests only need the ID,
+ * so they are served without looking the user up.
+ * <p>
+ * Instances are scoped to one request and are not thread-safe.
+ */
+public class LazyUser extends User {
+
+    /** Loads the full user by ID; may return null if the user no longer exists. */
+    private final IntFunction<User> loader;
+    /** Whether the details have been loaded. */
+    private boolean loaded;
+
+    /**
+     * Creates a user whose details are loaded on first use.
+     * @param id The user ID.
+     * @param authProvider The authentication provider.
+     * @param loader Loads the full user by ID, e.g. {@code UserService::findUserById}.
+     */
+    public LazyUser(int id, String authProvider, IntFunction<User> loader) {
+        this.loader = loader;
+        super.setId(id);
+        super.setAuthProvider(authProvider);
+    }
+
+    /**
+     * Checks whether the details have been loaded.
+     * @return true once any detail beyond the ID and auth provider has been read or written.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public String getEmail() {
+        load();
+        return super.getEmail();
+    }
+
+    @Override
+    public void setEmail(String email) {
+        load();
+        super.setEmail(email);
+    }
+
+    @Override
+    public String getPassword() {
+        load();
+        return super.getPassword();
+    }
+
+    @Override
+    public void setPassword(String password) {
+        load();
+        super.setPassword(password);
+    }
+
+    @Override
+    public String getTempPassword() {
+        load();
+        return super.getTempPassword();
+    }
+
+    @Override
+    public void setTempPassword(String tempPassword) {
+        load();
+        super.setTempPassword(tempPassword);
+    }
+
+    @Override
+    public boolean isTemp() {
+        load();
+        return super.isTemp();
+    }
+
+    @Override
+    public void setTemp(boolean isTemp) {
+        load();
+        super.setTemp(isTemp);
+    }
+
+    @Override
+    public Timestamp getCreatedAt() {
+        load();
+        return super.getCreatedAt();
+    }
+
+    @Override
+    public void setCreatedAt(Timestamp createdAt) {
+        load();
+        super.setCreatedAt(createdAt);
+    }
+
+    /**
+     * Private helper method to copy the stored details into this user on first use.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        User user = loader.apply(getId());
+        if (user != null) {
+            super.setEmail(user.getEmail());
+            super.setPassword(user.getPassword());
+            super.setTempPassword(user.getTempPassword());
+            super.setTemp(user.isTemp());
+            super.setCreatedAt(user.getCreatedAt());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.budgetbakers.entities;
+
+/**
+ * Represents an email waiting in the outbox.
+ * This class models the `email_outbox` table: an email is stored there in the same database
+ * transaction as the change it announces, and is delivered later by the background dispatcher.
+ */
+public class OutboxEmail {
+
+    /** The unique identifier for the queued email. */
+    private long id;
+    /** The recipient's email address. */
+    private String recipient;
+    /** The subject line. */
+    private String subject;
+    /** The plain-text body. */
+    private String body;
+    /** The number of delivery attempts so far, including the current one once the email is claimed. */
+    private int attempts;
+
+    /**
+     * Default constructor.
+     */
+    public OutboxEmail() {}
+
+    /**
+     * Creates an email that has not been queued yet.
+     * @param recipient The recipient's email address.
+     * @param subject The subject line.
+     * @param body The plain-text body.
+     */
+    public OutboxEmail(String recipient, String subject, String body) {
+        this.recipient = recipient;
+        this.subject = subject;
+        this.body = body;
+    }
+
+    /**
+     * Gets the unique ID of the queued email.
+     * @return The outbox ID, or 0 if the email has not been queued yet.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the unique ID of the queued email.
+     * @param id The outbox ID.
+     */
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the recipient's email address.
+     * @return The recipient.
+     */
+    public String getRecipient() {
+        return recipient;
+    }
+
+    /**
+     * Sets the recipient's email address.
+     * @param recipient The recipient.
+     */
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    /**
+     * Gets the subject line.
+     * @return The subject.
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Sets the subject line.
+     * @param subject The subject.
+     */
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    /**
+     * Gets the plain-text body.
+     * @return The body.
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * Sets the plain-text body.
+     * @param body The body.
+     */
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    /**
+     * Gets the number of delivery attempts so far.
+     * @return The attempt count.
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Sets the number of delivery attempts so far.
+     * @param attempts The attempt count.
+     */
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+}
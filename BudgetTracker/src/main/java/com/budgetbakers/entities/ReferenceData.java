@@ -0,0 +1,69 @@
+package com.budgetbakers.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of a user's reference data: the accounts, categories and currencies
+ * that fill the dropdowns and filters of the Records, Add Record and Analysis pages. They change
+ * rarely, so a snapshot is loaded in one round trip and shared by every request until one of the
+ * user's accounts or categories changes.
+ * <p>
+ * The lists cannot be modified, and the objects in them must not be either.
+ */
+public class ReferenceData {
+
+    /** The user's accounts, ordered by name. */
+    private final List<Account> accounts;
+    /** The user's categories, ordered by name. */
+    private final List<Category> categories;
+    /** The distinct currencies of the user's accounts, in the order the accounts were created. */
+    private final List<String> currencies;
+
+    /**
+     * @param accounts The user's accounts, ordered by ID.
+     * @param categories The user's categories, in any order.
+     */
+    public ReferenceData(List<Account> accounts, List<Category> categories) {
+        Set<String> distinctCurrencies = new LinkedHashSet<>();
+        for (Account account : accounts) {
+            distinctCurrencies.add(account.getCurrency());
+        }
+        List<Account> sortedAccounts = new ArrayList<>(accounts);
+        sortedAccounts.sort(Comparator.comparing(Account::getName, String.CASE_INSENSITIVE_ORDER));
+        List<Category> sortedCategories = new ArrayList<>(categories);
+        sortedCategories.sort(Comparator.comparing(Category::getName, String.CASE_INSENSITIVE_ORDER));
+
+        this.accounts = Collections.unmodifiableList(sortedAccounts);
+        this.categories = Collections.unmodifiableList(sortedCategories);
+        this.currencies = Collections.unmodifiableList(new ArrayList<>(distinctCurrencies));
+    }
+
+    /**
+     * Gets the user's accounts.
+     * @return An unmodifiable list of {@link Account} objects, ordered by name.
+     */
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * Gets the user's categories.
+     * @return An unmodifiable list of {@link Category} objects, ordered by name.
+     */
+    public List<Category> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Gets the currencies the user has accounts in.
+     * @return An unmodifiable list of distinct currency codes.
+     */
+    public List<String> getCurrencies() {
+        return currencies;
+    }
+}
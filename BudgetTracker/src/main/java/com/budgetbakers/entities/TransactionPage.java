@@ -0,0 +1,48 @@
+package com.budgetbakers.entities;
+
+import java.util.List;
+
+/**
+ * A Data Transfer Object (DTO) holding one page of a user's records, newest first, and the
+ * cursor of the page that follows it. It is rendered by `records.jsp` for the first page and
+ * serialized to JSON for the pages loaded while scrolling.
+ */
+public class TransactionPage {
+
+    /** The records of this page. */
+    private List<Transaction> transactions;
+    /** The cursor of the next page, or null if this is the last page. */
+    private String nextCursor;
+
+    /**
+     * Gets the records of this page.
+     * @return The list of transactions.
+     */
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Sets the records of this page.
+     * @param transactions The list of transactions.
+     */
+    public void setTransactions(List<Transaction> transactions) {
+        this.transactions = transactions;
+    }
+
+    /**
+     * Gets the cursor of the next page.
+     * @return The cursor, or null if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Sets the cursor of the next page.
+     * @param nextCursor The cursor, or null if this is the last page.
+     */
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,72 @@
+package com.budgetbakers.repository;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.ReferenceData;
+
+/**
+ * Data access for the `accounts` table.
+ */
+public interface AccountRepository {
+
+    /**
+     * Fetches all accounts of a user, ordered by ID.
+     * @param userId The ID of the user.
+     * @return A list of basic {@link Account} objects without summary data.
+     * @throws SQLException if a database error occurs.
+     */
+    List<Account> findByUser(int userId) throws SQLException;
+
+    /**
+     * Fetches all accounts and categories of a user in one round trip.
+     * @param userId The ID of the user.
+     * @return The user's {@link ReferenceData}.
+     * @throws SQLException if a database error occurs.
+     */
+    ReferenceData findReferenceData(int userId) throws SQLException;
+
+    /**
+     * Counts the accounts of a user.
+     * @param userId The ID of the user.
+     * @return The number of accounts the user owns.
+     * @throws SQLException if a database error occurs.
+     */
+    int countByUser(int userId) throws SQLException;
+
+    /**
+     * Saves a new account. The generated ID is set on the given object.
+     * @param account The account to save; its userId and other required fields must be set.
+     * @throws SQLException if a database error occurs.
+     */
+    void insert(Account account) throws SQLException;
+
+    /**
+     * Deletes an account belonging to a user, together with its transactions, and atomically
+     * removes its outgoing transfers from the running totals of their target accounts.
+     * @param accountId The ID of the account.
+     * @param userId The ID of the user who owns the account.
+     * @return true if an account was deleted.
+     * @throws SQLException if a database error occurs.
+     */
+    boolean delete(int accountId, int userId) throws SQLException;
+
+    /**
+     * Fetches the distinct currencies used by a user's accounts.
+     * @param userId The ID of the user.
+     * @return A list of currency codes.
+     * @throws SQLException if a database error occurs.
+     */
+    List<String> findDistinctCurrencies(int userId) throws SQLException;
+
+    /**
+     * Sums the initial balances of a user's accounts in one currency.
+     * @param userId The ID of the user.
+     * @param currency The currency of the accounts to include.
+     * @param accountIds The accounts to restrict the sum to, or null/empty for all.
+     * @return The summed initial balance.
+     * @throws SQLException if a database error occurs.
+     */
+    double sumInitialBalance(int userId, String currency, List<Integer> accountIds) throws SQLException;
+}
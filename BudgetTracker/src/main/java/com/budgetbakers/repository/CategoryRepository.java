@@ -0,0 +1,29 @@
+package com.budgetbakers.repository;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import com.budgetbakers.entities.Category;
+
+/**
+ * Data access for the `categories` table.
+ */
+public interface CategoryRepository {
+
+    /**
+     * Fetches all categories of a user, ordered by name.
+     * @param userId The ID of the user.
+     * @return A list of {@link Category} objects.
+     * @throws SQLException if a database error occurs.
+     */
+    List<Category> findByUser(int userId) throws SQLException;
+
+    /**
+     * Creates a two-level category tree for a user.
+     * @param userId The ID of the user.
+     * @param tree A map of parent category names to the names of their sub-categories.
+     * @throws SQLException if a database error occurs.
+     */
+    void insertTree(int userId, Map<String, List<String>> tree) throws SQLException;
+}
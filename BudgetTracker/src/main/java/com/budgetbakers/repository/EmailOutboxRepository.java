@@ -0,0 +1,65 @@
+package com.budgetbakers.repository;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import com.budgetbakers.entities.OutboxEmail;
+
+/**
+ * Data access for the `email_outbox` table.
+ * <p>
+ * Emails announcing a change are usually queued by the repository making that change, in the
+ * same transaction (see {@link UserRepository#insertLocalUser(String, String, OutboxEmail)});
+ * {@link #insert(OutboxEmail)} queues one on its own.
+ */
+public interface EmailOutboxRepository {
+
+    /**
+     * Queues an email for immediate delivery.
+     * @param email The email; its ID is set on return.
+     * @throws SQLException if a database error occurs.
+     */
+    void insert(OutboxEmail email) throws SQLException;
+
+    /**
+     * Claims the oldest due emails for delivery: their attempt count is incremented and their
+     * next attempt is pushed past the lease, so that other dispatchers skip them and, should this
+     * one stop before reporting back, they are retried once the lease runs out.
+     * @param limit The maximum number of emails to claim.
+     * @param leaseMillis How long the claim lasts, in milliseconds.
+     * @return The claimed emails, oldest first, with their attempt counts including this attempt.
+     * @throws SQLException if a database error occurs.
+     */
+    List<OutboxEmail> claimDue(int limit, long leaseMillis) throws SQLException;
+
+    /**
+     * Marks claimed emails as delivered and clears their bodies, which may hold temporary passwords.
+     * @param ids The IDs of the delivered emails.
+     * @throws SQLException if a database error occurs.
+     */
+    void markSent(List<Long> ids) throws SQLException;
+
+    /**
+     * Releases a claimed email for another attempt.
+     * @param id The ID of the email.
+     * @param nextAttemptAt When the email is due again.
+     * @param error A description of why the attempt failed.
+     * @throws SQLException if a database error occurs.
+     */
+    void reschedule(long id, Timestamp nextAttemptAt, String error) throws SQLException;
+
+    /**
+     * Gives up on a claimed email.
+     * @param id The ID of the email.
+     * @param error A description of why the last attempt failed.
+     * @throws SQLException if a database error occurs.
+     */
+    void markFailed(long id, String error) throws SQLException;
+
+    /**
+     * @return The number of emails waiting for delivery, including claimed ones.
+     * @throws SQLException if a database error occurs.
+     */
+    int countPending() throws SQLException;
+}
@@ -0,0 +1,188 @@
+package com.budgetbakers.repository;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.budgetbakers.entities.AccountTotals;
+import com.budgetbakers.entities.CategorySpending;
+import com.budgetbakers.entities.MonthlyCashFlow;
+import com.budgetbakers.entities.Transaction;
+import com.budgetbakers.utils.DateRange;
+import com.budgetbakers.utils.PageCursor;
+
+/**
+ * Data access for the `transactions` table: the ledger of every user's records and the
+ * aggregates computed over it. Methods taking a currency only consider transactions of
+ * accounts in that currency; a null or empty list of account IDs means all accounts.
+ * <p>
+ * Writes keep three derived aggregates up to date: running totals per account, a monthly
+ * rollup per account, category and transaction type, and month-start balance checkpoints per
+ * account. Aggregates over ranges of whole months ({@link DateRange#isWholeMonths()}) are
+ * answered from the rollup instead of the raw rows.
+ */
+public interface LedgerRepository {
+
+    /**
+     * Fetches a user's transactions, newest first, with account and category names.
+     * @param userId The ID of the user.
+     * @param filters Optional filters keyed by "date" (yyyy-MM-dd), "type", "category" and "account".
+     * @return The matching transactions.
+     * @throws SQLException if a database error occurs.
+     */
+    List<Transaction> findForUser(int userId, Map<String, String> filters) throws SQLException;
+
+    /**
+     * Fetches one page of a user's transactions, newest first by date and then by ID, with
+     * account and category names. Pages are addressed by keyset rather than offset, so each page
+     * costs the same regardless of how far into the history it is.
+     * @param userId The ID of the user.
+     * @param filters Optional filters, as for {@link #findForUser(int, Map)}.
+     * @param after The position of the last record of the previous page, or null for the first page.
+     * @param limit The maximum number of transactions to return.
+     * @return Up to {@code limit} transactions that come after the cursor.
+     * @throws SQLException if a database error occurs.
+     */
+    List<Transaction> findPageForUser(int userId, Map<String, String> filters, PageCursor after, int limit) throws SQLException;
+
+    /**
+     * Streams all of a user's transactions matching the filters to a handler, newest first by
+     * date and then by ID, with account and category names and, for transfers, the receiving
+     * account and its name. Rows are read as the handler consumes them, so memory does not grow
+     * with the length of the history.
+     * @param userId The ID of the user.
+     * @param filters Optional filters, as for {@link #findForUser}.
+     * @param handler Receives each transaction.
+     * @throws SQLException if a database error occurs.
+     * @throws IOException if the handler fails.
+     */
+    void streamForUser(int userId, Map<String, String> filters, RowHandler<Transaction> handler) throws SQLException, IOException;
+
+    /**
+     * Saves a new transaction and adds it to the running totals of the accounts it touches, to
+     * the monthly rollup and to the balance checkpoints after its date, atomically.
+     * @param transaction The transaction to save.
+     * @throws SQLException if a database error occurs.
+     */
+    void insert(Transaction transaction) throws SQLException;
+
+    /**
+     * Saves a chunk of new transactions in one database transaction, as a single batch, and adds
+     * them to the derived aggregates with one update per affected account, rollup row and month
+     * rather than one per transaction. Generated IDs are not set on the transactions.
+     * @param transactions The transactions to save; either all of them are saved or none.
+     * @throws SQLException if a database error occurs.
+     */
+    void insertAll(List<Transaction> transactions) throws SQLException;
+
+    /**
+     * Deletes a transaction belonging to a user and removes it from the running totals of the
+     * accounts it touched, from the monthly rollup and from the balance checkpoints after its
+     * date, atomically.
+     * @param transactionId The ID of the transaction.
+     * @param userId The ID of the user who owns it.
+     * @return true if a transaction was deleted.
+     * @throws SQLException if a database error occurs.
+     */
+    boolean delete(int transactionId, int userId) throws SQLException;
+
+    /**
+     * Sums a user's transactions by transaction type within a period.
+     * @param userId The ID of the user.
+     * @param range The period.
+     * @return A map from transaction type to total amount.
+     * @throws SQLException if a database error occurs.
+     */
+    Map<String, Double> sumByType(int userId, DateRange range) throws SQLException;
+
+    /**
+     * Reads the running all-time totals of each of a user's accounts. The totals are maintained
+     * on every write, so the cost depends on the number of accounts, not on the size of the ledger.
+     * @param userId The ID of the user.
+     * @return The totals of every account that has at least one transaction.
+     * @throws SQLException if a database error occurs.
+     */
+    List<AccountTotals> findAccountTotals(int userId) throws SQLException;
+
+    /**
+     * Recomputes the running totals of every account from the raw ledger, replacing the stored ones.
+     * @return The number of accounts with transactions.
+     * @throws SQLException if a database error occurs.
+     */
+    int rebuildAccountBalances() throws SQLException;
+
+    /**
+     * Recomputes the monthly rollup from the raw ledger, replacing the stored one.
+     * @return The number of rollup rows.
+     * @throws SQLException if a database error occurs.
+     */
+    int rebuildMonthlyRollups() throws SQLException;
+
+    /**
+     * Drops all balance checkpoints; they are recreated from the monthly rollup on next use.
+     * Checkpoints are also dropped by {@link #rebuildMonthlyRollups()}, since they are derived from it.
+     * @return The number of checkpoints dropped.
+     * @throws SQLException if a database error occurs.
+     */
+    int clearBalanceCheckpoints() throws SQLException;
+
+    /**
+     * Fetches, for every account of a user, the categories with the highest expense total.
+     * @param userId The ID of the user.
+     * @param range The period.
+     * @param limit The maximum number of categories per account.
+     * @return The top categories keyed by account ID, highest total first. Accounts without
+     *         expenses in the period have no entry.
+     * @throws SQLException if a database error occurs.
+     */
+    Map<Integer, List<CategorySpending>> findTopExpenseCategoriesByAccount(int userId, DateRange range, int limit) throws SQLException;
+
+    /**
+     * Aggregates income and expense per day or per month, depending on {@link DateRange#isDaily()}.
+     * @return The cash flow per period, oldest first.
+     * @throws SQLException if a database error occurs.
+     */
+    List<MonthlyCashFlow> findCashFlow(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException;
+
+    /**
+     * Aggregates expenses per category name.
+     * @return The spending per category, highest total first.
+     * @throws SQLException if a database error occurs.
+     */
+    List<CategorySpending> findSpendingByCategory(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException;
+
+    /**
+     * Fetches the transactions within a period, newest first, with account and category names.
+     * @return The matching transactions.
+     * @throws SQLException if a database error occurs.
+     */
+    List<Transaction> findForAnalysis(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException;
+
+    /**
+     * Streams the transactions within a period to a handler, in the order and shape of
+     * {@link #findForAnalysis}, without collecting them: the database connection is held and
+     * rows are read as the handler consumes them, so memory does not grow with the row count.
+     * @param handler Receives each transaction.
+     * @throws SQLException if a database error occurs.
+     * @throws IOException if the handler fails.
+     */
+    void streamForAnalysis(int userId, String currency, List<Integer> accountIds, DateRange range, RowHandler<Transaction> handler) throws SQLException, IOException;
+
+    /**
+     * Sums income minus expense of all transactions before a date. The sum is read from a
+     * per-account checkpoint at the start of the date's month plus the transactions between the
+     * checkpoint and the date, so its cost does not grow with the age of the accounts.
+     * @return The net change before {@code date}.
+     * @throws SQLException if a database error occurs.
+     */
+    double sumNetBefore(int userId, String currency, List<Integer> accountIds, LocalDate date) throws SQLException;
+
+    /**
+     * Computes income minus expense per day within a period.
+     * @return A map from day to net change; days without transactions are absent.
+     * @throws SQLException if a database error occurs.
+     */
+    Map<LocalDate, Double> findDailyNetChanges(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException;
+}
@@ -0,0 +1,223 @@
+package com.budgetbakers.repository;
+
+import com.budgetbakers.cache.AnalysisCache;
+import com.budgetbakers.cache.LedgerCache;
+import com.budgetbakers.cache.ReferenceDataCache;
+import com.budgetbakers.cache.UserCache;
+import com.budgetbakers.repository.memory.InMemoryAccountRepository;
+import com.budgetbakers.repository.memory.InMemoryCategoryRepository;
+import com.budgetbakers.repository.memory.InMemoryEmailOutboxRepository;
+import com.budgetbakers.repository.memory.InMemoryLedgerRepository;
+import com.budgetbakers.repository.memory.InMemoryStore;
+import com.budgetbakers.repository.memory.InMemoryUserRepository;
+import com.budgetbakers.repository.mysql.MySqlAccountRepository;
+import com.budgetbakers.repository.mysql.MySqlCategoryRepository;
+import com.budgetbakers.repository.mysql.MySqlEmailOutboxRepository;
+import com.budgetbakers.repository.mysql.MySqlLedgerRepository;
+import com.budgetbakers.repository.mysql.MySqlUserRepository;
+
+/**
+ * A bundle of the five repositories a service layer needs, all backed by the same storage.
+ * <p>
+ * Services created with their no-argument constructor use {@link #getDefault()}, which is the
+ * MySQL backend unless the {@code budgettracker.repository} system property is set to
+ * {@code memory}. Benchmarks and tests construct services with an explicit bundle instead,
+ * typically {@link #inMemory(InMemoryStore)} over a store seeded with synthetic data.
+ * <p>
+ * The caches are invalidated only by writes made through their own bundle, i.e. on their own
+ * node. The default bundle therefore disables them in stateless authentication mode, where a
+ * balancer may send each request of a user to a different node; the
+ * {@code budgettracker.cache.perNode} system property overrides this either way.
+ * <p>
+ * Each bundle also owns the caches in front of its repositories, so that every service writing
+ * through the bundle keeps them current:
+ * <ul>
+ * <li>the {@link LedgerCache} of ledgers,</li>
+ * <li>the {@link AnalysisCache} of reports computed from them,</li>
+ * <li>the {@link ReferenceDataCache} of accounts and categories,</li>
+ * <li>the {@link UserCache} of users.</li>
+ * </ul>
+ */
+public final class Repositories {
+
+    /** System property selecting the default backend: {@code mysql} (the default) or {@code memory}. */
+    public static final String BACKEND_PROPERTY = "budgettracker.repository";
+    /**
+     * System property enabling the caches of the default bundle: {@code true} by default, {@code false}
+     * by default when {@code budgettracker.auth.mode} is {@code stateless}.
+     */
+    public static final String CACHING_PROPERTY = "budgettracker.cache.perNode";
+
+    private static volatile Repositories defaultRepositories;
+
+    private final AccountRepository accounts;
+    private final CategoryRepository categories;
+    private final LedgerRepository ledger;
+    private final UserRepository users;
+    private final EmailOutboxRepository outbox;
+    private final LedgerCache ledgerCache;
+    private final AnalysisCache analysisCache;
+    private final ReferenceDataCache referenceDataCache;
+    private final UserCache userCache;
+
+    /**
+     * @param accounts The account repository.
+     * @param categories The category repository.
+     * @param ledger The transaction repository.
+     * @param users The user repository.
+     * @param outbox The email outbox repository.
+     */
+    public Repositories(AccountRepository accounts, CategoryRepository categories, LedgerRepository ledger, UserRepository users,
+                        EmailOutboxRepository outbox) {
+        this(accounts, categories, ledger, users, outbox, true);
+    }
+
+    /**
+     * @param accounts The account repository.
+     * @param categories The category repository.
+     * @param ledger The transaction repository.
+     * @param users The user repository.
+     * @param outbox The email outbox repository.
+     * @param caching Whether the caches are enabled with their configured limits; if false, every
+     *        read goes to the repositories, e.g. to benchmark the uncached paths.
+     */
+    public Repositories(AccountRepository accounts, CategoryRepository categories, LedgerRepository ledger, UserRepository users,
+                        EmailOutboxRepository outbox, boolean caching) {
+        this.accounts = accounts;
+        this.categories = categories;
+        this.ledger = ledger;
+        this.users = users;
+        this.outbox = outbox;
+        this.ledgerCache = new LedgerCache(this, caching ? LedgerCache.MAX_BYTES : 0);
+        this.analysisCache = new AnalysisCache(caching ? AnalysisCache.MAX_ENTRIES : 0, AnalysisCache.TTL_SECONDS);
+        this.referenceDataCache = new ReferenceDataCache(accounts, caching ? ReferenceDataCache.MAX_ENTRIES : 0, ReferenceDataCache.TTL_SECONDS);
+        this.userCache = new UserCache(users, caching ? UserCache.TTL_SECONDS : 0, caching ? UserCache.NEGATIVE_TTL_SECONDS : 0);
+    }
+
+    /**
+     * @return Repositories backed by the MySQL database configured in {@code db.properties}.
+     */
+    public static Repositories mysql() {
+        return mysql(true);
+    }
+
+    /**
+     * @param caching Whether the caches are enabled.
+     * @return Repositories backed by the MySQL database configured in {@code db.properties}.
+     */
+    public static Repositories mysql(boolean caching) {
+        return new Repositories(new MySqlAccountRepository(), new MySqlCategoryRepository(),
+                new MySqlLedgerRepository(), new MySqlUserRepository(), new MySqlEmailOutboxRepository(), caching);
+    }
+
+    /**
+     * @param store The in-memory store to read from and write to.
+     * @return Repositories backed by the given store.
+     */
+    public static Repositories inMemory(InMemoryStore store) {
+        return inMemory(store, true);
+    }
+
+    /**
+     * @param store The in-memory store to read from and write to.
+     * @param caching Whether the caches are enabled.
+     * @return Repositories backed by the given store.
+     */
+    public static Repositories inMemory(InMemoryStore store, boolean caching) {
+        return new Repositories(new InMemoryAccountRepository(store), new InMemoryCategoryRepository(store),
+                new InMemoryLedgerRepository(store), new InMemoryUserRepository(store), new InMemoryEmailOutboxRepository(store),
+                caching);
+    }
+
+    /**
+     * Returns the repositories used by services created without an explicit bundle.
+     * @return The default repositories, created on first use.
+     */
+    public static Repositories getDefault() {
+        Repositories result = defaultRepositories;
+        if (result == null) {
+            synchronized (Repositories.class) {
+                result = defaultRepositories;
+                if (result == null) {
+                    String backend = System.getProperty(BACKEND_PROPERTY, "mysql");
+                    boolean stateless = "stateless".equalsIgnoreCase(System.getProperty("budgettracker.auth.mode"));
+                    boolean caching = Boolean.parseBoolean(System.getProperty(CACHING_PROPERTY, Boolean.toString(!stateless)));
+                    result = "memory".equalsIgnoreCase(backend) ? inMemory(new InMemoryStore(), caching) : mysql(caching);
+                    defaultRepositories = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the default repositories, e.g. to run the web tier against an in-memory store.
+     * @param repositories The repositories to use from now on.
+     */
+    public static void setDefault(Repositories repositories) {
+        defaultRepositories = repositories;
+    }
+
+    /**
+     * @return The account repository.
+     */
+    public AccountRepository accounts() {
+        return accounts;
+    }
+
+    /**
+     * @return The category repository.
+     */
+    public CategoryRepository categories() {
+        return categories;
+    }
+
+    /**
+     * @return The transaction repository.
+     */
+    public LedgerRepository ledger() {
+        return ledger;
+    }
+
+    /**
+     * @return The user repository.
+     */
+    public UserRepository users() {
+        return users;
+    }
+
+    /**
+     * @return The email outbox repository.
+     */
+    public EmailOutboxRepository outbox() {
+        return outbox;
+    }
+
+    /**
+     * @return The cache of users' ledgers.
+     */
+    public LedgerCache ledgerCache() {
+        return ledgerCache;
+    }
+
+    /**
+     * @return The cache of analysis reports.
+     */
+    public AnalysisCache analysisCache() {
+        return analysisCache;
+    }
+
+    /**
+     * @return The cache of users' accounts and categories.
+     */
+    public ReferenceDataCache referenceDataCache() {
+        return referenceDataCache;
+    }
+
+    /**
+     * @return The cache of users by email address.
+     */
+    public UserCache userCache() {
+        return userCache;
+    }
+}
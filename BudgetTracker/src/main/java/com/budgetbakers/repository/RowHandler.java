@@ -0,0 +1,22 @@
+package com.budgetbakers.repository;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a streamed query one at a time, while the query is still being read.
+ * Used where the results are written straight to a response, so they never have to be held
+ * in memory all at once.
+ *
+ * @param <T> The type of the rows.
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+
+    /**
+     * Handles one row. The row is not used by the repository after this returns.
+     * @param row The row.
+     * @throws IOException if the row cannot be written, e.g. because the client disconnected;
+     *                     the query is then abandoned.
+     */
+    void handle(T row) throws IOException;
+}
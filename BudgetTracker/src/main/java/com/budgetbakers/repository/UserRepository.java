@@ -0,0 +1,55 @@
+package com.budgetbakers.repository;
+
+import java.sql.SQLException;
+
+import com.budgetbakers.entities.OutboxEmail;
+import com.budgetbakers.entities.User;
+
+/**
+ * Data access for the `users` table.
+ */
+public interface UserRepository {
+
+    /**
+     * Finds a user by email address.
+     * @param email The email address to search for.
+     * @return The {@link User}, or null if no user has this email.
+     * @throws SQLException if a database error occurs.
+     */
+    User findByEmail(String email) throws SQLException;
+
+    /**
+     * Finds a user by ID.
+     * @param id The ID of the user.
+     * @return The {@link User}, or null if no user has this ID.
+     * @throws SQLException if a database error occurs.
+     */
+    User findById(int id) throws SQLException;
+
+    /**
+     * Creates a user with local authentication and a temporary password and, in the same
+     * transaction, queues the email telling the user that password; either both are stored or
+     * neither is.
+     * @param email The email address of the new user.
+     * @param tempPassword The temporary password.
+     * @param welcome The email to queue in the {@code email_outbox}, or null for none; its ID is set on return.
+     * @throws SQLException if a database error occurs.
+     */
+    void insertLocalUser(String email, String tempPassword, OutboxEmail welcome) throws SQLException;
+
+    /**
+     * Creates a user authenticated through Google.
+     * @param email The email address obtained from Google Sign-In.
+     * @return The created {@link User}, or null if no row was created.
+     * @throws SQLException if a database error occurs.
+     */
+    User insertGoogleUser(String email) throws SQLException;
+
+    /**
+     * Stores a permanent password hash and clears the user's temporary password.
+     * @param email The email address of the user.
+     * @param passwordHash The hashed password.
+     * @throws SQLException if a database error occurs.
+     */
+    void updatePassword(String email, String passwordHash) throws SQLException;
+}
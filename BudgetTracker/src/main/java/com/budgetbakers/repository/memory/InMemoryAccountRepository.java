@@ -0,0 +1,183 @@
+package com.budgetbakers.repository.memory;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.entities.ReferenceData;
+import com.budgetbakers.repository.AccountRepository;
+import com.budgetbakers.repository.memory.InMemoryStore.LedgerEntry;
+import com.budgetbakers.repository.memory.InMemoryStore.LedgerKey;
+
+/**
+ * In-memory implementation of {@link AccountRepository}.
+ */
+public class InMemoryAccountRepository implements AccountRepository {
+
+    private final InMemoryStore store;
+
+    /**
+     * @param store The store holding the data.
+     */
+    public InMemoryAccountRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<Account> findByUser(int userId) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            List<Account> accounts = new ArrayList<>();
+            for (Account stored : store.accountsByUser.getOrDefault(userId, Collections.emptyNavigableMap()).values()) {
+                accounts.add(copy(stored));
+            }
+            return accounts;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public ReferenceData findReferenceData(int userId) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            List<Account> accounts = new ArrayList<>();
+            for (Account stored : store.accountsByUser.getOrDefault(userId, Collections.emptyNavigableMap()).values()) {
+                accounts.add(copy(stored));
+            }
+            List<Category> categories = new ArrayList<>();
+            for (Category stored : store.categoriesByUser.getOrDefault(userId, Collections.emptyNavigableMap()).values()) {
+                categories.add(InMemoryCategoryRepository.copy(stored));
+            }
+            return new ReferenceData(accounts, categories);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int countByUser(int userId) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            NavigableMap<Integer, Account> accounts = store.accountsByUser.get(userId);
+            return accounts == null ? 0 : accounts.size();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void insert(Account account) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (!store.usersById.containsKey(account.getUserId())) {
+                throw new SQLIntegrityConstraintViolationException("Unknown user " + account.getUserId());
+            }
+            Account stored = copy(account);
+            stored.setId(store.nextAccountId());
+            stored.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+            store.accountsById.put(stored.getId(), stored);
+            store.accountsByUser.computeIfAbsent(stored.getUserId(), id -> new TreeMap<>()).put(stored.getId(), stored);
+            store.totalsByAccount.put(stored.getId(), InMemoryStore.newTotals());
+            account.setId(stored.getId());
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the account and, like the foreign keys of the MySQL schema, its transactions;
+     * transfers that targeted the account lose their target. The account's own outgoing
+     * transfers are taken off the running totals of their targets.
+     */
+    @Override
+    public boolean delete(int accountId, int userId) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            Account stored = store.accountsById.get(accountId);
+            if (stored == null || stored.getUserId() != userId) {
+                return false;
+            }
+            store.accountsById.remove(accountId);
+            store.accountsByUser.get(userId).remove(accountId);
+            store.totalsByAccount.remove(accountId);
+            store.checkpointsByAccount.remove(accountId);
+
+            NavigableMap<LedgerKey, LedgerEntry> ledger = store.ledgerByUser.get(userId);
+            if (ledger != null) {
+                ledger.values().removeIf(entry -> {
+                    if (entry.accountId == accountId) {
+                        store.book(entry, -1);
+                        store.ledgerKeysById.remove(entry.id);
+                        return true;
+                    }
+                    if (entry.toAccountId == accountId) {
+                        entry.toAccountId = 0;
+                    }
+                    return false;
+                });
+            }
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> findDistinctCurrencies(int userId) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            Set<String> currencies = new LinkedHashSet<>();
+            for (Account stored : store.accountsByUser.getOrDefault(userId, Collections.emptyNavigableMap()).values()) {
+                currencies.add(stored.getCurrency());
+            }
+            return new ArrayList<>(currencies);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public double sumInitialBalance(int userId, String currency, List<Integer> accountIds) throws SQLException {
+        Set<Integer> selected = accountIds == null || accountIds.isEmpty() ? null : new HashSet<>(accountIds);
+        store.lock.readLock().lock();
+        try {
+            double total = 0;
+            for (Account stored : store.accountsByUser.getOrDefault(userId, Collections.emptyNavigableMap()).values()) {
+                if (currency.equals(stored.getCurrency()) && (selected == null || selected.contains(stored.getId()))) {
+                    total += stored.getInitialBalance();
+                }
+            }
+            return total;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the persistent fields of an account, leaving the summary fields unset.
+     */
+    static Account copy(Account source) {
+        Account account = new Account();
+        account.setId(source.getId());
+        account.setUserId(source.getUserId());
+        account.setName(source.getName());
+        account.setAccountType(source.getAccountType());
+        account.setInitialBalance(source.getInitialBalance());
+        account.setCurrency(source.getCurrency());
+        account.setColor(source.getColor());
+        account.setExcludeFromStats(source.isExcludeFromStats());
+        account.setCreatedAt(source.getCreatedAt());
+        return account;
+    }
+}
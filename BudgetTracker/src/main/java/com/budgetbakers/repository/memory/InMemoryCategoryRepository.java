@@ -0,0 +1,86 @@
+package com.budgetbakers.repository.memory;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.repository.CategoryRepository;
+
+/**
+ * In-memory implementation of {@link CategoryRepository}.
+ */
+public class InMemoryCategoryRepository implements CategoryRepository {
+
+    private final InMemoryStore store;
+
+    /**
+     * @param store The store holding the data.
+     */
+    public InMemoryCategoryRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<Category> findByUser(int userId) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            List<Category> categories = new ArrayList<>();
+            for (Category stored : store.categoriesByUser.getOrDefault(userId, Collections.emptyNavigableMap()).values()) {
+                categories.add(copy(stored));
+            }
+            categories.sort(Comparator.comparing(Category::getName, String.CASE_INSENSITIVE_ORDER));
+            return categories;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void insertTree(int userId, Map<String, List<String>> tree) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (!store.usersById.containsKey(userId)) {
+                throw new SQLIntegrityConstraintViolationException("Unknown user " + userId);
+            }
+            for (Map.Entry<String, List<String>> entry : tree.entrySet()) {
+                int parentId = insert(userId, entry.getKey(), null);
+                if (entry.getValue() != null) {
+                    for (String childName : entry.getValue()) {
+                        insert(userId, childName, parentId);
+                    }
+                }
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    private int insert(int userId, String name, Integer parentId) {
+        Category category = new Category();
+        category.setId(store.nextCategoryId());
+        category.setUserId(userId);
+        category.setName(name);
+        category.setParentId(parentId);
+        store.categoriesById.put(category.getId(), category);
+        store.categoriesByUser.computeIfAbsent(userId, id -> new TreeMap<>()).put(category.getId(), category);
+        return category.getId();
+    }
+
+    /**
+     * Copies a stored category, so that callers cannot change the store.
+     */
+    static Category copy(Category source) {
+        Category category = new Category();
+        category.setId(source.getId());
+        category.setUserId(source.getUserId());
+        category.setParentId(source.getParentId());
+        category.setName(source.getName());
+        return category;
+    }
+}
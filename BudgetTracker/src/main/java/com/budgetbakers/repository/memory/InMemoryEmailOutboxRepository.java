@@ -0,0 +1,127 @@
+package com.budgetbakers.repository.memory;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.budgetbakers.entities.OutboxEmail;
+import com.budgetbakers.repository.EmailOutboxRepository;
+import com.budgetbakers.repository.memory.InMemoryStore.OutboxEntry;
+
+/**
+ * In-memory implementation of {@link EmailOutboxRepository}.
+ */
+public class InMemoryEmailOutboxRepository implements EmailOutboxRepository {
+
+    private final InMemoryStore store;
+
+    /**
+     * @param store The store holding the data.
+     */
+    public InMemoryEmailOutboxRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void insert(OutboxEmail email) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            insert(store, email);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Queues an email. Must be called under the write lock, which lets callers queue it together
+     * with the change it announces.
+     */
+    static void insert(InMemoryStore store, OutboxEmail email) {
+        OutboxEntry entry = new OutboxEntry(store.nextOutboxId(), email.getRecipient(), email.getSubject(),
+                email.getBody(), System.currentTimeMillis());
+        store.outbox.put(entry.id, entry);
+        store.pendingOutbox.put(entry.id, entry);
+        email.setId(entry.id);
+    }
+
+    @Override
+    public List<OutboxEmail> claimDue(int limit, long leaseMillis) throws SQLException {
+        long now = System.currentTimeMillis();
+        store.lock.writeLock().lock();
+        try {
+            List<OutboxEmail> claimed = new ArrayList<>();
+            for (OutboxEntry entry : store.pendingOutbox.values()) {
+                if (claimed.size() == limit) {
+                    break;
+                }
+                if (entry.nextAttemptMillis <= now) {
+                    entry.attempts++;
+                    entry.nextAttemptMillis = now + leaseMillis;
+                    OutboxEmail email = new OutboxEmail(entry.recipient, entry.subject, entry.body);
+                    email.setId(entry.id);
+                    email.setAttempts(entry.attempts);
+                    claimed.add(email);
+                }
+            }
+            return claimed;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void markSent(List<Long> ids) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                OutboxEntry entry = store.pendingOutbox.remove(id);
+                if (entry != null) {
+                    entry.status = "SENT";
+                    entry.body = "";
+                    entry.lastError = null;
+                }
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void reschedule(long id, Timestamp nextAttemptAt, String error) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            OutboxEntry entry = store.pendingOutbox.get(id);
+            if (entry != null) {
+                entry.nextAttemptMillis = nextAttemptAt.getTime();
+                entry.lastError = error;
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void markFailed(long id, String error) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            OutboxEntry entry = store.pendingOutbox.remove(id);
+            if (entry != null) {
+                entry.status = "FAILED";
+                entry.lastError = error;
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int countPending() throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            return store.pendingOutbox.size();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+}
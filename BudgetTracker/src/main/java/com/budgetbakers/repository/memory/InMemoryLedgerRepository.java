@@ -0,0 +1,650 @@
+package com.budgetbakers.repository.memory;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.AccountTotals;
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.entities.CategorySpending;
+import com.budgetbakers.entities.MonthlyCashFlow;
+import com.budgetbakers.entities.Transaction;
+import com.budgetbakers.repository.LedgerRepository;
+import com.budgetbakers.repository.RowHandler;
+import com.budgetbakers.repository.memory.InMemoryStore.LedgerEntry;
+import com.budgetbakers.repository.memory.InMemoryStore.LedgerKey;
+import com.budgetbakers.repository.memory.InMemoryStore.RollupKey;
+import com.budgetbakers.utils.DateRange;
+import com.budgetbakers.utils.PageCursor;
+
+/**
+ * In-memory implementation of {@link LedgerRepository}. Date-bounded queries read a sub-map of
+ * the user's date-ordered ledger, or of the monthly rollup for ranges of whole months; the joins
+ * of the SQL queries become lookups in the store's account and category maps.
+ */
+public class InMemoryLedgerRepository implements LedgerRepository {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final InMemoryStore store;
+
+    /**
+     * @param store The store holding the data.
+     */
+    public InMemoryLedgerRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<Transaction> findForUser(int userId, Map<String, String> filters) throws SQLException {
+        return findPageForUser(userId, filters, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Transaction> findPageForUser(int userId, Map<String, String> filters, PageCursor after, int limit) throws SQLException {
+        RecordFilter filter = RecordFilter.of(filters);
+        store.lock.readLock().lock();
+        try {
+            NavigableMap<LedgerKey, LedgerEntry> ledger = store.ledgerOf(userId);
+            NavigableMap<LedgerKey, LedgerEntry> entries = filter.day == null ? ledger : slice(ledger, filter.day);
+            if (after != null) {
+                entries = entries.headMap(new LedgerKey(after.getDateMillis(), after.getId()), false);
+            }
+            List<Transaction> transactions = new ArrayList<>();
+            for (LedgerEntry entry : entries.descendingMap().values()) {
+                if (transactions.size() >= limit) {
+                    break;
+                }
+                if (filter.matches(entry)) {
+                    transactions.add(toTransaction(entry));
+                }
+            }
+            return transactions;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hands the entries to the handler while holding the read lock, like {@link #streamForAnalysis}.
+     */
+    @Override
+    public void streamForUser(int userId, Map<String, String> filters, RowHandler<Transaction> handler) throws SQLException, IOException {
+        RecordFilter filter = RecordFilter.of(filters);
+        store.lock.readLock().lock();
+        try {
+            NavigableMap<LedgerKey, LedgerEntry> ledger = store.ledgerOf(userId);
+            NavigableMap<LedgerKey, LedgerEntry> entries = filter.day == null ? ledger : slice(ledger, filter.day);
+            for (LedgerEntry entry : entries.descendingMap().values()) {
+                if (!filter.matches(entry)) {
+                    continue;
+                }
+                Transaction tx = toTransaction(entry);
+                if (entry.toAccountId != 0) {
+                    Account toAccount = new Account();
+                    toAccount.setId(entry.toAccountId);
+                    Account storedAccount = store.accountsById.get(entry.toAccountId);
+                    if (storedAccount != null) {
+                        toAccount.setName(storedAccount.getName());
+                    }
+                    tx.setToAccount(toAccount);
+                }
+                handler.handle(tx);
+            }
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void insert(Transaction transaction) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            checkAccount(transaction);
+            transaction.setId(append(transaction));
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void insertAll(List<Transaction> transactions) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            // Check the whole chunk first so that a bad row leaves the store untouched
+            for (Transaction transaction : transactions) {
+                checkAccount(transaction);
+            }
+            for (Transaction transaction : transactions) {
+                append(transaction);
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rejects a transaction whose account does not exist, like the foreign key in MySQL. Must be called under the write lock.
+     */
+    private void checkAccount(Transaction transaction) throws SQLException {
+        int accountId = transaction.getAccount().getId();
+        if (!store.accountsById.containsKey(accountId)) {
+            throw new SQLIntegrityConstraintViolationException("Unknown account " + accountId);
+        }
+    }
+
+    /**
+     * Adds a transaction to the user's ledger and to the derived aggregates. Must be called under the write lock.
+     * @return The ID assigned to the transaction.
+     */
+    private int append(Transaction transaction) {
+        int categoryId = transaction.getCategory() != null ? transaction.getCategory().getId() : 0;
+        int toAccountId = transaction.getToAccount() != null ? transaction.getToAccount().getId() : 0;
+
+        LedgerEntry entry = new LedgerEntry(store.nextTransactionId(), transaction.getUserId(), transaction.getAccount().getId(),
+                categoryId, toAccountId, transaction.getTransactionType(), transaction.getAmount(),
+                transaction.getTransactionDate().getTime(), transaction.getNote());
+        LedgerKey key = new LedgerKey(entry.dateMillis, entry.id);
+        store.ledgerByUser.computeIfAbsent(entry.userId, id -> new TreeMap<>()).put(key, entry);
+        store.ledgerKeysById.put(entry.id, key);
+        store.book(entry, 1);
+        return entry.id;
+    }
+
+    @Override
+    public boolean delete(int transactionId, int userId) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            LedgerKey key = store.ledgerKeysById.get(transactionId);
+            NavigableMap<LedgerKey, LedgerEntry> ledger = store.ledgerByUser.get(userId);
+            if (key == null || ledger == null || !ledger.containsKey(key)) {
+                return false;
+            }
+            LedgerEntry entry = ledger.remove(key);
+            store.ledgerKeysById.remove(transactionId);
+            store.book(entry, -1);
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Double> sumByType(int userId, DateRange range) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            Map<String, Double> totals = new HashMap<>();
+            if (range.isWholeMonths()) {
+                for (Map<RollupKey, double[]> month : rollupSlice(userId, range).values()) {
+                    for (Map.Entry<RollupKey, double[]> row : month.entrySet()) {
+                        totals.merge(row.getKey().type, row.getValue()[0], Double::sum);
+                    }
+                }
+                return totals;
+            }
+            for (LedgerEntry entry : slice(store.ledgerOf(userId), range).values()) {
+                totals.merge(entry.type, entry.amount, Double::sum);
+            }
+            return totals;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<AccountTotals> findAccountTotals(int userId) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            List<AccountTotals> result = new ArrayList<>();
+            for (Account account : store.accountsByUser.getOrDefault(userId, Collections.emptyNavigableMap()).values()) {
+                double[] totals = store.totalsByAccount.get(account.getId());
+                AccountTotals accountTotals = new AccountTotals();
+                accountTotals.setAccountId(account.getId());
+                accountTotals.setTotalIncome(totals[InMemoryStore.INCOME]);
+                accountTotals.setTotalExpense(totals[InMemoryStore.EXPENSE]);
+                accountTotals.setTransferIn(totals[InMemoryStore.TRANSFER_IN]);
+                accountTotals.setTransferOut(totals[InMemoryStore.TRANSFER_OUT]);
+                result.add(accountTotals);
+            }
+            return result;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int rebuildAccountBalances() throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            for (double[] totals : store.totalsByAccount.values()) {
+                Arrays.fill(totals, 0);
+            }
+            Set<Integer> touched = new HashSet<>();
+            for (NavigableMap<LedgerKey, LedgerEntry> ledger : store.ledgerByUser.values()) {
+                for (LedgerEntry entry : ledger.values()) {
+                    store.applyToTotals(entry, 1);
+                    touched.add(entry.accountId);
+                    if ("Transfer".equals(entry.type) && entry.toAccountId != 0) {
+                        touched.add(entry.toAccountId);
+                    }
+                }
+            }
+            return touched.size();
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int rebuildMonthlyRollups() throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            store.rollupsByUser.clear();
+            store.checkpointsByAccount.clear();
+            for (NavigableMap<LedgerKey, LedgerEntry> ledger : store.ledgerByUser.values()) {
+                for (LedgerEntry entry : ledger.values()) {
+                    store.applyToRollups(entry, 1);
+                }
+            }
+            int rows = 0;
+            for (NavigableMap<LocalDate, Map<RollupKey, double[]>> months : store.rollupsByUser.values()) {
+                for (Map<RollupKey, double[]> month : months.values()) {
+                    rows += month.size();
+                }
+            }
+            return rows;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int clearBalanceCheckpoints() throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            int cleared = 0;
+            for (NavigableMap<LocalDate, double[]> checkpoints : store.checkpointsByAccount.values()) {
+                cleared += checkpoints.size();
+            }
+            store.checkpointsByAccount.clear();
+            return cleared;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Integer, List<CategorySpending>> findTopExpenseCategoriesByAccount(int userId, DateRange range, int limit) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            Map<Integer, Map<String, Double>> totalsByAccount = new HashMap<>();
+            if (range.isWholeMonths()) {
+                for (Map<RollupKey, double[]> month : rollupSlice(userId, range).values()) {
+                    for (Map.Entry<RollupKey, double[]> row : month.entrySet()) {
+                        RollupKey key = row.getKey();
+                        if ("Expense".equals(key.type)) {
+                            addToCategory(totalsByAccount.computeIfAbsent(key.accountId, id -> new HashMap<>()), key.categoryId, row.getValue()[0]);
+                        }
+                    }
+                }
+            } else {
+                for (LedgerEntry entry : slice(store.ledgerOf(userId), range).values()) {
+                    if ("Expense".equals(entry.type)) {
+                        addToCategory(totalsByAccount.computeIfAbsent(entry.accountId, id -> new HashMap<>()), entry.categoryId, entry.amount);
+                    }
+                }
+            }
+            Map<Integer, List<CategorySpending>> spendingByAccount = new HashMap<>();
+            for (Map.Entry<Integer, Map<String, Double>> account : totalsByAccount.entrySet()) {
+                if (!account.getValue().isEmpty()) {
+                    spendingByAccount.put(account.getKey(), toSpendingList(account.getValue(), limit));
+                }
+            }
+            return spendingByAccount;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<MonthlyCashFlow> findCashFlow(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException {
+        DateTimeFormatter format = range.isDaily() ? DAY_FORMAT : MONTH_FORMAT;
+        store.lock.readLock().lock();
+        try {
+            Set<Integer> selected = selectAccounts(userId, currency, accountIds);
+            Map<String, double[]> periods = new TreeMap<>();
+            if (!range.isDaily() && range.isWholeMonths()) {
+                for (Map.Entry<LocalDate, Map<RollupKey, double[]>> month : rollupSlice(userId, range).entrySet()) {
+                    for (Map.Entry<RollupKey, double[]> row : month.getValue().entrySet()) {
+                        if (selected.contains(row.getKey().accountId)) {
+                            addToPeriod(periods.computeIfAbsent(month.getKey().format(format), p -> new double[2]), row.getKey().type, row.getValue()[0]);
+                        }
+                    }
+                }
+            } else {
+                for (LedgerEntry entry : slice(store.ledgerOf(userId), range).values()) {
+                    if (selected.contains(entry.accountId)) {
+                        addToPeriod(periods.computeIfAbsent(toLocalDate(entry.dateMillis).format(format), p -> new double[2]), entry.type, entry.amount);
+                    }
+                }
+            }
+
+            List<MonthlyCashFlow> cashFlowList = new ArrayList<>();
+            for (Map.Entry<String, double[]> period : periods.entrySet()) {
+                MonthlyCashFlow mcf = new MonthlyCashFlow();
+                mcf.setMonth(period.getKey());
+                mcf.setTotalIncome(period.getValue()[0]);
+                mcf.setTotalExpense(period.getValue()[1]);
+                cashFlowList.add(mcf);
+            }
+            return cashFlowList;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<CategorySpending> findSpendingByCategory(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            Set<Integer> selected = selectAccounts(userId, currency, accountIds);
+            Map<String, Double> totals = new HashMap<>();
+            if (range.isWholeMonths()) {
+                for (Map<RollupKey, double[]> month : rollupSlice(userId, range).values()) {
+                    for (Map.Entry<RollupKey, double[]> row : month.entrySet()) {
+                        RollupKey key = row.getKey();
+                        if (selected.contains(key.accountId) && "Expense".equals(key.type)) {
+                            addToCategory(totals, key.categoryId, row.getValue()[0]);
+                        }
+                    }
+                }
+            } else {
+                for (LedgerEntry entry : slice(store.ledgerOf(userId), range).values()) {
+                    if (selected.contains(entry.accountId) && "Expense".equals(entry.type)) {
+                        addToCategory(totals, entry.categoryId, entry.amount);
+                    }
+                }
+            }
+            return toSpendingList(totals, Integer.MAX_VALUE);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findForAnalysis(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            Set<Integer> selected = selectAccounts(userId, currency, accountIds);
+            List<Transaction> transactions = new ArrayList<>();
+            for (LedgerEntry entry : slice(store.ledgerOf(userId), range).descendingMap().values()) {
+                if (selected.contains(entry.accountId)) {
+                    transactions.add(toTransaction(entry));
+                }
+            }
+            return transactions;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hands the entries to the handler while holding the read lock, so writers wait until the
+     * stream has been consumed, just as a MySQL stream holds its connection.
+     */
+    @Override
+    public void streamForAnalysis(int userId, String currency, List<Integer> accountIds, DateRange range, RowHandler<Transaction> handler) throws SQLException, IOException {
+        store.lock.readLock().lock();
+        try {
+            Set<Integer> selected = selectAccounts(userId, currency, accountIds);
+            for (LedgerEntry entry : slice(store.ledgerOf(userId), range).descendingMap().values()) {
+                if (selected.contains(entry.accountId)) {
+                    handler.handle(toTransaction(entry));
+                }
+            }
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sums the selected accounts' checkpoints at the start of the date's month, creating missing
+     * ones from the monthly rollup, and adds the entries from the start of the month up to the date.
+     */
+    @Override
+    public double sumNetBefore(int userId, String currency, List<Integer> accountIds, LocalDate date) throws SQLException {
+        LocalDate month = date.withDayOfMonth(1);
+        long from = Timestamp.valueOf(month.atStartOfDay()).getTime();
+        long before = Timestamp.valueOf(date.atStartOfDay()).getTime();
+        store.lock.readLock().lock();
+        try {
+            Set<Integer> selected = selectAccounts(userId, currency, accountIds);
+            double net = 0;
+            Set<Integer> missing = new HashSet<>();
+            for (int accountId : selected) {
+                double[] checkpoint = checkpointsOf(accountId).get(month);
+                if (checkpoint != null) {
+                    net += checkpoint[0];
+                } else {
+                    missing.add(accountId);
+                }
+            }
+            if (!missing.isEmpty()) {
+                net += createCheckpoints(userId, missing, month);
+            }
+            for (LedgerEntry entry : store.ledgerOf(userId).subMap(LedgerKey.at(from), true, LedgerKey.at(before), false).values()) {
+                if (selected.contains(entry.accountId)) {
+                    net += signedAmount(entry);
+                }
+            }
+            return net;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<LocalDate, Double> findDailyNetChanges(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            Set<Integer> selected = selectAccounts(userId, currency, accountIds);
+            Map<LocalDate, Double> dailyChanges = new LinkedHashMap<>();
+            for (LedgerEntry entry : slice(store.ledgerOf(userId), range).values()) {
+                if (selected.contains(entry.accountId)) {
+                    dailyChanges.merge(toLocalDate(entry.dateMillis), signedAmount(entry), Double::sum);
+                }
+            }
+            return dailyChanges;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the entries of a ledger that fall within the half-open range.
+     */
+    private static NavigableMap<LedgerKey, LedgerEntry> slice(NavigableMap<LedgerKey, LedgerEntry> ledger, DateRange range) {
+        return ledger.subMap(LedgerKey.at(range.getStartTimestamp().getTime()), true,
+                LedgerKey.at(range.getEndTimestamp().getTime()), false);
+    }
+
+    /**
+     * Returns the monthly rollup of the months within a range of whole months.
+     */
+    private NavigableMap<LocalDate, Map<RollupKey, double[]>> rollupSlice(int userId, DateRange range) {
+        return store.rollupsOf(userId).subMap(range.getStart(), true, range.getEnd(), false);
+    }
+
+    /**
+     * @return The checkpoints of an account. Safe under the read lock.
+     */
+    private NavigableMap<LocalDate, double[]> checkpointsOf(int accountId) {
+        return store.checkpointsByAccount.computeIfAbsent(accountId, id -> new ConcurrentSkipListMap<>());
+    }
+
+    /**
+     * Creates the accounts' checkpoints at a month start from the monthly rollup in one pass over
+     * the user's earlier months. Runs under the read lock: writers are excluded, so concurrent
+     * readers compute identical values and the first one stored wins.
+     * @return The sum of the new checkpoints.
+     */
+    private double createCheckpoints(int userId, Set<Integer> accountIds, LocalDate month) {
+        Map<Integer, Double> nets = new HashMap<>();
+        for (Map<RollupKey, double[]> rows : store.rollupsOf(userId).headMap(month, false).values()) {
+            for (Map.Entry<RollupKey, double[]> row : rows.entrySet()) {
+                if (accountIds.contains(row.getKey().accountId)) {
+                    nets.merge(row.getKey().accountId, InMemoryStore.netAmount(row.getKey().type, row.getValue()[0]), Double::sum);
+                }
+            }
+        }
+        double sum = 0;
+        for (int accountId : accountIds) {
+            double net = nets.getOrDefault(accountId, 0.0);
+            checkpointsOf(accountId).putIfAbsent(month, new double[] { net });
+            sum += net;
+        }
+        return sum;
+    }
+
+    /**
+     * Resolves the accounts of a user in the given currency, optionally restricted to a selection.
+     * Must be called with the read lock held.
+     */
+    private Set<Integer> selectAccounts(int userId, String currency, List<Integer> accountIds) {
+        Set<Integer> requested = accountIds == null || accountIds.isEmpty() ? null : new HashSet<>(accountIds);
+        Set<Integer> selected = new HashSet<>();
+        for (Account account : store.accountsByUser.getOrDefault(userId, Collections.emptyNavigableMap()).values()) {
+            if (currency.equals(account.getCurrency()) && (requested == null || requested.contains(account.getId()))) {
+                selected.add(account.getId());
+            }
+        }
+        return selected;
+    }
+
+    private void addToCategory(Map<String, Double> totals, int categoryId, double amount) {
+        Category category = categoryId == 0 ? null : store.categoriesById.get(categoryId);
+        if (category != null) {
+            totals.merge(category.getName(), amount, Double::sum);
+        }
+    }
+
+    private static void addToPeriod(double[] totals, String type, double amount) {
+        if ("Income".equals(type)) {
+            totals[0] += amount;
+        } else if ("Expense".equals(type)) {
+            totals[1] += amount;
+        }
+    }
+
+    private static List<CategorySpending> toSpendingList(Map<String, Double> totals, int limit) {
+        List<CategorySpending> spendingList = new ArrayList<>();
+        totals.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .forEach(total -> {
+                    CategorySpending spending = new CategorySpending();
+                    spending.setCategoryName(total.getKey());
+                    spending.setTotalAmount(total.getValue());
+                    spendingList.add(spending);
+                });
+        return spendingList;
+    }
+
+    private static double signedAmount(LedgerEntry entry) {
+        return InMemoryStore.netAmount(entry.type, entry.amount);
+    }
+
+    private static LocalDate toLocalDate(long dateMillis) {
+        return new Timestamp(dateMillis).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Builds a transaction with its account and category names, like the joined SQL queries.
+     * Must be called with the read lock held.
+     */
+    private Transaction toTransaction(LedgerEntry entry) {
+        Transaction tx = new Transaction();
+        tx.setId(entry.id);
+        tx.setUserId(entry.userId);
+        tx.setTransactionType(entry.type);
+        tx.setAmount(entry.amount);
+        tx.setTransactionDate(new Timestamp(entry.dateMillis));
+        tx.setNote(entry.note);
+
+        Account account = new Account();
+        account.setId(entry.accountId);
+        Account storedAccount = store.accountsById.get(entry.accountId);
+        if (storedAccount != null) {
+            account.setName(storedAccount.getName());
+        }
+        tx.setAccount(account);
+
+        if (entry.categoryId != 0) {
+            Category category = new Category();
+            category.setId(entry.categoryId);
+            Category storedCategory = store.categoriesById.get(entry.categoryId);
+            if (storedCategory != null) {
+                category.setName(storedCategory.getName());
+            }
+            tx.setCategory(category);
+        }
+        return tx;
+    }
+
+    /**
+     * The optional filters of the Records page, parsed once per query.
+     */
+    private static final class RecordFilter {
+        DateRange day;
+        String type;
+        int categoryId;
+        int accountId;
+
+        static RecordFilter of(Map<String, String> filters) {
+            RecordFilter filter = new RecordFilter();
+            if (filters != null) {
+                String dateFilter = filters.get("date");
+                if (dateFilter != null && !dateFilter.isEmpty()) {
+                    filter.day = DateRange.ofDay(LocalDate.parse(dateFilter));
+                }
+                String typeFilter = filters.get("type");
+                if (typeFilter != null && !typeFilter.isEmpty()) {
+                    filter.type = typeFilter;
+                }
+                String categoryFilter = filters.get("category");
+                if (categoryFilter != null && !categoryFilter.isEmpty()) {
+                    filter.categoryId = Integer.parseInt(categoryFilter);
+                }
+                String accountFilter = filters.get("account");
+                if (accountFilter != null && !accountFilter.isEmpty()) {
+                    filter.accountId = Integer.parseInt(accountFilter);
+                }
+            }
+            return filter;
+        }
+
+        boolean matches(LedgerEntry entry) {
+            return (type == null || type.equals(entry.type))
+                    && (categoryId == 0 || categoryId == entry.categoryId)
+                    && (accountId == 0 || accountId == entry.accountId);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.budgetbakers.repository.memory;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.entities.User;
+
+/**
+ * The shared state behind the in-memory repositories: users, accounts, categories, a
+ * per-user ledger of transactions and the email outbox. It is meant for benchmarks and tests that need to run the
+ * service layer over millions of synthetic transactions without a database.
+ * <p>
+ * Each user's transactions are kept in a {@link NavigableMap} ordered by date and ID, so date
+ * range queries are a sub-map view rather than a scan of the whole ledger. Like the MySQL schema,
+ * running totals are kept per account so account summaries do not scan at all, and a monthly
+ * rollup per account, category and type answers aggregates over whole months.
+ * A single read/write lock guards the whole store; reads run concurrently.
+ * <p>
+ * Stored rows are private copies; the repositories map them to fresh entity objects on the
+ * way out, the same way the MySQL implementations build new objects from a result set.
+ */
+public class InMemoryStore {
+
+    static final int INCOME = 0;
+    static final int EXPENSE = 1;
+    static final int TRANSFER_IN = 2;
+    static final int TRANSFER_OUT = 3;
+
+    final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    final Map<Integer, User> usersById = new HashMap<>();
+    /** Users keyed by lower-cased email, matching MySQL's case-insensitive collation. */
+    final Map<String, User> usersByEmail = new HashMap<>();
+
+    final Map<Integer, Account> accountsById = new HashMap<>();
+    /** Each user's accounts in ID order. */
+    final Map<Integer, NavigableMap<Integer, Account>> accountsByUser = new HashMap<>();
+    /** All-time running totals per account ID, indexed by {@link #INCOME}, {@link #EXPENSE}, {@link #TRANSFER_IN} and {@link #TRANSFER_OUT}. */
+    final Map<Integer, double[]> totalsByAccount = new HashMap<>();
+
+    final Map<Integer, Category> categoriesById = new HashMap<>();
+    final Map<Integer, NavigableMap<Integer, Category>> categoriesByUser = new HashMap<>();
+
+    /** Each user's transactions ordered by date, then ID. */
+    final Map<Integer, NavigableMap<LedgerKey, LedgerEntry>> ledgerByUser = new HashMap<>();
+    /** The ledger key of every transaction, for deletes by ID. */
+    final Map<Integer, LedgerKey> ledgerKeysById = new HashMap<>();
+    /**
+     * Each user's monthly rollup, keyed by the first day of the month, then by account, category
+     * and type. Values hold the summed amount and the transaction count.
+     */
+    final Map<Integer, NavigableMap<LocalDate, Map<RollupKey, double[]>>> rollupsByUser = new HashMap<>();
+    /**
+     * Month-start balance checkpoints per account ID: income minus expense of all transactions
+     * before the month. They are created by readers under the read lock, hence the concurrent
+     * maps, and repaired in place by writers under the write lock.
+     */
+    final Map<Integer, NavigableMap<LocalDate, double[]>> checkpointsByAccount = new ConcurrentHashMap<>();
+
+    /** The email outbox in ID order. */
+    final NavigableMap<Long, OutboxEntry> outbox = new TreeMap<>();
+    /** The outbox entries still PENDING, so that claims do not scan delivered ones. */
+    final NavigableMap<Long, OutboxEntry> pendingOutbox = new TreeMap<>();
+
+    private final AtomicInteger userSequence = new AtomicInteger();
+    private final AtomicInteger accountSequence = new AtomicInteger();
+    private final AtomicInteger categorySequence = new AtomicInteger();
+    private final AtomicInteger transactionSequence = new AtomicInteger();
+    private final AtomicLong outboxSequence = new AtomicLong();
+
+    int nextUserId() {
+        return userSequence.incrementAndGet();
+    }
+
+    int nextAccountId() {
+        return accountSequence.incrementAndGet();
+    }
+
+    int nextCategoryId() {
+        return categorySequence.incrementAndGet();
+    }
+
+    int nextTransactionId() {
+        return transactionSequence.incrementAndGet();
+    }
+
+    long nextOutboxId() {
+        return outboxSequence.incrementAndGet();
+    }
+
+    /**
+     * @return The user's ledger, or an empty view if the user has no transactions. Safe under the read lock.
+     */
+    NavigableMap<LedgerKey, LedgerEntry> ledgerOf(int userId) {
+        return ledgerByUser.getOrDefault(userId, Collections.emptyNavigableMap());
+    }
+
+    /**
+     * @return The user's monthly rollup, or an empty view. Safe under the read lock.
+     */
+    NavigableMap<LocalDate, Map<RollupKey, double[]>> rollupsOf(int userId) {
+        return rollupsByUser.getOrDefault(userId, Collections.emptyNavigableMap());
+    }
+
+    /**
+     * Adds a ledger entry to, or with a sign of -1 removes it from, the running account totals
+     * and the monthly rollup. Must be called under the write lock.
+     */
+    void book(LedgerEntry entry, int sign) {
+        applyToTotals(entry, sign);
+        applyToRollups(entry, sign);
+        applyToCheckpoints(entry, sign);
+    }
+
+    /**
+     * Adds a ledger entry's net amount to, or with a sign of -1 removes it from, the checkpoints
+     * of its account after its month. Must be called under the write lock.
+     */
+    void applyToCheckpoints(LedgerEntry entry, int sign) {
+        NavigableMap<LocalDate, double[]> checkpoints = checkpointsByAccount.get(entry.accountId);
+        double net = netAmount(entry.type, entry.amount);
+        if (checkpoints == null || net == 0) {
+            return;
+        }
+        for (double[] checkpoint : checkpoints.tailMap(monthOf(entry.dateMillis), false).values()) {
+            checkpoint[0] += sign * net;
+        }
+    }
+
+    /**
+     * @return The amount signed by its effect on the balance: positive for income, negative for expense, 0 otherwise.
+     */
+    static double netAmount(String type, double amount) {
+        if ("Income".equals(type)) {
+            return amount;
+        }
+        if ("Expense".equals(type)) {
+            return -amount;
+        }
+        return 0;
+    }
+
+    /**
+     * Adds a ledger entry to, or with a sign of -1 removes it from, its monthly rollup row.
+     * Rows and months left without transactions are removed. Must be called under the write lock.
+     */
+    void applyToRollups(LedgerEntry entry, int sign) {
+        LocalDate month = monthOf(entry.dateMillis);
+        NavigableMap<LocalDate, Map<RollupKey, double[]>> months = rollupsByUser.computeIfAbsent(entry.userId, id -> new TreeMap<>());
+        Map<RollupKey, double[]> rows = months.computeIfAbsent(month, m -> new HashMap<>());
+        RollupKey key = new RollupKey(entry.accountId, entry.categoryId, entry.type);
+        double[] row = rows.computeIfAbsent(key, k -> new double[2]);
+        row[0] += sign * entry.amount;
+        row[1] += sign;
+        if (row[1] <= 0) {
+            rows.remove(key);
+            if (rows.isEmpty()) {
+                months.remove(month);
+            }
+        }
+    }
+
+    /**
+     * @return The first day of the month containing the given time, in the default time zone.
+     */
+    static LocalDate monthOf(long dateMillis) {
+        return Instant.ofEpochMilli(dateMillis).atZone(ZoneId.systemDefault()).toLocalDate().withDayOfMonth(1);
+    }
+
+    /**
+     * @return Fresh, zeroed running totals for a new account.
+     */
+    static double[] newTotals() {
+        return new double[4];
+    }
+
+    /**
+     * Adds a ledger entry to, or with a sign of -1 removes it from, the running totals of the
+     * accounts it touches. Must be called under the write lock.
+     */
+    void applyToTotals(LedgerEntry entry, int sign) {
+        if ("Income".equals(entry.type)) {
+            addToTotals(entry.accountId, INCOME, sign * entry.amount);
+        } else if ("Expense".equals(entry.type)) {
+            addToTotals(entry.accountId, EXPENSE, sign * entry.amount);
+        } else if ("Transfer".equals(entry.type)) {
+            addToTotals(entry.accountId, TRANSFER_OUT, sign * entry.amount);
+            if (entry.toAccountId != 0) {
+                addToTotals(entry.toAccountId, TRANSFER_IN, sign * entry.amount);
+            }
+        }
+    }
+
+    private void addToTotals(int accountId, int slot, double amount) {
+        double[] totals = totalsByAccount.get(accountId);
+        if (totals != null) {
+            totals[slot] += amount;
+        }
+    }
+
+    /**
+     * @return The total number of transactions held by the store.
+     */
+    public int getTransactionCount() {
+        lock.readLock().lock();
+        try {
+            return ledgerKeysById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every row from the store. ID sequences are not reset.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            usersById.clear();
+            usersByEmail.clear();
+            accountsById.clear();
+            accountsByUser.clear();
+            totalsByAccount.clear();
+            categoriesById.clear();
+            categoriesByUser.clear();
+            ledgerByUser.clear();
+            ledgerKeysById.clear();
+            rollupsByUser.clear();
+            checkpointsByAccount.clear();
+            outbox.clear();
+            pendingOutbox.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Orders ledger entries by transaction time, then by ID.
+     */
+    static final class LedgerKey implements Comparable<LedgerKey> {
+        final long dateMillis;
+        final int id;
+
+        LedgerKey(long dateMillis, int id) {
+            this.dateMillis = dateMillis;
+            this.id = id;
+        }
+
+        /**
+         * @return A key that sorts before every entry at or after the given time.
+         */
+        static LedgerKey at(long dateMillis) {
+            return new LedgerKey(dateMillis, Integer.MIN_VALUE);
+        }
+
+        @Override
+        public int compareTo(LedgerKey other) {
+            int byDate = Long.compare(dateMillis, other.dateMillis);
+            return byDate != 0 ? byDate : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LedgerKey && compareTo((LedgerKey) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(dateMillis) * 31 + id;
+        }
+    }
+
+    /**
+     * Identifies a row of the monthly rollup within a month. The category ID is 0 for uncategorized transactions.
+     */
+    static final class RollupKey {
+        final int accountId;
+        final int categoryId;
+        final String type;
+
+        RollupKey(int accountId, int categoryId, String type) {
+            this.accountId = accountId;
+            this.categoryId = categoryId;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RollupKey)) {
+                return false;
+            }
+            RollupKey other = (RollupKey) o;
+            return accountId == other.accountId && categoryId == other.categoryId && Objects.equals(type, other.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, categoryId, type);
+        }
+    }
+
+    /**
+     * A compact stored transaction. Category and target account IDs are 0 when absent.
+     */
+    static final class LedgerEntry {
+        final int id;
+        final int userId;
+        final int accountId;
+        final int categoryId;
+        int toAccountId;
+        final String type;
+        final double amount;
+        final long dateMillis;
+        final String note;
+
+        LedgerEntry(int id, int userId, int accountId, int categoryId, int toAccountId,
+                    String type, double amount, long dateMillis, String note) {
+            this.id = id;
+            this.userId = userId;
+            this.accountId = accountId;
+            this.categoryId = categoryId;
+            this.toAccountId = toAccountId;
+            this.type = type;
+            this.amount = amount;
+            this.dateMillis = dateMillis;
+            this.note = note;
+        }
+    }
+
+    /**
+     * A stored outbox email. Status is one of PENDING, SENT and FAILED, as in the MySQL schema.
+     */
+    static final class OutboxEntry {
+        final long id;
+        final String recipient;
+        final String subject;
+        String body;
+        String status = "PENDING";
+        int attempts;
+        long nextAttemptMillis;
+        String lastError;
+
+        OutboxEntry(long id, String recipient, String subject, String body, long nextAttemptMillis) {
+            this.id = id;
+            this.recipient = recipient;
+            this.subject = subject;
+            this.body = body;
+            this.nextAttemptMillis = nextAttemptMillis;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.budgetbakers.repository.memory;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.Locale;
+
+import com.budgetbakers.entities.OutboxEmail;
+import com.budgetbakers.entities.User;
+import com.budgetbakers.repository.UserRepository;
+
+/**
+ * In-memory implementation of {@link UserRepository}.
+ */
+public class InMemoryUserRepository implements UserRepository {
+
+    private final InMemoryStore store;
+
+    /**
+     * @param store The store holding the data.
+     */
+    public InMemoryUserRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public User findByEmail(String email) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            User stored = store.usersByEmail.get(key(email));
+            return stored == null ? null : copy(stored);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public User findById(int id) throws SQLException {
+        store.lock.readLock().lock();
+        try {
+            User stored = store.usersById.get(id);
+            return stored == null ? null : copy(stored);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts the user and queues the welcome email under one hold of the write lock, so that
+     * readers see both or neither.
+     */
+    @Override
+    public void insertLocalUser(String email, String tempPassword, OutboxEmail welcome) throws SQLException {
+        User user = new User();
+        user.setEmail(email);
+        user.setTempPassword(tempPassword);
+        user.setTemp(true);
+        user.setAuthProvider("LOCAL");
+        store.lock.writeLock().lock();
+        try {
+            insert(user);
+            if (welcome != null) {
+                InMemoryEmailOutboxRepository.insert(store, welcome);
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public User insertGoogleUser(String email) throws SQLException {
+        User user = new User();
+        user.setEmail(email);
+        user.setTemp(false);
+        user.setAuthProvider("GOOGLE");
+        insert(user);
+
+        User newUser = new User();
+        newUser.setId(user.getId());
+        newUser.setEmail(email);
+        newUser.setAuthProvider("GOOGLE");
+        return newUser;
+    }
+
+    @Override
+    public void updatePassword(String email, String passwordHash) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            User stored = store.usersByEmail.get(key(email));
+            if (stored != null) {
+                stored.setPassword(passwordHash);
+                stored.setTempPassword(null);
+                stored.setTemp(false);
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    private void insert(User user) throws SQLException {
+        store.lock.writeLock().lock();
+        try {
+            if (store.usersByEmail.containsKey(key(user.getEmail()))) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate entry '" + user.getEmail() + "' for key 'users.email'");
+            }
+            user.setId(store.nextUserId());
+            user.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+            store.usersById.put(user.getId(), user);
+            store.usersByEmail.put(key(user.getEmail()), user);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    private static String key(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
+    private static User copy(User source) {
+        User user = new User();
+        user.setId(source.getId());
+        user.setEmail(source.getEmail());
+        user.setPassword(source.getPassword());
+        user.setTempPassword(source.getTempPassword());
+        user.setTemp(source.isTemp());
+        user.setCreatedAt(source.getCreatedAt());
+        user.setAuthProvider(source.getAuthProvider());
+        return user;
+    }
+}
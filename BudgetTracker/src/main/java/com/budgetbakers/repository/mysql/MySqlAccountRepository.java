@@ -0,0 +1,205 @@
+package com.budgetbakers.repository.mysql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.entities.ReferenceData;
+import com.budgetbakers.repository.AccountRepository;
+import com.budgetbakers.utils.DbConnector;
+import com.budgetbakers.utils.InClause;
+
+/**
+ * MySQL implementation of {@link AccountRepository}.
+ */
+public class MySqlAccountRepository implements AccountRepository {
+
+    /**
+     * Reads a user's accounts and categories as one result set. Category rows leave the account
+     * columns empty and account rows leave parent_id empty; the kind column tells them apart.
+     */
+    private static final String REFERENCE_DATA_SQL =
+        "SELECT 'A' AS kind, id, user_id, name, account_type, initial_balance, currency, color, exclude_from_stats, NULL AS parent_id " +
+        "FROM accounts WHERE user_id = ? " +
+        "UNION ALL " +
+        "SELECT 'C', id, user_id, name, NULL, NULL, NULL, NULL, NULL, parent_id " +
+        "FROM categories WHERE user_id = ? " +
+        "ORDER BY kind, id";
+
+    @Override
+    public List<Account> findByUser(int userId) throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        String sql = "SELECT * FROM accounts WHERE user_id = ? ORDER BY id ASC";
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    accounts.add(mapAccount(rs));
+                }
+            }
+        }
+        return accounts;
+    }
+
+    @Override
+    public ReferenceData findReferenceData(int userId) throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        List<Category> categories = new ArrayList<>();
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(REFERENCE_DATA_SQL)) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if ("A".equals(rs.getString("kind"))) {
+                        accounts.add(mapAccount(rs));
+                    } else {
+                        Category category = new Category();
+                        category.setId(rs.getInt("id"));
+                        category.setUserId(rs.getInt("user_id"));
+                        category.setParentId(rs.getObject("parent_id", Integer.class));
+                        category.setName(rs.getString("name"));
+                        categories.add(category);
+                    }
+                }
+            }
+        }
+        return new ReferenceData(accounts, categories);
+    }
+
+    @Override
+    public int countByUser(int userId) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM accounts WHERE user_id = ?";
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    @Override
+    public void insert(Account account) throws SQLException {
+        String sql = "INSERT INTO accounts (user_id, name, account_type, initial_balance, currency, color) VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, account.getUserId());
+            stmt.setString(2, account.getName());
+            stmt.setString(3, account.getAccountType());
+            stmt.setDouble(4, account.getInitialBalance());
+            stmt.setString(5, account.getCurrency());
+            stmt.setString(6, account.getColor());
+            stmt.executeUpdate();
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    account.setId(generatedKeys.getInt(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the account in one database transaction with the balance bookkeeping: transfers
+     * out of the account disappear with it, so they are first taken off the {@code transfer_in}
+     * totals of their target accounts.
+     */
+    @Override
+    public boolean delete(int accountId, int userId) throws SQLException {
+        String reverseTransfersSql =
+            "UPDATE account_balances b " +
+            "JOIN (SELECT to_account_id, SUM(amount) AS total FROM transactions " +
+            "      WHERE account_id = ? AND user_id = ? AND transaction_type = 'Transfer' AND to_account_id IS NOT NULL " +
+            "      GROUP BY to_account_id) t ON b.account_id = t.to_account_id " +
+            "SET b.transfer_in = b.transfer_in - t.total";
+        // Related transactions and the account's balance row are deleted by the database's ON DELETE CASCADE rules.
+        String sql = "DELETE FROM accounts WHERE id = ? AND user_id = ?";
+        try (Connection conn = DbConnector.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(reverseTransfersSql)) {
+                    stmt.setInt(1, accountId);
+                    stmt.setInt(2, userId);
+                    stmt.executeUpdate();
+                }
+                boolean deleted;
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, accountId);
+                    stmt.setInt(2, userId);
+                    deleted = stmt.executeUpdate() > 0;
+                }
+                if (deleted) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+                return deleted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public List<String> findDistinctCurrencies(int userId) throws SQLException {
+        List<String> currencies = new ArrayList<>();
+        String sql = "SELECT DISTINCT currency FROM accounts WHERE user_id = ?";
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    currencies.add(rs.getString("currency"));
+                }
+            }
+        }
+        return currencies;
+    }
+
+    @Override
+    public double sumInitialBalance(int userId, String currency, List<Integer> accountIds) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT SUM(initial_balance) FROM accounts WHERE user_id = ? AND currency = ? ");
+        if (accountIds != null && !accountIds.isEmpty()) {
+            sql.append("AND id IN (").append(InClause.placeholders(accountIds.size())).append(") ");
+        }
+
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int paramIndex = 1;
+            stmt.setInt(paramIndex++, userId);
+            stmt.setString(paramIndex++, currency);
+            if (accountIds != null && !accountIds.isEmpty()) {
+                for (Integer id : InClause.pad(accountIds)) {
+                    stmt.setInt(paramIndex++, id);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Maps the current row of an `accounts` result set to an {@link Account}.
+     */
+    static Account mapAccount(ResultSet rs) throws SQLException {
+        Account account = new Account();
+        account.setId(rs.getInt("id"));
+        account.setUserId(rs.getInt("user_id"));
+        account.setName(rs.getString("name"));
+        account.setAccountType(rs.getString("account_type"));
+        account.setInitialBalance(rs.getDouble("initial_balance"));
+        account.setCurrency(rs.getString("currency"));
+        account.setColor(rs.getString("color"));
+        account.setExcludeFromStats(rs.getBoolean("exclude_from_stats"));
+        return account;
+    }
+}
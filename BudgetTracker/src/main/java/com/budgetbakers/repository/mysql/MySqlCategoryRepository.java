@@ -0,0 +1,78 @@
+package com.budgetbakers.repository.mysql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.repository.CategoryRepository;
+import com.budgetbakers.utils.DbConnector;
+
+/**
+ * MySQL implementation of {@link CategoryRepository}.
+ */
+public class MySqlCategoryRepository implements CategoryRepository {
+
+    @Override
+    public List<Category> findByUser(int userId) throws SQLException {
+        List<Category> categories = new ArrayList<>();
+        String sql = "SELECT * FROM categories WHERE user_id = ? ORDER BY name ASC";
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Category category = new Category();
+                    category.setId(rs.getInt("id"));
+                    category.setUserId(rs.getInt("user_id"));
+                    category.setParentId(rs.getObject("parent_id", Integer.class));
+                    category.setName(rs.getString("name"));
+                    categories.add(category);
+                }
+            }
+        }
+        return categories;
+    }
+
+    @Override
+    public void insertTree(int userId, Map<String, List<String>> tree) throws SQLException {
+        String parentSql = "INSERT INTO categories (user_id, name, parent_id) VALUES (?, ?, NULL)";
+        String childSql = "INSERT INTO categories (user_id, name, parent_id) VALUES (?, ?, ?)";
+
+        try (Connection conn = DbConnector.getInstance().getConnection()) {
+            for (Map.Entry<String, List<String>> entry : tree.entrySet()) {
+                String parentName = entry.getKey();
+                List<String> children = entry.getValue();
+
+                long parentId = 0;
+                try (PreparedStatement parentStmt = conn.prepareStatement(parentSql, Statement.RETURN_GENERATED_KEYS)) {
+                    parentStmt.setInt(1, userId);
+                    parentStmt.setString(2, parentName);
+                    parentStmt.executeUpdate();
+                    try (ResultSet generatedKeys = parentStmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            parentId = generatedKeys.getLong(1);
+                        }
+                    }
+                }
+
+                if (parentId > 0 && children != null) {
+                    try (PreparedStatement childStmt = conn.prepareStatement(childSql)) {
+                        for (String childName : children) {
+                            childStmt.setInt(1, userId);
+                            childStmt.setString(2, childName);
+                            childStmt.setLong(3, parentId);
+                            childStmt.addBatch();
+                        }
+                        childStmt.executeBatch();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.budgetbakers.repository.mysql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.budgetbakers.entities.OutboxEmail;
+import com.budgetbakers.repository.EmailOutboxRepository;
+import com.budgetbakers.utils.DbConnector;
+import com.budgetbakers.utils.InClause;
+
+/**
+ * MySQL implementation of {@link EmailOutboxRepository}.
+ */
+public class MySqlEmailOutboxRepository implements EmailOutboxRepository {
+
+    /** The length of the {@code last_error} column. */
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO email_outbox (recipient, subject, body, status, attempts, next_attempt_at) VALUES (?, ?, ?, 'PENDING', 0, ?)";
+
+    /**
+     * Locks the due rows with {@code SKIP LOCKED}, so that dispatchers on several servers claim
+     * disjoint batches instead of waiting for each other.
+     */
+    private static final String CLAIM_SQL =
+        "SELECT id, recipient, subject, body, attempts FROM email_outbox " +
+        "WHERE status = 'PENDING' AND next_attempt_at <= ? " +
+        "ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    @Override
+    public void insert(OutboxEmail email) throws SQLException {
+        try (Connection conn = connect()) {
+            insert(conn, email);
+        }
+    }
+
+    /**
+     * Queues an email on the caller's connection, so that it commits or rolls back with the
+     * caller's transaction.
+     * @param conn The connection of the enclosing transaction.
+     * @param email The email; its ID is set on return.
+     * @throws SQLException if a database error occurs.
+     */
+    static void insert(Connection conn, OutboxEmail email) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, email.getRecipient());
+            stmt.setString(2, email.getSubject());
+            stmt.setString(3, email.getBody());
+            stmt.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            stmt.executeUpdate();
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    email.setId(generatedKeys.getLong(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Selects and leases the due rows in one database transaction.
+     */
+    @Override
+    public List<OutboxEmail> claimDue(int limit, long leaseMillis) throws SQLException {
+        long now = System.currentTimeMillis();
+        try (Connection conn = connect()) {
+            conn.setAutoCommit(false);
+            try {
+                List<OutboxEmail> claimed = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(CLAIM_SQL)) {
+                    stmt.setTimestamp(1, new Timestamp(now));
+                    stmt.setInt(2, limit);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            OutboxEmail email = new OutboxEmail(rs.getString("recipient"), rs.getString("subject"), rs.getString("body"));
+                            email.setId(rs.getLong("id"));
+                            email.setAttempts(rs.getInt("attempts") + 1);
+                            claimed.add(email);
+                        }
+                    }
+                }
+                if (claimed.isEmpty()) {
+                    conn.commit();
+                    return Collections.emptyList();
+                }
+
+                List<Long> ids = new ArrayList<>();
+                for (OutboxEmail email : claimed) {
+                    ids.add(email.getId());
+                }
+                String leaseSql = "UPDATE email_outbox SET attempts = attempts + 1, next_attempt_at = ? WHERE id IN ("
+                        + InClause.placeholders(ids.size()) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(leaseSql)) {
+                    stmt.setTimestamp(1, new Timestamp(now + leaseMillis));
+                    int paramIndex = 2;
+                    for (Long id : InClause.pad(ids)) {
+                        stmt.setLong(paramIndex++, id);
+                    }
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                return claimed;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void markSent(List<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE email_outbox SET status = 'SENT', body = '', last_error = NULL, sent_at = ? WHERE id IN ("
+                + InClause.placeholders(ids.size()) + ")";
+        try (Connection conn = connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            int paramIndex = 2;
+            for (Long id : InClause.pad(ids)) {
+                stmt.setLong(paramIndex++, id);
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void reschedule(long id, Timestamp nextAttemptAt, String error) throws SQLException {
+        String sql = "UPDATE email_outbox SET next_attempt_at = ?, last_error = ? WHERE id = ? AND status = 'PENDING'";
+        try (Connection conn = connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, nextAttemptAt);
+            stmt.setString(2, truncate(error));
+            stmt.setLong(3, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void markFailed(long id, String error) throws SQLException {
+        String sql = "UPDATE email_outbox SET status = 'FAILED', last_error = ? WHERE id = ? AND status = 'PENDING'";
+        try (Connection conn = connect();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, truncate(error));
+            stmt.setLong(2, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public int countPending() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM email_outbox WHERE status = 'PENDING'";
+        try (Connection conn = connect();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Private helper method to borrow a connection, failing with an {@link SQLException} rather
+     * than returning null when the database is not configured, so the dispatcher backs off.
+     */
+    private static Connection connect() throws SQLException {
+        Connection conn = DbConnector.getInstance().getConnection();
+        if (conn == null) {
+            throw new SQLException("No database connection is available for the email outbox.");
+        }
+        return conn;
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
@@ -0,0 +1,1123 @@
+package com.budgetbakers.repository.mysql;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.AccountTotals;
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.entities.CategorySpending;
+import com.budgetbakers.entities.MonthlyCashFlow;
+import com.budgetbakers.entities.Transaction;
+import com.budgetbakers.repository.LedgerRepository;
+import com.budgetbakers.repository.RowHandler;
+import com.budgetbakers.utils.DateRange;
+import com.budgetbakers.utils.DbConnector;
+import com.budgetbakers.utils.InClause;
+import com.budgetbakers.utils.PageCursor;
+
+/**
+ * MySQL implementation of {@link LedgerRepository}.
+ */
+public class MySqlLedgerRepository implements LedgerRepository {
+
+    private static final Logger logger = LogManager.getLogger(MySqlLedgerRepository.class);
+
+    /** The SQLState InnoDB reports when it rolls back a transaction to break a deadlock. */
+    private static final String DEADLOCK_SQL_STATE = "40001";
+    /** How many times a write rolled back to break a deadlock is run again before giving up. */
+    private static final int DEADLOCK_RETRIES = Integer.getInteger("budgettracker.ledger.deadlockRetries", 3);
+
+    /** Selects a user's records with account and category names; filters and ordering are appended. */
+    private static final String RECORDS_SELECT =
+        "SELECT t.*, a.name as account_name, c.name as category_name " +
+        "FROM transactions t " +
+        "JOIN accounts a ON t.account_id = a.id " +
+        "LEFT JOIN categories c ON t.category_id = c.id " +
+        "WHERE t.user_id = ? ";
+
+    /** Adds deltas to an account's row in {@code account_balances}, creating the row on first use. */
+    private static final String UPSERT_BALANCE_SQL =
+        "INSERT INTO account_balances (account_id, user_id, total_income, total_expense, transfer_in, transfer_out) " +
+        "VALUES (?, ?, ?, ?, ?, ?) AS delta " +
+        "ON DUPLICATE KEY UPDATE " +
+        "    total_income = account_balances.total_income + delta.total_income, " +
+        "    total_expense = account_balances.total_expense + delta.total_expense, " +
+        "    transfer_in = account_balances.transfer_in + delta.transfer_in, " +
+        "    transfer_out = account_balances.transfer_out + delta.transfer_out";
+
+    private static final String INSERT_TRANSACTION_SQL =
+        "INSERT INTO transactions (user_id, account_id, category_id, transaction_type, amount, transaction_date, note, to_account_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /** Shifts an account's balance checkpoints after a date by a net amount. */
+    private static final String SHIFT_CHECKPOINTS_SQL =
+        "UPDATE balance_checkpoints SET net_before = net_before + ? WHERE account_id = ? AND period_month > ?";
+
+    /** Adds an amount and a count to a transaction's row in {@code monthly_rollups}, creating the row on first use. */
+    private static final String UPSERT_ROLLUP_SQL =
+        "INSERT INTO monthly_rollups (user_id, period_month, account_id, category_id, transaction_type, total_amount, txn_count) " +
+        "VALUES (?, DATE_FORMAT(?, '%Y-%m-01'), ?, ?, ?, ?, ?) AS delta " +
+        "ON DUPLICATE KEY UPDATE " +
+        "    total_amount = monthly_rollups.total_amount + delta.total_amount, " +
+        "    txn_count = monthly_rollups.txn_count + delta.txn_count";
+
+    /** Recomputes the monthly rollup from the ledger; the backfill of migration V4 runs the same statement. */
+    private static final String REBUILD_ROLLUPS_SQL =
+        "INSERT INTO monthly_rollups (user_id, period_month, account_id, category_id, transaction_type, total_amount, txn_count) " +
+        "SELECT user_id, DATE_FORMAT(transaction_date, '%Y-%m-01'), account_id, COALESCE(category_id, 0), transaction_type, SUM(amount), COUNT(*) " +
+        "FROM transactions " +
+        "GROUP BY user_id, DATE_FORMAT(transaction_date, '%Y-%m-01'), account_id, COALESCE(category_id, 0), transaction_type";
+
+    /** Recomputes every account's totals from the ledger; the backfill of migration V3 runs the same statement. */
+    private static final String REBUILD_BALANCES_SQL =
+        "INSERT INTO account_balances (account_id, user_id, total_income, total_expense, transfer_in, transfer_out) " +
+        "SELECT account_id, user_id, SUM(income), SUM(expense), SUM(transfer_in), SUM(transfer_out) " +
+        "FROM (" +
+        "    SELECT account_id, user_id, " +
+        "           CASE WHEN transaction_type = 'Income' THEN amount ELSE 0 END AS income, " +
+        "           CASE WHEN transaction_type = 'Expense' THEN amount ELSE 0 END AS expense, " +
+        "           0 AS transfer_in, " +
+        "           CASE WHEN transaction_type = 'Transfer' THEN amount ELSE 0 END AS transfer_out " +
+        "    FROM transactions " +
+        "    UNION ALL " +
+        "    SELECT to_account_id, user_id, 0, 0, amount, 0 " +
+        "    FROM transactions " +
+        "    WHERE transaction_type = 'Transfer' AND to_account_id IS NOT NULL" +
+        ") movements " +
+        "GROUP BY account_id, user_id";
+
+    @Override
+    public List<Transaction> findForUser(int userId, Map<String, String> filters) throws SQLException {
+        StringBuilder sql = new StringBuilder(RECORDS_SELECT);
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        appendRecordFilters(sql, params, filters);
+
+        sql.append("ORDER BY t.transaction_date DESC");
+        logger.debug("Final SQL: {} | Params: {}", sql, params);
+        return queryTransactions(sql.toString(), params);
+    }
+
+    /**
+     * Seeks past the cursor with an expanded {@code (date, id) < (?, ?)} predicate, which MySQL
+     * turns into a range scan of {@code idx_transactions_user_date} (its implicit primary key
+     * suffix supplies the ID order).
+     */
+    @Override
+    public List<Transaction> findPageForUser(int userId, Map<String, String> filters, PageCursor after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(RECORDS_SELECT);
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        appendRecordFilters(sql, params, filters);
+        if (after != null) {
+            sql.append("AND (t.transaction_date < ? OR (t.transaction_date = ? AND t.id < ?)) ");
+            params.add(after.getTimestamp());
+            params.add(after.getTimestamp());
+            params.add(after.getId());
+        }
+
+        sql.append("ORDER BY t.transaction_date DESC, t.id DESC LIMIT ?");
+        params.add(limit);
+        logger.debug("Final SQL: {} | Params: {}", sql, params);
+        return queryTransactions(sql.toString(), params);
+    }
+
+    /**
+     * Streams the rows like {@link #streamForAnalysis}, joining the receiving account of transfers
+     * for its name.
+     */
+    @Override
+    public void streamForUser(int userId, Map<String, String> filters, RowHandler<Transaction> handler) throws SQLException, IOException {
+        StringBuilder sql = new StringBuilder(
+            "SELECT t.*, a.name as account_name, c.name as category_name, ta.name as to_account_name " +
+            "FROM transactions t " +
+            "JOIN accounts a ON t.account_id = a.id " +
+            "LEFT JOIN categories c ON t.category_id = c.id " +
+            "LEFT JOIN accounts ta ON t.to_account_id = ta.id " +
+            "WHERE t.user_id = ? "
+        );
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        appendRecordFilters(sql, params, filters);
+        sql.append("ORDER BY t.transaction_date DESC, t.id DESC");
+
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = prepareStreaming(conn, sql.toString())) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Transaction tx = mapTransaction(rs);
+                    if (rs.getObject("to_account_id") != null) {
+                        Account toAccount = new Account();
+                        toAccount.setId(rs.getInt("to_account_id"));
+                        toAccount.setName(rs.getString("to_account_name"));
+                        tx.setToAccount(toAccount);
+                    }
+                    handler.handle(tx);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the transaction and updates {@code account_balances}, {@code monthly_rollups} and
+     * {@code balance_checkpoints} in the same database transaction, which is run again if InnoDB
+     * rolls it back to break a deadlock.
+     */
+    @Override
+    public void insert(Transaction transaction) throws SQLException {
+        retryOnDeadlock(() -> {
+            insertOnce(transaction);
+            return null;
+        });
+    }
+
+    /**
+     * Private helper method to run one attempt of {@link #insert(Transaction)}.
+     */
+    private void insertOnce(Transaction transaction) throws SQLException {
+        try (Connection conn = DbConnector.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_TRANSACTION_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                bindTransaction(stmt, transaction);
+                stmt.executeUpdate();
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        transaction.setId(generatedKeys.getInt(1));
+                    }
+                }
+
+                int toAccountId = transaction.getToAccount() != null ? transaction.getToAccount().getId() : 0;
+                applyToBalances(conn, transaction.getUserId(), transaction.getAccount().getId(), toAccountId,
+                        transaction.getTransactionType(), transaction.getAmount());
+                int categoryId = transaction.getCategory() != null ? transaction.getCategory().getId() : 0;
+                Timestamp transactionDate = new Timestamp(transaction.getTransactionDate().getTime());
+                applyToRollup(conn, transaction.getUserId(), transaction.getAccount().getId(), categoryId,
+                        transaction.getTransactionType(), transactionDate, transaction.getAmount(), 1);
+                applyToCheckpoints(conn, transaction.getAccount().getId(), transaction.getTransactionType(),
+                        transactionDate, transaction.getAmount());
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Sends the rows as one JDBC batch, which the driver rewrites into multi-row {@code INSERT}s
+     * ({@code rewriteBatchedStatements}, enabled by {@link com.budgetbakers.utils.ConnectionPool}).
+     * The deltas of {@code account_balances}, {@code monthly_rollups} and {@code balance_checkpoints}
+     * are summed in memory first and written as one batch per table, the balances in ascending
+     * account order. The database transaction is run again if InnoDB rolls it back to break a
+     * deadlock.
+     */
+    @Override
+    public void insertAll(List<Transaction> transactions) throws SQLException {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        retryOnDeadlock(() -> {
+            insertAllOnce(transactions);
+            return null;
+        });
+    }
+
+    /**
+     * Private helper method to run one attempt of {@link #insertAll(List)}.
+     */
+    private void insertAllOnce(List<Transaction> transactions) throws SQLException {
+        Map<Integer, double[]> balanceDeltas = new TreeMap<>();
+        Map<Integer, Integer> accountOwners = new HashMap<>();
+        Map<String, RollupDelta> rollupDeltas = new LinkedHashMap<>();
+        Map<String, CheckpointDelta> checkpointDeltas = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            int userId = transaction.getUserId();
+            int accountId = transaction.getAccount().getId();
+            int categoryId = transaction.getCategory() != null ? transaction.getCategory().getId() : 0;
+            int toAccountId = transaction.getToAccount() != null ? transaction.getToAccount().getId() : 0;
+            String type = transaction.getTransactionType();
+            double amount = transaction.getAmount();
+            LocalDate month = transaction.getTransactionDate().toLocalDateTime().toLocalDate().withDayOfMonth(1);
+
+            accountOwners.put(accountId, userId);
+            double[] balance = balanceDeltas.computeIfAbsent(accountId, id -> new double[4]);
+            if ("Income".equals(type)) {
+                balance[0] += amount;
+            } else if ("Expense".equals(type)) {
+                balance[1] += amount;
+            } else if ("Transfer".equals(type)) {
+                balance[3] += amount;
+                if (toAccountId != 0) {
+                    accountOwners.put(toAccountId, userId);
+                    balanceDeltas.computeIfAbsent(toAccountId, id -> new double[4])[2] += amount;
+                }
+            }
+
+            RollupDelta rollup = rollupDeltas.computeIfAbsent(userId + "|" + month + "|" + accountId + "|" + categoryId + "|" + type,
+                    k -> new RollupDelta(userId, month, accountId, categoryId, type));
+            rollup.amount += amount;
+            rollup.count++;
+
+            if ("Income".equals(type) || "Expense".equals(type)) {
+                CheckpointDelta checkpoint = checkpointDeltas.computeIfAbsent(accountId + "|" + month,
+                        k -> new CheckpointDelta(accountId, month));
+                checkpoint.net += "Income".equals(type) ? amount : -amount;
+            }
+        }
+
+        try (Connection conn = DbConnector.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_TRANSACTION_SQL)) {
+                    for (Transaction transaction : transactions) {
+                        bindTransaction(stmt, transaction);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(UPSERT_BALANCE_SQL)) {
+                    for (Map.Entry<Integer, double[]> delta : balanceDeltas.entrySet()) {
+                        double[] d = delta.getValue();
+                        addBalanceDelta(stmt, accountOwners.get(delta.getKey()), delta.getKey(), d[0], d[1], d[2], d[3]);
+                    }
+                    stmt.executeBatch();
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(UPSERT_ROLLUP_SQL)) {
+                    for (RollupDelta delta : rollupDeltas.values()) {
+                        stmt.setInt(1, delta.userId);
+                        stmt.setDate(2, Date.valueOf(delta.month));
+                        stmt.setInt(3, delta.accountId);
+                        stmt.setInt(4, delta.categoryId);
+                        stmt.setString(5, delta.type);
+                        stmt.setDouble(6, delta.amount);
+                        stmt.setInt(7, delta.count);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                if (!checkpointDeltas.isEmpty()) {
+                    // A checkpoint after any day of a month is one after the first of that month
+                    try (PreparedStatement stmt = conn.prepareStatement(SHIFT_CHECKPOINTS_SQL)) {
+                        for (CheckpointDelta delta : checkpointDeltas.values()) {
+                            stmt.setDouble(1, delta.net);
+                            stmt.setInt(2, delta.accountId);
+                            stmt.setTimestamp(3, Timestamp.valueOf(delta.month.atStartOfDay()));
+                            stmt.addBatch();
+                        }
+                        stmt.executeBatch();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Locks the transaction row, deletes it and reverses it in {@code account_balances},
+     * {@code monthly_rollups} and {@code balance_checkpoints} in the same database transaction,
+     * which is run again if InnoDB rolls it back to break a deadlock.
+     */
+    @Override
+    public boolean delete(int transactionId, int userId) throws SQLException {
+        return retryOnDeadlock(() -> deleteOnce(transactionId, userId));
+    }
+
+    /**
+     * Private helper method to run one attempt of {@link #delete(int, int)}.
+     */
+    private boolean deleteOnce(int transactionId, int userId) throws SQLException {
+        String selectSql = "SELECT account_id, category_id, to_account_id, transaction_type, amount, transaction_date " +
+                           "FROM transactions WHERE id = ? AND user_id = ? FOR UPDATE";
+        String deleteSql = "DELETE FROM transactions WHERE id = ?";
+        try (Connection conn = DbConnector.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int accountId;
+                int categoryId;
+                int toAccountId;
+                String type;
+                double amount;
+                Timestamp transactionDate;
+                try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                    stmt.setInt(1, transactionId);
+                    stmt.setInt(2, userId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false;
+                        }
+                        accountId = rs.getInt("account_id");
+                        categoryId = rs.getInt("category_id");
+                        toAccountId = rs.getInt("to_account_id");
+                        type = rs.getString("transaction_type");
+                        amount = rs.getDouble("amount");
+                        transactionDate = rs.getTimestamp("transaction_date");
+                    }
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(deleteSql)) {
+                    stmt.setInt(1, transactionId);
+                    stmt.executeUpdate();
+                }
+                applyToBalances(conn, userId, accountId, toAccountId, type, -amount);
+                applyToRollup(conn, userId, accountId, categoryId, type, transactionDate, -amount, -1);
+                applyToCheckpoints(conn, accountId, type, transactionDate, -amount);
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Double> sumByType(int userId, DateRange range) throws SQLException {
+        Map<String, Double> totals = new HashMap<>();
+        String sql = range.isWholeMonths()
+            ? "SELECT transaction_type, SUM(total_amount) as total " +
+              "FROM monthly_rollups WHERE user_id = ? " +
+              "AND period_month >= ? AND period_month < ? " +
+              "GROUP BY transaction_type"
+            : "SELECT transaction_type, SUM(amount) as total " +
+              "FROM transactions WHERE user_id = ? " +
+              "AND transaction_date >= ? AND transaction_date < ? " +
+              "GROUP BY transaction_type";
+
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            stmt.setTimestamp(2, range.getStartTimestamp());
+            stmt.setTimestamp(3, range.getEndTimestamp());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getString("transaction_type"), rs.getDouble("total"));
+                }
+            }
+        }
+        return totals;
+    }
+
+    @Override
+    public List<AccountTotals> findAccountTotals(int userId) throws SQLException {
+        List<AccountTotals> totalsList = new ArrayList<>();
+        String sql = "SELECT account_id, total_income, total_expense, transfer_in, transfer_out " +
+                     "FROM account_balances WHERE user_id = ?";
+
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    AccountTotals totals = new AccountTotals();
+                    totals.setAccountId(rs.getInt("account_id"));
+                    totals.setTotalIncome(rs.getDouble("total_income"));
+                    totals.setTotalExpense(rs.getDouble("total_expense"));
+                    totals.setTransferIn(rs.getDouble("transfer_in"));
+                    totals.setTransferOut(rs.getDouble("transfer_out"));
+                    totalsList.add(totals);
+                }
+            }
+        }
+        return totalsList;
+    }
+
+    /**
+     * Replaces the contents of {@code account_balances} in one database transaction, so readers
+     * never see a partially rebuilt table.
+     */
+    @Override
+    public int rebuildAccountBalances() throws SQLException {
+        try (Connection conn = DbConnector.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM account_balances");
+                int rebuilt = stmt.executeUpdate(REBUILD_BALANCES_SQL);
+                conn.commit();
+                return rebuilt;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of {@code monthly_rollups} and drops the checkpoints derived from it,
+     * in one database transaction.
+     */
+    @Override
+    public int rebuildMonthlyRollups() throws SQLException {
+        try (Connection conn = DbConnector.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM balance_checkpoints");
+                stmt.executeUpdate("DELETE FROM monthly_rollups");
+                int rebuilt = stmt.executeUpdate(REBUILD_ROLLUPS_SQL);
+                conn.commit();
+                return rebuilt;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public int clearBalanceCheckpoints() throws SQLException {
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate("DELETE FROM balance_checkpoints");
+        }
+    }
+
+    /**
+     * Ranks each account's expense categories with {@code ROW_NUMBER()} so the top categories of
+     * all accounts come back in one round trip instead of one query per account. Ranges of whole
+     * months are ranked from {@code monthly_rollups}.
+     */
+    @Override
+    public Map<Integer, List<CategorySpending>> findTopExpenseCategoriesByAccount(int userId, DateRange range, int limit) throws SQLException {
+        Map<Integer, List<CategorySpending>> spendingByAccount = new HashMap<>();
+        String source = range.isWholeMonths()
+            ? "    SELECT r.account_id, c.name as category_name, SUM(r.total_amount) as total_amount, " +
+              "           ROW_NUMBER() OVER (PARTITION BY r.account_id ORDER BY SUM(r.total_amount) DESC, c.name) as category_rank " +
+              "    FROM monthly_rollups r " +
+              "    JOIN categories c ON r.category_id = c.id " +
+              "    WHERE r.user_id = ? " +
+              "      AND r.transaction_type = 'Expense' " +
+              "      AND r.period_month >= ? AND r.period_month < ? " +
+              "    GROUP BY r.account_id, c.name"
+            : "    SELECT t.account_id, c.name as category_name, SUM(t.amount) as total_amount, " +
+              "           ROW_NUMBER() OVER (PARTITION BY t.account_id ORDER BY SUM(t.amount) DESC, c.name) as category_rank " +
+              "    FROM transactions t " +
+              "    JOIN categories c ON t.category_id = c.id " +
+              "    WHERE t.user_id = ? " +
+              "      AND t.transaction_type = 'Expense' " +
+              "      AND t.transaction_date >= ? AND t.transaction_date < ? " +
+              "    GROUP BY t.account_id, c.name";
+        String sql = "SELECT account_id, category_name, total_amount FROM (" +
+                     source +
+                     ") ranked " +
+                     "WHERE category_rank <= ? " +
+                     "ORDER BY account_id, category_rank";
+
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            stmt.setTimestamp(2, range.getStartTimestamp());
+            stmt.setTimestamp(3, range.getEndTimestamp());
+            stmt.setInt(4, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    spendingByAccount.computeIfAbsent(rs.getInt("account_id"), id -> new ArrayList<>())
+                                     .add(mapCategorySpending(rs));
+                }
+            }
+        }
+        return spendingByAccount;
+    }
+
+    /**
+     * Monthly cash flow over whole months is summed from {@code monthly_rollups}; daily cash flow
+     * and partial months are aggregated from the raw transactions.
+     */
+    @Override
+    public List<MonthlyCashFlow> findCashFlow(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException {
+        List<MonthlyCashFlow> cashFlowList = new ArrayList<>();
+        boolean fromRollups = !range.isDaily() && range.isWholeMonths();
+        StringBuilder sql;
+        if (fromRollups) {
+            sql = new StringBuilder(
+                "SELECT " +
+                "    DATE_FORMAT(r.period_month, '%Y-%m') AS period, " +
+                "    SUM(CASE WHEN r.transaction_type = 'Income' THEN r.total_amount ELSE 0 END) AS total_income, " +
+                "    SUM(CASE WHEN r.transaction_type = 'Expense' THEN r.total_amount ELSE 0 END) AS total_expense " +
+                "FROM monthly_rollups r " +
+                "JOIN accounts a ON r.account_id = a.id " +
+                "WHERE r.user_id = ? AND a.currency = ? AND r.period_month >= ? AND r.period_month < ? "
+            );
+        } else {
+            String dateFormat = range.isDaily() ? "%Y-%m-%d" : "%Y-%m"; // Group by day or by month
+            sql = new StringBuilder(
+                "SELECT " +
+                "    DATE_FORMAT(t.transaction_date, '" + dateFormat + "') AS period, " +
+                "    SUM(CASE WHEN t.transaction_type = 'Income' THEN t.amount ELSE 0 END) AS total_income, " +
+                "    SUM(CASE WHEN t.transaction_type = 'Expense' THEN t.amount ELSE 0 END) AS total_expense " +
+                "FROM transactions t " +
+                "JOIN accounts a ON t.account_id = a.id " +
+                "WHERE t.user_id = ? AND a.currency = ? AND t.transaction_date >= ? AND t.transaction_date < ? "
+            );
+        }
+        List<Object> params = analysisParams(userId, currency, range);
+        appendAccountFilter(sql, params, fromRollups ? "r.account_id" : "t.account_id", accountIds);
+        sql.append("GROUP BY period ORDER BY period ASC");
+
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    MonthlyCashFlow mcf = new MonthlyCashFlow();
+                    mcf.setMonth(rs.getString("period"));
+                    mcf.setTotalIncome(rs.getDouble("total_income"));
+                    mcf.setTotalExpense(rs.getDouble("total_expense"));
+                    cashFlowList.add(mcf);
+                }
+            }
+        }
+        return cashFlowList;
+    }
+
+    /**
+     * Ranges of whole months are summed from {@code monthly_rollups}, others from the raw transactions.
+     */
+    @Override
+    public List<CategorySpending> findSpendingByCategory(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException {
+        List<CategorySpending> spendingList = new ArrayList<>();
+        boolean fromRollups = range.isWholeMonths();
+        StringBuilder sql = new StringBuilder(fromRollups
+            ? "SELECT c.name as category_name, SUM(r.total_amount) as total_amount " +
+              "FROM monthly_rollups r " +
+              "JOIN categories c ON r.category_id = c.id " +
+              "JOIN accounts a ON r.account_id = a.id " +
+              "WHERE r.user_id = ? AND a.currency = ? AND r.period_month >= ? AND r.period_month < ? " +
+              "AND r.transaction_type = 'Expense' "
+            : "SELECT c.name as category_name, SUM(t.amount) as total_amount " +
+              "FROM transactions t " +
+              "JOIN categories c ON t.category_id = c.id " +
+              "JOIN accounts a ON t.account_id = a.id " +
+              "WHERE t.user_id = ? AND a.currency = ? AND t.transaction_date >= ? AND t.transaction_date < ? " +
+              "AND t.transaction_type = 'Expense' "
+        );
+        List<Object> params = analysisParams(userId, currency, range);
+        appendAccountFilter(sql, params, fromRollups ? "r.account_id" : "t.account_id", accountIds);
+        sql.append("GROUP BY c.name ORDER BY total_amount DESC");
+
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    spendingList.add(mapCategorySpending(rs));
+                }
+            }
+        }
+        return spendingList;
+    }
+
+    @Override
+    public List<Transaction> findForAnalysis(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException {
+        List<Object> params = analysisParams(userId, currency, range);
+        return queryTransactions(analysisTransactionsSql(params, accountIds), params);
+    }
+
+    /**
+     * Streams the rows with a statement from {@link #prepareStreaming}, so the driver holds one
+     * row at a time instead of buffering the whole result.
+     */
+    @Override
+    public void streamForAnalysis(int userId, String currency, List<Integer> accountIds, DateRange range, RowHandler<Transaction> handler) throws SQLException, IOException {
+        List<Object> params = analysisParams(userId, currency, range);
+        String sql = analysisTransactionsSql(params, accountIds);
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = prepareStreaming(conn, sql)) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(mapTransaction(rs));
+                }
+            }
+        }
+    }
+
+    /**
+     * Prepares a statement whose result set is streamed with Connector/J's row-by-row mode: a
+     * forward-only, read-only statement with a fetch size of {@code Integer.MIN_VALUE}. The
+     * explicit result set type makes the statement bypass the statement cache, so its fetch
+     * size does not carry over to other queries. No other statement may run on the connection
+     * until the result set is closed.
+     */
+    private PreparedStatement prepareStreaming(Connection conn, String sql) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(Integer.MIN_VALUE);
+        return stmt;
+    }
+
+    /**
+     * Builds the query of the transactions shown on the analysis page, appending the selected
+     * account IDs to the parameters from {@link #analysisParams}.
+     */
+    private String analysisTransactionsSql(List<Object> params, List<Integer> accountIds) {
+        StringBuilder sql = new StringBuilder(
+            "SELECT t.*, a.name as account_name, c.name as category_name " +
+            "FROM transactions t " +
+            "JOIN accounts a ON t.account_id = a.id " +
+            "LEFT JOIN categories c ON t.category_id = c.id " +
+            "WHERE t.user_id = ? AND a.currency = ? AND t.transaction_date >= ? AND t.transaction_date < ? "
+        );
+        appendAccountFilter(sql, params, "t.account_id", accountIds);
+        sql.append("ORDER BY t.transaction_date DESC");
+        return sql.toString();
+    }
+
+    /**
+     * Reads the selected accounts' checkpoints at the start of the date's month, creating missing
+     * ones from {@code monthly_rollups}, and adds the transactions from the start of the month up
+     * to the date.
+     */
+    @Override
+    public double sumNetBefore(int userId, String currency, List<Integer> accountIds, LocalDate date) throws SQLException {
+        LocalDate checkpointMonth = date.withDayOfMonth(1);
+        try (Connection conn = DbConnector.getInstance().getConnection()) {
+            List<Integer> selected = selectAccountIds(conn, userId, currency, accountIds);
+            if (selected.isEmpty()) {
+                return 0;
+            }
+
+            double[] checkpoint = readCheckpoints(conn, selected, checkpointMonth);
+            if (checkpoint[1] < selected.size()) {
+                createCheckpoints(conn, userId, selected, checkpointMonth);
+                checkpoint = readCheckpoints(conn, selected, checkpointMonth);
+            }
+            if (!date.isAfter(checkpointMonth)) {
+                return checkpoint[0];
+            }
+
+            StringBuilder sql = new StringBuilder(
+                "SELECT SUM(CASE WHEN transaction_type = 'Income' THEN amount WHEN transaction_type = 'Expense' THEN -amount ELSE 0 END) " +
+                "FROM transactions WHERE user_id = ? AND transaction_date >= ? AND transaction_date < ? "
+            );
+            List<Object> params = new ArrayList<>();
+            params.add(userId);
+            params.add(Timestamp.valueOf(checkpointMonth.atStartOfDay()));
+            params.add(Timestamp.valueOf(date.atStartOfDay()));
+            appendAccountFilter(sql, params, "account_id", selected);
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                bind(stmt, params);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return checkpoint[0] + (rs.next() ? rs.getDouble(1) : 0);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<LocalDate, Double> findDailyNetChanges(int userId, String currency, List<Integer> accountIds, DateRange range) throws SQLException {
+        Map<LocalDate, Double> dailyChanges = new HashMap<>();
+        StringBuilder sql = new StringBuilder(
+            "SELECT DATE(transaction_date) as day, SUM(CASE WHEN transaction_type = 'Income' THEN amount WHEN transaction_type = 'Expense' THEN -amount ELSE 0 END) as net_change " +
+            "FROM transactions WHERE user_id = ? AND account_id IN (SELECT id FROM accounts WHERE user_id = ? AND currency = ?) " +
+            "AND transaction_date >= ? AND transaction_date < ? "
+        );
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        params.add(userId);
+        params.add(currency);
+        params.add(range.getStartTimestamp());
+        params.add(range.getEndTimestamp());
+        appendAccountFilter(sql, params, "account_id", accountIds);
+        sql.append("GROUP BY day ORDER BY day ASC");
+
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    dailyChanges.put(rs.getDate("day").toLocalDate(), rs.getDouble("net_change"));
+                }
+            }
+        }
+        return dailyChanges;
+    }
+
+    /**
+     * Adds a transaction's amount to the running totals of the accounts it touches: income or
+     * expense on its account, or transfer out of its account and into the target account.
+     * Pass a negative amount to reverse a transaction.
+     * <p>
+     * The rows of a transfer are upserted in ascending account order, so that two transfers in
+     * opposite directions between the same accounts lock the rows in the same order instead of
+     * deadlocking.
+     */
+    private void applyToBalances(Connection conn, int userId, int accountId, int toAccountId, String type, double amount) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_BALANCE_SQL)) {
+            if ("Income".equals(type)) {
+                addBalanceDelta(stmt, userId, accountId, amount, 0, 0, 0);
+            } else if ("Expense".equals(type)) {
+                addBalanceDelta(stmt, userId, accountId, 0, amount, 0, 0);
+            } else if ("Transfer".equals(type)) {
+                if (toAccountId != 0 && toAccountId < accountId) {
+                    addBalanceDelta(stmt, userId, toAccountId, 0, 0, amount, 0);
+                    addBalanceDelta(stmt, userId, accountId, 0, 0, 0, amount);
+                } else {
+                    addBalanceDelta(stmt, userId, accountId, 0, 0, 0, amount);
+                    if (toAccountId != 0) {
+                        addBalanceDelta(stmt, userId, toAccountId, 0, 0, amount, 0);
+                    }
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Private helper method to run a write, and run it again up to {@link #DEADLOCK_RETRIES}
+     * times if InnoDB rolled it back to break a deadlock.
+     * @param write One attempt at the write, in its own database transaction.
+     * @return The result of the attempt that committed.
+     * @throws SQLException if the write fails for another reason, or keeps deadlocking.
+     */
+    private <T> T retryOnDeadlock(TransactionalWrite<T> write) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write.run();
+            } catch (SQLException e) {
+                if (attempt > DEADLOCK_RETRIES || !isDeadlock(e)) {
+                    throw e;
+                }
+                logger.warn("Ledger write was rolled back to break a deadlock; retrying (attempt {} of {}).",
+                        attempt + 1, DEADLOCK_RETRIES + 1);
+            }
+        }
+    }
+
+    /**
+     * Private helper method to check whether an exception, or one it wraps, is a deadlock
+     * rollback; a failed batch reports it on the {@link java.sql.BatchUpdateException}'s cause.
+     */
+    private static boolean isDeadlock(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException && DEADLOCK_SQL_STATE.equals(((SQLException) t).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a transaction's amount and a count of one, or with a count delta of -1 and a negative
+     * amount removes them, to its row in {@code monthly_rollups}. Rows whose count drops to zero
+     * are deleted so they do not show up as empty categories.
+     */
+    private void applyToRollup(Connection conn, int userId, int accountId, int categoryId, String type,
+                               Timestamp transactionDate, double amount, int countDelta) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_ROLLUP_SQL)) {
+            stmt.setInt(1, userId);
+            stmt.setTimestamp(2, transactionDate);
+            stmt.setInt(3, accountId);
+            stmt.setInt(4, categoryId);
+            stmt.setString(5, type);
+            stmt.setDouble(6, amount);
+            stmt.setInt(7, countDelta);
+            stmt.executeUpdate();
+        }
+        if (countDelta < 0) {
+            String pruneSql = "DELETE FROM monthly_rollups WHERE user_id = ? AND period_month = DATE_FORMAT(?, '%Y-%m-01') " +
+                              "AND account_id = ? AND category_id = ? AND transaction_type = ? AND txn_count <= 0";
+            try (PreparedStatement stmt = conn.prepareStatement(pruneSql)) {
+                stmt.setInt(1, userId);
+                stmt.setTimestamp(2, transactionDate);
+                stmt.setInt(3, accountId);
+                stmt.setInt(4, categoryId);
+                stmt.setString(5, type);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Binds the columns of {@link #INSERT_TRANSACTION_SQL}.
+     */
+    private void bindTransaction(PreparedStatement stmt, Transaction transaction) throws SQLException {
+        stmt.setInt(1, transaction.getUserId());
+        stmt.setInt(2, transaction.getAccount().getId());
+
+        if (transaction.getCategory() != null && transaction.getCategory().getId() != 0) {
+            stmt.setInt(3, transaction.getCategory().getId());
+        } else {
+            stmt.setNull(3, Types.INTEGER);
+        }
+
+        stmt.setString(4, transaction.getTransactionType());
+        stmt.setDouble(5, transaction.getAmount());
+        stmt.setTimestamp(6, new Timestamp(transaction.getTransactionDate().getTime()));
+        stmt.setString(7, transaction.getNote());
+
+        int toAccountId = transaction.getToAccount() != null ? transaction.getToAccount().getId() : 0;
+        if (toAccountId != 0) {
+            stmt.setInt(8, toAccountId);
+        } else {
+            stmt.setNull(8, Types.INTEGER);
+        }
+    }
+
+    private void addBalanceDelta(PreparedStatement stmt, int userId, int accountId,
+                                 double income, double expense, double transferIn, double transferOut) throws SQLException {
+        stmt.setInt(1, accountId);
+        stmt.setInt(2, userId);
+        stmt.setDouble(3, income);
+        stmt.setDouble(4, expense);
+        stmt.setDouble(5, transferIn);
+        stmt.setDouble(6, transferOut);
+        stmt.addBatch();
+    }
+
+    /**
+     * Resolves the IDs of a user's accounts in a currency, optionally restricted to a selection.
+     */
+    private List<Integer> selectAccountIds(Connection conn, int userId, String currency, List<Integer> accountIds) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id FROM accounts WHERE user_id = ? AND currency = ? ");
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        params.add(currency);
+        appendAccountFilter(sql, params, "id", accountIds);
+
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Sums the accounts' checkpoints at a month start.
+     * @return The summed net and the number of accounts that have a checkpoint.
+     */
+    private double[] readCheckpoints(Connection conn, List<Integer> accountIds, LocalDate month) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT SUM(net_before), COUNT(*) FROM balance_checkpoints WHERE period_month = ? ");
+        List<Object> params = new ArrayList<>();
+        params.add(Date.valueOf(month));
+        appendAccountFilter(sql, params, "account_id", accountIds);
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new double[] { rs.getDouble(1), rs.getInt(2) } : new double[2];
+            }
+        }
+    }
+
+    /**
+     * Creates the accounts' missing checkpoints at a month start from {@code monthly_rollups}.
+     * The rollup rows are read with shared locks by the insert, so a concurrent write either is
+     * included in the sum or repairs the new checkpoint after it. Checkpoints created meanwhile by
+     * another request are kept.
+     */
+    private void createCheckpoints(Connection conn, int userId, List<Integer> accountIds, LocalDate month) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+            "INSERT IGNORE INTO balance_checkpoints (account_id, period_month, user_id, net_before) " +
+            "SELECT a.id, ?, a.user_id, " +
+            "       COALESCE(SUM(CASE WHEN r.transaction_type = 'Income' THEN r.total_amount " +
+            "                         WHEN r.transaction_type = 'Expense' THEN -r.total_amount ELSE 0 END), 0) " +
+            "FROM accounts a " +
+            "LEFT JOIN monthly_rollups r ON r.user_id = a.user_id AND r.account_id = a.id AND r.period_month < ? " +
+            "WHERE a.user_id = ? "
+        );
+        List<Object> params = new ArrayList<>();
+        params.add(Date.valueOf(month));
+        params.add(Date.valueOf(month));
+        params.add(userId);
+        appendAccountFilter(sql, params, "a.id", accountIds);
+        sql.append("GROUP BY a.id, a.user_id");
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            bind(stmt, params);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Adds an income or expense amount to the account's checkpoints after the transaction date,
+     * repairing them for back-dated writes. Pass a negative amount to reverse a transaction.
+     */
+    private void applyToCheckpoints(Connection conn, int accountId, String type, Timestamp transactionDate, double amount) throws SQLException {
+        double net;
+        if ("Income".equals(type)) {
+            net = amount;
+        } else if ("Expense".equals(type)) {
+            net = -amount;
+        } else {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(SHIFT_CHECKPOINTS_SQL)) {
+            stmt.setDouble(1, net);
+            stmt.setInt(2, accountId);
+            stmt.setTimestamp(3, transactionDate);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Appends the optional filters of the Records page: a single day, a type, a category and an account.
+     */
+    private void appendRecordFilters(StringBuilder sql, List<Object> params, Map<String, String> filters) {
+        if (filters == null) {
+            return;
+        }
+        String dateFilter = filters.get("date");
+        if (dateFilter != null && !dateFilter.isEmpty()) {
+            DateRange day = DateRange.ofDay(LocalDate.parse(dateFilter));
+            sql.append("AND t.transaction_date >= ? AND t.transaction_date < ? ");
+            params.add(day.getStartTimestamp());
+            params.add(day.getEndTimestamp());
+        }
+        String typeFilter = filters.get("type");
+        if (typeFilter != null && !typeFilter.isEmpty()) {
+            sql.append("AND t.transaction_type = ? ");
+            params.add(typeFilter);
+        }
+        String categoryFilter = filters.get("category");
+        if (categoryFilter != null && !categoryFilter.isEmpty()) {
+            sql.append("AND t.category_id = ? ");
+            params.add(Integer.parseInt(categoryFilter));
+        }
+        String accountFilter = filters.get("account");
+        if (accountFilter != null && !accountFilter.isEmpty()) {
+            sql.append("AND t.account_id = ? ");
+            params.add(Integer.parseInt(accountFilter));
+        }
+    }
+
+    /**
+     * Builds the leading parameters shared by the analysis queries: user, currency and date bounds.
+     */
+    private List<Object> analysisParams(int userId, String currency, DateRange range) {
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        params.add(currency);
+        params.add(range.getStartTimestamp());
+        params.add(range.getEndTimestamp());
+        return params;
+    }
+
+    /**
+     * Appends a bucketed {@code IN} filter on the given column if accounts were selected.
+     */
+    private void appendAccountFilter(StringBuilder sql, List<Object> params, String column, List<Integer> accountIds) {
+        if (accountIds != null && !accountIds.isEmpty()) {
+            sql.append("AND ").append(column).append(" IN (").append(InClause.placeholders(accountIds.size())).append(") ");
+            params.addAll(InClause.pad(accountIds));
+        }
+    }
+
+    private void bind(PreparedStatement stmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            stmt.setObject(i + 1, params.get(i));
+        }
+    }
+
+    /**
+     * Runs a transaction query joined with account and category names and maps every row.
+     */
+    private List<Transaction> queryTransactions(String sql, List<Object> params) throws SQLException {
+        List<Transaction> transactions = new ArrayList<>();
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bind(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    transactions.add(mapTransaction(rs));
+                }
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Maps the current row of a transaction query that selects {@code t.*},
+     * {@code account_name} and {@code category_name}.
+     */
+    static Transaction mapTransaction(ResultSet rs) throws SQLException {
+        Transaction tx = new Transaction();
+        tx.setId(rs.getInt("id"));
+        tx.setUserId(rs.getInt("user_id"));
+        tx.setTransactionType(rs.getString("transaction_type"));
+        tx.setAmount(rs.getDouble("amount"));
+        tx.setTransactionDate(rs.getTimestamp("transaction_date"));
+        tx.setNote(rs.getString("note"));
+
+        Account account = new Account();
+        account.setId(rs.getInt("account_id"));
+        account.setName(rs.getString("account_name"));
+        tx.setAccount(account);
+
+        if (rs.getObject("category_id") != null) {
+            Category category = new Category();
+            category.setId(rs.getInt("category_id"));
+            category.setName(rs.getString("category_name"));
+            tx.setCategory(category);
+        }
+        return tx;
+    }
+
+    private static CategorySpending mapCategorySpending(ResultSet rs) throws SQLException {
+        CategorySpending spending = new CategorySpending();
+        spending.setCategoryName(rs.getString("category_name"));
+        spending.setTotalAmount(rs.getDouble("total_amount"));
+        return spending;
+    }
+
+    /**
+     * One attempt at a write, run by {@link #retryOnDeadlock(TransactionalWrite)}.
+     */
+    @FunctionalInterface
+    private interface TransactionalWrite<T> {
+        T run() throws SQLException;
+    }
+
+    /** The summed change of one {@code monthly_rollups} row within a batch insert. */
+    private static final class RollupDelta {
+        final int userId;
+        final LocalDate month;
+        final int accountId;
+        final int categoryId;
+        final String type;
+        double amount;
+        int count;
+
+        RollupDelta(int userId, LocalDate month, int accountId, int categoryId, String type) {
+            this.userId = userId;
+            this.month = month;
+            this.accountId = accountId;
+            this.categoryId = categoryId;
+            this.type = type;
+        }
+    }
+
+    /** The summed net change of one account's transactions in one month within a batch insert. */
+    private static final class CheckpointDelta {
+        final int accountId;
+        final LocalDate month;
+        double net;
+
+        CheckpointDelta(int accountId, LocalDate month) {
+            this.accountId = accountId;
+            this.month = month;
+        }
+    }
+}
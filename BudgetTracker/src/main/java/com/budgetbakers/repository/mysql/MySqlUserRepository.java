@@ -0,0 +1,112 @@
+package com.budgetbakers.repository.mysql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.budgetbakers.entities.OutboxEmail;
+import com.budgetbakers.entities.User;
+import com.budgetbakers.repository.UserRepository;
+import com.budgetbakers.utils.DbConnector;
+
+/**
+ * MySQL implementation of {@link UserRepository}.
+ */
+public class MySqlUserRepository implements UserRepository {
+
+    @Override
+    public User findByEmail(String email) throws SQLException {
+        String sql = "SELECT * FROM users WHERE email = ?";
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, email);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapUser(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public User findById(int id) throws SQLException {
+        String sql = "SELECT * FROM users WHERE id = ?";
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapUser(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Inserts the user and queues the welcome email in one database transaction.
+     */
+    @Override
+    public void insertLocalUser(String email, String tempPassword, OutboxEmail welcome) throws SQLException {
+        String sql = "INSERT INTO users (email, temp_password, is_temp, auth_provider) VALUES (?, ?, TRUE, 'LOCAL')";
+        try (Connection conn = DbConnector.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, email);
+                    stmt.setString(2, tempPassword);
+                    stmt.executeUpdate();
+                }
+                if (welcome != null) {
+                    MySqlEmailOutboxRepository.insert(conn, welcome);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public User insertGoogleUser(String email) throws SQLException {
+        String sql = "INSERT INTO users (email, auth_provider, is_temp) VALUES (?, 'GOOGLE', FALSE)";
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, email);
+            int affectedRows = stmt.executeUpdate();
+
+            if (affectedRows > 0) {
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        User newUser = new User();
+                        newUser.setId(generatedKeys.getInt(1));
+                        newUser.setEmail(email);
+                        newUser.setAuthProvider("GOOGLE");
+                        return newUser;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void updatePassword(String email, String passwordHash) throws SQLException {
+        String sql = "UPDATE users SET password = ?, temp_password = NULL, is_temp = FALSE WHERE email = ?";
+        try (Connection conn = DbConnector.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, passwordHash);
+            stmt.setString(2, email);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static User mapUser(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setEmail(rs.getString("email"));
+        user.setPassword(rs.getString("password"));
+        user.setTempPassword(rs.getString("temp_password"));
+        user.setTemp(rs.getBoolean("is_temp"));
+        user.setAuthProvider(rs.getString("auth_provider"));
+        return user;
+    }
+}
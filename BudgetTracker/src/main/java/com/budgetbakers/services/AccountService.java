@@ -1,16 +1,24 @@
 package com.budgetbakers.services;
 
 import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.AccountTotals;
 import com.budgetbakers.entities.CategorySpending;
-import com.budgetbakers.utils.DbConnector;
+import com.budgetbakers.entities.DashboardSnapshot;
+import com.budgetbakers.repository.Repositories;
+import com.budgetbakers.utils.DataUnavailableException;
+import com.budgetbakers.utils.DateRange;
+import com.budgetbakers.utils.TaskScope;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.sql.*;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service class for handling all business logic related to financial accounts.
@@ -19,52 +27,62 @@ import java.util.Map;
 public class AccountService {
 
     private static final Logger logger = LogManager.getLogger(AccountService.class);
-    
+
+    /** The categories and sub-categories created for a user together with their first account. */
+    private static final Map<String, List<String>> DEFAULT_CATEGORIES;
+
+    static {
+        Map<String, List<String>> categories = new HashMap<>();
+        categories.put("Income", List.of("Salary", "Freelance", "Gifts Received"));
+        categories.put("Food & Drinks", List.of("Groceries", "Restaurant", "Bar, cafe"));
+        categories.put("Shopping", List.of("Clothes", "Electronics", "Health and beauty"));
+        categories.put("Housing", List.of("Rent", "Mortgage", "Utilities"));
+        categories.put("Transportation", List.of("Fuel", "Public Transport", "Taxi"));
+        categories.put("Life & Entertainment", List.of("Holiday, trips, hotels", "Hobbies", "Education"));
+        DEFAULT_CATEGORIES = Collections.unmodifiableMap(categories);
+    }
+
+    /** The number of top spending categories shown on each account card. */
+    private static final int TOP_CATEGORIES_PER_ACCOUNT = 5;
+
+    private final Repositories repositories;
+
     /**
-     * Calculates the main Key Performance Indicators (KPIs) for the user's dashboard.
-     * This includes total balance, total monthly spending, and net monthly cash flow.
-     * @param userId The ID of the user for whom to calculate the KPIs.
-     * @return A Map where keys are "totalBalance", "monthlySpending", "monthlyCashFlow" and values are the calculated amounts.
+     * Creates a service backed by the default repositories.
      */
-    public Map<String, Double> getDashboardKPIs(int userId) {
-        Map<String, Double> kpis = new HashMap<>();
-        double totalBalance = 0.0;
-        double monthlyIncome = 0.0;
-        double monthlyExpense = 0.0;
-
-        List<Account> accountSummaries = getAccountSummariesForUser(userId);
-        for (Account acc : accountSummaries) {
-            totalBalance += acc.getCurrentBalance();
-        }
+    public AccountService() {
+        this(Repositories.getDefault());
+    }
 
-        String sql = "SELECT transaction_type, SUM(amount) as total " +
-                     "FROM transactions WHERE user_id = ? " +
-                     "AND MONTH(transaction_date) = MONTH(CURRENT_DATE()) " +
-                     "AND YEAR(transaction_date) = YEAR(CURRENT_DATE()) " +
-                     "GROUP BY transaction_type";
+    /**
+     * Creates a service backed by the given repositories.
+     * @param repositories The repositories to read from and write to.
+     */
+    public AccountService(Repositories repositories) {
+        this.repositories = repositories;
+    }
+    
+    /**
+     * Loads everything the Dashboard and Accounts pages show for a user in a fixed number of queries:
+     * the accounts, their all-time totals, their top spending categories and the current month's
+     * totals are fetched in parallel, and the KPIs are derived from them in memory. The totals and
+     * top categories are kept in the {@link com.budgetbakers.cache.AnalysisCache} until the user's
+     * data changes, so a repeated visit only reads the accounts.
+     * @param userId The ID of the user.
+     * @return A {@link DashboardSnapshot} for the user.
+     * @throws DataUnavailableException if a query failed or the queries missed their deadline.
+     */
+    public DashboardSnapshot getDashboardSnapshot(int userId) {
+        try (TaskScope scope = TaskScope.forRequest()) {
+            TaskScope.Subtask<List<Account>> accountsTask = scope.fork(() -> getAccountsForUser(userId));
+            TaskScope.Subtask<List<AccountTotals>> totalsTask = scope.fork(() -> getAccountTotals(userId));
+            TaskScope.Subtask<Map<Integer, List<CategorySpending>>> categoriesTask = scope.fork(() -> getTopSpendingCategoriesByAccount(userId));
+            TaskScope.Subtask<Map<String, Double>> monthlyTask = scope.fork(() -> getMonthlyTotals(userId));
+            join(scope, "Dashboard snapshot", userId);
 
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String type = rs.getString("transaction_type");
-                    if ("Income".equals(type)) {
-                        monthlyIncome = rs.getDouble("total");
-                    } else if ("Expense".equals(type)) {
-                        monthlyExpense = rs.getDouble("total");
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error calculating monthly KPIs for user {}", userId, e);
+            List<Account> accounts = summarize(accountsTask.get(), totalsTask.get(), categoriesTask.get());
+            return new DashboardSnapshot(accounts, monthlyTask.get());
         }
-
-        kpis.put("totalBalance", totalBalance);
-        kpis.put("monthlySpending", monthlyExpense);
-        kpis.put("monthlyCashFlow", monthlyIncome - monthlyExpense);
-        
-        return kpis;
     }
 
     /**
@@ -73,48 +91,17 @@ public class AccountService {
      * and a list of top spending categories for the current month.
      * @param userId The ID of the user.
      * @return A list of {@link Account} objects, each populated with summary data.
+     * @throws DataUnavailableException if a query failed or the queries missed their deadline.
      */
     public List<Account> getAccountSummariesForUser(int userId) {
-        List<Account> accounts = getAccountsForUser(userId);
-        Map<Integer, Account> accountMap = new HashMap<>();
-        for (Account acc : accounts) {
-            accountMap.put(acc.getId(), acc);
-        }
-
-        String sql = "SELECT account_id, transaction_type, SUM(amount) as total " +
-                     "FROM transactions WHERE user_id = ? AND transaction_type IN ('Income', 'Expense') " +
-                     "GROUP BY account_id, transaction_type";
+        try (TaskScope scope = TaskScope.forRequest()) {
+            TaskScope.Subtask<List<Account>> accountsTask = scope.fork(() -> getAccountsForUser(userId));
+            TaskScope.Subtask<List<AccountTotals>> totalsTask = scope.fork(() -> getAccountTotals(userId));
+            TaskScope.Subtask<Map<Integer, List<CategorySpending>>> categoriesTask = scope.fork(() -> getTopSpendingCategoriesByAccount(userId));
+            join(scope, "Account summaries", userId);
 
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    int accountId = rs.getInt("account_id");
-                    String type = rs.getString("transaction_type");
-                    double total = rs.getDouble("total");
-
-                    Account account = accountMap.get(accountId);
-                    if (account != null) {
-                        if ("Income".equals(type)) {
-                            account.setTotalIncome(total);
-                        } else if ("Expense".equals(type)) {
-                            account.setTotalExpense(total);
-                        }
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error calculating transaction totals for user {}", userId, e);
+            return summarize(accountsTask.get(), totalsTask.get(), categoriesTask.get());
         }
-
-        for (Account acc : accounts) {
-            double currentBalance = acc.getInitialBalance() + acc.getTotalIncome() - acc.getTotalExpense();
-            acc.setCurrentBalance(currentBalance);
-            acc.setTopSpendingCategories(getTopSpendingCategoriesForAccount(acc.getId()));
-        }
-
-        return accounts;
     }
 
     /**
@@ -123,56 +110,41 @@ public class AccountService {
      * @param account The {@link Account} object to be saved. It must have userId and other required fields set.
      */
     public void addAccount(Account account) {
-        boolean isFirstAccount = false;
-        try (Connection conn = DbConnector.getInstance().getConnection()) {
-            String checkSql = "SELECT COUNT(*) FROM accounts WHERE user_id = ?";
-            try (PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-                checkStmt.setInt(1, account.getUserId());
-                try (ResultSet rs = checkStmt.executeQuery()) {
-                    if (rs.next() && rs.getInt(1) == 0) {
-                        isFirstAccount = true;
-                    }
-                }
-            }
+        try {
+            boolean isFirstAccount = repositories.accounts().countByUser(account.getUserId()) == 0;
 
-            String insertSql = "INSERT INTO accounts (user_id, name, account_type, initial_balance, currency, color) VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
-                stmt.setInt(1, account.getUserId());
-                stmt.setString(2, account.getName());
-                stmt.setString(3, account.getAccountType());
-                stmt.setDouble(4, account.getInitialBalance());
-                stmt.setString(5, account.getCurrency());
-                stmt.setString(6, account.getColor());
-                stmt.executeUpdate();
-                logger.info("New account '{}' added successfully for user {}", account.getName(), account.getUserId());
-            }
+            repositories.accounts().insert(account);
+            logger.info("New account '{}' added successfully for user {}", account.getName(), account.getUserId());
 
             if (isFirstAccount) {
                 logger.info("First account for user {}. Creating default categories.", account.getUserId());
-                createDefaultCategories(conn, account.getUserId());
+                repositories.categories().insertTree(account.getUserId(), DEFAULT_CATEGORIES);
+                logger.info("Default categories created for user {}", account.getUserId());
             }
 
         } catch (SQLException e) {
             logger.error("Error adding account for user {}", account.getUserId(), e);
+        } finally {
+            // The cached ledger has no slot for the new account and categories
+            repositories.ledgerCache().invalidate(account.getUserId());
+            repositories.analysisCache().invalidate(account.getUserId());
+            repositories.referenceDataCache().invalidate(account.getUserId());
         }
     }
     
     /**
      * Deletes a specific account belonging to a specific user.
-     * All related transactions are deleted automatically by the database's ON DELETE CASCADE rule.
+     * All related transactions are deleted automatically by the database's ON DELETE CASCADE rule,
+     * and the running totals of accounts that received transfers from it are corrected in the same transaction.
      * @param accountId The ID of the account to delete.
      * @param userId The ID of the user who owns the account (for security).
      */
     public void deleteAccount(int accountId, int userId) {
-        String sql = "DELETE FROM accounts WHERE id = ? AND user_id = ?";
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, accountId);
-            stmt.setInt(2, userId);
-
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
+        try {
+            if (repositories.accounts().delete(accountId, userId)) {
+                repositories.ledgerCache().invalidate(userId);
+                repositories.analysisCache().invalidate(userId);
+                repositories.referenceDataCache().invalidate(userId);
                 logger.info("Successfully deleted account ID {} for user ID {}", accountId, userId);
             } else {
                 logger.warn("No account was deleted. Account ID {} might not exist or not belong to user ID {}", accountId, userId);
@@ -184,118 +156,109 @@ public class AccountService {
     }
 
     /**
-     * Private helper method to fetch the basic list of accounts for a user from the database.
-     * @param userId The ID of the user.
-     * @return A list of basic {@link Account} objects.
+     * Private helper method to combine accounts with their totals and top categories into account summaries.
+     * @param accounts The user's accounts.
+     * @param accountTotals The all-time income and expense totals per account.
+     * @param topCategories The top spending categories per account ID.
+     * @return The same accounts, populated with totals, current balance and top categories.
      */
-    private List<Account> getAccountsForUser(int userId) {
-        List<Account> accounts = new ArrayList<>();
-        String sql = "SELECT * FROM accounts WHERE user_id = ? ORDER BY id ASC";
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Account account = new Account();
-                    account.setId(rs.getInt("id"));
-                    account.setUserId(rs.getInt("user_id"));
-                    account.setName(rs.getString("name"));
-                    account.setAccountType(rs.getString("account_type"));
-                    account.setInitialBalance(rs.getDouble("initial_balance"));
-                    account.setCurrency(rs.getString("currency"));
-                    account.setColor(rs.getString("color"));
-                    account.setExcludeFromStats(rs.getBoolean("exclude_from_stats"));
-                    accounts.add(account);
-                }
+    private List<Account> summarize(List<Account> accounts, List<AccountTotals> accountTotals, Map<Integer, List<CategorySpending>> topCategories) {
+        Map<Integer, Account> accountMap = new HashMap<>();
+        for (Account acc : accounts) {
+            accountMap.put(acc.getId(), acc);
+        }
+        for (AccountTotals totals : accountTotals) {
+            Account account = accountMap.get(totals.getAccountId());
+            if (account != null) {
+                account.setTotalIncome(totals.getTotalIncome());
+                account.setTotalExpense(totals.getTotalExpense());
             }
-        } catch (SQLException e) {
-            logger.error("Error fetching accounts for user {}", userId, e);
+        }
+
+        for (Account acc : accounts) {
+            double currentBalance = acc.getInitialBalance() + acc.getTotalIncome() - acc.getTotalExpense();
+            acc.setCurrentBalance(currentBalance);
+            acc.setTopSpendingCategories(topCategories.getOrDefault(acc.getId(), new ArrayList<>()));
         }
         return accounts;
     }
-    
+
     /**
-     * Private helper method to fetch the top 5 spending categories for a specific account for the current month.
-     * @param accountId The ID of the account.
-     * @return A list of {@link CategorySpending} objects.
+     * Private helper method to wait for the parallel queries of a scope. A query that fails or
+     * misses the deadline fails the whole page, rather than rendering it with empty data.
+     * @param scope The scope whose subtasks to wait for.
+     * @param what A description of the queries, for the log.
+     * @param userId The ID of the user the queries are for.
+     * @throws DataUnavailableException if a query failed, the deadline passed or the thread was interrupted.
      */
-    private List<CategorySpending> getTopSpendingCategoriesForAccount(int accountId) {
-        List<CategorySpending> spendingList = new ArrayList<>();
-        String sql = "SELECT c.name as category_name, SUM(t.amount) as total_amount " +
-                     "FROM transactions t " +
-                     "JOIN categories c ON t.category_id = c.id " +
-                     "WHERE t.account_id = ? " +
-                     "  AND t.transaction_type = 'Expense' " +
-                     "  AND MONTH(t.transaction_date) = MONTH(CURRENT_DATE()) " +
-                     "  AND YEAR(t.transaction_date) = YEAR(CURRENT_DATE()) " +
-                     "GROUP BY c.name " +
-                     "ORDER BY total_amount DESC " +
-                     "LIMIT 5";
-
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, accountId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    CategorySpending spending = new CategorySpending();
-                    spending.setCategoryName(rs.getString("category_name"));
-                    spending.setTotalAmount(rs.getDouble("total_amount"));
-                    spendingList.add(spending);
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error fetching top spending categories for account {}", accountId, e);
+    private void join(TaskScope scope, String what, int userId) {
+        try {
+            scope.join();
+        } catch (TimeoutException e) {
+            logger.warn("{} for user {} did not complete within {} ms.", what, userId, scope.getTimeoutMs());
+            throw new DataUnavailableException(what + " did not complete within " + scope.getTimeoutMs() + " ms.", e);
+        } catch (ExecutionException e) {
+            logger.error("{} for user {} failed", what, userId, e.getCause());
+            throw new DataUnavailableException(what + " failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("{} for user {} were interrupted.", what, userId);
+            throw new DataUnavailableException(what + " was interrupted.", e);
         }
-        return spendingList;
     }
 
     /**
-     * Private helper method to insert a comprehensive list of default categories and sub-categories for a new user.
-     * @param conn The database connection to use for the transaction.
-     * @param userId The ID of the new user for whom to create categories.
-     * @throws SQLException If a database error occurs.
+     * Private helper method to fetch the income and expense totals of the current month, from the
+     * analysis cache if possible.
+     * @param userId The ID of the user.
+     * @return A map from transaction type to the month's total; shared, so not modifiable.
+     * @throws SQLException if a database error occurs.
      */
-    private void createDefaultCategories(Connection conn, int userId) throws SQLException {
-        String parentSql = "INSERT INTO categories (user_id, name, parent_id) VALUES (?, ?, NULL)";
-        String childSql = "INSERT INTO categories (user_id, name, parent_id) VALUES (?, ?, ?)";
-
-        Map<String, List<String>> categories = new HashMap<>();
-        categories.put("Income", List.of("Salary", "Freelance", "Gifts Received"));
-        categories.put("Food & Drinks", List.of("Groceries", "Restaurant", "Bar, cafe"));
-        categories.put("Shopping", List.of("Clothes", "Electronics", "Health and beauty"));
-        categories.put("Housing", List.of("Rent", "Mortgage", "Utilities"));
-        categories.put("Transportation", List.of("Fuel", "Public Transport", "Taxi"));
-        categories.put("Life & Entertainment", List.of("Holiday, trips, hotels", "Hobbies", "Education"));
-
-        for (Map.Entry<String, List<String>> entry : categories.entrySet()) {
-            String parentName = entry.getKey();
-            List<String> children = entry.getValue();
+    private Map<String, Double> getMonthlyTotals(int userId) throws SQLException {
+        DateRange month = DateRange.currentMonth();
+        return repositories.analysisCache().get(userId, "monthlyTotals", month, null, null,
+                () -> Collections.unmodifiableMap(repositories.ledger().sumByType(userId, month)));
+    }
 
-            long parentId = 0;
-            try (PreparedStatement parentStmt = conn.prepareStatement(parentSql, Statement.RETURN_GENERATED_KEYS)) {
-                parentStmt.setInt(1, userId);
-                parentStmt.setString(2, parentName);
-                parentStmt.executeUpdate();
-                try (ResultSet generatedKeys = parentStmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        parentId = generatedKeys.getLong(1);
-                    }
-                }
-            }
+    /**
+     * Private helper method to read the all-time running totals of each account of a user.
+     * They are maintained on every write, so this does not scan the user's transaction history,
+     * and are kept in the analysis cache as well.
+     * @param userId The ID of the user.
+     * @return A list of {@link AccountTotals}, one per account with transactions; shared, so not modifiable.
+     * @throws SQLException if a database error occurs.
+     */
+    private List<AccountTotals> getAccountTotals(int userId) throws SQLException {
+        return repositories.analysisCache().get(userId, "accountTotals", DateRange.currentMonth(), null, null,
+                () -> Collections.unmodifiableList(repositories.ledger().findAccountTotals(userId)));
+    }
 
-            if (parentId > 0 && children != null) {
-                try (PreparedStatement childStmt = conn.prepareStatement(childSql)) {
-                    for (String childName : children) {
-                        childStmt.setInt(1, userId);
-                        childStmt.setString(2, childName);
-                        childStmt.setLong(3, parentId);
-                        childStmt.addBatch();
-                    }
-                    childStmt.executeBatch();
-                }
+    /**
+     * Private helper method to fetch the basic list of accounts for a user from the database.
+     * @param userId The ID of the user.
+     * @return A list of basic {@link Account} objects.
+     * @throws SQLException if a database error occurs.
+     */
+    private List<Account> getAccountsForUser(int userId) throws SQLException {
+        return repositories.accounts().findByUser(userId);
+    }
+    
+    /**
+     * Private helper method to fetch the top 5 spending categories of every account of a user for the current month,
+     * in a single query, or from the analysis cache.
+     * @param userId The ID of the user.
+     * @return A map from account ID to that account's {@link CategorySpending} list; shared, so not modifiable.
+     * @throws SQLException if a database error occurs.
+     */
+    private Map<Integer, List<CategorySpending>> getTopSpendingCategoriesByAccount(int userId) throws SQLException {
+        DateRange month = DateRange.currentMonth();
+        return repositories.analysisCache().get(userId, "topCategories", month, null, null, () -> {
+            Map<Integer, List<CategorySpending>> topCategories = new HashMap<>();
+            for (Map.Entry<Integer, List<CategorySpending>> entry
+                    : repositories.ledger().findTopExpenseCategoriesByAccount(userId, month, TOP_CATEGORIES_PER_ACCOUNT).entrySet()) {
+                topCategories.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
             }
-        }
-        logger.info("Default categories created for user {}", userId);
+            return Collections.unmodifiableMap(topCategories);
+        });
     }
 }
-
@@ -0,0 +1,326 @@
+package com.budgetbakers.services;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.AddressException;
+import javax.mail.internet.MimeMessage;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.entities.OutboxEmail;
+import com.budgetbakers.repository.EmailOutboxRepository;
+
+/**
+ * Delivers the emails queued in the outbox from a background thread.
+ * <p>
+ * The dispatcher claims up to {@link #BATCH_SIZE} due emails at a time and sends them all over
+ * one connection from {@link EmailService#connect()}, so the TCP connect, TLS handshake and login
+ * are paid once per batch rather than once per email. An email whose attempt fails is retried
+ * with exponential backoff, starting at {@link #RETRY_BASE_SECONDS} and capped at an hour, until
+ * {@link #MAX_ATTEMPTS} attempts have failed; an address the server rejects outright is given up
+ * at once. Delivered emails are marked sent together after the batch, so an email may be sent
+ * twice if the server stops in between, but is never lost.
+ * <p>
+ * The web application runs one dispatcher, started and stopped by the
+ * {@link com.budgetbakers.utils.DatabaseCleanupListener}. Services that queue an email call
+ * {@link #wakeUp()} so that it goes out at once instead of at the next poll; emails queued by
+ * other servers are picked up by polling every {@link #POLL_MILLIS}.
+ */
+public class EmailDispatcher {
+
+    private static final Logger logger = LogManager.getLogger(EmailDispatcher.class);
+
+    /** Whether the web application runs a dispatcher, configurable with the {@code budgettracker.mail.enabled} system property. */
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("budgettracker.mail.enabled", "true"));
+    /** Emails claimed and sent over one connection, configurable with the {@code budgettracker.mail.batchSize} system property. */
+    public static final int BATCH_SIZE = Integer.getInteger("budgettracker.mail.batchSize", 50);
+    /** How often the outbox is polled when idle, configurable with the {@code budgettracker.mail.pollMillis} system property. */
+    public static final long POLL_MILLIS = Long.getLong("budgettracker.mail.pollMillis", 5000);
+    /** Attempts before an email is given up, configurable with the {@code budgettracker.mail.maxAttempts} system property. */
+    public static final int MAX_ATTEMPTS = Integer.getInteger("budgettracker.mail.maxAttempts", 8);
+    /** The delay after the first failed attempt, doubled after each further one; configurable with the {@code budgettracker.mail.retryBaseSeconds} system property. */
+    public static final long RETRY_BASE_SECONDS = Long.getLong("budgettracker.mail.retryBaseSeconds", 30);
+    /** The longest delay between two attempts. */
+    private static final long MAX_RETRY_SECONDS = 3600;
+    /** How long a claimed email is hidden from other dispatchers; far longer than sending a batch takes. */
+    private static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static EmailDispatcher running;
+
+    private final EmailOutboxRepository outbox;
+    private final EmailService mail;
+    private final int batchSize;
+    private final Semaphore wakeUps = new Semaphore(0);
+    private volatile boolean stopped;
+    private Thread thread;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+
+    /**
+     * Creates a dispatcher that is not running yet; call {@link #dispatchBatch()} to deliver
+     * synchronously, or start the web application's one with {@link #start(EmailOutboxRepository, EmailService)}.
+     * @param outbox The outbox to deliver from.
+     * @param mail The service connecting to the SMTP server.
+     * @param batchSize The maximum number of emails sent over one connection.
+     */
+    public EmailDispatcher(EmailOutboxRepository outbox, EmailService mail, int batchSize) {
+        this.outbox = outbox;
+        this.mail = mail;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Starts the web application's dispatcher thread, unless it is disabled or already running.
+     * @param outbox The outbox to deliver from.
+     * @param mail The service connecting to the SMTP server.
+     */
+    public static synchronized void start(EmailOutboxRepository outbox, EmailService mail) {
+        if (!ENABLED) {
+            logger.info("Email delivery is disabled by configuration; queued emails stay in the outbox.");
+            return;
+        }
+        if (running != null) {
+            return;
+        }
+        EmailDispatcher dispatcher = new EmailDispatcher(outbox, mail, BATCH_SIZE);
+        dispatcher.thread = new Thread(dispatcher::run, "budgettracker-email-dispatcher");
+        dispatcher.thread.setDaemon(true);
+        dispatcher.thread.start();
+        running = dispatcher;
+        logger.info("Email dispatcher started (batches of {}, polling every {} ms).", BATCH_SIZE, POLL_MILLIS);
+    }
+
+    /**
+     * Tells the running dispatcher that an email was queued, so that it is sent without waiting
+     * for the next poll. Does nothing if no dispatcher runs.
+     */
+    public static void wakeUp() {
+        EmailDispatcher dispatcher;
+        synchronized (EmailDispatcher.class) {
+            dispatcher = running;
+        }
+        if (dispatcher != null) {
+            dispatcher.wakeUps.release();
+        }
+    }
+
+    /**
+     * Stops the running dispatcher, waiting briefly for the batch in progress. Emails it claimed
+     * but did not report on are retried once their lease runs out. Called when the web
+     * application is undeployed.
+     */
+    public static synchronized void shutdown() {
+        EmailDispatcher dispatcher = running;
+        running = null;
+        if (dispatcher == null) {
+            return;
+        }
+        dispatcher.stopped = true;
+        dispatcher.thread.interrupt();
+        try {
+            dispatcher.thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Email dispatcher stopped after sending {} emails over {} connections.", dispatcher.getSentCount(), dispatcher.getConnectionCount());
+    }
+
+    /**
+     * Claims one batch of due emails and sends it over one connection.
+     * @return The number of emails claimed, whether or not they could be sent.
+     */
+    public int dispatchBatch() {
+        List<OutboxEmail> batch;
+        try {
+            batch = outbox.claimDue(batchSize, LEASE_MILLIS);
+        } catch (SQLException e) {
+            logger.error("Database error while claiming queued emails.", e);
+            return 0;
+        }
+        if (!batch.isEmpty()) {
+            deliver(batch);
+        }
+        return batch.size();
+    }
+
+    /**
+     * @return The number of emails delivered by this dispatcher.
+     */
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    /**
+     * @return The number of failed attempts that were rescheduled.
+     */
+    public long getRetriedCount() {
+        return retried.sum();
+    }
+
+    /**
+     * @return The number of emails given up.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return The number of SMTP connections opened.
+     */
+    public long getConnectionCount() {
+        return connections.sum();
+    }
+
+    /**
+     * Private helper method to run the dispatcher thread: it sends batches back to back while
+     * they come back full, and otherwise sleeps until woken up or the poll interval passes. After
+     * an unexpected error it waits for the poll interval too, rather than spinning.
+     */
+    private void run() {
+        while (!stopped) {
+            try {
+                if (dispatchBatch() < batchSize) {
+                    wakeUps.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in the email dispatcher; retrying in {} ms.", POLL_MILLIS, e);
+                try {
+                    wakeUps.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Private helper method to send a claimed batch over one connection, reconnecting if the
+     * server drops it, and to record the outcome of every email.
+     */
+    private void deliver(List<OutboxEmail> batch) {
+        List<Long> sentIds = new ArrayList<>();
+        Transport transport = null;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                OutboxEmail email = batch.get(i);
+                if (transport == null) {
+                    try {
+                        transport = mail.connect();
+                        connections.increment();
+                    } catch (MessagingException e) {
+                        logger.warn("Could not connect to the SMTP server; {} emails will be retried.", batch.size() - i, e);
+                        for (OutboxEmail unsent : batch.subList(i, batch.size())) {
+                            retryLater(unsent, e);
+                        }
+                        break;
+                    }
+                }
+                try {
+                    MimeMessage message = mail.createMessage(email);
+                    transport.sendMessage(message, message.getAllRecipients());
+                    sentIds.add(email.getId());
+                } catch (MessagingException e) {
+                    if (isPermanent(e)) {
+                        giveUp(email, e);
+                    } else {
+                        retryLater(email, e);
+                        // SMTPTransport.isConnected() costs a NOOP round trip, so it is only checked after a failure.
+                        if (!transport.isConnected()) {
+                            close(transport);
+                            transport = null;
+                        }
+                    }
+                }
+            }
+        } finally {
+            close(transport);
+            if (!sentIds.isEmpty()) {
+                try {
+                    outbox.markSent(sentIds);
+                    sent.add(sentIds.size());
+                    logger.info("Sent {} queued emails.", sentIds.size());
+                } catch (SQLException e) {
+                    logger.error("Database error while marking {} emails as sent; they will be sent again when their lease runs out.", sentIds.size(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Private helper method to reschedule an email with exponential backoff and jitter, or to
+     * give it up once it has used all its attempts.
+     */
+    private void retryLater(OutboxEmail email, MessagingException cause) {
+        if (email.getAttempts() >= MAX_ATTEMPTS) {
+            giveUp(email, cause);
+            return;
+        }
+        long delaySeconds = Math.min(MAX_RETRY_SECONDS, RETRY_BASE_SECONDS << Math.min(email.getAttempts() - 1, 20));
+        long delayMillis = TimeUnit.SECONDS.toMillis(delaySeconds);
+        delayMillis += ThreadLocalRandom.current().nextLong(delayMillis / 10 + 1);
+        try {
+            outbox.reschedule(email.getId(), new Timestamp(System.currentTimeMillis() + delayMillis), describe(cause));
+            retried.increment();
+            logger.warn("Failed to send email {} to {} (attempt {}); retrying in {} s.", email.getId(), email.getRecipient(),
+                    email.getAttempts(), delayMillis / 1000, cause);
+        } catch (SQLException e) {
+            logger.error("Database error while rescheduling email {}; it will be retried when its lease runs out.", email.getId(), e);
+        }
+    }
+
+    /**
+     * Private helper method to mark an email as failed for good.
+     */
+    private void giveUp(OutboxEmail email, MessagingException cause) {
+        try {
+            outbox.markFailed(email.getId(), describe(cause));
+            failed.increment();
+            logger.error("Giving up on email {} to {} after {} attempts.", email.getId(), email.getRecipient(), email.getAttempts(), cause);
+        } catch (SQLException e) {
+            logger.error("Database error while marking email {} as failed.", email.getId(), e);
+        }
+    }
+
+    /**
+     * Tells whether a failure would recur on every attempt: a malformed address, or an address
+     * the server rejected.
+     */
+    private static boolean isPermanent(MessagingException e) {
+        if (e instanceof AddressException) {
+            return true;
+        }
+        return e instanceof SendFailedException && ((SendFailedException) e).getInvalidAddresses() != null
+                && ((SendFailedException) e).getInvalidAddresses().length > 0;
+    }
+
+    private static String describe(MessagingException e) {
+        return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    private static void close(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                logger.debug("Failed to close the SMTP connection cleanly.", e);
+            }
+        }
+    }
+}
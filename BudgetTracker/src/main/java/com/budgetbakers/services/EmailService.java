@@ -4,10 +4,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
 
-import javax.mail.Authenticator;
 import javax.mail.Message;
 import javax.mail.MessagingException;
-import javax.mail.PasswordAuthentication;
 import javax.mail.Session;
 import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
@@ -16,15 +14,27 @@ import javax.mail.internet.MimeMessage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.budgetbakers.entities.OutboxEmail;
+
 /**
  * Service class responsible for handling all email sending functionality.
- * It loads SMTP server configuration from 'email.properties' and provides
- * methods to send specific types of emails, such as temporary passwords.
+ * It loads SMTP server configuration from 'email.properties', composes the application's
+ * emails and opens authenticated connections to the SMTP server.
+ * <p>
+ * Emails are not sent by request threads: they are queued in the outbox, usually in the same
+ * transaction as the change they announce, and delivered by the {@link EmailDispatcher}, which
+ * reuses one {@link Transport} from {@link #connect()} for a whole batch instead of a new
+ * connection, TLS handshake and login per email.
  */
 public class EmailService {
 
 	private static final Logger logger = LogManager.getLogger(EmailService.class);
+
+    /** Timeout for connecting to, reading from and writing to the SMTP server, in milliseconds. */
+    private static final String DEFAULT_TIMEOUT_MILLIS = "10000";
+
     private Properties emailProps = new Properties();
+    private Session session;
 
     /**
      * Constructs an EmailService and loads the email configuration from the
@@ -34,54 +44,81 @@ public class EmailService {
         try (InputStream input = getClass().getClassLoader().getResourceAsStream("email.properties")) {
             if (input == null) {
                 logger.error("FATAL: Could not find 'email.properties' in the classpath. EmailService will not be able to send emails.");
-                return;
+            } else {
+                emailProps.load(input);
             }
-            emailProps.load(input);
         } catch (IOException ex) {
             logger.error("Failed to load email.properties due to an IOException. EmailService may not function correctly.", ex);
         }
+        this.session = createSession();
+    }
+
+    /**
+     * Constructs an EmailService from explicit configuration, e.g. to deliver to a local SMTP
+     * server in benchmarks.
+     * @param emailProps The same keys as 'email.properties'.
+     */
+    public EmailService(Properties emailProps) {
+        this.emailProps.putAll(emailProps);
+        this.session = createSession();
     }
 
     /**
-     * Sends a temporary password to a new user's email address.
-     * It uses the configured SMTP server to dispatch the email.
+     * Composes the email telling a new user their temporary password.
      * @param toEmail The recipient's email address.
      * @param tempPassword The plain-text temporary password to be sent.
+     * @return The email, ready to be queued.
      */
-    public void sendTemporaryPassword(String toEmail, String tempPassword) {
-
-        final String fromEmail = emailProps.getProperty("mail.smtp.username");
-        final String password = emailProps.getProperty("mail.smtp.password");
-
-        Properties props = new Properties();
-        props.put("mail.smtp.host", emailProps.getProperty("mail.smtp.host"));
-        props.put("mail.smtp.port", emailProps.getProperty("mail.smtp.port"));
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-
-        Authenticator auth = new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(fromEmail, password);
-            }
-        };
-
-        Session session = Session.getInstance(props, auth);
-
-        try {
-            MimeMessage message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(fromEmail));
-            message.addRecipient(Message.RecipientType.TO, new InternetAddress(toEmail));
-            message.setSubject("Your Temporary Password");
-            message.setText("Welcome to the application!\n\n"
-                          + "Your temporary password is: " + tempPassword + "\n\n"
-                          + "Please use this to log in and set your new password.");
+    public static OutboxEmail temporaryPasswordEmail(String toEmail, String tempPassword) {
+        return new OutboxEmail(toEmail, "Your Temporary Password",
+                "Welcome to the application!\n\n"
+              + "Your temporary password is: " + tempPassword + "\n\n"
+              + "Please use this to log in and set your new password.");
+    }
 
-            Transport.send(message);
+    /**
+     * Opens an authenticated connection to the configured SMTP server. The caller sends any
+     * number of messages over it with {@link Transport#sendMessage} and must close it.
+     * @return The connected {@link Transport}.
+     * @throws MessagingException if the server cannot be reached or rejects the login.
+     */
+    public Transport connect() throws MessagingException {
+        Transport transport = session.getTransport("smtp");
+        int port = Integer.parseInt(emailProps.getProperty("mail.smtp.port", "-1"));
+        transport.connect(emailProps.getProperty("mail.smtp.host"), port,
+                emailProps.getProperty("mail.smtp.username"), emailProps.getProperty("mail.smtp.password"));
+        return transport;
+    }
 
-            logger.info("Temporary password email sent successfully to: {}", toEmail);
+    /**
+     * Builds the MIME message of a queued email.
+     * @param email The queued email.
+     * @return The message, addressed from the configured sender to the email's recipient.
+     * @throws MessagingException if an address is malformed.
+     */
+    public MimeMessage createMessage(OutboxEmail email) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(emailProps.getProperty("mail.from", emailProps.getProperty("mail.smtp.username"))));
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress(email.getRecipient()));
+        message.setSubject(email.getSubject());
+        message.setText(email.getBody());
+        return message;
+    }
 
-        } catch (MessagingException e) {
-            logger.error("Failed to send temporary password email to: {}", toEmail, e);
-        }
+    /**
+     * Private helper method to create the mail session shared by every connection. Authentication
+     * and STARTTLS are on unless 'email.properties' turns them off, and every network operation
+     * times out so that a stalled server cannot block the dispatcher forever.
+     */
+    private Session createSession() {
+        Properties props = new Properties();
+        props.put("mail.smtp.host", emailProps.getProperty("mail.smtp.host", "localhost"));
+        props.put("mail.smtp.port", emailProps.getProperty("mail.smtp.port", "25"));
+        props.put("mail.smtp.auth", emailProps.getProperty("mail.smtp.auth", "true"));
+        props.put("mail.smtp.starttls.enable", emailProps.getProperty("mail.smtp.starttls.enable", "true"));
+        props.put("mail.smtp.connectiontimeout", emailProps.getProperty("mail.smtp.connectiontimeout", DEFAULT_TIMEOUT_MILLIS));
+        props.put("mail.smtp.timeout", emailProps.getProperty("mail.smtp.timeout", DEFAULT_TIMEOUT_MILLIS));
+        props.put("mail.smtp.writetimeout", emailProps.getProperty("mail.smtp.writetimeout", DEFAULT_TIMEOUT_MILLIS));
+        return Session.getInstance(props);
     }
 }
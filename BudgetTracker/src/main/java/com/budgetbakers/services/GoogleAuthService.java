@@ -0,0 +1,173 @@
+package com.budgetbakers.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.utils.GoogleSigningKeys;
+import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeTokenRequest;
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.api.client.googleapis.auth.oauth2.GoogleTokenResponse;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+
+/**
+ * Service class for the server side of Google Sign-In: exchanging an authorization code for
+ * an ID token and verifying that token.
+ * <p>
+ * One instance serves the whole application. It keeps a single HTTP transport, so connections
+ * and TLS sessions to Google are reused across sign-ins, and a {@link GoogleSigningKeys} cache,
+ * so that verifying a token is a local signature check. The configuration is read from
+ * 'google-config.properties'; its {@code google.token.uri} and {@code google.certs.uri} keys
+ * point the service at a local stand-in OAuth server for testing.
+ */
+public class GoogleAuthService {
+
+    private static final Logger logger = LogManager.getLogger(GoogleAuthService.class);
+
+    /** The token endpoint the authorization code is exchanged at. */
+    public static final String DEFAULT_TOKEN_URI = "https://www.googleapis.com/oauth2/v4/token";
+    /** The issuers Google puts in its ID tokens. */
+    private static final List<String> ISSUERS = Arrays.asList("accounts.google.com", "https://accounts.google.com");
+    /** Allowed clock difference with Google when checking a token's validity period. */
+    private static final long CLOCK_SKEW_SECONDS = 300;
+
+    private static GoogleAuthService instance;
+
+    private final String clientId;
+    private final String clientSecret;
+    private final String redirectUri;
+    private final String tokenUri;
+    private final HttpTransport transport = new NetHttpTransport();
+    @SuppressWarnings("deprecation")
+    private final JsonFactory jsonFactory = JacksonFactory.getDefaultInstance();
+    private final GoogleSigningKeys signingKeys;
+
+    /**
+     * Creates a service from explicit configuration, e.g. to run against a local stand-in
+     * OAuth server in benchmarks. Fetching the signing keys starts in the background.
+     * @param props The same keys as 'google-config.properties'.
+     */
+    public GoogleAuthService(Properties props) {
+        this.clientId = props.getProperty("google.client.id");
+        this.clientSecret = props.getProperty("google.client.secret");
+        this.redirectUri = props.getProperty("google.redirect.uri");
+        this.tokenUri = props.getProperty("google.token.uri", DEFAULT_TOKEN_URI);
+        this.signingKeys = new GoogleSigningKeys(transport, jsonFactory, props.getProperty("google.certs.uri", GoogleSigningKeys.DEFAULT_URL));
+        signingKeys.start();
+    }
+
+    /**
+     * Provides the application's instance, configured from the 'google-config.properties' file
+     * in the classpath and created on first use.
+     * @return The shared {@link GoogleAuthService}, or null if the configuration cannot be loaded.
+     */
+    public static synchronized GoogleAuthService getInstance() {
+        if (instance == null) {
+            try (InputStream input = GoogleAuthService.class.getClassLoader().getResourceAsStream("google-config.properties")) {
+                if (input == null) {
+                    logger.error("Cannot find google-config.properties");
+                    return null;
+                }
+                Properties props = new Properties();
+                props.load(input);
+                instance = new GoogleAuthService(props);
+            } catch (IOException e) {
+                logger.error("Failed to load Google configuration from properties file", e);
+                return null;
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Stops the background refresh of the signing keys and shuts down the shared transport.
+     * Called when the web application is undeployed.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Exchanges an authorization code from Google's redirect for the user's ID token.
+     * @param code The authorization code.
+     * @return The ID token as a compact JWS string.
+     * @throws IOException if the token endpoint cannot be reached or rejects the code
+     *         ({@link com.google.api.client.auth.oauth2.TokenResponseException}).
+     */
+    public String exchangeCode(String code) throws IOException {
+        GoogleTokenResponse tokenResponse = new GoogleAuthorizationCodeTokenRequest(
+                transport, jsonFactory, tokenUri, clientId, clientSecret, code, redirectUri)
+                .execute();
+        return tokenResponse.getIdToken();
+    }
+
+    /**
+     * Verifies an ID token locally: its RS256 signature against the cached signing keys, its
+     * issuer, its audience (this application's client ID) and its validity period.
+     * @param idTokenString The ID token as a compact JWS string.
+     * @return The token's payload, or null if the token is not valid.
+     * @throws IOException if the token cannot be parsed, or the signing keys had to be fetched and could not be.
+     */
+    public GoogleIdToken.Payload verify(String idTokenString) throws IOException {
+        if (idTokenString == null) {
+            return null;
+        }
+        GoogleIdToken idToken = GoogleIdToken.parse(jsonFactory, idTokenString);
+        if (!"RS256".equals(idToken.getHeader().getAlgorithm())) {
+            logger.warn("Rejected a Google ID token signed with {}.", idToken.getHeader().getAlgorithm());
+            return null;
+        }
+        PublicKey key = signingKeys.get(idToken.getHeader().getKeyId());
+        if (key == null) {
+            logger.warn("Rejected a Google ID token signed with unknown key {}.", idToken.getHeader().getKeyId());
+            return null;
+        }
+        try {
+            if (!idToken.verifySignature(key)) {
+                return null;
+            }
+        } catch (GeneralSecurityException e) {
+            logger.warn("Failed to check the signature of a Google ID token.", e);
+            return null;
+        }
+        if (!idToken.verifyIssuer(ISSUERS)
+                || !idToken.verifyAudience(Collections.singletonList(clientId))
+                || !idToken.verifyTime(System.currentTimeMillis(), CLOCK_SKEW_SECONDS)) {
+            return null;
+        }
+        return idToken.getPayload();
+    }
+
+    /**
+     * @return The number of signing keys currently cached.
+     */
+    public int getSigningKeyCount() {
+        return signingKeys.size();
+    }
+
+    /**
+     * Stops this instance's background refresh and shuts down its transport.
+     */
+    public void close() {
+        signingKeys.close();
+        try {
+            transport.shutdown();
+        } catch (IOException e) {
+            logger.warn("Failed to shut down the Google HTTP transport.", e);
+        }
+    }
+}
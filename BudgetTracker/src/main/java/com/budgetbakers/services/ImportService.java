@@ -0,0 +1,258 @@
+package com.budgetbakers.services;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.entities.ImportResult;
+import com.budgetbakers.entities.Transaction;
+import com.budgetbakers.repository.Repositories;
+import com.budgetbakers.utils.StatementReader;
+
+/**
+ * Service class for importing bank statements into a user's ledger.
+ * Rows are read from the statement one at a time, validated against the user's accounts and
+ * categories (loaded once per import), and saved in chunks of {@link #CHUNK_SIZE}, each chunk
+ * as one batched database transaction. A bad row is reported and skipped; it does not stop
+ * the import.
+ */
+public class ImportService {
+
+    private static final Logger logger = LogManager.getLogger(ImportService.class);
+
+    /** Rows saved per database transaction, configurable with the {@code budgettracker.import.chunkSize} system property. */
+    public static final int CHUNK_SIZE = Integer.getInteger("budgettracker.import.chunkSize", 1000);
+
+    /** The longest note the {@code transactions} table stores. */
+    private static final int MAX_NOTE_LENGTH = 255;
+
+    /** Accepted date formats, tried in order: ISO dates and date-times, and the day-first dates of Indian bank exports. */
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+        DateTimeFormatter.ISO_LOCAL_DATE,
+        DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+        DateTimeFormatter.ofPattern("dd-MM-yyyy")
+    };
+    private static final DateTimeFormatter[] DATE_TIME_FORMATS = {
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]")
+    };
+
+    private final Repositories repositories;
+
+    /**
+     * Creates a service backed by the default repositories.
+     */
+    public ImportService() {
+        this(Repositories.getDefault());
+    }
+
+    /**
+     * Creates a service backed by the given repositories.
+     * @param repositories The repositories to read from and write to.
+     */
+    public ImportService(Repositories repositories) {
+        this.repositories = repositories;
+    }
+
+    /**
+     * Imports every row of a statement into a user's ledger. Progress is published on the given
+     * result as rows are read and chunks are committed, and the result is finished when the
+     * statement has been read to the end or could not be read further. Rows of a chunk that
+     * fails to commit are counted as failed; the import continues with the next chunk.
+     *
+     * @param userId The ID of the user importing the statement.
+     * @param reader The statement to read. It is not closed by this method.
+     * @param defaultAccountId The account of rows that do not name one, or 0 to require an account on every row.
+     * @param result The result to publish progress and errors on.
+     */
+    public void importStatement(int userId, StatementReader reader, int defaultAccountId, ImportResult result) {
+        long start = System.currentTimeMillis();
+        Map<String, Account> accounts = new HashMap<>();
+        Map<String, Category> categories = new HashMap<>();
+        Account defaultAccount = null;
+        try {
+            for (Account account : repositories.accounts().findByUser(userId)) {
+                accounts.putIfAbsent(account.getName().trim().toLowerCase(Locale.ROOT), account);
+                if (account.getId() == defaultAccountId) {
+                    defaultAccount = account;
+                }
+            }
+            for (Category category : repositories.categories().findByUser(userId)) {
+                categories.putIfAbsent(category.getName().trim().toLowerCase(Locale.ROOT), category);
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading accounts and categories for an import by user {}", userId, e);
+            result.finish("Your accounts and categories could not be loaded. Please try again.");
+            return;
+        }
+        if (defaultAccountId != 0 && defaultAccount == null) {
+            result.finish("The selected account was not found.");
+            return;
+        }
+
+        List<Transaction> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Integer> chunkLines = new ArrayList<>(CHUNK_SIZE);
+        String failure = null;
+        try {
+            StatementReader.Row row;
+            while ((row = reader.next()) != null) {
+                result.rowRead();
+                try {
+                    chunk.add(toTransaction(userId, row, accounts, categories, defaultAccount));
+                    chunkLines.add(row.getLine());
+                } catch (IllegalArgumentException e) {
+                    result.rowFailed(row.getLine(), e.getMessage());
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    saveChunk(userId, chunk, chunkLines, result);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Statement import by user {} stopped: {}", userId, e.getMessage());
+            failure = e.getMessage();
+        }
+        saveChunk(userId, chunk, chunkLines, result);
+        if (result.getRowsImported() > 0) {
+            repositories.ledgerCache().invalidate(userId);
+            repositories.analysisCache().invalidate(userId);
+        }
+        result.finish(failure);
+        logger.info("Imported {} of {} rows for user {} in {} ms ({} failed).", result.getRowsImported(),
+                result.getRowsRead(), userId, System.currentTimeMillis() - start, result.getRowsFailed());
+    }
+
+    /**
+     * Private helper method to commit a chunk of rows and clear it. If the chunk fails, each of
+     * its rows is reported as failed.
+     */
+    private void saveChunk(int userId, List<Transaction> chunk, List<Integer> chunkLines, ImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            repositories.ledger().insertAll(chunk);
+            result.rowsImported(chunk.size());
+        } catch (SQLException e) {
+            logger.error("Error saving {} imported rows for user {}", chunk.size(), userId, e);
+            for (int line : chunkLines) {
+                result.rowFailed(line, "The row could not be saved.");
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    /**
+     * Private helper method to validate a statement row and convert it to a transaction.
+     * @throws IllegalArgumentException with a message for the user if the row is invalid.
+     */
+    private Transaction toTransaction(int userId, StatementReader.Row row, Map<String, Account> accounts,
+                                      Map<String, Category> categories, Account defaultAccount) {
+        if (row.getDate() == null) {
+            throw new IllegalArgumentException("The date is missing.");
+        }
+        if (row.getAmount() == null) {
+            throw new IllegalArgumentException("The amount is missing.");
+        }
+
+        double amount;
+        try {
+            amount = Double.parseDouble(row.getAmount().replace(",", "").replace("₹", "").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + row.getAmount() + "' is not an amount.");
+        }
+        if (amount == 0 || Double.isNaN(amount) || Double.isInfinite(amount) || Math.abs(amount) >= 1e13) {
+            throw new IllegalArgumentException("'" + row.getAmount() + "' is not a valid amount.");
+        }
+
+        String type;
+        if (row.getType() == null) {
+            type = amount < 0 ? "Expense" : "Income";
+        } else if ("income".equalsIgnoreCase(row.getType())) {
+            type = "Income";
+        } else if ("expense".equalsIgnoreCase(row.getType())) {
+            type = "Expense";
+        } else if ("transfer".equalsIgnoreCase(row.getType())) {
+            type = "Transfer";
+        } else {
+            throw new IllegalArgumentException("Unknown type '" + row.getType() + "'.");
+        }
+
+        Account account = defaultAccount;
+        if (row.getAccount() != null) {
+            account = accounts.get(row.getAccount().toLowerCase(Locale.ROOT));
+            if (account == null) {
+                throw new IllegalArgumentException("Unknown account '" + row.getAccount() + "'.");
+            }
+        } else if (account == null) {
+            throw new IllegalArgumentException("The account is missing.");
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setUserId(userId);
+        transaction.setTransactionType(type);
+        transaction.setAmount(Math.round(Math.abs(amount) * 100) / 100.0);
+        transaction.setTransactionDate(parseDate(row.getDate()));
+        transaction.setAccount(account);
+
+        if ("Transfer".equals(type)) {
+            Account toAccount = row.getToAccount() == null ? null : accounts.get(row.getToAccount().toLowerCase(Locale.ROOT));
+            if (toAccount == null) {
+                throw new IllegalArgumentException(row.getToAccount() == null
+                        ? "A transfer needs a receiving account." : "Unknown account '" + row.getToAccount() + "'.");
+            }
+            if (toAccount.getId() == account.getId()) {
+                throw new IllegalArgumentException("A transfer cannot go to the same account.");
+            }
+            transaction.setToAccount(toAccount);
+        }
+
+        if (row.getCategory() != null) {
+            Category category = categories.get(row.getCategory().toLowerCase(Locale.ROOT));
+            if (category == null) {
+                throw new IllegalArgumentException("Unknown category '" + row.getCategory() + "'.");
+            }
+            transaction.setCategory(category);
+        }
+
+        String note = row.getNote();
+        transaction.setNote(note != null && note.length() > MAX_NOTE_LENGTH ? note.substring(0, MAX_NOTE_LENGTH) : note);
+        return transaction;
+    }
+
+    /**
+     * Private helper method to parse a statement date in one of the accepted formats.
+     * @throws IllegalArgumentException if the date is in none of them.
+     */
+    private static Timestamp parseDate(String value) {
+        for (DateTimeFormatter format : DATE_TIME_FORMATS) {
+            try {
+                return Timestamp.valueOf(LocalDateTime.parse(value, format));
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return Timestamp.valueOf(LocalDate.parse(value, format).atStartOfDay());
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        throw new IllegalArgumentException("'" + value + "' is not a date (expected yyyy-MM-dd or dd/MM/yyyy).");
+    }
+}
@@ -1,118 +1,108 @@
 package com.budgetbakers.services;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.IOException;
 import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.sql.Types;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.sql.Date;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.budgetbakers.cache.LedgerColumns;
 import com.budgetbakers.entities.Account;
 import com.budgetbakers.entities.Category;
 import com.budgetbakers.entities.CategorySpending;
 import com.budgetbakers.entities.DailyBalance;
 import com.budgetbakers.entities.MonthlyCashFlow;
+import com.budgetbakers.entities.ReferenceData;
 import com.budgetbakers.entities.Transaction;
-import com.budgetbakers.utils.DbConnector;
+import com.budgetbakers.entities.TransactionPage;
+import com.budgetbakers.repository.Repositories;
+import com.budgetbakers.repository.RowHandler;
+import com.budgetbakers.utils.DataUnavailableException;
+import com.budgetbakers.utils.DateRange;
+import com.budgetbakers.utils.PageCursor;
 
 /**
  * Service class for handling all business logic related to financial records.
  * This includes managing transactions, categories, and providing data for analysis reports.
+ * Analysis reports are answered from the user's ledger in the {@link com.budgetbakers.cache.LedgerCache}
+ * when it is enabled, and from the database otherwise; the graphs are also kept in the
+ * {@link com.budgetbakers.cache.AnalysisCache} until the user's data changes.
  */
 public class RecordService {
 
     private static final Logger logger = LogManager.getLogger(RecordService.class);
 
+    /** Records per page of the Records page, configurable with the {@code budgettracker.records.pageSize} system property. */
+    public static final int DEFAULT_PAGE_SIZE = Integer.getInteger("budgettracker.records.pageSize", 50);
+    /** Upper bound on the page size a client may request. */
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private final Repositories repositories;
+
     /**
-     * Fetches a list of all accounts belonging to a specific user.
-     * @param userId The ID of the user whose accounts are to be fetched.
-     * @return A list of {@link Account} objects.
+     * Creates a service backed by the default repositories.
      */
-    public List<Account> getAccountsForUser(int userId) {
-        List<Account> accounts = new ArrayList<>();
-        String sql = "SELECT * FROM accounts WHERE user_id = ? ORDER BY name ASC";
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    public RecordService() {
+        this(Repositories.getDefault());
+    }
 
-            stmt.setInt(1, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Account account = new Account();
-                    account.setId(rs.getInt("id"));
-                    account.setUserId(rs.getInt("user_id"));
-                    account.setName(rs.getString("name"));
-                    account.setAccountType(rs.getString("account_type"));
-                    account.setInitialBalance(rs.getDouble("initial_balance"));
-                    account.setCurrency(rs.getString("currency"));
-                    account.setColor(rs.getString("color"));
-                    account.setExcludeFromStats(rs.getBoolean("exclude_from_stats"));
-                    accounts.add(account);
-                }
-            }
+    /**
+     * Creates a service backed by the given repositories.
+     * @param repositories The repositories to read from and write to.
+     */
+    public RecordService(Repositories repositories) {
+        this.repositories = repositories;
+    }
+
+    /**
+     * Fetches the accounts, categories and currencies of a user from the
+     * {@link com.budgetbakers.cache.ReferenceDataCache}, loading all three in one round trip on a miss.
+     * @param userId The ID of the user.
+     * @return The user's {@link ReferenceData}, or null if it could not be loaded.
+     */
+    public ReferenceData getReferenceData(int userId) {
+        try {
+            return repositories.referenceDataCache().get(userId);
         } catch (SQLException e) {
-            logger.error("Error fetching accounts for user {}", userId, e);
+            logger.error("Error fetching accounts and categories for user {}", userId, e);
         }
-        return accounts;
+        return null;
+    }
+
+    /**
+     * Fetches a list of all accounts belonging to a specific user, ordered by name.
+     * @param userId The ID of the user whose accounts are to be fetched.
+     * @return An unmodifiable list of {@link Account} objects.
+     */
+    public List<Account> getAccountsForUser(int userId) {
+        ReferenceData referenceData = getReferenceData(userId);
+        return referenceData != null ? referenceData.getAccounts() : new ArrayList<>();
     }
 
     /**
-     * Fetches a list of all categories belonging to a specific user.
+     * Fetches a list of all categories belonging to a specific user, ordered by name.
      * @param userId The ID of the user whose categories are to be fetched.
-     * @return A list of {@link Category} objects.
+     * @return An unmodifiable list of {@link Category} objects.
      */
     public List<Category> getCategoriesForUser(int userId) {
-        List<Category> categories = new ArrayList<>();
-        String sql = "SELECT * FROM categories WHERE user_id = ? ORDER BY name ASC";
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Category category = new Category();
-                    category.setId(rs.getInt("id"));
-                    category.setUserId(rs.getInt("user_id"));
-                    category.setParentId(rs.getObject("parent_id", Integer.class));
-                    category.setName(rs.getString("name"));
-                    categories.add(category);
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error fetching categories for user {}", userId, e);
-        }
-        return categories;
+        ReferenceData referenceData = getReferenceData(userId);
+        return referenceData != null ? referenceData.getCategories() : new ArrayList<>();
     }
 
     /**
      * Fetches a unique list of currencies the user has across all their accounts.
      * @param userId The ID of the user.
-     * @return A list of distinct currency codes (e.g., "INR", "USD").
+     * @return An unmodifiable list of distinct currency codes (e.g., "INR", "USD").
      */
     public List<String> getDistinctCurrenciesForUser(int userId) {
-        List<String> currencies = new ArrayList<>();
-        String sql = "SELECT DISTINCT currency FROM accounts WHERE user_id = ?";
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while(rs.next()) {
-                    currencies.add(rs.getString("currency"));
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("Error fetching distinct currencies for user {}", userId, e);
-        }
-        return currencies;
+        ReferenceData referenceData = getReferenceData(userId);
+        return referenceData != null ? referenceData.getCurrencies() : new ArrayList<>();
     }
 
     /**
@@ -122,389 +112,252 @@ public class RecordService {
      * @return A list of {@link Transaction} objects matching the filters.
      */
     public List<Transaction> getTransactionsForUser(int userId, Map<String, String> filters) {
-        List<Transaction> transactions = new ArrayList<>();
-        StringBuilder sql = new StringBuilder(
-            "SELECT t.*, a.name as account_name, c.name as category_name " +
-            "FROM transactions t " +
-            "JOIN accounts a ON t.account_id = a.id " +
-            "LEFT JOIN categories c ON t.category_id = c.id " +
-            "WHERE t.user_id = ? "
-        );
-        
-
-        List<Object> params = new ArrayList<>();
-        params.add(userId);
-
-        if (filters != null) {
-            String dateFilter = filters.get("date");
-            if (dateFilter != null && !dateFilter.isEmpty()) {
-                sql.append("AND DATE(t.transaction_date) = ? ");
-                params.add(dateFilter);
-            }
-            String typeFilter = filters.get("type");
-            if (typeFilter != null && !typeFilter.isEmpty()) {
-                sql.append("AND t.transaction_type = ? ");
-                params.add(typeFilter);
-            }
-            String categoryFilter = filters.get("category");
-            if (categoryFilter != null && !categoryFilter.isEmpty()) {
-                sql.append("AND t.category_id = ? ");
-                params.add(Integer.parseInt(categoryFilter));
-            }
-            String accountFilter = filters.get("account");
-            if (accountFilter != null && !accountFilter.isEmpty()) {
-                sql.append("AND t.account_id = ? ");
-                params.add(Integer.parseInt(accountFilter));
-            }
+        try {
+            return repositories.ledger().findForUser(userId, filters);
+        } catch (SQLException e) {
+            logger.error("Error fetching transactions for user {}", userId, e);
         }
+        return new ArrayList<>();
+    }
 
-        sql.append("ORDER BY t.transaction_date DESC");
-
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-
-            for (int i = 0; i < params.size(); i++) {
-                stmt.setObject(i + 1, params.get(i));
-            }
-            logger.info("Final SQL: {} | Params: {}", sql.toString(), params);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Transaction tx = new Transaction();
-                    tx.setId(rs.getInt("id"));
-                    tx.setUserId(rs.getInt("user_id"));
-                    tx.setTransactionType(rs.getString("transaction_type"));
-                    tx.setAmount(rs.getDouble("amount"));
-                    tx.setTransactionDate(rs.getTimestamp("transaction_date"));
-                    tx.setNote(rs.getString("note"));
-
-                    Account account = new Account();
-                    account.setId(rs.getInt("account_id"));
-                    account.setName(rs.getString("account_name"));
-                    tx.setAccount(account);
-
-                    if (rs.getObject("category_id") != null) {
-                        Category category = new Category();
-                        category.setId(rs.getInt("category_id"));
-                        category.setName(rs.getString("category_name"));
-                        tx.setCategory(category);
-                    }
-                    transactions.add(tx);
-                }
+    /**
+     * Fetches one page of a user's transactions, newest first, with optional filters.
+     * One extra row is read to find out whether another page follows.
+     * @param userId The ID of the user whose transactions are to be fetched.
+     * @param filters A map of filter criteria (e.g., "date", "type", "category", "account").
+     * @param after The cursor returned with the previous page, or null for the first page.
+     * @param pageSize The number of transactions per page; clamped to 1..{@link #MAX_PAGE_SIZE}.
+     * @return A {@link TransactionPage}.
+     * @throws DataUnavailableException if the page cannot be read; an empty page would look like
+     * the end of the records and stop the Records page from loading more.
+     */
+    public TransactionPage getTransactionPage(int userId, Map<String, String> filters, PageCursor after, int pageSize) {
+        int limit = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+        TransactionPage page = new TransactionPage();
+        try {
+            List<Transaction> transactions = repositories.ledger().findPageForUser(userId, filters, after, limit + 1);
+            if (transactions.size() > limit) {
+                transactions = new ArrayList<>(transactions.subList(0, limit));
+                page.setNextCursor(PageCursor.after(transactions.get(limit - 1)).toString());
             }
+            page.setTransactions(transactions);
         } catch (SQLException e) {
-            logger.error("Error fetching transactions for user {}", userId, e);
+            throw new DataUnavailableException("Failed to fetch a page of transactions for user " + userId, e);
         }
-        return transactions;
+        return page;
     }
 
     /**
-     * Saves a new transaction to the database.
+     * Saves a new transaction to the database and updates the running totals of its accounts.
      * @param transaction The {@link Transaction} object to be saved.
      */
     public void addTransaction(Transaction transaction) {
-        String sql = "INSERT INTO transactions (user_id, account_id, category_id, transaction_type, amount, transaction_date, note, to_account_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, transaction.getUserId());
-            stmt.setInt(2, transaction.getAccount().getId());
-
-            if (transaction.getCategory() != null && transaction.getCategory().getId() != 0) {
-                stmt.setInt(3, transaction.getCategory().getId());
-            } else {
-                stmt.setNull(3, Types.INTEGER);
-            }
-
-            stmt.setString(4, transaction.getTransactionType());
-            stmt.setDouble(5, transaction.getAmount());
-            stmt.setTimestamp(6, new Timestamp(transaction.getTransactionDate().getTime()));
-            stmt.setString(7, transaction.getNote());
-
-            if (transaction.getToAccount() != null) {
-                stmt.setInt(8, transaction.getToAccount().getId());
-            } else {
-                stmt.setNull(8, Types.INTEGER);
-            }
-            
-            stmt.executeUpdate();
+        try {
+            repositories.ledgerCache().writeStarting(transaction.getUserId());
+            repositories.ledger().insert(transaction);
+            repositories.ledgerCache().transactionAdded(transaction);
+            repositories.analysisCache().invalidate(transaction.getUserId());
             logger.info("New transaction added successfully for user {}", transaction.getUserId());
         } catch (SQLException e) {
             logger.error("Error adding transaction for user {}", transaction.getUserId(), e);
         }
     }
-    
+
     /**
      * Fetches and aggregates cash flow data (income vs. expense) for the Analysis page.
+     * Short ranges are grouped by day, longer ones by month.
      * @param userId The ID of the user.
-     * @param dateRange The string representing the time period (e.g., "last30days").
+     * @param dateRange The time period to analyse.
      * @param accountIds A list of account IDs to include in the analysis. Can be null.
      * @param currency The currency to filter the analysis by.
      * @return A list of {@link MonthlyCashFlow} objects representing the cash flow trend.
      */
-    public List<MonthlyCashFlow> getCashFlowTrendForAnalysis(int userId, String dateRange, List<Integer> accountIds, String currency) {
-        List<MonthlyCashFlow> cashFlowList = new ArrayList<>();
-        
-        String groupByClause;
-        String dateFilterClause;
-        String dateFormat;
-
-        switch (dateRange) {
-            case "last30days":
-                groupByClause = "GROUP BY period ORDER BY period ASC";
-                dateFilterClause = "t.transaction_date >= CURDATE() - INTERVAL 30 DAY";
-                dateFormat = "%Y-%m-%d"; // Group by day
-                break;
-            case "last6months":
-                groupByClause = "GROUP BY period ORDER BY period ASC";
-                dateFilterClause = "t.transaction_date >= CURDATE() - INTERVAL 6 MONTH";
-                dateFormat = "%Y-%m"; // Group by month
-                break;
-            case "last12months":
-            default:
-                groupByClause = "GROUP BY period ORDER BY period ASC";
-                dateFilterClause = "t.transaction_date >= CURDATE() - INTERVAL 12 MONTH";
-                dateFormat = "%Y-%m"; // Group by month
-                break;
-        }
-
-        StringBuilder sql = new StringBuilder(
-            "SELECT " +
-            "    DATE_FORMAT(t.transaction_date, '" + dateFormat + "') AS period, " +
-            "    SUM(CASE WHEN t.transaction_type = 'Income' THEN t.amount ELSE 0 END) AS total_income, " +
-            "    SUM(CASE WHEN t.transaction_type = 'Expense' THEN t.amount ELSE 0 END) AS total_expense " +
-            "FROM transactions t " +
-            "JOIN accounts a ON t.account_id = a.id " +
-            "WHERE t.user_id = ? AND a.currency = ? AND " + dateFilterClause + " "
-        );
-
-        List<Object> params = new ArrayList<>();
-        params.add(userId);
-        params.add(currency);
-        
-        if (accountIds != null && !accountIds.isEmpty()) {
-            sql.append("AND t.account_id IN (");
-            sql.append(accountIds.stream().map(id -> "?").collect(Collectors.joining(",")));
-            sql.append(") ");
-            params.addAll(accountIds);
-        }
-        
-        sql.append(groupByClause);
-
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-            
-            for (int i = 0; i < params.size(); i++) {
-                stmt.setObject(i + 1, params.get(i));
-            }
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    MonthlyCashFlow mcf = new MonthlyCashFlow();
-                    mcf.setMonth(rs.getString("period"));
-                    mcf.setTotalIncome(rs.getDouble("total_income"));
-                    mcf.setTotalExpense(rs.getDouble("total_expense"));
-                    cashFlowList.add(mcf);
+    public List<MonthlyCashFlow> getCashFlowTrendForAnalysis(int userId, DateRange dateRange, List<Integer> accountIds, String currency) {
+        try {
+            return repositories.analysisCache().get(userId, "cashFlow", dateRange, accountIds, currency, () -> {
+                LedgerColumns ledger = repositories.ledgerCache().get(userId);
+                if (ledger != null) {
+                    return Collections.unmodifiableList(ledger.findCashFlow(ledger.selectAccounts(currency, accountIds), dateRange));
                 }
-            }
+                return Collections.unmodifiableList(repositories.ledger().findCashFlow(userId, currency, accountIds, dateRange));
+            });
         } catch (SQLException e) {
             logger.error("Error fetching cash flow trend data for user {}", userId, e);
         }
-        
-        return cashFlowList;
+        return new ArrayList<>();
     }
-    
+
     /**
      * Fetches and aggregates spending data by category for the Analysis page.
      * @param userId The ID of the user.
-     * @param dateRange The string representing the time period.
+     * @param dateRange The time period to analyse.
      * @param accountIds A list of account IDs to include. Can be null.
      * @param currency The currency to filter by.
      * @return A list of {@link CategorySpending} objects.
      */
-    public List<CategorySpending> getSpendingByCategoryForAnalysis(int userId, String dateRange, List<Integer> accountIds, String currency) {
-        List<CategorySpending> spendingList = new ArrayList<>();
-        String dateFilterClause = getDateFilterClause(dateRange);
-
-        StringBuilder sql = new StringBuilder(
-            "SELECT c.name as category_name, SUM(t.amount) as total_amount " +
-            "FROM transactions t " +
-            "JOIN categories c ON t.category_id = c.id " +
-            "JOIN accounts a ON t.account_id = a.id " +
-            "WHERE t.user_id = ? AND a.currency = ? AND t.transaction_type = 'Expense' AND " + dateFilterClause + " "
-        );
-
-        List<Object> params = new ArrayList<>();
-        params.add(userId);
-        params.add(currency);
-        
-        if (accountIds != null && !accountIds.isEmpty()) {
-            sql.append("AND t.account_id IN (");
-            sql.append(accountIds.stream().map(id -> "?").collect(Collectors.joining(",")));
-            sql.append(") ");
-            params.addAll(accountIds);
-        }
-        
-        sql.append("GROUP BY c.name ORDER BY total_amount DESC");
-
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-            
-            for (int i = 0; i < params.size(); i++) {
-                stmt.setObject(i + 1, params.get(i));
-            }
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    CategorySpending cs = new CategorySpending();
-                    cs.setCategoryName(rs.getString("category_name"));
-                    cs.setTotalAmount(rs.getDouble("total_amount"));
-                    spendingList.add(cs);
+    public List<CategorySpending> getSpendingByCategoryForAnalysis(int userId, DateRange dateRange, List<Integer> accountIds, String currency) {
+        try {
+            return repositories.analysisCache().get(userId, "spendingByCategory", dateRange, accountIds, currency, () -> {
+                LedgerColumns ledger = repositories.ledgerCache().get(userId);
+                if (ledger != null) {
+                    return Collections.unmodifiableList(ledger.findSpendingByCategory(ledger.selectAccounts(currency, accountIds), dateRange));
                 }
-            }
+                return Collections.unmodifiableList(repositories.ledger().findSpendingByCategory(userId, currency, accountIds, dateRange));
+            });
         } catch (SQLException e) {
             logger.error("Error fetching spending by category data for user {}", userId, e);
         }
-        
-        return spendingList;
+        return new ArrayList<>();
     }
-    
+
     /**
      * Fetches and calculates the daily balance trend for the Analysis page.
+     * The trend stops at today even if the range extends into the future.
      * @param userId The ID of the user.
-     * @param dateRange The string representing the time period.
+     * @param dateRange The time period to analyse.
      * @param accountIds A list of account IDs to include. Can be null.
      * @param currency The currency to filter by.
      * @return A list of {@link DailyBalance} objects representing the balance trend.
      */
-    public List<DailyBalance> getBalanceTrendForAnalysis(int userId, String dateRange, List<Integer> accountIds, String currency) {
-        List<DailyBalance> balanceTrend = new ArrayList<>();
-        LocalDate endDate = LocalDate.now();
-        LocalDate startDate;
-
-        switch (dateRange) {
-            case "last30days":
-                startDate = endDate.minusDays(29);
-                break;
-            case "last6months":
-                startDate = endDate.minusMonths(6).withDayOfMonth(1);
-                break;
-            case "last12months":
-            default:
-                startDate = endDate.minusMonths(12).withDayOfMonth(1);
-                break;
+    public List<DailyBalance> getBalanceTrendForAnalysis(int userId, DateRange dateRange, List<Integer> accountIds, String currency) {
+        LocalDate today = LocalDate.now();
+        LocalDate startDate = dateRange.getStart();
+        LocalDate endDate = dateRange.getLastDay();
+        if (endDate.isAfter(today) && !startDate.isAfter(today)) {
+            endDate = today;
         }
 
-        try (Connection conn = DbConnector.getInstance().getConnection()) {
-            double startingBalance = calculateStartingBalance(conn, userId, startDate, accountIds, currency);
-            Map<LocalDate, Double> dailyChanges = getDailyNetChanges(conn, userId, startDate, endDate, accountIds, currency);
-
-            double currentBalance = startingBalance;
-            for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-                currentBalance += dailyChanges.getOrDefault(date, 0.0);
-                DailyBalance dailyBalance = new DailyBalance();
-                dailyBalance.setDate(Date.valueOf(date));
-                dailyBalance.setBalance(currentBalance);
-                balanceTrend.add(dailyBalance);
-            }
-
+        // Keyed on the clipped range, so that the trend of a period that includes today is recomputed each day
+        DateRange trendRange = DateRange.between(startDate, endDate);
+        try {
+            return repositories.analysisCache().get(userId, "balanceTrend", trendRange, accountIds, currency,
+                    () -> Collections.unmodifiableList(calculateBalanceTrend(userId, trendRange, accountIds, currency)));
         } catch (SQLException e) {
             logger.error("Error fetching balance trend data for user {}", userId, e);
         }
-        
+        return new ArrayList<>();
+    }
+
+    /**
+     * Private helper method to calculate the balance at the end of each day of a range.
+     * @param userId The user's ID.
+     * @param range The days of the trend.
+     * @param accountIds The list of account IDs to include.
+     * @param currency The currency to filter by.
+     * @return One {@link DailyBalance} per day of the range.
+     * @throws SQLException if a database error occurs.
+     */
+    private List<DailyBalance> calculateBalanceTrend(int userId, DateRange range, List<Integer> accountIds, String currency) throws SQLException {
+        List<DailyBalance> balanceTrend = new ArrayList<>();
+        LocalDate startDate = range.getStart();
+        LocalDate endDate = range.getLastDay();
+
+        double startingBalance;
+        Map<LocalDate, Double> dailyChanges;
+        LedgerColumns ledger = repositories.ledgerCache().get(userId);
+        if (ledger != null) {
+            boolean[] selected = ledger.selectAccounts(currency, accountIds);
+            startingBalance = ledger.sumInitialBalance(selected) + ledger.sumNetBefore(selected, startDate);
+            dailyChanges = ledger.findDailyNetChanges(selected, range);
+        } else {
+            startingBalance = calculateStartingBalance(userId, startDate, accountIds, currency);
+            dailyChanges = repositories.ledger().findDailyNetChanges(userId, currency, accountIds, range);
+        }
+
+        double currentBalance = startingBalance;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            currentBalance += dailyChanges.getOrDefault(date, 0.0);
+            DailyBalance dailyBalance = new DailyBalance();
+            dailyBalance.setDate(Date.valueOf(date));
+            dailyBalance.setBalance(currentBalance);
+            balanceTrend.add(dailyBalance);
+        }
         return balanceTrend;
     }
-    
+
     /**
      * Fetches a raw list of transactions based on analysis filters.
      * @param userId The ID of the user.
-     * @param dateRange The string representing the time period.
+     * @param dateRange The time period to analyse.
      * @param accountIds A list of account IDs to include.
      * @param currency The currency to filter by.
      * @return A list of {@link Transaction} objects.
      */
-    public List<Transaction> getTransactionsForAnalysis(int userId, String dateRange, List<Integer> accountIds, String currency) {
-        List<Transaction> transactions = new ArrayList<>();
-        String dateFilterClause = getDateFilterClause(dateRange);
-
-        StringBuilder sql = new StringBuilder(
-            "SELECT t.*, a.name as account_name, c.name as category_name " +
-            "FROM transactions t " +
-            "JOIN accounts a ON t.account_id = a.id " +
-            "LEFT JOIN categories c ON t.category_id = c.id " +
-            "WHERE t.user_id = ? AND a.currency = ? AND " + dateFilterClause + " "
-        );
-
-        List<Object> params = new ArrayList<>();
-        params.add(userId);
-        params.add(currency);
-
-        if (accountIds != null && !accountIds.isEmpty()) {
-            sql.append("AND t.account_id IN (");
-            sql.append(accountIds.stream().map(id -> "?").collect(Collectors.joining(",")));
-            sql.append(") ");
-            params.addAll(accountIds);
-        }
-
-        sql.append("ORDER BY t.transaction_date DESC");
-
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-
-            for (int i = 0; i < params.size(); i++) {
-                stmt.setObject(i + 1, params.get(i));
+    public List<Transaction> getTransactionsForAnalysis(int userId, DateRange dateRange, List<Integer> accountIds, String currency) {
+        try {
+            LedgerColumns ledger = repositories.ledgerCache().get(userId);
+            if (ledger != null) {
+                return ledger.findTransactions(ledger.selectAccounts(currency, accountIds), dateRange);
             }
+            return repositories.ledger().findForAnalysis(userId, currency, accountIds, dateRange);
+        } catch (SQLException e) {
+            logger.error("Error fetching transactions for analysis for user {}", userId, e);
+        }
+        return new ArrayList<>();
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Transaction tx = new Transaction();
-                    tx.setId(rs.getInt("id"));
-                    tx.setUserId(rs.getInt("user_id"));
-                    tx.setTransactionType(rs.getString("transaction_type"));
-                    tx.setAmount(rs.getDouble("amount"));
-                    tx.setTransactionDate(rs.getTimestamp("transaction_date"));
-                    tx.setNote(rs.getString("note"));
-
-                    Account account = new Account();
-                    account.setId(rs.getInt("account_id"));
-                    account.setName(rs.getString("account_name"));
-                    tx.setAccount(account);
+    /**
+     * Streams all of a user's transactions matching the Records page filters to a handler, one at a
+     * time and newest first, for exporting histories of any length.
+     * @param userId The ID of the user.
+     * @param filters A map of filters, as for {@link #getTransactionsForUser}.
+     * @param handler Receives each {@link Transaction}, with the receiving account of transfers.
+     * @return true if every transaction was handled, false if the query failed part way.
+     * @throws IOException if the handler fails, e.g. because the client disconnected.
+     */
+    public boolean streamTransactionsForUser(int userId, Map<String, String> filters, RowHandler<Transaction> handler) throws IOException {
+        try {
+            repositories.ledger().streamForUser(userId, filters, handler);
+            return true;
+        } catch (SQLException e) {
+            logger.error("Error streaming transactions for export for user {}", userId, e);
+        }
+        return false;
+    }
 
-                    if (rs.getObject("category_id") != null) {
-                        Category category = new Category();
-                        category.setId(rs.getInt("category_id"));
-                        category.setName(rs.getString("category_name"));
-                        tx.setCategory(category);
-                    }
-                    transactions.add(tx);
-                }
+    /**
+     * Streams the transactions of {@link #getTransactionsForAnalysis} to a handler one at a time,
+     * so that they can be written out as they are read instead of being collected into a list.
+     * @param userId The ID of the user.
+     * @param dateRange The time period to analyse.
+     * @param accountIds A list of account IDs to include.
+     * @param currency The currency to filter by.
+     * @param handler Receives each {@link Transaction}.
+     * @return true if every transaction was handled, false if the query failed part way.
+     * @throws IOException if the handler fails, e.g. because the client disconnected.
+     */
+    public boolean streamTransactionsForAnalysis(int userId, DateRange dateRange, List<Integer> accountIds, String currency,
+                                                 RowHandler<Transaction> handler) throws IOException {
+        try {
+            LedgerColumns ledger = repositories.ledgerCache().get(userId);
+            if (ledger != null) {
+                ledger.forEachTransaction(ledger.selectAccounts(currency, accountIds), dateRange, handler);
+            } else {
+                repositories.ledger().streamForAnalysis(userId, currency, accountIds, dateRange, handler);
             }
+            return true;
         } catch (SQLException e) {
-            logger.error("Error fetching transactions for analysis for user {}", userId, e);
+            logger.error("Error streaming transactions for analysis for user {}", userId, e);
         }
-        return transactions;
+        return false;
     }
 
     /**
-     * Deletes a specific transaction belonging to a specific user.
+     * Deletes a specific transaction belonging to a specific user and reverses it in the running
+     * totals of its accounts.
      * @param transactionId The ID of the transaction to delete.
      * @param userId The ID of the user who owns the transaction (for security).
      */
     public void deleteTransaction(int transactionId, int userId) {
-        String sql = "DELETE FROM transactions WHERE id = ? AND user_id = ?";
-        try (Connection conn = DbConnector.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, transactionId);
-            stmt.setInt(2, userId);
-
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
+        try {
+            repositories.ledgerCache().writeStarting(userId);
+            if (repositories.ledger().delete(transactionId, userId)) {
+                repositories.ledgerCache().transactionDeleted(userId, transactionId);
+                repositories.analysisCache().invalidate(userId);
                 logger.info("Successfully deleted transaction ID {} for user ID {}", transactionId, userId);
             } else {
                 logger.warn("No transaction was deleted. Transaction ID {} might not exist or not belong to user ID {}", transactionId, userId);
             }
-
         } catch (SQLException e) {
             logger.error("Error deleting transaction ID {} for user ID {}", transactionId, userId, e);
         }
@@ -512,7 +365,6 @@ public class RecordService {
 
     /**
      * Private helper to calculate the total balance of selected accounts at a specific start date.
-     * @param conn The database connection.
      * @param userId The user's ID.
      * @param startDate The start date of the analysis period.
      * @param accountIds The list of account IDs to include.
@@ -520,121 +372,9 @@ public class RecordService {
      * @return The calculated starting balance.
      * @throws SQLException if a database error occurs.
      */
-    private double calculateStartingBalance(Connection conn, int userId, LocalDate startDate, List<Integer> accountIds, String currency) throws SQLException {
-        double totalInitialBalance = 0;
-        double pastNetTransactions = 0;
-
-        StringBuilder initialBalanceSql = new StringBuilder("SELECT SUM(initial_balance) FROM accounts WHERE user_id = ? AND currency = ? ");
-        if (accountIds != null && !accountIds.isEmpty()) {
-            initialBalanceSql.append("AND id IN (").append(accountIds.stream().map(id -> "?").collect(Collectors.joining(","))).append(") ");
-        }
-        
-        try (PreparedStatement stmt = conn.prepareStatement(initialBalanceSql.toString())) {
-            int paramIndex = 1;
-            stmt.setInt(paramIndex++, userId);
-            stmt.setString(paramIndex++, currency);
-            if (accountIds != null && !accountIds.isEmpty()) {
-                for (Integer id : accountIds) {
-                    stmt.setInt(paramIndex++, id);
-                }
-            }
-            try(ResultSet rs = stmt.executeQuery()) {
-                if(rs.next()) totalInitialBalance = rs.getDouble(1);
-            }
-        }
-
-        StringBuilder pastTransactionsSql = new StringBuilder(
-            "SELECT SUM(CASE WHEN transaction_type = 'Income' THEN amount WHEN transaction_type = 'Expense' THEN -amount ELSE 0 END) " +
-            "FROM transactions WHERE user_id = ? AND account_id IN (SELECT id FROM accounts WHERE user_id = ? AND currency = ?) AND transaction_date < ? "
-        );
-         if (accountIds != null && !accountIds.isEmpty()) {
-            pastTransactionsSql.append("AND account_id IN (").append(accountIds.stream().map(id -> "?").collect(Collectors.joining(","))).append(") ");
-        }
-
-        try (PreparedStatement stmt = conn.prepareStatement(pastTransactionsSql.toString())) {
-            int paramIndex = 1;
-            stmt.setInt(paramIndex++, userId);
-            stmt.setInt(paramIndex++, userId);
-            stmt.setString(paramIndex++, currency);
-            stmt.setDate(paramIndex++, Date.valueOf(startDate));
-             if (accountIds != null && !accountIds.isEmpty()) {
-                for (Integer id : accountIds) {
-                    stmt.setInt(paramIndex++, id);
-                }
-            }
-            try(ResultSet rs = stmt.executeQuery()) {
-                if(rs.next()) pastNetTransactions = rs.getDouble(1);
-            }
-        }
-
+    private double calculateStartingBalance(int userId, LocalDate startDate, List<Integer> accountIds, String currency) throws SQLException {
+        double totalInitialBalance = repositories.accounts().sumInitialBalance(userId, currency, accountIds);
+        double pastNetTransactions = repositories.ledger().sumNetBefore(userId, currency, accountIds, startDate);
         return totalInitialBalance + pastNetTransactions;
     }
-    
-    /**
-     * Private helper to get a map of daily net financial changes (income - expense) over a period.
-     * @param conn The database connection.
-     * @param userId The user's ID.
-     * @param startDate The start date of the period.
-     * @param endDate The end date of the period.
-     * @param accountIds The list of account IDs to include.
-     * @param currency The currency to filter by.
-     * @return A map where the key is the date and the value is the net change for that day.
-     * @throws SQLException if a database error occurs.
-     */
-    private Map<LocalDate, Double> getDailyNetChanges(Connection conn, int userId, LocalDate startDate, LocalDate endDate, List<Integer> accountIds, String currency) throws SQLException {
-        Map<LocalDate, Double> dailyChanges = new HashMap<>();
-        StringBuilder sql = new StringBuilder(
-            "SELECT DATE(transaction_date) as day, SUM(CASE WHEN transaction_type = 'Income' THEN amount WHEN transaction_type = 'Expense' THEN -amount ELSE 0 END) as net_change " +
-            "FROM transactions WHERE user_id = ? AND account_id IN (SELECT id FROM accounts WHERE user_id = ? AND currency = ?) " +
-            "AND transaction_date >= ? AND transaction_date <= ? "
-        );
-
-        if (accountIds != null && !accountIds.isEmpty()) {
-            sql.append("AND account_id IN (").append(accountIds.stream().map(id -> "?").collect(Collectors.joining(","))).append(") ");
-        }
-        sql.append("GROUP BY day ORDER BY day ASC");
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-            int paramIndex = 1;
-            stmt.setInt(paramIndex++, userId);
-            stmt.setInt(paramIndex++, userId);
-            stmt.setString(paramIndex++, currency);
-            stmt.setDate(paramIndex++, Date.valueOf(startDate));
-            stmt.setDate(paramIndex++, Date.valueOf(endDate));
-            if (accountIds != null && !accountIds.isEmpty()) {
-                for (Integer id : accountIds) {
-                    stmt.setInt(paramIndex++, id);
-                }
-            }
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while(rs.next()) {
-                    LocalDate date = rs.getDate("day").toLocalDate();
-                    double netChange = rs.getDouble("net_change");
-                    dailyChanges.put(date, netChange);
-                }
-            }
-        }
-        return dailyChanges;
-    }
-
-    /**
-     * Private helper method to return a SQL date filtering clause based on a string identifier.
-     * @param dateRange The string representing the date range (e.g., "last30days").
-     * @return A SQL string for the WHERE clause.
-     */
-    private String getDateFilterClause(String dateRange) {
-        switch (dateRange) {
-            case "last30days":
-                return "t.transaction_date >= CURDATE() - INTERVAL 30 DAY";
-            case "last3months":
-                return "t.transaction_date >= CURDATE() - INTERVAL 3 MONTH";
-            case "last6months":
-                return "t.transaction_date >= CURDATE() - INTERVAL 6 MONTH";
-            case "last12months":
-            default:
-                return "t.transaction_date >= CURDATE() - INTERVAL 12 MONTH";
-        }
-    }
 }
-
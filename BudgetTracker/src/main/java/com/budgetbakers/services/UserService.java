@@ -1,17 +1,14 @@
 package com.budgetbakers.services;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.UUID;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.budgetbakers.entities.User;
-import com.budgetbakers.utils.DbConnector;
+import com.budgetbakers.repository.Repositories;
+import com.budgetbakers.utils.PasswordHashingBusyException;
 import com.budgetbakers.utils.PasswordUtil;
 
 /**
@@ -22,52 +19,67 @@ public class UserService {
 	
 	private static final Logger logger = LogManager.getLogger(UserService.class);
 
+	private final Repositories repositories;
+
+	/**
+	 * Creates a service backed by the default repositories.
+	 */
+	public UserService() {
+		this(Repositories.getDefault());
+	}
+
 	/**
-	 * Finds a user in the database by their email address.
+	 * Creates a service backed by the given repositories.
+	 * @param repositories The repositories to read from and write to.
+	 */
+	public UserService(Repositories repositories) {
+		this.repositories = repositories;
+	}
+
+	/**
+	 * Finds a user by their email address. Lookups are answered from the
+	 * {@link com.budgetbakers.cache.UserCache} for a short time, including for unknown emails.
 	 * @param email The email address to search for.
 	 * @return A {@link User} object if a user with the given email is found, otherwise null.
 	 */
 	public User findUserByEmail(String email) {
-		String sql = "SELECT * FROM users WHERE email = ?";
-		try (Connection conn = DbConnector.getInstance().getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-			stmt.setString(1, email);
-			try (ResultSet rs = stmt.executeQuery()) {
-				if (rs.next()) {
-					User user = new User();
-					user.setId(rs.getInt("id"));
-					user.setEmail(rs.getString("email"));
-					user.setPassword(rs.getString("password"));
-					user.setTempPassword(rs.getString("temp_password"));
-					user.setTemp(rs.getBoolean("is_temp"));
-					user.setAuthProvider(rs.getString("auth_provider"));
-					return user;
-				}
-			}
+		try {
+			return repositories.userCache().findByEmail(email);
 		} catch (SQLException e) {
 			logger.error("Database error while finding user by email: {}", email, e);
 		}
 		return null;
 	}
 
+	/**
+	 * Finds a user by their ID, e.g. to load the details of a user known only from the login cookie.
+	 * @param id The ID of the user.
+	 * @return A {@link User} object if a user with the given ID is found, otherwise null.
+	 */
+	public User findUserById(int id) {
+		try {
+			return repositories.users().findById(id);
+		} catch (SQLException e) {
+			logger.error("Database error while finding user by ID: {}", id, e);
+		}
+		return null;
+	}
+
 	/**
 	 * Creates a new user with local authentication. This involves generating a temporary
-	 * password and sending it to the user's email.
+	 * password and queuing the email that sends it, in the same transaction as the user, for
+	 * the {@link EmailDispatcher} to deliver.
 	 * @param email The email address of the new user.
 	 * @return The generated temporary password, or null if creation fails.
 	 */
 	public String createNewUser(String email) {
 		String tempPassword = UUID.randomUUID().toString().substring(0, 8);
-		String sql = "INSERT INTO users (email, temp_password, is_temp, auth_provider) VALUES (?, ?, TRUE, 'LOCAL')";
-		try (Connection conn = DbConnector.getInstance().getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-			stmt.setString(1, email);
-			stmt.setString(2, tempPassword);
-			stmt.executeUpdate();
+		try {
+			repositories.users().insertLocalUser(email, tempPassword, EmailService.temporaryPasswordEmail(email, tempPassword));
+			repositories.userCache().invalidate(email);
 			
-			logger.info("New user created successfully. Sending temporary password to {}", email);
-			EmailService emailService = new EmailService();
-			emailService.sendTemporaryPassword(email, tempPassword);
+			logger.info("New user created successfully. Temporary password email queued for {}", email);
+			EmailDispatcher.wakeUp();
 			return tempPassword;
 		} catch (SQLException e) {
 			logger.error("Database error while creating new user for email: {}", email, e);
@@ -82,9 +94,17 @@ public class UserService {
 	 * @return true if the password is correct and the user is in a temporary state, false otherwise.
 	 */
 	public boolean verifyTempPassword(String email, String tempPassword) {
-		User user = findUserByEmail(email);
-		boolean isValid = user != null && user.isTemp() && tempPassword.equals(user.getTempPassword());
-		return isValid;
+		return verifyTempPassword(findUserByEmail(email), tempPassword);
+	}
+
+	/**
+	 * Verifies a temporary password against a user the caller has already looked up.
+	 * @param user The user, or null if none was found.
+	 * @param tempPassword The temporary password to verify.
+	 * @return true if the password is correct and the user is in a temporary state, false otherwise.
+	 */
+	public boolean verifyTempPassword(User user, String tempPassword) {
+		return user != null && user.isTemp() && tempPassword != null && tempPassword.equals(user.getTempPassword());
 	}
 
 	/**
@@ -92,14 +112,12 @@ public class UserService {
 	 * This action also clears the temporary password and marks the user as no longer temporary.
 	 * @param email The user's email address.
 	 * @param newPassword The new plain-text password to be set.
+	 * @throws PasswordHashingBusyException if the password cannot be hashed now.
 	 */
 	public void setPermanentPassword(String email, String newPassword) {
-		String sql = "UPDATE users SET password = ?, temp_password = NULL, is_temp = FALSE WHERE email = ?";
-		try (Connection conn = DbConnector.getInstance().getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql)) {
-			stmt.setString(1, PasswordUtil.hashPassword(newPassword));
-			stmt.setString(2, email);
-			stmt.executeUpdate();
+		try {
+			repositories.users().updatePassword(email, PasswordUtil.hashPassword(newPassword));
+			repositories.userCache().invalidate(email);
 		} catch (SQLException e) {
 			logger.error("Database error while setting permanent password for {}:", email, e);
 		}
@@ -111,14 +129,51 @@ public class UserService {
 	 * @param email The user's email address.
 	 * @param password The plain-text password to verify.
 	 * @return true if the password is correct, false otherwise.
+	 * @throws PasswordHashingBusyException if the password cannot be checked now.
 	 */
 	public boolean verifyPassword(String email, String password) {
-		User user = findUserByEmail(email);
+		return verifyPassword(findUserByEmail(email), password);
+	}
+
+	/**
+	 * Verifies a permanent password against a user the caller has already looked up, so that a
+	 * login that also needs the {@link User} reads it once. If the password is correct but its
+	 * hash was made with a different BCrypt cost than the configured one, it is rehashed.
+	 * @param user The user, or null if none was found.
+	 * @param password The plain-text password to verify.
+	 * @return true if the password is correct, false otherwise.
+	 * @throws PasswordHashingBusyException if the password cannot be checked now.
+	 */
+	public boolean verifyPassword(User user, String password) {
 		boolean isValid = user != null && !user.isTemp() && "LOCAL".equals(user.getAuthProvider())
-				&& PasswordUtil.checkPassword(password, user.getPassword());
+				&& password != null && PasswordUtil.checkPassword(password, user.getPassword());
+		if (isValid && PasswordUtil.needsRehash(user.getPassword())) {
+			rehashPassword(user, password);
+		}
 		return isValid;
 	}
 
+	/**
+	 * Private helper method to replace a user's password hash with one of the configured cost.
+	 * It is best effort: the login has already succeeded, so a busy hashing pool or a database
+	 * error only postpones the rehash to a later login.
+	 * @param user The user whose password was just verified.
+	 * @param password The verified plain-text password.
+	 */
+	private void rehashPassword(User user, String password) {
+		try {
+			String hash = PasswordUtil.hashPassword(password);
+			repositories.users().updatePassword(user.getEmail(), hash);
+			repositories.userCache().invalidate(user.getEmail());
+			user.setPassword(hash);
+			logger.info("Rehashed the password of user {} with cost {}.", user.getId(), PasswordUtil.COST);
+		} catch (PasswordHashingBusyException e) {
+			logger.debug("Postponing the password rehash of user {}: {}", user.getId(), e.getMessage());
+		} catch (SQLException e) {
+			logger.error("Database error while rehashing the password of user {}", user.getId(), e);
+		}
+	}
+
 	/**
 	 * Finds a user by their Google email. If the user does not exist, a new user
 	 * record is created with 'GOOGLE' as the authentication provider.
@@ -133,25 +188,13 @@ public class UserService {
 			return existingUser;
 		}
 
-		String sql = "INSERT INTO users (email, auth_provider, is_temp) VALUES (?, 'GOOGLE', FALSE)";
-		try (Connection conn = DbConnector.getInstance().getConnection();
-				PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-			stmt.setString(1, email);
-			int affectedRows = stmt.executeUpdate();
-
-			if (affectedRows > 0) {
-				try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-					if (generatedKeys.next()) {
-						User newUser = new User();
-						newUser.setId(generatedKeys.getInt(1));
-						newUser.setEmail(email);
-						newUser.setAuthProvider("GOOGLE");
-						logger.info("Successfully created new Google user with email {}", email);
-						return newUser;
-					}
-				}
+		try {
+			User newUser = repositories.users().insertGoogleUser(email);
+			repositories.userCache().invalidate(email);
+			if (newUser != null) {
+				logger.info("Successfully created new Google user with email {}", email);
 			}
+			return newUser;
 		} catch (SQLException e) {
 			logger.error("Database error while creating new Google user for {}:", email, e);
 		}
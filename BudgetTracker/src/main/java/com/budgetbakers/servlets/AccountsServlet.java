@@ -3,6 +3,7 @@ package com.budgetbakers.servlets;
 import com.budgetbakers.entities.Account;
 import com.budgetbakers.entities.User;
 import com.budgetbakers.services.AccountService;
+import com.budgetbakers.utils.DataUnavailableException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -11,7 +12,6 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.util.List;
 
@@ -41,8 +41,7 @@ public class AccountsServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
-        HttpSession session = request.getSession(false);
-        User user = (session != null) ? (User) session.getAttribute("user") : null;
+        User user = AuthSession.getUser(request);
 
         if (user == null) {
             logger.warn("Unauthorized access to AccountsServlet. Redirecting to login.");
@@ -53,11 +52,15 @@ public class AccountsServlet extends HttpServlet {
         try {
             int userId = user.getId();
             logger.info("Fetching account summaries for user ID: {}", userId);
-            List<Account> accountSummaries = accountService.getAccountSummariesForUser(userId);
+            List<Account> accountSummaries = accountService.getDashboardSnapshot(userId).getAccountSummaries();
             request.setAttribute("accountSummaries", accountSummaries);
             logger.info("Successfully fetched {} account summaries for user {}.", accountSummaries.size(), userId);
             request.getRequestDispatcher("/views/accounts.jsp").forward(request, response);
 
+        } catch (DataUnavailableException e) {
+            logger.warn("Account summaries for user {} are unavailable: {}", user.getId(), e.getMessage());
+            response.setHeader("Retry-After", String.valueOf(DataUnavailableException.RETRY_AFTER_SECONDS));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Your data could not be loaded right now. Please try again in a few seconds.");
         } catch (Exception e) {
             logger.error("An error occurred while fetching account summaries for user.", e);
             response.sendRedirect(request.getContextPath() + "/error.jsp");
@@ -3,6 +3,7 @@ package com.budgetbakers.servlets;
 import com.budgetbakers.entities.Account;
 import com.budgetbakers.entities.User;
 import com.budgetbakers.services.AccountService;
+import com.budgetbakers.utils.DataUnavailableException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -11,7 +12,6 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.util.List;
 
@@ -42,8 +42,7 @@ public class AddAccountServlet extends HttpServlet {
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
-        HttpSession session = request.getSession(false);
-        User user = (session != null) ? (User) session.getAttribute("user") : null;
+        User user = AuthSession.getUser(request);
 
         if (user == null) {
             logger.warn("Unauthorized attempt to add an account. Redirecting to login.");
@@ -74,7 +73,15 @@ public class AddAccountServlet extends HttpServlet {
             logger.error("Invalid number format for initial balance for user {}", user.getId(), e);
             request.setAttribute("formError", "Please enter a valid number for the initial balance.");
             // We need to re-fetch account summaries to correctly re-render the page with the error.
-            List<Account> accountSummaries = accountService.getAccountSummariesForUser(user.getId());
+            List<Account> accountSummaries;
+            try {
+                accountSummaries = accountService.getAccountSummariesForUser(user.getId());
+            } catch (DataUnavailableException unavailable) {
+                logger.warn("Account summaries for user {} are unavailable: {}", user.getId(), unavailable.getMessage());
+                response.setHeader("Retry-After", String.valueOf(DataUnavailableException.RETRY_AFTER_SECONDS));
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Your data could not be loaded right now. Please try again in a few seconds.");
+                return;
+            }
             request.setAttribute("accountSummaries", accountSummaries);
             request.getRequestDispatcher("/views/accounts.jsp").forward(request, response);
         } catch (Exception e) {
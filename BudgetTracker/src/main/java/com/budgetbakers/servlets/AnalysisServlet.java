@@ -1,8 +1,11 @@
 package com.budgetbakers.servlets;
 
+import com.budgetbakers.entities.Transaction;
 import com.budgetbakers.entities.User;
 import com.budgetbakers.services.RecordService;
+import com.budgetbakers.utils.DateRange;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -11,7 +14,6 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
@@ -36,7 +38,8 @@ public class AnalysisServlet extends HttpServlet {
 	 * requested graph type, and returns the data as a JSON string.
 	 *
 	 * @param request  the {@link HttpServletRequest} object that contains filter parameters
-	 * like 'graphType', 'dateRange', 'currency', and 'accounts[]'.
+	 * like 'graphType', 'dateRange' (with 'startDate' and 'endDate' for a custom range),
+	 * 'currency', and 'accounts[]'.
 	 * @param response the {@link HttpServletResponse} object that will be used to send the
 	 * JSON data or an error status back to the client.
 	 * @throws ServletException if a servlet-specific error occurs.
@@ -46,8 +49,7 @@ public class AnalysisServlet extends HttpServlet {
 	protected void doGet(HttpServletRequest request, HttpServletResponse response)
 			throws ServletException, IOException {
 
-		HttpSession session = request.getSession(false);
-		User user = (session != null) ? (User) session.getAttribute("user") : null;
+		User user = AuthSession.getUser(request);
 
 		if (user == null) {
 			logger.warn("Unauthorized API access attempt to AnalysisServlet.");
@@ -59,7 +61,8 @@ public class AnalysisServlet extends HttpServlet {
 			int userId = user.getId();
 
 			String graphType = request.getParameter("graphType");
-			String dateRange = request.getParameter("dateRange");
+			DateRange dateRange = DateRange.fromRequest(request.getParameter("dateRange"),
+					request.getParameter("startDate"), request.getParameter("endDate"));
 			String currency = request.getParameter("currency");
 			String[] accountIdsParam = request.getParameterValues("accounts[]");
 
@@ -81,8 +84,8 @@ public class AnalysisServlet extends HttpServlet {
 				dataForChart = recordService.getBalanceTrendForAnalysis(userId, dateRange, accountIds, currency);
 				break;
 			case "transactionList":
-				dataForChart = recordService.getTransactionsForAnalysis(userId, dateRange, accountIds, currency);
-				break;
+				streamTransactionList(response, userId, dateRange, accountIds, currency);
+				return;
 			default:
 				logger.warn("Invalid graph type requested: {}", graphType);
 				throw new IllegalArgumentException("Invalid graph type requested.");
@@ -94,8 +97,46 @@ public class AnalysisServlet extends HttpServlet {
 			response.setCharacterEncoding("UTF-8");
 			response.getWriter().write(jsonResponse);
 
+		} catch (IllegalArgumentException e) {
+			logger.warn("Invalid analysis request from user {}: {}", user.getId(), e.getMessage());
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
 		} catch (Exception e) {
 			logger.error("Error generating analysis data for user {}", user.getId(), e);
+			// A streamed response may already be partly written, in which case no error page can follow
+			if (!response.isCommitted()) {
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+						"An error occurred while generating the report data.");
+			}
+		}
+	}
+
+	/**
+	 * Writes the transaction list as a JSON array, one transaction at a time as the rows are read
+	 * from the database, so neither the list nor its JSON text is ever held in memory whole.
+	 * If the query fails after the response has been committed, the array is left unterminated
+	 * so that the client fails to parse it rather than showing a truncated list.
+	 *
+	 * @param response the response to write the JSON array to.
+	 * @param userId the ID of the logged-in user.
+	 * @param dateRange the time period to list.
+	 * @param accountIds the selected account IDs, or null for all.
+	 * @param currency the currency to filter by.
+	 * @throws IOException if writing to the client fails.
+	 */
+	private void streamTransactionList(HttpServletResponse response, int userId, DateRange dateRange,
+			List<Integer> accountIds, String currency) throws IOException {
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+
+		JsonWriter writer = gson.newJsonWriter(response.getWriter());
+		writer.beginArray();
+		boolean complete = recordService.streamTransactionsForAnalysis(userId, dateRange, accountIds, currency,
+				tx -> gson.toJson(tx, Transaction.class, writer));
+		if (complete) {
+			writer.endArray();
+			writer.flush();
+		} else if (!response.isCommitted()) {
+			response.reset();
 			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
 					"An error occurred while generating the report data.");
 		}
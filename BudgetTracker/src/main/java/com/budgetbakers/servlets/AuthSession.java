@@ -0,0 +1,277 @@
+package com.budgetbakers.servlets;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.entities.LazyUser;
+import com.budgetbakers.entities.User;
+import com.budgetbakers.repository.Repositories;
+import com.budgetbakers.services.UserService;
+import com.budgetbakers.utils.SignedTokens;
+
+/**
+ * Keeps track of who is logged in, and of the email address of a login in progress, for the
+ * {@link AuthenticationFilter} and the servlets.
+ * <p>
+ * In the default {@code session} mode, both are attributes of the {@link HttpSession}. In
+ * {@code stateless} mode ({@code -Dbudgettracker.auth.mode=stateless}), they are cookies signed
+ * by {@link SignedTokens}, so logins need no session storage and survive a restart. The login
+ * cookie holds the user ID, auth provider and expiry; the filter verifies it without touching
+ * the database, and the {@link User} it yields is a {@link LazyUser} that is only looked up when
+ * a page needs more than the ID. A login cookie cannot be revoked before it expires: logging out
+ * deletes it from the browser, and removing its key from the ring invalidates every cookie the
+ * key signed.
+ * <p>
+ * Stateless mode is meant for nodes behind a round-robin balancer. The in-process caches of
+ * {@link com.budgetbakers.repository.Repositories} are only invalidated on the node that made a
+ * write, so they are disabled by default in this mode (see
+ * {@link com.budgetbakers.repository.Repositories#CACHING_PROPERTY}), and imports report their
+ * progress on the upload request rather than in the session.
+ */
+public final class AuthSession {
+
+    private static final Logger logger = LogManager.getLogger(AuthSession.class);
+
+    /** The attribute holding the logged-in {@link User}, in the request and, in session mode, the session. */
+    private static final String USER_ATTRIBUTE = "user";
+    /** The session attribute holding the email address of a login in progress. */
+    private static final String EMAIL_ATTRIBUTE = "email";
+    /** The attribute holding a message for the login page. */
+    private static final String MESSAGE_ATTRIBUTE = "message";
+
+    private static final String USER_COOKIE = "BT_AUTH";
+    private static final String EMAIL_COOKIE = "BT_LOGIN";
+    private static final String MESSAGE_COOKIE = "BT_MESSAGE";
+
+    /** How long a login cookie is valid, in seconds; it is renewed once half of this has passed. */
+    public static final long TOKEN_TTL_SECONDS = Long.getLong("budgettracker.auth.tokenTtlSeconds", 7200);
+    /** How long the email address of a login in progress is kept, in seconds. */
+    private static final long PENDING_EMAIL_TTL_SECONDS = 900;
+    /** How long a message for the login page is kept, in seconds. */
+    private static final long MESSAGE_TTL_SECONDS = 60;
+
+    /** The keys signing the cookies, or null in session mode. */
+    private static final SignedTokens TOKENS = loadTokens();
+
+    private static final UserService userService = new UserService();
+
+    private AuthSession() {}
+
+    /**
+     * Checks whether logins are kept in signed cookies rather than in the session.
+     * @return true in stateless mode.
+     */
+    public static boolean isStateless() {
+        return TOKENS != null;
+    }
+
+    /**
+     * Called by the {@link AuthenticationFilter} for every request. In stateless mode, it verifies
+     * the login cookie, makes its user available to {@link #getUser(HttpServletRequest)},
+     * renews the cookie once half of its lifetime has passed, and moves a message for the login
+     * page into the request.
+     * @param request The request.
+     * @param response The response, to renew the cookies on.
+     * @return true if a user is logged in.
+     */
+    public static boolean authenticate(HttpServletRequest request, HttpServletResponse response) {
+        if (!isStateless()) {
+            return getUser(request) != null;
+        }
+
+        SignedTokens.Verified message = TOKENS.verify(readCookie(request, MESSAGE_COOKIE));
+        if (message != null && message.getPayload().startsWith("m|")) {
+            request.setAttribute(MESSAGE_ATTRIBUTE, message.getPayload().substring(2));
+            deleteCookie(request, response, MESSAGE_COOKIE);
+        }
+
+        SignedTokens.Verified login = TOKENS.verify(readCookie(request, USER_COOKIE));
+        if (login == null) {
+            return false;
+        }
+        String[] fields = login.getPayload().split("\\|", 3);
+        if (fields.length != 3 || !"u".equals(fields[0])) {
+            return false;
+        }
+        int userId;
+        try {
+            userId = Integer.parseInt(fields[1]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        User user = new LazyUser(userId, fields[2], userService::findUserById);
+        request.setAttribute(USER_ATTRIBUTE, user);
+        if (login.getExpiresAtSeconds() - nowSeconds() < TOKEN_TTL_SECONDS / 2) {
+            writeUserCookie(request, response, user);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the logged-in user. In stateless mode, only the ID and auth provider are known
+     * without a database lookup.
+     * @param request The request.
+     * @return The {@link User}, or null if no user is logged in.
+     */
+    public static User getUser(HttpServletRequest request) {
+        User user = (User) request.getAttribute(USER_ATTRIBUTE);
+        if (user != null || isStateless()) {
+            return user;
+        }
+        HttpSession session = request.getSession(false);
+        return session == null ? null : (User) session.getAttribute(USER_ATTRIBUTE);
+    }
+
+    /**
+     * Logs a user in, for this request and the following ones, and ends the login in progress.
+     * @param request The request.
+     * @param response The response, to set the login cookie on in stateless mode.
+     * @param user The user who logged in.
+     */
+    public static void logIn(HttpServletRequest request, HttpServletResponse response, User user) {
+        request.setAttribute(USER_ATTRIBUTE, user);
+        if (isStateless()) {
+            writeUserCookie(request, response, user);
+            deleteCookie(request, response, EMAIL_COOKIE);
+        } else {
+            request.getSession().setAttribute(USER_ATTRIBUTE, user);
+        }
+    }
+
+    /**
+     * Logs the user out and ends any login in progress.
+     * @param request The request.
+     * @param response The response, to delete the cookies on in stateless mode.
+     */
+    public static void logOut(HttpServletRequest request, HttpServletResponse response) {
+        request.removeAttribute(USER_ATTRIBUTE);
+        if (isStateless()) {
+            deleteCookie(request, response, USER_COOKIE);
+            deleteCookie(request, response, EMAIL_COOKIE);
+        }
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
+    }
+
+    /**
+     * Remembers the email address of a login in progress, between the email form and the
+     * password form.
+     * @param request The request.
+     * @param response The response, to set the cookie on in stateless mode.
+     * @param email The email address.
+     */
+    public static void setPendingEmail(HttpServletRequest request, HttpServletResponse response, String email) {
+        if (isStateless()) {
+            if (email == null) {
+                deleteCookie(request, response, EMAIL_COOKIE);
+            } else {
+                writeCookie(request, response, EMAIL_COOKIE, TOKENS.sign("p|" + email, nowSeconds() + PENDING_EMAIL_TTL_SECONDS), PENDING_EMAIL_TTL_SECONDS);
+            }
+        } else {
+            request.getSession().setAttribute(EMAIL_ATTRIBUTE, email);
+        }
+    }
+
+    /**
+     * Returns the email address of the login in progress.
+     * @param request The request.
+     * @return The email address, or null if no login is in progress or it has expired.
+     */
+    public static String getPendingEmail(HttpServletRequest request) {
+        if (isStateless()) {
+            SignedTokens.Verified pending = TOKENS.verify(readCookie(request, EMAIL_COOKIE));
+            return pending != null && pending.getPayload().startsWith("p|") ? pending.getPayload().substring(2) : null;
+        }
+        HttpSession session = request.getSession(false);
+        return session == null ? null : (String) session.getAttribute(EMAIL_ATTRIBUTE);
+    }
+
+    /**
+     * Leaves a message for the login page the user is being redirected to.
+     * @param request The request.
+     * @param response The response, to set the cookie on in stateless mode.
+     * @param message The message.
+     */
+    public static void setLoginMessage(HttpServletRequest request, HttpServletResponse response, String message) {
+        if (isStateless()) {
+            writeCookie(request, response, MESSAGE_COOKIE, TOKENS.sign("m|" + message, nowSeconds() + MESSAGE_TTL_SECONDS), MESSAGE_TTL_SECONDS);
+        } else {
+            request.getSession().setAttribute(MESSAGE_ATTRIBUTE, message);
+        }
+    }
+
+    /**
+     * Private helper method to read the mode and, in stateless mode, the signing keys.
+     * @return The keys, or null in session mode.
+     */
+    private static SignedTokens loadTokens() {
+        String mode = System.getProperty("budgettracker.auth.mode", "session");
+        if (!"stateless".equalsIgnoreCase(mode)) {
+            return null;
+        }
+        SignedTokens tokens = SignedTokens.fromEnvironment();
+        if (tokens == null) {
+            logger.error("Stateless authentication needs signing keys in BUDGETTRACKER_AUTH_KEYS or budgettracker.auth.keys; keeping logins in the session.");
+        } else {
+            logger.info("Stateless authentication enabled; login cookies are valid for {} s. Per-node data caches are {}.",
+                    TOKEN_TTL_SECONDS, Repositories.getDefault().ledgerCache().isEnabled() ? "enabled" : "disabled");
+        }
+        return tokens;
+    }
+
+    /**
+     * Private helper method to issue a login cookie for a user.
+     */
+    private static void writeUserCookie(HttpServletRequest request, HttpServletResponse response, User user) {
+        String token = TOKENS.sign("u|" + user.getId() + "|" + user.getAuthProvider(), nowSeconds() + TOKEN_TTL_SECONDS);
+        writeCookie(request, response, USER_COOKIE, token, TOKEN_TTL_SECONDS);
+    }
+
+    /**
+     * Private helper method to read a cookie's value.
+     * @return The value, or null if the request has no such cookie.
+     */
+    private static String readCookie(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (name.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Private helper method to set a cookie. The header is written by hand because
+     * {@link Cookie} cannot carry the SameSite attribute.
+     */
+    private static void writeCookie(HttpServletRequest request, HttpServletResponse response, String name, String value, long maxAgeSeconds) {
+        String path = request.getContextPath().isEmpty() ? "/" : request.getContextPath();
+        StringBuilder header = new StringBuilder()
+                .append(name).append('=').append(value)
+                .append("; Path=").append(path)
+                .append("; Max-Age=").append(maxAgeSeconds)
+                .append("; HttpOnly; SameSite=Lax");
+        if (request.isSecure()) {
+            header.append("; Secure");
+        }
+        response.addHeader("Set-Cookie", header.toString());
+    }
+
+    private static void deleteCookie(HttpServletRequest request, HttpServletResponse response, String name) {
+        writeCookie(request, response, name, "", 0);
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
@@ -11,14 +11,13 @@ import javax.servlet.ServletResponse;
 import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * A servlet filter that intercepts all incoming requests to enforce application security.
- * It checks if a user session exists and is valid. If the user is not authenticated,
+ * It checks, through {@link AuthSession}, whether a user is logged in. If the user is not authenticated,
  * it redirects them to the login page, unless the requested resource is explicitly public.
  */
 @WebFilter("/*")
@@ -55,11 +54,10 @@ public class AuthenticationFilter implements Filter {
 
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
-        HttpSession session = httpRequest.getSession(false);
 
         String requestURI = httpRequest.getRequestURI();
         
-        boolean isLoggedIn = (session != null && session.getAttribute("user") != null);
+        boolean isLoggedIn = AuthSession.authenticate(httpRequest, httpResponse);
 
         // A whitelist of resources that do not require authentication.
         boolean isPublicResource = requestURI.startsWith(httpRequest.getContextPath() + "/login.jsp") ||
@@ -80,7 +78,7 @@ public class AuthenticationFilter implements Filter {
         } else {
             // User is not logged in and is trying to access a protected resource. Redirect to login.
             logger.warn("Unauthorized access attempt to: {}", requestURI);
-            httpRequest.getSession().setAttribute("message", "You must be logged in to access that page.");
+            AuthSession.setLoginMessage(httpRequest, httpResponse, "You must be logged in to access that page.");
             httpResponse.sendRedirect(httpRequest.getContextPath() + "/login.jsp");
         }
     }
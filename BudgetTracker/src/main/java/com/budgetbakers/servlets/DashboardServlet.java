@@ -1,8 +1,9 @@
 package com.budgetbakers.servlets;
 
-import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.DashboardSnapshot;
 import com.budgetbakers.entities.User;
 import com.budgetbakers.services.AccountService;
+import com.budgetbakers.utils.DataUnavailableException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -11,10 +12,7 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 import java.io.IOException;
-import java.util.List;
-import java.util.Map;
 
 /**
  * Servlet controller for preparing and displaying the main user Dashboard.
@@ -29,7 +27,7 @@ public class DashboardServlet extends HttpServlet {
 
     /**
      * Handles HTTP GET requests to display the dashboard. It retrieves Key Performance Indicators (KPIs)
-     * and a summary for each of the user's accounts from the {@link AccountService},
+     * and a summary for each of the user's accounts as one {@link DashboardSnapshot} from the {@link AccountService},
      * sets them as request attributes, and forwards to the `dashboard.jsp` for rendering.
      *
      * @param request  the {@link HttpServletRequest} object that contains the request the client has made of the servlet
@@ -41,8 +39,7 @@ public class DashboardServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
-        HttpSession session = request.getSession(false);
-        User user = (session != null) ? (User) session.getAttribute("user") : null;
+        User user = AuthSession.getUser(request);
 
         if (user == null) {
             logger.warn("Unauthorized access to DashboardServlet. Redirecting to login.");
@@ -54,26 +51,23 @@ public class DashboardServlet extends HttpServlet {
             int userId = user.getId();
             logger.info("Fetching dashboard data for user ID: {}", userId);
 
-            // Fetch the main KPIs and individual account summaries
-            Map<String, Double> kpis = accountService.getDashboardKPIs(userId);
-            List<Account> accountSummaries = accountService.getAccountSummariesForUser(userId);
-
-            // Determine a primary currency to display for the main KPIs
-            String primaryCurrency = "INR"; // Default currency
-            if (accountSummaries != null && !accountSummaries.isEmpty()) {
-                primaryCurrency = accountSummaries.get(0).getCurrency();
-            }
+            // Load the KPIs and the individual account summaries in one pass
+            DashboardSnapshot snapshot = accountService.getDashboardSnapshot(userId);
 
             // Set the data as request attributes for the JSP
-            request.setAttribute("kpis", kpis);
-            request.setAttribute("accountSummaries", accountSummaries);
-            request.setAttribute("primaryCurrency", primaryCurrency);
+            request.setAttribute("kpis", snapshot.getKpis());
+            request.setAttribute("accountSummaries", snapshot.getAccountSummaries());
+            request.setAttribute("primaryCurrency", snapshot.getPrimaryCurrency());
 
             logger.info("Successfully fetched dashboard data for user {}.", userId);
             
             // Forward to the JSP page for display
             request.getRequestDispatcher("/views/dashboard.jsp").forward(request, response);
 
+        } catch (DataUnavailableException e) {
+            logger.warn("Dashboard data for user {} is unavailable: {}", user.getId(), e.getMessage());
+            response.setHeader("Retry-After", String.valueOf(DataUnavailableException.RETRY_AFTER_SECONDS));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Your data could not be loaded right now. Please try again in a few seconds.");
         } catch (Exception e) {
             logger.error("An error occurred while fetching dashboard data for user.", e);
             response.sendRedirect(request.getContextPath() + "/error.jsp");
@@ -0,0 +1,107 @@
+package com.budgetbakers.servlets;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.entities.User;
+import com.budgetbakers.services.RecordService;
+import com.budgetbakers.utils.ExportFormat;
+
+/**
+ * Servlet controller for downloading a user's records as CSV or NDJSON.
+ * The export is written to the response as it is read from the database, so memory use is
+ * constant however long the user's history is.
+ */
+@WebServlet("/ExportServlet")
+public class ExportServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+	private static final Logger logger = LogManager.getLogger(ExportServlet.class);
+	private final RecordService recordService = new RecordService();
+
+	/**
+	 * Handles HTTP GET requests to export the records matching the Records page filters. The
+	 * response is gzip-encoded when the client accepts it, unless 'gzip=false' is given.
+	 * <p>
+	 * If reading the records fails after part of the export has been sent, an exception is
+	 * propagated so that the container aborts the connection and the client sees an incomplete
+	 * download rather than a file that looks complete.
+	 *
+	 * @param request  the {@link HttpServletRequest} object that contains 'format' ('csv' or 'ndjson',
+	 * CSV by default), the optional 'gzip' switch, and the same filter parameters as {@link RecordsServlet}.
+	 * @param response the {@link HttpServletResponse} object that receives the export as an attachment.
+	 * @throws ServletException if a servlet-specific error occurs.
+	 * @throws IOException if an I/O error occurs or the export fails part way.
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+
+		User user = AuthSession.getUser(request);
+
+		if (user == null) {
+			logger.warn("Unauthorized export attempt. Redirecting to login.");
+			response.sendRedirect(request.getContextPath() + "/login.jsp");
+			return;
+		}
+
+		ExportFormat format;
+		Map<String, String> filters;
+		try {
+			format = ExportFormat.of(request.getParameter("format"));
+			filters = RecordsServlet.readFilters(request);
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+		String acceptEncoding = request.getHeader("Accept-Encoding");
+		boolean gzip = !"false".equalsIgnoreCase(request.getParameter("gzip"))
+				&& acceptEncoding != null && acceptEncoding.contains("gzip");
+
+		String fileName = "budgettracker-records-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + "." + format.getExtension();
+		response.setContentType(format.getContentType());
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+		response.setHeader("Vary", "Accept-Encoding");
+		if (gzip) {
+			response.setHeader("Content-Encoding", "gzip");
+		}
+
+		long start = System.currentTimeMillis();
+		int[] rows = { 0 };
+		OutputStream body = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192) : response.getOutputStream();
+		Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), 16 * 1024);
+		format.writeHeader(out);
+		boolean complete = recordService.streamTransactionsForUser(user.getId(), filters, tx -> {
+			format.writeRow(out, tx);
+			rows[0]++;
+		});
+
+		if (complete) {
+			// Also writes the gzip trailer
+			out.close();
+			logger.info("Exported {} records as {} for user {} in {} ms", rows[0], format, user.getId(), System.currentTimeMillis() - start);
+		} else if (!response.isCommitted()) {
+			response.reset();
+			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An error occurred while exporting your records.");
+		} else {
+			throw new IOException("The export for user " + user.getId() + " failed after " + rows[0] + " records.");
+		}
+	}
+}
@@ -1,28 +1,21 @@
 package com.budgetbakers.servlets;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Properties;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.budgetbakers.entities.User;
+import com.budgetbakers.services.GoogleAuthService;
 import com.budgetbakers.services.UserService;
 import com.google.api.client.auth.oauth2.TokenResponseException;
-import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeTokenRequest;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
-import com.google.api.client.googleapis.auth.oauth2.GoogleIdTokenVerifier;
-import com.google.api.client.googleapis.auth.oauth2.GoogleTokenResponse;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.jackson2.JacksonFactory;
 
 /**
  * Servlet controller that handles the callback from the Google Sign-In OAuth 2.0 flow.
@@ -34,32 +27,20 @@ public class GoogleCallbackServlet extends HttpServlet {
 
 	private static final long serialVersionUID = 1L;
 	private static final Logger logger = LogManager.getLogger(GoogleCallbackServlet.class);
-	private String GOOGLE_CLIENT_ID;
-    private String GOOGLE_CLIENT_SECRET;
-    private String GOOGLE_REDIRECT_URI;
+	private GoogleAuthService googleAuth;
 
     /**
-     * Initializes the servlet by loading Google API credentials from the
-     * `google-config.properties` file. This method is called once when the servlet is first created.
+     * Initializes the servlet with the application's {@link GoogleAuthService}, which loads the
+     * Google API credentials from the `google-config.properties` file once and keeps its HTTP
+     * transport and signing keys for every sign-in. This method is called once when the servlet is first created.
      *
      * @throws ServletException if the configuration file cannot be found or loaded.
      */
     @Override
     public void init() throws ServletException {
-
-        try (InputStream input = getServletContext().getResourceAsStream("/WEB-INF/classes/google-config.properties")) {
-            Properties props = new Properties();
-            if (input == null) {
-            	logger.error("Cannot find google-config.properties");
-                throw new ServletException("Cannot find google-config.properties");
-            }
-            props.load(input);
-            GOOGLE_CLIENT_ID = props.getProperty("google.client.id");
-            GOOGLE_CLIENT_SECRET = props.getProperty("google.client.secret");
-            GOOGLE_REDIRECT_URI = props.getProperty("google.redirect.uri");
-        } catch (IOException e) {
-        	logger.error("Failed to load Google configuration from properties file", e);
-            throw new ServletException("Error loading Google configuration", e);
+        googleAuth = GoogleAuthService.getInstance();
+        if (googleAuth == null) {
+            throw new ServletException("Error loading Google configuration");
         }
     }
 
@@ -72,8 +53,7 @@ public class GoogleCallbackServlet extends HttpServlet {
      * @throws ServletException if a servlet-specific error occurs.
      * @throws IOException if an I/O error occurs.
      */
-    @SuppressWarnings("deprecation")
-	@Override
+    @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         String code = request.getParameter("code");
         String error = request.getParameter("error");
@@ -91,26 +71,10 @@ public class GoogleCallbackServlet extends HttpServlet {
         }
 
         try {
-            GoogleTokenResponse tokenResponse = new GoogleAuthorizationCodeTokenRequest(
-                    new NetHttpTransport(),
-                    JacksonFactory.getDefaultInstance(),
-                    "https://www.googleapis.com/oauth2/v4/token",
-                    GOOGLE_CLIENT_ID,
-                    GOOGLE_CLIENT_SECRET,
-                    code,
-                    GOOGLE_REDIRECT_URI)
-                    .execute();
-
-            String idTokenString = tokenResponse.getIdToken();
-
-            GoogleIdTokenVerifier verifier = new GoogleIdTokenVerifier.Builder(new NetHttpTransport(), JacksonFactory.getDefaultInstance())
-                .setAudience(java.util.Collections.singletonList(GOOGLE_CLIENT_ID))
-                .build();
-
-            GoogleIdToken idToken = verifier.verify(idTokenString);
-
-            if (idToken != null) {
-                GoogleIdToken.Payload payload = idToken.getPayload();
+            String idTokenString = googleAuth.exchangeCode(code);
+            GoogleIdToken.Payload payload = googleAuth.verify(idTokenString);
+
+            if (payload != null) {
                 String email = payload.getEmail();
 
                 UserService userService = new UserService();
@@ -118,16 +82,14 @@ public class GoogleCallbackServlet extends HttpServlet {
 
                 if (user != null) {
                 	if ("LOCAL".equals(user.getAuthProvider())) {
-                		HttpSession session = request.getSession();
-                        session.setAttribute("email", user.getEmail());
+                        AuthSession.setPendingEmail(request, response, user.getEmail());
                         if (user.isTemp()) {
                             response.sendRedirect("views/tempPassword.jsp");
                         } else {
                             response.sendRedirect("views/password.jsp");
                         }
                     } else {
-                        HttpSession session = request.getSession();
-                        session.setAttribute("user", user);
+                        AuthSession.logIn(request, response, user);
                         response.sendRedirect("DashboardServlet");
                     }
                 } else {
@@ -0,0 +1,154 @@
+package com.budgetbakers.servlets;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.MultipartConfig;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.entities.ImportResult;
+import com.budgetbakers.entities.User;
+import com.budgetbakers.services.ImportService;
+import com.budgetbakers.utils.CsvStatementReader;
+import com.budgetbakers.utils.OfxStatementReader;
+import com.budgetbakers.utils.StatementReader;
+import com.google.gson.Gson;
+
+/**
+ * Servlet controller for importing bank statements (CSV or OFX) into the user's records.
+ * A POST uploads a statement and answers with newline delimited JSON: a line of progress about
+ * once a second while it is imported, then a line with the outcome. Progress is reported on the
+ * request doing the import, so it needs no session and works behind any balancer.
+ * Uploads larger than the in-memory threshold are spooled to disk by the container, and the
+ * statement is parsed as it is read, so memory use does not grow with the size of the file.
+ */
+@WebServlet("/ImportServlet")
+@MultipartConfig(fileSizeThreshold = 1024 * 1024, maxFileSize = 50L * 1024 * 1024, maxRequestSize = 51L * 1024 * 1024)
+public class ImportServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+	private static final Logger logger = LogManager.getLogger(ImportServlet.class);
+	/** How often a progress line is written while a statement is imported, in milliseconds. */
+	private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+	private final ImportService importService = new ImportService();
+	private final Gson gson = new Gson();
+
+	/**
+	 * Handles HTTP POST requests that upload a statement. The request is multipart, with the
+	 * statement in the 'file' part, the ID of the account for rows that do not name one in
+	 * 'account', and optionally 'format' ('csv' or 'ofx'; otherwise taken from the file extension).
+	 *
+	 * @param request  the {@link HttpServletRequest} object that contains the upload.
+	 * @param response the {@link HttpServletResponse} object that receives the {@link ImportResult} as newline
+	 * delimited JSON, unfinished while the import runs and finished on the last line.
+	 * @throws ServletException if a servlet-specific error occurs.
+	 * @throws IOException if an I/O error occurs during the response writing.
+	 */
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		User user = AuthSession.getUser(request);
+
+		if (user == null) {
+			logger.warn("Unauthorized attempt to import a statement.");
+			response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "You must be logged in to import records.");
+			return;
+		}
+
+		Part file;
+		int defaultAccountId;
+		try {
+			file = request.getPart("file");
+			String accountParam = request.getParameter("account");
+			defaultAccountId = accountParam == null || accountParam.isEmpty() ? 0 : Integer.parseInt(accountParam);
+		} catch (IllegalStateException e) {
+			// Thrown by the container when the upload exceeds the multipart limits
+			response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, "The file is too large to import.");
+			return;
+		} catch (NumberFormatException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid account.");
+			return;
+		}
+		if (file == null || file.getSize() == 0) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Please choose a statement file to import.");
+			return;
+		}
+
+		String fileName = file.getSubmittedFileName() != null ? file.getSubmittedFileName() : "statement";
+		String format = request.getParameter("format");
+		if (format == null || format.isEmpty()) {
+			String lowerName = fileName.toLowerCase(Locale.ROOT);
+			format = lowerName.endsWith(".ofx") || lowerName.endsWith(".qfx") ? "ofx" : "csv";
+		}
+
+		ImportResult result = new ImportResult(fileName);
+		logger.info("User {} is importing {} ({} bytes) as {}", user.getId(), fileName, file.getSize(), format);
+
+		response.setContentType("application/x-ndjson");
+		response.setCharacterEncoding("UTF-8");
+		PrintWriter out = response.getWriter();
+		try (BufferedReader text = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8), 64 * 1024);
+				StatementReader reader = "ofx".equalsIgnoreCase(format) ? new OfxStatementReader(text) : new CsvStatementReader(text)) {
+			importService.importStatement(user.getId(), new ProgressReader(reader, result, out), defaultAccountId, result);
+		} catch (IOException e) {
+			// The CSV header could not be read
+			result.finish(e.getMessage());
+		} finally {
+			file.delete();
+		}
+		writeLine(out, result);
+	}
+
+	/**
+	 * Private helper method to write an import result as one line of the response and send it.
+	 */
+	private void writeLine(PrintWriter out, ImportResult result) {
+		out.write(gson.toJson(result));
+		out.write('\n');
+		out.flush();
+	}
+
+	/**
+	 * Reads a statement for the import, writing a progress line to the response whenever
+	 * {@link #PROGRESS_INTERVAL_MILLIS} have passed since the last one. Rows are read on the
+	 * request thread, so the response is only ever written by that thread.
+	 */
+	private final class ProgressReader implements StatementReader {
+		private final StatementReader reader;
+		private final ImportResult result;
+		private final PrintWriter out;
+		private long nextProgressMillis = System.currentTimeMillis() + PROGRESS_INTERVAL_MILLIS;
+
+		ProgressReader(StatementReader reader, ImportResult result, PrintWriter out) {
+			this.reader = reader;
+			this.result = result;
+			this.out = out;
+		}
+
+		@Override
+		public Row next() throws IOException {
+			long now = System.currentTimeMillis();
+			if (now >= nextProgressMillis) {
+				writeLine(out, result);
+				nextProgressMillis = now + PROGRESS_INTERVAL_MILLIS;
+			}
+			return reader.next();
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
@@ -7,7 +7,6 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -49,16 +48,14 @@ public class LoginServlet extends HttpServlet {
      */
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 		String email = request.getParameter("email");
-        HttpSession session = request.getSession();
-        session.setAttribute("email", email);
+        AuthSession.setPendingEmail(request, response, email);
 
         User user = userService.findUserByEmail(email);
 
         if (user == null) {
             // New user flow
         	logger.info("New user detected with email: {}. Creating user.", email);
-            String tempPassword = userService.createNewUser(email);
-            session.setAttribute("tempPassword", tempPassword); 
+            userService.createNewUser(email);
             request.getRequestDispatcher("views/tempPassword.jsp").forward(request, response);
         } else if ("GOOGLE".equals(user.getAuthProvider())) {
             // User exists but signed up with Google
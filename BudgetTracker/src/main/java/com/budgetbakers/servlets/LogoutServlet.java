@@ -7,14 +7,13 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * Servlet controller for handling user logout.
- * This servlet invalidates the current user session and redirects the user
+ * This servlet ends the current user session and redirects the user
  * back to the main login page.
  */
 @WebServlet("/LogoutServlet")
@@ -31,7 +30,8 @@ public class LogoutServlet extends HttpServlet {
 
     /**
      * Handles HTTP GET requests to log the user out. It invalidates the current
-     * HTTP session (if one exists) and then redirects the user to the login page.
+     * HTTP session (if one exists), deletes the login cookie in stateless mode,
+     * and then redirects the user to the login page.
      *
      * @param request  the {@link HttpServletRequest} object that contains the request the client has made of the servlet.
      * @param response the {@link HttpServletResponse} object that contains the response the servlet sends to the client.
@@ -39,12 +39,8 @@ public class LogoutServlet extends HttpServlet {
      * @throws IOException if an I/O error occurs.
      */
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		HttpSession session = request.getSession(false); 
-        
-        if (session != null) {
-            session.invalidate();
-            logger.info("User logged out, session invalidated.");
-        }
+		AuthSession.logOut(request, response);
+        logger.info("User logged out.");
         // Redirect to the login page after invalidating the session.
         response.sendRedirect("login.jsp");
 	}
@@ -7,13 +7,13 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.budgetbakers.entities.User;
 import com.budgetbakers.services.UserService;
+import com.budgetbakers.utils.PasswordHashingBusyException;
 
 /**
  * Servlet controller for verifying a user's permanent password.
@@ -37,7 +37,8 @@ public class PasswordServlet extends HttpServlet {
      * Handles HTTP GET requests to verify a user's permanent password. It retrieves the
      * email from the session and the password from the request. If the credentials are valid,
      * it establishes a full user session and forwards to the dashboard. Otherwise, it returns
-     * the user to the appropriate page with an error message.
+     * the user to the appropriate page with an error message. If the password cannot be checked
+     * because too many logins are being verified, it answers 503 with a Retry-After header.
      *
      * @param request  the {@link HttpServletRequest} object that contains the user's password as a parameter.
      * @param response the {@link HttpServletResponse} object that contains the response the servlet sends to the client.
@@ -45,23 +46,32 @@ public class PasswordServlet extends HttpServlet {
      * @throws IOException if an I/O error occurs.
      */
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		HttpSession session = request.getSession();
-        String email = (String) session.getAttribute("email");
+        String email = AuthSession.getPendingEmail(request);
         String password = request.getParameter("password");
         
         // Guard clause for users accessing the servlet directly without an email in session.
         if (email == null || email.isEmpty()) {
         	logger.warn("PasswordServlet accessed without an email in session.");
-            session.setAttribute("message", "Your session may have expired. Please enter your email again.");
+            AuthSession.setLoginMessage(request, response, "Your session may have expired. Please enter your email again.");
             response.sendRedirect(request.getContextPath() + "/login.jsp");
             return;
         }
 
-        if (userService.verifyPassword(email, password)) {
+        User user = userService.findUserByEmail(email);
+        boolean verified;
+        try {
+            verified = userService.verifyPassword(user, password);
+        } catch (PasswordHashingBusyException e) {
+            logger.warn("Password check for user {} refused: {}", email, e.getMessage());
+            response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many sign-ins right now. Please try again in a few seconds.");
+            return;
+        }
+
+        if (verified) {
         	// Password is correct, create full user session and forward to dashboard.
         	logger.info("Permanent password verified successfully for user: {}", email);
-            User user = userService.findUserByEmail(email);
-            session.setAttribute("user", user); 
+            AuthSession.logIn(request, response, user);
             request.getRequestDispatcher("DashboardServlet").forward(request, response);
         } else {
         	// Password was incorrect, return to password page with an error.
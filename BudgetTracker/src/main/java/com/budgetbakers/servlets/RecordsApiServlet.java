@@ -0,0 +1,83 @@
+package com.budgetbakers.servlets;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.entities.TransactionPage;
+import com.budgetbakers.entities.User;
+import com.budgetbakers.services.RecordService;
+import com.budgetbakers.utils.PageCursor;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Servlet controller that acts as a data API for the Records page.
+ * It returns one page of the user's transactions as JSON, addressed by the keyset cursor
+ * of the previous page, so the page can load more records as the user scrolls.
+ */
+@WebServlet("/RecordsApiServlet")
+public class RecordsApiServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+	private static final Logger logger = LogManager.getLogger(RecordsApiServlet.class);
+	private final RecordService recordService = new RecordService();
+	/** Dates are written as local ISO date-times, which browsers parse reliably. */
+	private final Gson gson = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss").create();
+
+	/**
+	 * Handles HTTP GET requests for a page of records. The response is a JSON object with the
+	 * page's 'transactions' and the 'nextCursor' to request the following page with, which is
+	 * absent on the last page.
+	 *
+	 * @param request  the {@link HttpServletRequest} object that contains the 'cursor' returned with the
+	 * previous page, an optional 'pageSize', and the same filter parameters as {@link RecordsServlet}.
+	 * @param response the {@link HttpServletResponse} object that will be used to send the
+	 * JSON data or an error status back to the client.
+	 * @throws ServletException if a servlet-specific error occurs.
+	 * @throws IOException if an I/O error occurs during the response writing.
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+
+		User user = AuthSession.getUser(request);
+
+		if (user == null) {
+			logger.warn("Unauthorized API access attempt to RecordsApiServlet.");
+			response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "You must be logged in to access this data.");
+			return;
+		}
+
+		try {
+			int userId = user.getId();
+			PageCursor cursor = PageCursor.parse(request.getParameter("cursor"));
+			String pageSizeParam = request.getParameter("pageSize");
+			int pageSize = pageSizeParam == null || pageSizeParam.isEmpty()
+					? RecordService.DEFAULT_PAGE_SIZE : Integer.parseInt(pageSizeParam);
+			Map<String, String> filters = RecordsServlet.readFilters(request);
+
+			TransactionPage page = recordService.getTransactionPage(userId, filters, cursor, pageSize);
+
+			response.setContentType("application/json");
+			response.setCharacterEncoding("UTF-8");
+			response.getWriter().write(gson.toJson(page));
+
+		} catch (IllegalArgumentException e) {
+			// Also covers NumberFormatException from a malformed page size; readFilters rejects bad dates the same way
+			logger.warn("Invalid records page request from user {}: {}", user.getId(), e.getMessage());
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+		} catch (Exception e) {
+			logger.error("Error fetching a page of records for user {}", user.getId(), e);
+			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+					"An error occurred while loading more records.");
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package com.budgetbakers.servlets;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,21 +12,21 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.budgetbakers.entities.Account;
 import com.budgetbakers.entities.Category;
-import com.budgetbakers.entities.Transaction;
+import com.budgetbakers.entities.TransactionPage;
 import com.budgetbakers.entities.User;
 import com.budgetbakers.services.RecordService;
 
 /**
  * Servlet controller for handling requests related to the main Records page.
- * This servlet is responsible for fetching and displaying a list of the user's
- * transactions, and for handling filter submissions to refine that list.
+ * This servlet is responsible for fetching and displaying the first page of the user's
+ * transactions, and for handling filter submissions to refine that list. Further pages
+ * are served as JSON by {@link RecordsApiServlet}.
  */
 @WebServlet("/RecordsServlet")
 public class RecordsServlet extends HttpServlet {
@@ -33,7 +35,7 @@ public class RecordsServlet extends HttpServlet {
     private final RecordService recordService = new RecordService();
 
     /**
-     * Handles HTTP GET requests to display the records page. It retrieves the list of
+     * Handles HTTP GET requests to display the records page. It retrieves the first page of
      * transactions for the logged-in user, applying any filters specified in the request
      * parameters. It also fetches the user's accounts and categories to populate the
      * filter dropdowns, then forwards all data to the `records.jsp` for rendering.
@@ -48,8 +50,7 @@ public class RecordsServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
-        HttpSession session = request.getSession(false);
-        User user = (session != null) ? (User) session.getAttribute("user") : null;
+        User user = AuthSession.getUser(request);
 
         if (user == null) {
             logger.warn("Unauthorized access to RecordsServlet. Redirecting to login.");
@@ -61,33 +62,55 @@ public class RecordsServlet extends HttpServlet {
             int userId = user.getId();
 
             // Collect filter parameters from the request
-            Map<String, String> filters = new HashMap<>();
-            filters.put("date", request.getParameter("filterDate"));
-            filters.put("type", request.getParameter("filterType"));
-            filters.put("category", request.getParameter("filterCategory"));
-            filters.put("account", request.getParameter("filterAccount"));
+            Map<String, String> filters = readFilters(request);
             
             logger.debug("Fetching records for user {} with filters: {}", userId, filters);
 
-            // Fetch all necessary data from the service layer
-            List<Transaction> transactions = recordService.getTransactionsForUser(userId, filters);
+            // Fetch the first page of records; later pages are loaded from RecordsApiServlet while scrolling
+            TransactionPage page = recordService.getTransactionPage(userId, filters, null, RecordService.DEFAULT_PAGE_SIZE);
             List<Account> accounts = recordService.getAccountsForUser(userId);
             List<Category> categories = recordService.getCategoriesForUser(userId);
 
             // Set the data as request attributes to be used by the JSP
-            request.setAttribute("transactions", transactions);
+            request.setAttribute("transactions", page.getTransactions());
+            request.setAttribute("nextCursor", page.getNextCursor());
             request.setAttribute("accounts", accounts);
             request.setAttribute("categories", categories);
 
-            logger.info("Successfully fetched {} transactions for user {}", transactions.size(), userId);
+            logger.info("Successfully fetched the first {} transactions for user {}", page.getTransactions().size(), userId);
 
             // Forward to the JSP to display the data
             request.getRequestDispatcher("/views/records.jsp").forward(request, response);
 
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid records filter from user {}: {}", user.getId(), e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             logger.error("An error occurred while fetching records for user.", e);
             response.sendRedirect(request.getContextPath() + "/error.jsp");
         }
     }
-}
 
+    /**
+     * Reads the filter parameters of the Records page from a request.
+     * @param request The request carrying 'filterDate', 'filterType', 'filterCategory' and 'filterAccount'.
+     * @return The filters keyed as expected by {@link RecordService#getTransactionPage}.
+     * @throws IllegalArgumentException if 'filterDate' is not an ISO date, e.g. 2024-05-31.
+     */
+    static Map<String, String> readFilters(HttpServletRequest request) {
+        String date = request.getParameter("filterDate");
+        if (date != null && !date.isEmpty()) {
+            try {
+                LocalDate.parse(date);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid filter date: " + date, e);
+            }
+        }
+        Map<String, String> filters = new HashMap<>();
+        filters.put("date", date);
+        filters.put("type", request.getParameter("filterType"));
+        filters.put("category", request.getParameter("filterCategory"));
+        filters.put("account", request.getParameter("filterAccount"));
+        return filters;
+    }
+}
@@ -7,12 +7,12 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.budgetbakers.services.UserService;
+import com.budgetbakers.utils.PasswordHashingBusyException;
 
 /**
  * Servlet controller for setting a user's new permanent password.
@@ -44,15 +44,14 @@ public class SetPasswordServlet extends HttpServlet {
      * @throws IOException if an I/O error occurs.
      */
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		HttpSession session = request.getSession();
-        String email = (String) session.getAttribute("email");
+        String email = AuthSession.getPendingEmail(request);
         String newPassword = request.getParameter("newPassword");
         String confirmPassword = request.getParameter("confirmPassword");
 
         // Guard clause for users accessing the servlet directly without an email in session.
         if (email == null || email.isEmpty()) {
         	logger.warn("SetPasswordServlet accessed without an email in session.");
-            session.setAttribute("message", "Your session may have expired. Please enter your email again.");
+            AuthSession.setLoginMessage(request, response, "Your session may have expired. Please enter your email again.");
             response.sendRedirect(request.getContextPath() + "/login.jsp");
             return;
         }
@@ -60,8 +59,15 @@ public class SetPasswordServlet extends HttpServlet {
         if (newPassword != null && newPassword.equals(confirmPassword)) {
         	// Passwords match, set the new permanent password.
         	logger.info("Setting permanent password for user: {}", email);
-            userService.setPermanentPassword(email, newPassword);
-            session.invalidate(); // Invalidate session to force a fresh login.
+            try {
+                userService.setPermanentPassword(email, newPassword);
+            } catch (PasswordHashingBusyException e) {
+                logger.warn("Setting the password of user {} refused: {}", email, e.getMessage());
+                response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many sign-ins right now. Please try again in a few seconds.");
+                return;
+            }
+            AuthSession.logOut(request, response); // End the login in progress to force a fresh login.
             request.setAttribute("message", "Password successfully set! Please log in with your new password.");
             request.getRequestDispatcher("login.jsp").forward(request, response);
         } else {
@@ -0,0 +1,207 @@
+package com.budgetbakers.servlets;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.utils.StaticAssets;
+
+/**
+ * A servlet filter that serves the fingerprinted stylesheets and scripts prepared by
+ * {@link StaticAssets}, ahead of the {@link AuthenticationFilter}: the assets are public, so
+ * they skip the login check entirely.
+ * <p>
+ * On startup, it publishes the fingerprinted URLs as the {@code assets} application attribute,
+ * which the JSPs link through, e.g. {@code ${assets['css/header.css']}}. Since a fingerprinted
+ * URL always has the same content, responses are cacheable for a year and marked immutable, and
+ * carry a strong {@code ETag} for revalidation. Clients accepting gzip get the precompressed
+ * variant; large variants are handed to Tomcat's sendfile, so they are copied from the file to
+ * the socket by the kernel. Any other request, including unfingerprinted asset URLs, passes
+ * through unchanged. Fingerprinting is disabled with {@code -Dbudgettracker.assets.fingerprint=false},
+ * e.g. while editing the assets in place.
+ * <p>
+ * The filter is declared in web.xml, before the {@link AuthenticationFilter}, so that it runs first.
+ */
+public class StaticAssetFilter implements Filter {
+
+    private static final Logger logger = LogManager.getLogger(StaticAssetFilter.class);
+
+    /** The application attribute holding the fingerprinted URL of each asset, by logical path. */
+    public static final String URLS_ATTRIBUTE = "assets";
+
+    /** Whether assets are fingerprinted; if not, the JSPs link to the plain files. */
+    private static final boolean FINGERPRINT = Boolean.parseBoolean(System.getProperty("budgettracker.assets.fingerprint", "true"));
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /** The prepared assets, or null if fingerprinting is disabled or failed. */
+    private StaticAssets assets;
+
+    /**
+     * Fingerprints and compresses the assets, and publishes their URLs for the JSPs. If that
+     * fails, or fingerprinting is disabled, the JSPs link to the plain files instead.
+     *
+     * @param filterConfig A filter configuration object used by the web container to pass information to a filter during initialization.
+     * @throws ServletException if an exception occurs that interferes with the filter's normal operation.
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        ServletContext context = filterConfig.getServletContext();
+        Map<String, byte[]> sources;
+        try {
+            sources = StaticAssets.readSources(context);
+        } catch (IOException e) {
+            throw new ServletException("Failed to read the static assets", e);
+        }
+
+        if (FINGERPRINT) {
+            File tempDir = (File) context.getAttribute(ServletContext.TEMPDIR);
+            try {
+                assets = new StaticAssets(sources, context::getMimeType, tempDir.toPath().resolve("assets"));
+                context.setAttribute(URLS_ATTRIBUTE, assets.getUrls());
+                logger.info("Fingerprinted {} static assets.", sources.size());
+                return;
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to fingerprint the static assets; serving them unversioned.", e);
+                assets = null;
+            }
+        }
+        Map<String, String> plainUrls = new HashMap<>();
+        for (String path : sources.keySet()) {
+            plainUrls.put(path, path);
+        }
+        context.setAttribute(URLS_ATTRIBUTE, plainUrls);
+    }
+
+    /**
+     * Serves a GET or HEAD request for a fingerprinted asset, answering 304 if the client's
+     * copy is current; passes any other request down the chain.
+     *
+     * @param request  The {@link ServletRequest} object containing the client's request.
+     * @param response The {@link ServletResponse} object containing the filter's response.
+     * @param chain    The {@link FilterChain} for invoking the next filter or the resource at the end of the chain.
+     * @throws IOException if an I/O error occurs during processing.
+     * @throws ServletException if a servlet error occurs during processing.
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String method = httpRequest.getMethod();
+        StaticAssets.Asset asset = assets == null || !("GET".equals(method) || "HEAD".equals(method))
+                ? null
+                : assets.find(httpRequest.getRequestURI().substring(httpRequest.getContextPath().length()));
+        if (asset == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        boolean gzip = asset.getGzip() != null && acceptsGzip(httpRequest.getHeader("Accept-Encoding"));
+        StaticAssets.Variant variant = gzip ? asset.getGzip() : asset.getIdentity();
+        httpResponse.setHeader("Cache-Control", CACHE_CONTROL);
+        httpResponse.setHeader("ETag", variant.getETag());
+        httpResponse.setHeader("Vary", "Accept-Encoding");
+        if (matches(httpRequest.getHeader("If-None-Match"), variant.getETag())) {
+            httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        httpResponse.setContentType(asset.getContentType());
+        if (gzip) {
+            httpResponse.setHeader("Content-Encoding", "gzip");
+        }
+        httpResponse.setContentLengthLong(variant.getLength());
+        if ("HEAD".equals(method)) {
+            return;
+        }
+
+        if (variant.getContent() != null) {
+            httpResponse.getOutputStream().write(variant.getContent());
+        } else if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, variant.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, Long.valueOf(0));
+            request.setAttribute(SENDFILE_END, Long.valueOf(variant.getLength()));
+        } else {
+            Files.copy(variant.getFile(), httpResponse.getOutputStream());
+        }
+    }
+
+    /**
+     * Called by the web container to indicate to a filter that it is being taken out of service.
+     */
+    @Override
+    public void destroy() {
+        assets = null;
+    }
+
+    /**
+     * Private helper method to check whether an Accept-Encoding header allows gzip.
+     * @param acceptEncoding The header, or null.
+     * @return true if gzip is listed without {@code q=0}.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            return Double.parseDouble(param.substring(2).trim()) > 0;
+                        } catch (NumberFormatException e) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Private helper method to check an If-None-Match header against an entity tag.
+     * @param ifNoneMatch The header, or null.
+     * @param etag The current entity tag, quoted.
+     * @return true if the client's copy is current.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
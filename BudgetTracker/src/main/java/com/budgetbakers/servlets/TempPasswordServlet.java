@@ -7,7 +7,6 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.servlet.http.HttpSession;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -43,14 +42,13 @@ public class TempPasswordServlet extends HttpServlet {
      * @throws IOException if an I/O error occurs.
      */
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-		HttpSession session = request.getSession();
-        String email = (String) session.getAttribute("email");
+        String email = AuthSession.getPendingEmail(request);
         String tempPassword = request.getParameter("tempPassword");
 
         // Guard clause for users accessing the servlet directly without an email in session.
         if (email == null || email.isEmpty()) {
         	logger.warn("TempPasswordServlet accessed without an email in session.");
-            session.setAttribute("message", "Your session may have expired. Please enter your email again.");
+            AuthSession.setLoginMessage(request, response, "Your session may have expired. Please enter your email again.");
             response.sendRedirect(request.getContextPath() + "/login.jsp");
             return;
         }
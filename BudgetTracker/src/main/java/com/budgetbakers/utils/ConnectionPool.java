@@ -0,0 +1,514 @@
+package com.budgetbakers.utils;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bounded JDBC connection pool exposed as a {@link DataSource}.
+ * Connections handed out by this pool are proxies; calling {@code close()} on them
+ * returns the underlying physical connection to the pool instead of closing it, so the
+ * existing try-with-resources usage in the service layer works unchanged.
+ * <p>
+ * The pool supports minimum/maximum sizing, a lease timeout for callers waiting on a
+ * connection, validation on borrow, idle eviction and leak detection. Leak detection is off
+ * by default, since it captures the stack trace of the borrowing code on every lease; when
+ * {@code db.pool.leakDetectionThresholdMs} is set above 0, that trace is logged if the
+ * connection is held longer than the threshold.
+ * <p>
+ * Each physical connection also keeps a {@link StatementCache}, so statements prepared with
+ * the same SQL text are reused across borrowers instead of being re-parsed on every request.
+ */
+public class ConnectionPool implements DataSource {
+
+    private static final Logger logger = LogManager.getLogger(ConnectionPool.class);
+
+    private final String url;
+    private final Properties connectionProps;
+    private final int minIdle;
+    private final int maxSize;
+    private final long leaseTimeoutMs;
+    private final int validationTimeoutSec;
+    private final long validationBypassMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final long leakDetectionThresholdMs;
+    private final int statementCacheSize;
+    private final StatementCache.Stats statementCacheStats = new StatementCache.Stats();
+
+    /** Idle connections, most recently returned first so that surplus ones age out at the tail. */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    /** Connections currently leased to callers. */
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+    /** One permit per connection the pool is allowed to hand out. */
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a pool from the given configuration. The {@code db.url}, {@code db.username}
+     * and {@code db.password} keys are required; all {@code db.pool.*} keys are optional.
+     * Any {@code db.connection.*} keys are passed to the JDBC driver as connection properties.
+     *
+     * @param props The database configuration, usually loaded from 'db.properties'.
+     */
+    public ConnectionPool(Properties props) {
+        this.url = props.getProperty("db.url");
+        this.maxSize = intProperty(props, "db.pool.maxSize", 10);
+        this.minIdle = Math.min(intProperty(props, "db.pool.minIdle", 2), maxSize);
+        this.leaseTimeoutMs = longProperty(props, "db.pool.leaseTimeoutMs", 2_000L);
+        this.validationTimeoutSec = intProperty(props, "db.pool.validationTimeoutSec", 2);
+        this.validationBypassMs = longProperty(props, "db.pool.validationBypassMs", 500L);
+        this.idleTimeoutMs = longProperty(props, "db.pool.idleTimeoutMs", 600_000L);
+        this.maxLifetimeMs = longProperty(props, "db.pool.maxLifetimeMs", 1_800_000L);
+        this.leakDetectionThresholdMs = longProperty(props, "db.pool.leakDetectionThresholdMs", 0L);
+        this.statementCacheSize = intProperty(props, "db.pool.statementCacheSize", 64);
+        this.permits = new Semaphore(maxSize, true);
+
+        this.connectionProps = new Properties();
+        for (String key : props.stringPropertyNames()) {
+            if (key.startsWith("db.connection.")) {
+                connectionProps.setProperty(key.substring("db.connection.".length()), props.getProperty(key));
+            }
+        }
+        if (statementCacheSize > 0 && !connectionProps.containsKey("useServerPrepStmts")
+                && (url == null || !url.contains("useServerPrepStmts"))) {
+            // Cached statements only save the server-side parse when they are real server prepared statements.
+            connectionProps.setProperty("useServerPrepStmts", "true");
+        }
+        if (!connectionProps.containsKey("rewriteBatchedStatements")
+                && (url == null || !url.contains("rewriteBatchedStatements"))) {
+            // Lets the driver send a batch of inserts as multi-row INSERTs instead of one round trip per row.
+            connectionProps.setProperty("rewriteBatchedStatements", "true");
+        }
+        connectionProps.setProperty("user", props.getProperty("db.username"));
+        connectionProps.setProperty("password", props.getProperty("db.password"));
+
+        long housekeepingIntervalMs = longProperty(props, "db.pool.housekeepingIntervalMs", 30_000L);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "budgettracker-db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingIntervalMs, housekeepingIntervalMs, TimeUnit.MILLISECONDS);
+
+        logger.info("Connection pool created (minIdle={}, maxSize={}, leaseTimeoutMs={}, statementCacheSize={}).",
+                minIdle, maxSize, leaseTimeoutMs, statementCacheSize);
+        fillToMinimum();
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the configured lease timeout if the
+     * pool is exhausted. Idle connections are validated before being handed out and replaced
+     * transparently if they turn out to be broken or past their maximum lifetime.
+     *
+     * @return A pooled {@link Connection}; closing it returns it to the pool.
+     * @throws SQLTimeoutException if no connection became available within the lease timeout.
+     * @throws SQLException if the pool is shut down or a new physical connection cannot be opened.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down.");
+        }
+        try {
+            if (!permits.tryAcquire(leaseTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + leaseTimeoutMs + " ms waiting for a database connection (leased="
+                        + leased.size() + ", max=" + maxSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while (true) {
+                pooled = idle.pollFirst();
+                if (pooled == null) {
+                    pooled = openConnection();
+                    break;
+                }
+                if (!pooled.isExpired() && isUsable(pooled)) {
+                    break;
+                }
+                pooled.closePhysical();
+            }
+            pooled.lease(leakDetectionThresholdMs > 0 ? new Throwable("Connection leased by thread " + Thread.currentThread().getName()) : null);
+            leased.add(pooled);
+            return pooled.getProxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Not supported; the pool always connects with the configured credentials.
+     */
+    @Override
+    public Connection getConnection(String user, String pass) throws SQLException {
+        throw new SQLFeatureNotSupportedException("ConnectionPool does not support per-call credentials.");
+    }
+
+    /**
+     * Shuts the pool down. Idle connections are closed immediately; connections still leased
+     * are closed as soon as their borrowers return them.
+     */
+    public void shutdown() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+        if (!leased.isEmpty()) {
+            logger.warn("Connection pool shut down with {} connection(s) still leased.", leased.size());
+        }
+        logger.info("Connection pool shut down.");
+    }
+
+    /**
+     * @return The number of physical connections currently open (idle and leased).
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return The number of connections currently leased to callers.
+     */
+    public int getActiveConnections() {
+        return leased.size();
+    }
+
+    /**
+     * @return The number of idle connections waiting in the pool.
+     */
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * @return The number of statement preparations served from a connection's statement cache.
+     */
+    public long getStatementCacheHits() {
+        return statementCacheStats.getHits();
+    }
+
+    /**
+     * @return The number of statement preparations that had to be sent to the driver.
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheStats.getMisses();
+    }
+
+    /**
+     * @return The number of cached statements closed to keep the caches within their size limit.
+     */
+    public long getStatementCacheEvictions() {
+        return statementCacheStats.getEvictions();
+    }
+
+    /**
+     * Called by a pooled connection proxy when its borrower closes it.
+     */
+    private void release(PooledConnection pooled) {
+        leased.remove(pooled);
+        try {
+            if (closed || pooled.isBroken() || pooled.isExpired() || !pooled.resetState()) {
+                pooled.closePhysical();
+            } else {
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Opens a new physical connection and accounts for it in the pool totals.
+     */
+    private PooledConnection openConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, connectionProps);
+        totalConnections.incrementAndGet();
+        logger.debug("Opened new pooled connection (total={}).", totalConnections.get());
+        return new PooledConnection(physical);
+    }
+
+    /**
+     * Validates an idle connection before it is handed out. Connections returned very recently
+     * skip the round trip to the server.
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastReturnedAt < validationBypassMs) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeoutSec);
+        } catch (SQLException e) {
+            logger.debug("Validation of pooled connection failed.", e);
+            return false;
+        }
+    }
+
+    /**
+     * Periodic maintenance: evicts idle connections beyond the minimum, retires connections
+     * past their maximum lifetime, tops the pool back up, and reports suspected leaks.
+     */
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                boolean surplus = idle.size() > minIdle && now - pooled.lastReturnedAt > idleTimeoutMs;
+                if ((surplus || pooled.isExpired()) && idle.remove(pooled)) {
+                    pooled.closePhysical();
+                }
+            }
+            fillToMinimum();
+
+            if (statementCacheSize > 0) {
+                logger.debug("Connection pool: total={}, leased={}, idle={}, statement cache {}.",
+                        totalConnections.get(), leased.size(), idle.size(), statementCacheStats);
+            }
+
+            if (leakDetectionThresholdMs > 0) {
+                for (PooledConnection pooled : leased) {
+                    if (!pooled.leakReported && now - pooled.leasedAt > leakDetectionThresholdMs) {
+                        pooled.leakReported = true;
+                        logger.warn("Possible connection leak: connection held for more than {} ms.", leakDetectionThresholdMs, pooled.leaseTrace);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Connection pool housekeeping failed.", e);
+        }
+    }
+
+    /**
+     * Opens connections until the pool holds at least {@code minIdle} of them.
+     */
+    private void fillToMinimum() {
+        while (!closed && totalConnections.get() < maxSize && idle.size() < minIdle) {
+            try {
+                PooledConnection pooled = openConnection();
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                logger.error("Unable to open connection while filling the pool to its minimum size.", e);
+                return;
+            }
+        }
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long longProperty(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * Wraps a physical connection together with the bookkeeping the pool needs for it.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastReturnedAt = createdAt;
+        private volatile long leasedAt;
+        private volatile Throwable leaseTrace;
+        private volatile boolean leakReported;
+        private volatile boolean broken;
+        private volatile Connection proxy;
+        private final StatementCache statementCache;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = statementCacheSize > 0 ? new StatementCache(physical, statementCacheSize, statementCacheStats) : null;
+        }
+
+        void lease(Throwable trace) {
+            this.leasedAt = System.currentTimeMillis();
+            this.leaseTrace = trace;
+            this.leakReported = false;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Lease(this));
+        }
+
+        Connection getProxy() {
+            return proxy;
+        }
+
+        boolean isBroken() {
+            return broken;
+        }
+
+        boolean isExpired() {
+            return maxLifetimeMs > 0 && System.currentTimeMillis() - createdAt > maxLifetimeMs;
+        }
+
+        /**
+         * Rolls back any open transaction and restores auto-commit so the next borrower
+         * starts from a clean state.
+         * @return false if the connection could not be reset and should be discarded.
+         */
+        boolean resetState() {
+            try {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                lastReturnedAt = System.currentTimeMillis();
+                return true;
+            } catch (SQLException e) {
+                logger.warn("Discarding pooled connection that could not be reset.", e);
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            try {
+                if (statementCache != null) {
+                    statementCache.closeAll();
+                }
+                physical.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing physical connection.", e);
+            } finally {
+                totalConnections.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * The invocation handler behind a single lease of a pooled connection. A fresh lease is
+     * created every time the connection is borrowed, so a stale reference kept by a previous
+     * borrower cannot touch the connection once it has been handed to someone else.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private volatile boolean returned;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        pooled.leaseTrace = null;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxyInstance == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyInstance);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxyInstance)) {
+                        return proxyInstance;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            try {
+                if (pooled.statementCache != null && "prepareStatement".equals(method.getName()) && args.length == 1) {
+                    return pooled.statementCache.prepare((String) args[0], (Connection) proxyInstance);
+                }
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("08")) {
+                        pooled.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+    }
+
+    // --- Remaining DataSource methods ---
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // Logging goes through log4j.
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("ConnectionPool is not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,167 @@
+package com.budgetbakers.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a CSV statement (RFC 4180: comma separated, fields optionally quoted with {@code "},
+ * quotes escaped by doubling) one record at a time. The first record is a header naming the
+ * columns, in any order and case: {@code date} and {@code amount} are required; {@code type},
+ * {@code account}, {@code to_account}, {@code category} and {@code note} are optional, and
+ * {@code description}, {@code memo} and {@code narration} are accepted for the note.
+ */
+public class CsvStatementReader implements StatementReader {
+
+    private static final Map<String, String> COLUMN_ALIASES = new HashMap<>();
+
+    static {
+        COLUMN_ALIASES.put("date", "date");
+        COLUMN_ALIASES.put("transaction_date", "date");
+        COLUMN_ALIASES.put("type", "type");
+        COLUMN_ALIASES.put("transaction_type", "type");
+        COLUMN_ALIASES.put("amount", "amount");
+        COLUMN_ALIASES.put("account", "account");
+        COLUMN_ALIASES.put("to_account", "to_account");
+        COLUMN_ALIASES.put("to account", "to_account");
+        COLUMN_ALIASES.put("category", "category");
+        COLUMN_ALIASES.put("note", "note");
+        COLUMN_ALIASES.put("description", "note");
+        COLUMN_ALIASES.put("memo", "note");
+        COLUMN_ALIASES.put("narration", "note");
+    }
+
+    private final BufferedReader in;
+    /** The index of each known column in a record, or -1 if the file does not have it. */
+    private final int date, type, amount, account, toAccount, category, note;
+    /** The current line of the file, counting from 1. */
+    private int line = 1;
+
+    /**
+     * Reads the header of the statement.
+     * @param reader The statement text. It is closed with this reader.
+     * @throws IOException if the header cannot be read or lacks the required columns.
+     */
+    public CsvStatementReader(Reader reader) throws IOException {
+        this.in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        // Skip the byte order mark spreadsheet programs put in front of UTF-8 exports
+        in.mark(1);
+        if (in.read() != '\uFEFF') {
+            in.reset();
+        }
+
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IOException("The CSV file is empty.");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String column = COLUMN_ALIASES.get(header.get(i).trim().toLowerCase(Locale.ROOT));
+            if (column != null) {
+                columns.putIfAbsent(column, i);
+            }
+        }
+        if (!columns.containsKey("date") || !columns.containsKey("amount")) {
+            throw new IOException("The CSV header must have 'date' and 'amount' columns.");
+        }
+        this.date = columns.get("date");
+        this.amount = columns.get("amount");
+        this.type = columns.getOrDefault("type", -1);
+        this.account = columns.getOrDefault("account", -1);
+        this.toAccount = columns.getOrDefault("to_account", -1);
+        this.category = columns.getOrDefault("category", -1);
+        this.note = columns.getOrDefault("note", -1);
+    }
+
+    @Override
+    public Row next() throws IOException {
+        while (true) {
+            int startLine = line;
+            List<String> record = readRecord();
+            if (record == null) {
+                return null;
+            }
+            if (record.size() == 1 && record.get(0).trim().isEmpty()) {
+                continue;
+            }
+            return new Row(startLine, field(record, date), field(record, type), field(record, amount),
+                    field(record, account), field(record, toAccount), field(record, category), field(record, note));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Returns a trimmed field of a record, or null if the column is absent or the field is empty.
+     * The apostrophe {@link ExportFormat} puts before a field that looks like a formula is dropped.
+     */
+    private static String field(List<String> record, int index) {
+        if (index < 0 || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        if (value.length() > 1 && value.charAt(0) == '\'' && ExportFormat.FORMULA_TRIGGERS.indexOf(value.charAt(1)) >= 0) {
+            value = value.substring(1);
+        }
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Reads one record, which may span lines inside quoted fields.
+     * @return The fields of the record, or null at the end of the file.
+     */
+    private List<String> readRecord() throws IOException {
+        int c = in.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("Unterminated quoted field at the end of the file.");
+                }
+                if (c == '"') {
+                    in.mark(1);
+                    if (in.read() == '"') {
+                        field.append('"');
+                    } else {
+                        in.reset();
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c < 0 || c == '\n') {
+                if (c == '\n') {
+                    line++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '\r') {
+                // Part of a CRLF line ending; a lone CR inside a record is dropped as well
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = in.read();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.budgetbakers.utils;
+
+/**
+ * Thrown when the data of a page cannot be loaded completely, e.g. because its parallel
+ * queries failed or missed their deadline while the connection pool was exhausted. Servlets
+ * answer it with HTTP 503 and a Retry-After header instead of rendering partial data.
+ */
+public class DataUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /** The suggested wait before retrying, in seconds. */
+    public static final int RETRY_AFTER_SECONDS = 5;
+
+    /**
+     * @param message What could not be loaded.
+     * @param cause The failure, timeout or interruption.
+     */
+    public DataUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
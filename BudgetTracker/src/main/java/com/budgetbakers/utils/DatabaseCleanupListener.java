@@ -1,5 +1,7 @@
 package com.budgetbakers.utils;
 
+import java.sql.SQLException;
+
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 import javax.servlet.annotation.WebListener;
@@ -7,11 +9,17 @@ import javax.servlet.annotation.WebListener;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.budgetbakers.repository.Repositories;
+import com.budgetbakers.services.EmailDispatcher;
+import com.budgetbakers.services.EmailService;
+import com.budgetbakers.services.GoogleAuthService;
+
 import com.mysql.cj.jdbc.AbandonedConnectionCleanupThread;
 
 /**
- * A ServletContextListener that handles the graceful shutdown of the MySQL
- * JDBC driver's abandoned connection cleanup thread. This listener is automatically
+ * A ServletContextListener that brings the database schema up to date and starts the
+ * background email dispatcher on startup, and handles the graceful shutdown of the database connection pool and the MySQL JDBC
+ * driver's abandoned connection cleanup thread. This listener is automatically
  * registered via the @WebListener annotation and prevents memory leaks and error
  * messages in the server logs when the web application is stopped or reloaded.
  */
@@ -21,24 +29,64 @@ public class DatabaseCleanupListener implements ServletContextListener {
 	
     /**
      * Called by the container when the web application is first initialized.
-     * No action is required by this listener during application startup.
+     * Runs the pending schema migrations unless {@code db.migrate.enabled} is set to false, then
+     * starts delivering the emails queued in the outbox.
      *
      * @param sce The ServletContextEvent containing the ServletContext that is being initialized.
+     * @throws IllegalStateException if a migration fails, so that the deployment fails instead of
+     *         serving requests on a partially migrated schema.
      */
     @Override
     public void contextInitialized(ServletContextEvent sce) {
-        // No action needed on startup.
+        migrateSchema();
+        EmailDispatcher.start(Repositories.getDefault().outbox(), new EmailService());
+    }
+
+    /**
+     * Private helper method to run the pending schema migrations, unless the in-memory
+     * repositories are used or migrations are disabled.
+     * @throws IllegalStateException if a migration fails.
+     */
+    private void migrateSchema() {
+        if ("memory".equalsIgnoreCase(System.getProperty(Repositories.BACKEND_PROPERTY))) {
+            logger.info("Using the in-memory repositories; schema migrations are skipped.");
+            return;
+        }
+        DbConnector connector = DbConnector.getInstance();
+        if (!Boolean.parseBoolean(connector.getProperty("db.migrate.enabled", "true"))) {
+            logger.info("Schema migrations are disabled by configuration.");
+            return;
+        }
+        if (connector.getDataSource() == null) {
+            logger.error("Skipping schema migrations: the database connection pool is not available.");
+            return;
+        }
+        try {
+            new SchemaMigrator(connector.getDataSource()).migrate();
+        } catch (SQLException | RuntimeException e) {
+            logger.error("Failed to apply schema migrations during context initialization.", e);
+            throw new IllegalStateException("Failed to apply schema migrations; refusing to start on a partial schema.", e);
+        }
     }
 
     /**
      * Called by the container when the web application is about to be shut down.
-     * This method invokes the shutdown hook for the MySQL abandoned connection cleanup thread
-     * to ensure it terminates properly.
+     * This method closes the pooled database connections and then invokes the shutdown hook
+     * for the MySQL abandoned connection cleanup thread to ensure it terminates properly.
      *
      * @param sce The ServletContextEvent containing the ServletContext that is being destroyed.
      */
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
+        EmailDispatcher.shutdown();
+        GoogleAuthService.shutdown();
+        TaskScope.shutdown();
+        PasswordUtil.shutdown();
+        try {
+            DbConnector.shutdown();
+        } catch (Exception e) {
+        	logger.error("Failed to shut down the database connection pool during context destruction.", e);
+        }
         try {
             AbandonedConnectionCleanupThread.checkedShutdown();
             logger.info("Successfully shut down MySQL AbandonedConnectionCleanupThread.");
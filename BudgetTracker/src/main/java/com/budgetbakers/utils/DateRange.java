@@ -0,0 +1,228 @@
+package com.budgetbakers.utils;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * An immutable, half-open {@code [start, end)} date range used to filter transactions.
+ * Queries bind the two bounds as parameters ({@code transaction_date >= ? AND transaction_date < ?})
+ * instead of wrapping the column in {@code DATE()}, {@code MONTH()} or {@code YEAR()}, so MySQL
+ * can use an index range scan on {@code transaction_date}.
+ * <p>
+ * Ranges are built from the named keys used by the Analysis page ({@code last30days},
+ * {@code last3months}, {@code last6months}, {@code last12months}), from the current month,
+ * from a single day, or from arbitrary start and end dates.
+ */
+public final class DateRange {
+
+    /** Ranges up to this many days are reported with daily granularity, longer ones monthly. */
+    private static final int MAX_DAILY_DAYS = 62;
+    /** Upper bound on custom ranges, to keep daily series such as the balance trend bounded. */
+    private static final int MAX_CUSTOM_YEARS = 20;
+
+    private final LocalDate start;
+    private final LocalDate end;
+    private final String key;
+
+    private DateRange(LocalDate start, LocalDate end, String key) {
+        this.start = start;
+        this.end = end;
+        this.key = key;
+    }
+
+    /**
+     * @return The range covering the current calendar month.
+     */
+    public static DateRange currentMonth() {
+        return currentMonth(LocalDate.now());
+    }
+
+    /**
+     * @param today The date considered to be today.
+     * @return The range covering the calendar month that contains {@code today}.
+     */
+    public static DateRange currentMonth(LocalDate today) {
+        LocalDate first = today.withDayOfMonth(1);
+        return new DateRange(first, first.plusMonths(1), "currentMonth");
+    }
+
+    /**
+     * @param day The day to cover.
+     * @return The range covering exactly one calendar day.
+     */
+    public static DateRange ofDay(LocalDate day) {
+        return new DateRange(day, day.plusDays(1), "day");
+    }
+
+    /**
+     * Builds a range from inclusive first and last days.
+     * @param firstDay The first day included in the range.
+     * @param lastDay The last day included in the range.
+     * @return The range {@code [firstDay, lastDay + 1)}.
+     * @throws IllegalArgumentException if {@code lastDay} is before {@code firstDay}.
+     */
+    public static DateRange between(LocalDate firstDay, LocalDate lastDay) {
+        if (lastDay.isBefore(firstDay)) {
+            throw new IllegalArgumentException("End date " + lastDay + " is before start date " + firstDay + ".");
+        }
+        return new DateRange(firstDay, lastDay.plusDays(1), "custom");
+    }
+
+    /**
+     * Resolves a named range relative to today.
+     * @param key One of {@code last30days}, {@code last3months}, {@code last6months} or {@code last12months}.
+     *            Unknown or null keys fall back to {@code last12months}.
+     * @return The corresponding range.
+     */
+    public static DateRange fromKey(String key) {
+        return fromKey(key, LocalDate.now());
+    }
+
+    /**
+     * Resolves a named range relative to the given day. The 30-day window ends with today;
+     * month windows start on the first day of the month and run to the end of the current
+     * month, so every month in them is complete.
+     * @param key The range key; unknown or null keys fall back to {@code last12months}.
+     * @param today The date considered to be today.
+     * @return The corresponding range.
+     */
+    public static DateRange fromKey(String key, LocalDate today) {
+        String resolved = key == null ? "last12months" : key;
+        LocalDate nextMonth = today.withDayOfMonth(1).plusMonths(1);
+        switch (resolved) {
+            case "last30days":
+                return new DateRange(today.minusDays(30), today.plusDays(1), resolved);
+            case "last3months":
+                return new DateRange(today.minusMonths(3).withDayOfMonth(1), nextMonth, resolved);
+            case "last6months":
+                return new DateRange(today.minusMonths(6).withDayOfMonth(1), nextMonth, resolved);
+            case "last12months":
+            default:
+                return new DateRange(today.minusMonths(12).withDayOfMonth(1), nextMonth, "last12months");
+        }
+    }
+
+    /**
+     * Resolves the range requested by the Analysis page. When the key is {@code custom},
+     * the inclusive {@code startDate} and {@code endDate} (ISO {@code yyyy-MM-dd}) are used.
+     * @param key The range key selected by the user.
+     * @param startDate The first day of a custom range, or null.
+     * @param endDate The last day of a custom range, or null.
+     * @return The requested range.
+     * @throws IllegalArgumentException if a custom range is missing, malformed or too long.
+     */
+    public static DateRange fromRequest(String key, String startDate, String endDate) {
+        if (!"custom".equals(key)) {
+            return fromKey(key);
+        }
+        if (startDate == null || startDate.isEmpty() || endDate == null || endDate.isEmpty()) {
+            throw new IllegalArgumentException("A custom date range requires both a start and an end date.");
+        }
+        try {
+            DateRange range = between(LocalDate.parse(startDate), LocalDate.parse(endDate));
+            if (range.start.plusYears(MAX_CUSTOM_YEARS).isBefore(range.end)) {
+                throw new IllegalArgumentException("Custom date ranges are limited to " + MAX_CUSTOM_YEARS + " years.");
+            }
+            return range;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid custom date range: " + startDate + " to " + endDate + ".", e);
+        }
+    }
+
+    /**
+     * @return The first day of the range (inclusive).
+     */
+    public LocalDate getStart() {
+        return start;
+    }
+
+    /**
+     * @return The day after the last day of the range (exclusive).
+     */
+    public LocalDate getEnd() {
+        return end;
+    }
+
+    /**
+     * @return The last day included in the range.
+     */
+    public LocalDate getLastDay() {
+        return end.minusDays(1);
+    }
+
+    /**
+     * @return The inclusive lower bound as a timestamp at midnight, for binding to a statement.
+     */
+    public Timestamp getStartTimestamp() {
+        return Timestamp.valueOf(start.atStartOfDay());
+    }
+
+    /**
+     * @return The exclusive upper bound as a timestamp at midnight, for binding to a statement.
+     */
+    public Timestamp getEndTimestamp() {
+        return Timestamp.valueOf(end.atStartOfDay());
+    }
+
+    /**
+     * @return The key the range was built from, e.g. {@code last30days}, {@code currentMonth} or {@code custom}.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The number of days in the range.
+     */
+    public long getDays() {
+        return ChronoUnit.DAYS.between(start, end);
+    }
+
+    /**
+     * @return true if trends over this range should be reported per day rather than per month.
+     */
+    public boolean isDaily() {
+        return getDays() <= MAX_DAILY_DAYS;
+    }
+
+    /**
+     * @return true if the range starts and ends on the first day of a month, so it consists of whole
+     *         calendar months and can be answered from monthly aggregates.
+     */
+    public boolean isWholeMonths() {
+        return start.getDayOfMonth() == 1 && end.getDayOfMonth() == 1;
+    }
+
+    /**
+     * @param day The day to test.
+     * @return true if the day falls within the range.
+     */
+    public boolean contains(LocalDate day) {
+        return !day.isBefore(start) && day.isBefore(end);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DateRange)) {
+            return false;
+        }
+        DateRange other = (DateRange) o;
+        return start.equals(other.start) && end.equals(other.end);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return key + "[" + start + ", " + end + ")";
+    }
+}
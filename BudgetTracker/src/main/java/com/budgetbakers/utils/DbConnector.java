@@ -2,26 +2,28 @@ package com.budgetbakers.utils;
 
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.util.Properties;
 
+import javax.sql.DataSource;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * A Singleton class responsible for managing the database connection.
- * It ensures that only one instance of the connector is created and provides
- * a centralized point for obtaining a connection to the database.
+ * A Singleton class responsible for managing database connections.
+ * It owns a bounded {@link ConnectionPool} built from the 'db.properties' file and provides
+ * a centralized point for obtaining pooled connections to the database.
  */
 public class DbConnector {
 	private static final Logger logger = LogManager.getLogger(DbConnector.class);
     public static DbConnector dbConnector = null;
-    private static Connection connection = null;
     private static Properties props = null;
+    private ConnectionPool pool = null;
 
     /**
      * Private constructor to prevent instantiation from outside the class.
-     * It loads the database configuration from the 'db.properties' file.
+     * It loads the database configuration from the 'db.properties' file and creates the connection pool.
      */
     private DbConnector() {
         try {
@@ -32,8 +34,11 @@ public class DbConnector {
             }
             props = new Properties();
             props.load(input);
+
+            Class.forName(props.getProperty("db.driver"));
+            pool = new ConnectionPool(props);
         } catch (Exception e) {
-        	 logger.error("Error while loading db.properties.", e);
+        	 logger.error("Error while initializing the database connection pool.", e);
         }
     }
 
@@ -42,7 +47,7 @@ public class DbConnector {
      * If an instance does not exist, it creates one.
      * @return The single instance of the {@link DbConnector}.
      */
-    public static DbConnector getInstance() {
+    public static synchronized DbConnector getInstance() {
         if (dbConnector == null) {
             dbConnector = new DbConnector();
         }
@@ -50,33 +55,49 @@ public class DbConnector {
     }
 
     /**
-     * Gets a connection to the database.
-     * If the current connection is null or closed, it establishes a new one
-     * using the loaded properties. Otherwise, it returns the existing connection.
-     * @return A {@link Connection} object for the database, or null if an error occurs.
+     * Borrows a connection from the pool. Each caller receives its own connection, and
+     * closing it (e.g. at the end of a try-with-resources block) returns it to the pool.
+     * @return A pooled {@link Connection} for the database, or null if an error occurs.
      */
     public Connection getConnection() {
+        if (pool == null) {
+        	logger.error("Failed to obtain database connection: Database configuration properties could not be loaded.");
+            return null;
+        }
         try {
-            if (connection == null || connection.isClosed()) {
-
-                if (props == null) {
-                	logger.error("Failed to create database connection: Database configuration properties could not be loaded.");
-                    return null;
-                }
+            return pool.getConnection();
+        } catch (SQLException e) {
+        	logger.error("Error while obtaining a pooled connection.", e);
+        }
+        return null;
+    }
 
-                Class.forName(props.getProperty("db.driver"));
+    /**
+     * Gets the pooled {@link DataSource} backing this connector.
+     * @return The connection pool, or null if the configuration could not be loaded.
+     */
+    public DataSource getDataSource() {
+        return pool;
+    }
 
-                String url = props.getProperty("db.url");
-                String username = props.getProperty("db.username");
-                String password = props.getProperty("db.password");
+    /**
+     * Reads a value from the loaded database configuration.
+     * @param key The property key, e.g. {@code db.migrate.enabled}.
+     * @param defaultValue The value returned if the key is absent or the configuration could not be loaded.
+     * @return The configured value or the default.
+     */
+    public String getProperty(String key, String defaultValue) {
+        return props == null ? defaultValue : props.getProperty(key, defaultValue);
+    }
 
-                connection = DriverManager.getConnection(url, username, password);
-                
-                logger.info("Connection created successfully.");
-            }
-        } catch (Exception e) {
-        	logger.error("Error while connecting to db.", e);
+    /**
+     * Shuts down the connection pool and releases the singleton so that a fresh pool is
+     * created if the application is started again within the same class loader.
+     */
+    public static synchronized void shutdown() {
+        if (dbConnector != null && dbConnector.pool != null) {
+            dbConnector.pool.shutdown();
         }
-        return connection;
+        dbConnector = null;
     }
 }
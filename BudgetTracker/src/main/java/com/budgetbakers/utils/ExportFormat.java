@@ -0,0 +1,161 @@
+package com.budgetbakers.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import com.budgetbakers.entities.Transaction;
+import com.google.gson.JsonObject;
+
+/**
+ * The file formats a user's records can be exported in. Both write one transaction at a time,
+ * so an export is written as it is read from the database.
+ * <p>
+ * The CSV columns are those {@link CsvStatementReader} reads, so an exported file can be
+ * imported again.
+ */
+public enum ExportFormat {
+
+    /** Comma separated values with a header row (RFC 4180). */
+    CSV("text/csv", "csv") {
+        @Override
+        public void writeHeader(Writer out) throws IOException {
+            out.write("id,date,type,amount,account,to_account,category,note\r\n");
+        }
+
+        @Override
+        public void writeRow(Writer out, Transaction tx) throws IOException {
+            out.write(Integer.toString(tx.getId()));
+            out.write(',');
+            out.write(formatDate(tx));
+            out.write(',');
+            writeField(out, tx.getTransactionType());
+            out.write(',');
+            out.write(formatAmount(tx));
+            out.write(',');
+            writeField(out, tx.getAccount() != null ? tx.getAccount().getName() : null);
+            out.write(',');
+            writeField(out, tx.getToAccount() != null ? tx.getToAccount().getName() : null);
+            out.write(',');
+            writeField(out, tx.getCategory() != null ? tx.getCategory().getName() : null);
+            out.write(',');
+            writeField(out, tx.getNote());
+            out.write("\r\n");
+        }
+
+        /**
+         * Writes a field, quoting it if it contains a separator, a quote or a line break. A field
+         * that a spreadsheet would evaluate as a formula is prefixed with an apostrophe.
+         */
+        private void writeField(Writer out, String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (!value.isEmpty() && FORMULA_TRIGGERS.indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+    },
+
+    /** Newline delimited JSON: one object per line. */
+    NDJSON("application/x-ndjson", "ndjson") {
+        @Override
+        public void writeHeader(Writer out) {
+        }
+
+        @Override
+        public void writeRow(Writer out, Transaction tx) throws IOException {
+            JsonObject row = new JsonObject();
+            row.addProperty("id", tx.getId());
+            row.addProperty("date", formatDate(tx));
+            row.addProperty("type", tx.getTransactionType());
+            row.addProperty("amount", new BigDecimal(formatAmount(tx)));
+            row.addProperty("account", tx.getAccount() != null ? tx.getAccount().getName() : null);
+            row.addProperty("toAccount", tx.getToAccount() != null ? tx.getToAccount().getName() : null);
+            row.addProperty("category", tx.getCategory() != null ? tx.getCategory().getName() : null);
+            row.addProperty("note", tx.getNote());
+            out.write(row.toString());
+            out.write('\n');
+        }
+    };
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * The characters that make a spreadsheet read a CSV field as a formula when they start it.
+     * Such fields are written with a leading apostrophe, which {@link CsvStatementReader} drops.
+     */
+    static final String FORMULA_TRIGGERS = "=+-@\t\r";
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    /**
+     * Looks up a format by its name, ignoring case.
+     * @param name The name, e.g. "csv", or null or empty for CSV.
+     * @return The format.
+     * @throws IllegalArgumentException if there is no such format.
+     */
+    public static ExportFormat of(String name) {
+        if (name == null || name.isEmpty()) {
+            return CSV;
+        }
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported export format: " + name);
+        }
+    }
+
+    /**
+     * @return The MIME type of the format.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The file name extension of the format, without the dot.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Writes what precedes the first row, if anything.
+     * @param out The export.
+     * @throws IOException if writing fails.
+     */
+    public abstract void writeHeader(Writer out) throws IOException;
+
+    /**
+     * Writes one transaction.
+     * @param out The export.
+     * @param tx The transaction, with account, category and receiving account names.
+     * @throws IOException if writing fails.
+     */
+    public abstract void writeRow(Writer out, Transaction tx) throws IOException;
+
+    private static String formatDate(Transaction tx) {
+        return DATE_FORMAT.format(tx.getTransactionDate().toLocalDateTime());
+    }
+
+    private static String formatAmount(Transaction tx) {
+        return BigDecimal.valueOf(tx.getAmount()).setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+}
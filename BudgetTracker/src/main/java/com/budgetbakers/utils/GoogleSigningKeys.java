@@ -0,0 +1,252 @@
+package com.budgetbakers.utils;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.util.Key;
+
+/**
+ * Caches the RSA public keys Google signs ID tokens with, as published in JSON Web Key Set
+ * (JWKS) format, so that verifying a token is a local signature check instead of an HTTP request.
+ * <p>
+ * The key set is kept for as long as the {@code Cache-Control: max-age} of its response allows
+ * (less its {@code Age}), and a background thread fetches the next one shortly before that, so
+ * sign-ins do not wait for it. A token signed with an unknown key ID triggers an early fetch, at
+ * most once per {@link #MIN_UNKNOWN_KEY_REFRESH_MILLIS}, so that a key rotation is picked up
+ * without letting forged tokens make the server fetch on every request.
+ */
+public final class GoogleSigningKeys implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(GoogleSigningKeys.class);
+
+    /** Google's JWKS endpoint for ID token signing keys. */
+    public static final String DEFAULT_URL = "https://www.googleapis.com/oauth2/v3/certs";
+
+    /** How long a key set is kept when its response has no max-age. */
+    private static final long DEFAULT_MAX_AGE_SECONDS = 3600;
+    /** How long before expiry the background fetch runs, at most. */
+    private static final long REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    /** How soon a failed background fetch is retried. */
+    private static final long RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    /** The shortest interval between fetches caused by unknown key IDs. */
+    static final long MIN_UNKNOWN_KEY_REFRESH_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age\\s*=\\s*(\\d+)");
+
+    private final HttpRequestFactory requestFactory;
+    private final GenericUrl url;
+    private final ScheduledExecutorService refresher;
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), 0, 0);
+    /** The pending background fetch, replaced by every fetch. Guarded by this. */
+    private ScheduledFuture<?> nextRefresh;
+
+    /**
+     * Creates the cache; the first key set is fetched on first use or by {@link #start()}.
+     * @param transport The shared HTTP transport.
+     * @param jsonFactory The JSON factory parsing the key set.
+     * @param url The JWKS URL, e.g. {@link #DEFAULT_URL}.
+     */
+    public GoogleSigningKeys(HttpTransport transport, JsonFactory jsonFactory, String url) {
+        this.requestFactory = transport.createRequestFactory(request -> request.setParser(jsonFactory.createJsonObjectParser()));
+        this.url = new GenericUrl(url);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "budgettracker-google-keys");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Fetches the key set in the background, so that the first sign-in does not wait for it.
+     */
+    public void start() {
+        refresher.execute(this::refreshInBackground);
+    }
+
+    /**
+     * Returns the public key with the given key ID, fetching the key set if it has expired or
+     * does not contain the ID.
+     * @param keyId The {@code kid} header of a token.
+     * @return The key, or null if Google has no key with this ID.
+     * @throws IOException if the key set had to be fetched and could not be.
+     */
+    public PublicKey get(String keyId) throws IOException {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (now >= current.expiresAtMillis) {
+            current = refreshIfNotNewerThan(current);
+        } else if (keyId != null && !current.keys.containsKey(keyId)
+                && now - current.fetchedAtMillis >= MIN_UNKNOWN_KEY_REFRESH_MILLIS) {
+            logger.info("Unknown Google signing key ID {}; fetching the key set again.", keyId);
+            current = refreshIfNotNewerThan(current);
+        }
+        return keyId == null ? null : current.keys.get(keyId);
+    }
+
+    /**
+     * @return The number of keys currently cached.
+     */
+    public int size() {
+        return snapshot.keys.size();
+    }
+
+    /**
+     * Stops the background refresh.
+     */
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Fetches the key set unless another thread already replaced the given snapshot.
+     */
+    private synchronized Snapshot refreshIfNotNewerThan(Snapshot seen) throws IOException {
+        if (snapshot != seen) {
+            return snapshot;
+        }
+        return refresh();
+    }
+
+    /**
+     * Fetches the key set and schedules the next background fetch.
+     */
+    private synchronized Snapshot refresh() throws IOException {
+        HttpResponse response = requestFactory.buildGetRequest(url).execute();
+        long maxAgeSeconds;
+        JsonWebKeySet keySet;
+        try {
+            maxAgeSeconds = maxAgeSeconds(response.getHeaders());
+            keySet = response.parseAs(JsonWebKeySet.class);
+        } finally {
+            response.disconnect();
+        }
+
+        Map<String, PublicKey> keys = new HashMap<>();
+        if (keySet.keys != null) {
+            for (JsonWebKey key : keySet.keys) {
+                if ("RSA".equals(key.kty) && key.kid != null && key.n != null && key.e != null) {
+                    try {
+                        keys.put(key.kid, toRsaKey(key));
+                    } catch (GeneralSecurityException | IllegalArgumentException e) {
+                        logger.warn("Skipping malformed Google signing key {}.", key.kid, e);
+                    }
+                }
+            }
+        }
+        long now = System.currentTimeMillis();
+        Snapshot fresh = new Snapshot(Collections.unmodifiableMap(keys), now, now + TimeUnit.SECONDS.toMillis(maxAgeSeconds));
+        snapshot = fresh;
+
+        long refreshIn = Math.max(1000, TimeUnit.SECONDS.toMillis(maxAgeSeconds) - Math.min(REFRESH_AHEAD_MILLIS, TimeUnit.SECONDS.toMillis(maxAgeSeconds) / 10));
+        schedule(refreshIn);
+        logger.debug("Fetched {} Google signing keys, valid for {} s.", keys.size(), maxAgeSeconds);
+        return fresh;
+    }
+
+    private void refreshInBackground() {
+        try {
+            refresh();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to fetch Google signing keys; retrying in {} s.", RETRY_MILLIS / 1000, e);
+            schedule(RETRY_MILLIS);
+        }
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        try {
+            nextRefresh = refresher.schedule(this::refreshInBackground, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The cache was closed.
+        }
+    }
+
+    /**
+     * Reads how long a response may be cached: its max-age less its age, in seconds.
+     */
+    private static long maxAgeSeconds(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return DEFAULT_MAX_AGE_SECONDS;
+        }
+        Matcher matcher = MAX_AGE.matcher(cacheControl);
+        if (!matcher.find()) {
+            return DEFAULT_MAX_AGE_SECONDS;
+        }
+        long maxAge = Long.parseLong(matcher.group(1));
+        Long age = headers.getAge();
+        return Math.max(0, maxAge - (age == null ? 0 : age));
+    }
+
+    private static PublicKey toRsaKey(JsonWebKey key) throws GeneralSecurityException {
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        BigInteger modulus = new BigInteger(1, decoder.decode(key.n));
+        BigInteger exponent = new BigInteger(1, decoder.decode(key.e));
+        return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent));
+    }
+
+    /**
+     * The keys of one fetch, replaced as a whole.
+     */
+    private static final class Snapshot {
+        private final Map<String, PublicKey> keys;
+        private final long fetchedAtMillis;
+        private final long expiresAtMillis;
+
+        private Snapshot(Map<String, PublicKey> keys, long fetchedAtMillis, long expiresAtMillis) {
+            this.keys = keys;
+            this.fetchedAtMillis = fetchedAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /** The JSON body of a JWKS endpoint. */
+    public static class JsonWebKeySet extends GenericJson {
+        @Key
+        public List<JsonWebKey> keys;
+    }
+
+    /** One key of a {@link JsonWebKeySet}; only RSA keys are used. */
+    public static class JsonWebKey extends GenericJson {
+        @Key
+        public String kid;
+        @Key
+        public String kty;
+        @Key
+        public String alg;
+        @Key
+        public String n;
+        @Key
+        public String e;
+    }
+}
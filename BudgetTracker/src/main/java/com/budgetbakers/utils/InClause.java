@@ -0,0 +1,85 @@
+package com.budgetbakers.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A utility class for building {@code IN (?, ?, ...)} lists whose arity is rounded up to a
+ * small set of fixed bucket sizes. Without bucketing every distinct number of selected
+ * accounts produces a different SQL string, which defeats the per-connection statement cache
+ * and the server's prepared statement cache. Padding slots are filled by repeating the last
+ * value, which does not change the result of an {@code IN} predicate.
+ */
+public final class InClause {
+
+    /** The fixed arities an IN-list is padded to; larger lists are rounded up to a multiple of the last bucket. */
+    private static final int[] BUCKETS = { 1, 2, 4, 8, 16, 32, 64 };
+    private static final int LARGEST_BUCKET = BUCKETS[BUCKETS.length - 1];
+
+    /** Pre-built placeholder strings for the fixed buckets. */
+    private static final String[] PLACEHOLDERS = new String[BUCKETS.length];
+
+    static {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            PLACEHOLDERS[i] = buildPlaceholders(BUCKETS[i]);
+        }
+    }
+
+    private InClause() {
+    }
+
+    /**
+     * Rounds the number of values in an IN-list up to its bucket size.
+     * @param count The number of values actually selected. Must be at least 1.
+     * @return The padded arity the IN-list will be generated with.
+     */
+    public static int bucketSize(int count) {
+        for (int bucket : BUCKETS) {
+            if (count <= bucket) {
+                return bucket;
+            }
+        }
+        return ((count + LARGEST_BUCKET - 1) / LARGEST_BUCKET) * LARGEST_BUCKET;
+    }
+
+    /**
+     * Builds the comma separated placeholder list for the given number of values, padded to its bucket size.
+     * @param count The number of values actually selected. Must be at least 1.
+     * @return A string such as {@code "?,?,?,?"}.
+     */
+    public static String placeholders(int count) {
+        int size = bucketSize(count);
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (BUCKETS[i] == size) {
+                return PLACEHOLDERS[i];
+            }
+        }
+        return buildPlaceholders(size);
+    }
+
+    /**
+     * Pads a list of values to its bucket size by repeating the last value, so it can be bound
+     * one-to-one against the placeholders returned by {@link #placeholders(int)}.
+     * @param values The values to pad. Must not be empty.
+     * @return A new list whose size equals {@code bucketSize(values.size())}.
+     */
+    public static <T> List<T> pad(List<T> values) {
+        int size = bucketSize(values.size());
+        List<T> padded = new ArrayList<>(size);
+        padded.addAll(values);
+        padded.addAll(Collections.nCopies(size - values.size(), values.get(values.size() - 1)));
+        return padded;
+    }
+
+    private static String buildPlaceholders(int size) {
+        StringBuilder sb = new StringBuilder(size * 2);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package com.budgetbakers.utils;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.budgetbakers.repository.LedgerRepository;
+import com.budgetbakers.repository.Repositories;
+
+/**
+ * Command-line maintenance tasks for the ledger's derived tables. Run it with the application's
+ * classes and libraries on the classpath so that {@code db.properties} is found, e.g.
+ *
+ * <pre>
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" com.budgetbakers.utils.LedgerMaintenance rebuild-balances
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" com.budgetbakers.utils.LedgerMaintenance rebuild-rollups
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" com.budgetbakers.utils.LedgerMaintenance clear-checkpoints
+ * </pre>
+ *
+ * Pending schema migrations are applied before the task runs.
+ */
+public final class LedgerMaintenance {
+
+    private static final Logger logger = LogManager.getLogger(LedgerMaintenance.class);
+    private static final String USAGE = "Usage: LedgerMaintenance rebuild-balances | rebuild-rollups | clear-checkpoints";
+
+    private LedgerMaintenance() {
+    }
+
+    /**
+     * @param args The task to run: {@code rebuild-balances} recomputes {@code account_balances} and
+     *             {@code rebuild-rollups} recomputes {@code monthly_rollups} from the ledger;
+     *             {@code clear-checkpoints} drops {@code balance_checkpoints} so they are recreated on use.
+     */
+    public static void main(String[] args) {
+        if (args.length != 1 || !Arrays.asList("rebuild-balances", "rebuild-rollups", "clear-checkpoints").contains(args[0])) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        int status = 0;
+        try {
+            DbConnector connector = DbConnector.getInstance();
+            if (connector.getDataSource() == null) {
+                throw new SQLException("The database connection pool is not available; check db.properties.");
+            }
+            new SchemaMigrator(connector.getDataSource()).migrate();
+
+            long start = System.currentTimeMillis();
+            LedgerRepository ledger = Repositories.mysql().ledger();
+            if ("rebuild-balances".equals(args[0])) {
+                int accounts = ledger.rebuildAccountBalances();
+                logger.info("Rebuilt the balances of {} account(s) in {} ms.", accounts, System.currentTimeMillis() - start);
+            } else if ("rebuild-rollups".equals(args[0])) {
+                int rows = ledger.rebuildMonthlyRollups();
+                logger.info("Rebuilt {} monthly rollup row(s) in {} ms.", rows, System.currentTimeMillis() - start);
+            } else {
+                int checkpoints = ledger.clearBalanceCheckpoints();
+                logger.info("Dropped {} balance checkpoint(s) in {} ms.", checkpoints, System.currentTimeMillis() - start);
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to run maintenance task {}", args[0], e);
+            status = 1;
+        } finally {
+            DbConnector.shutdown();
+        }
+        System.exit(status);
+    }
+}
@@ -0,0 +1,136 @@
+package com.budgetbakers.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+/**
+ * Reads the transactions ({@code <STMTTRN>} aggregates) of an OFX statement one at a time.
+ * Both OFX 1.x, an SGML dialect where leaf elements are not closed, and OFX 2.x, which is XML,
+ * are read by the same tag scanner; the header before {@code <OFX>} is skipped as text.
+ * <p>
+ * Rows carry the posting date as {@code yyyy-MM-dd}, the signed amount, and the payee name and
+ * memo as the note. OFX files have no type, account or category, so the type is inferred from
+ * the sign of the amount and the account is the one chosen for the upload.
+ */
+public class OfxStatementReader implements StatementReader {
+
+    private final BufferedReader in;
+    /** The current line of the file, counting from 1. */
+    private int line = 1;
+
+    /**
+     * @param reader The statement text. It is closed with this reader.
+     */
+    public OfxStatementReader(Reader reader) {
+        this.in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    @Override
+    public Row next() throws IOException {
+        String tag;
+        do {
+            tag = nextTag();
+            if (tag == null) {
+                return null;
+            }
+        } while (!"STMTTRN".equals(tag));
+
+        int startLine = line;
+        String posted = null;
+        String amount = null;
+        String name = null;
+        String memo = null;
+        while (true) {
+            tag = nextTag();
+            if (tag == null) {
+                throw new IOException("Unterminated <STMTTRN> starting on line " + startLine + ".");
+            }
+            if ("/STMTTRN".equals(tag)) {
+                break;
+            }
+            switch (tag) {
+            case "DTPOSTED":
+                posted = text();
+                break;
+            case "TRNAMT":
+                amount = text();
+                break;
+            case "NAME":
+                name = text();
+                break;
+            case "MEMO":
+                memo = text();
+                break;
+            default:
+                break;
+            }
+        }
+
+        String date = posted != null && posted.length() >= 8 && posted.substring(0, 8).chars().allMatch(Character::isDigit)
+                ? posted.substring(0, 4) + "-" + posted.substring(4, 6) + "-" + posted.substring(6, 8)
+                : posted;
+        String note = name;
+        if (memo != null && !memo.equals(name)) {
+            note = name == null ? memo : name + " - " + memo;
+        }
+        return new Row(startLine, date, null, amount, null, null, null, note);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Skips to the next tag and reads its name.
+     * @return The upper-cased tag name, with a leading '/' for closing tags, or null at the end of the file.
+     */
+    private String nextTag() throws IOException {
+        int c;
+        while ((c = in.read()) != '<') {
+            if (c < 0) {
+                return null;
+            }
+            if (c == '\n') {
+                line++;
+            }
+        }
+        StringBuilder name = new StringBuilder();
+        while ((c = in.read()) != '>') {
+            if (c < 0) {
+                return null;
+            }
+            if (c == '\n') {
+                line++;
+            }
+            name.append((char) c);
+        }
+        return name.toString().trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Reads the text of the element whose tag was just read, up to the next tag.
+     * @return The trimmed, unescaped text, or null if it is empty.
+     */
+    private String text() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            in.mark(1);
+            int c = in.read();
+            if (c < 0 || c == '<') {
+                in.reset();
+                break;
+            }
+            if (c == '\n') {
+                line++;
+            }
+            text.append((char) c);
+        }
+        String value = text.toString().trim()
+                .replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'")
+                .replace("&amp;", "&");
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,84 @@
+package com.budgetbakers.utils;
+
+import java.sql.Timestamp;
+
+import com.budgetbakers.entities.Transaction;
+
+/**
+ * A keyset pagination cursor over a user's records, which are ordered newest first by
+ * {@code (transaction_date, id)}. The cursor holds the position of the last record of a page,
+ * and the next page continues with the records strictly before it:
+ * {@code transaction_date < ? OR (transaction_date = ? AND id < ?)}. Unlike an {@code OFFSET},
+ * this lets MySQL seek into the index, so every page costs the same however deep it is.
+ * <p>
+ * On the wire the cursor is {@code <transaction date in epoch milliseconds>,<transaction ID>}.
+ */
+public final class PageCursor {
+
+    private final long dateMillis;
+    private final int id;
+
+    /**
+     * @param dateMillis The transaction date of the last record of the previous page, in epoch milliseconds.
+     * @param id The ID of the last record of the previous page.
+     */
+    public PageCursor(long dateMillis, int id) {
+        this.dateMillis = dateMillis;
+        this.id = id;
+    }
+
+    /**
+     * @param transaction The last record of a page.
+     * @return The cursor of the page that follows it.
+     */
+    public static PageCursor after(Transaction transaction) {
+        return new PageCursor(transaction.getTransactionDate().getTime(), transaction.getId());
+    }
+
+    /**
+     * Parses a cursor received from a client.
+     * @param value The cursor as written by {@link #toString()}, or null or empty for the first page.
+     * @return The cursor, or null for the first page.
+     * @throws IllegalArgumentException if the value is malformed.
+     */
+    public static PageCursor parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        int comma = value.indexOf(',');
+        if (comma < 0) {
+            throw new IllegalArgumentException("Invalid page cursor: " + value);
+        }
+        try {
+            return new PageCursor(Long.parseLong(value.substring(0, comma)), Integer.parseInt(value.substring(comma + 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + value, e);
+        }
+    }
+
+    /**
+     * @return The transaction date of the cursor position, in epoch milliseconds.
+     */
+    public long getDateMillis() {
+        return dateMillis;
+    }
+
+    /**
+     * @return The transaction date of the cursor position, for binding to a statement.
+     */
+    public Timestamp getTimestamp() {
+        return new Timestamp(dateMillis);
+    }
+
+    /**
+     * @return The transaction ID of the cursor position.
+     */
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return dateMillis + "," + id;
+    }
+}
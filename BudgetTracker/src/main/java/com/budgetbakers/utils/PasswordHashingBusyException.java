@@ -0,0 +1,27 @@
+package com.budgetbakers.utils;
+
+/**
+ * Thrown when a password cannot be hashed or verified now because the hashing pool is
+ * saturated. Servlets answer it with HTTP 503 and a Retry-After header.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /** The suggested wait before retrying, in seconds. */
+    private final int retryAfterSeconds;
+
+    /**
+     * @param retryAfterSeconds The suggested wait before retrying, in seconds.
+     */
+    public PasswordHashingBusyException(int retryAfterSeconds) {
+        super("Password hashing is saturated; retry in " + retryAfterSeconds + " s.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return The suggested wait before retrying, in seconds.
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
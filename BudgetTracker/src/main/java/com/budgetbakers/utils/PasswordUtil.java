@@ -1,24 +1,76 @@
 package com.budgetbakers.utils;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.mindrot.jbcrypt.BCrypt;
 
 /**
  * A utility class for handling password hashing and verification using the BCrypt algorithm.
  * This class provides static methods to securely hash plain-text passwords and
  * to check if a plain-text password matches a previously generated hash.
+ * <p>
+ * BCrypt is deliberately slow (about 250 ms of CPU at cost 12), so hashes are computed on a
+ * small dedicated pool instead of the request thread: a burst of logins then occupies at most
+ * {@link #THREADS} cores and leaves the rest to other pages. When the pool's queue is full, the
+ * work is refused at once with a {@link PasswordHashingBusyException} rather than queued behind
+ * requests that will time out anyway.
+ * <p>
+ * The hash latency, queue wait and rejections are available from the getters below, and are
+ * logged every {@link #STATS_INTERVAL_SECONDS} while hashes are being computed.
  */
 public class PasswordUtil {
-	
+
+    private static final Logger logger = LogManager.getLogger(PasswordUtil.class);
+
+    /** The BCrypt work factor of new hashes, configurable with the {@code budgettracker.bcrypt.cost} system property. */
+    public static final int COST = Integer.getInteger("budgettracker.bcrypt.cost", 12);
+    /** Threads computing hashes, configurable with the {@code budgettracker.bcrypt.threads} system property; half the cores by default. */
+    public static final int THREADS = Integer.getInteger("budgettracker.bcrypt.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    /** Hashes that may wait for a thread, configurable with the {@code budgettracker.bcrypt.queueDepth} system property. */
+    public static final int QUEUE_DEPTH = Integer.getInteger("budgettracker.bcrypt.queueDepth", THREADS * 8);
+
+    /** How often the hashing metrics are logged, configurable with the {@code budgettracker.bcrypt.statsIntervalSeconds} system property; 0 disables the log. */
+    public static final long STATS_INTERVAL_SECONDS = Long.getLong("budgettracker.bcrypt.statsIntervalSeconds", 60);
+
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private static final LongAdder completed = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+    private static final LongAdder totalHashNanos = new LongAdder();
+    private static final LongAdder totalQueueWaitNanos = new LongAdder();
+    private static final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+
+    /** The counters at the previous stats log line, so each line covers one interval. Only touched by the reporter thread. */
+    private static long reportedCompleted;
+    private static long reportedRejected;
+    private static long reportedHashNanos;
+    private static long reportedQueueWaitNanos;
+
+    private static final ScheduledExecutorService REPORTER = createReporter();
+
     /**
      * Hashes a plain-text password using the BCrypt algorithm.
      * A salt is automatically generated and included in the resulting hash string.
      *
      * @param plainTextPassword The plain-text password to hash.
      * @return A String containing the BCrypt hash of the password.
+     * @throws PasswordHashingBusyException if too many hashes are already waiting.
      */
     public static String hashPassword(String plainTextPassword) {
-        // BCrypt.gensalt(12) generates a salt with a work factor of 12, which is a secure standard.
-        return BCrypt.hashpw(plainTextPassword, BCrypt.gensalt(12));
+        return run(() -> BCrypt.hashpw(plainTextPassword, BCrypt.gensalt(COST)));
     }
 
     /**
@@ -27,11 +79,188 @@ public class PasswordUtil {
      * @param plainTextPassword The plain-text password provided by the user during login.
      * @param hashedPasswordFromDB The hashed password retrieved from the database for that user.
      * @return true if the password matches the hash, false otherwise.
+     * @throws PasswordHashingBusyException if too many hashes are already waiting.
      */
     public static boolean checkPassword(String plainTextPassword, String hashedPasswordFromDB) {
         // The BCrypt.checkpw method automatically extracts the salt from the stored hash
         // and performs a secure comparison.
-        return BCrypt.checkpw(plainTextPassword, hashedPasswordFromDB);
+        return run(() -> BCrypt.checkpw(plainTextPassword, hashedPasswordFromDB));
+    }
+
+    /**
+     * Tells whether a stored hash was made with a different work factor than {@link #COST}, so
+     * that it should be replaced the next time the user's password is known.
+     *
+     * @param hashedPasswordFromDB A BCrypt hash, e.g. "$2a$12$...".
+     * @return true if the hash's cost differs from the configured one.
+     */
+    public static boolean needsRehash(String hashedPasswordFromDB) {
+        if (hashedPasswordFromDB == null || hashedPasswordFromDB.length() < 7 || hashedPasswordFromDB.charAt(0) != '$') {
+            return false;
+        }
+        int costStart = hashedPasswordFromDB.indexOf('$', 1) + 1;
+        try {
+            return Integer.parseInt(hashedPasswordFromDB.substring(costStart, costStart + 2)) != COST;
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The number of hashes waiting for a thread.
+     */
+    public static int getQueueDepth() {
+        return EXECUTOR.getQueue().size();
+    }
+
+    /**
+     * @return The number of hashes computed since startup.
+     */
+    public static long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * @return The number of hashes refused because the queue was full.
+     */
+    public static long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return The average time to compute one hash, in milliseconds.
+     */
+    public static double getAverageHashMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0 : totalHashNanos.sum() / 1_000_000.0 / count;
+    }
+
+    /**
+     * @return The average time a hash waited for a thread, in milliseconds.
+     */
+    public static double getAverageQueueWaitMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0 : totalQueueWaitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    /**
+     * @return The longest time a hash waited for a thread, in milliseconds.
+     */
+    public static double getMaxQueueWaitMillis() {
+        return maxQueueWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Stops the hashing threads. Called when the web application is undeployed.
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+        if (REPORTER != null) {
+            REPORTER.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs a hash on the pool and waits for it, recording how long it waited and ran.
+     */
+    private static <T> T run(Callable<T> hash) {
+        long submitted = System.nanoTime();
+        Future<T> result;
+        try {
+            result = EXECUTOR.submit(() -> {
+                long started = System.nanoTime();
+                try {
+                    return hash.call();
+                } finally {
+                    long waited = started - submitted;
+                    totalQueueWaitNanos.add(waited);
+                    maxQueueWaitNanos.accumulate(waited);
+                    totalHashNanos.add(System.nanoTime() - started);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("Password hashing is saturated ({} waiting); refusing the request.", getQueueDepth());
+            throw new PasswordHashingBusyException(estimateRetryAfterSeconds());
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a password hash.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Private helper method to log the hashes computed and refused since the previous call, with
+     * their average latency and queue wait. Nothing is logged for an idle interval.
+     */
+    private static void logStats() {
+        long completedNow = completed.sum();
+        long rejectedNow = rejected.sum();
+        long hashNanosNow = totalHashNanos.sum();
+        long queueWaitNanosNow = totalQueueWaitNanos.sum();
+        long hashes = completedNow - reportedCompleted;
+        long refused = rejectedNow - reportedRejected;
+        if (hashes > 0 || refused > 0) {
+            logger.info("Password hashing in the last {} s: {} hashes, {} refused; average hash {} ms, average queue wait {} ms, "
+                    + "longest queue wait since startup {} ms, {} waiting now.",
+                    STATS_INTERVAL_SECONDS, hashes, refused,
+                    hashes == 0 ? 0 : (hashNanosNow - reportedHashNanos) / 1_000_000 / hashes,
+                    hashes == 0 ? 0 : (queueWaitNanosNow - reportedQueueWaitNanos) / 1_000_000 / hashes,
+                    Math.round(getMaxQueueWaitMillis()), getQueueDepth());
+        }
+        reportedCompleted = completedNow;
+        reportedRejected = rejectedNow;
+        reportedHashNanos = hashNanosNow;
+        reportedQueueWaitNanos = queueWaitNanosNow;
     }
-}
 
+    /**
+     * Estimates how long the current queue takes to drain, in whole seconds and at least one.
+     */
+    private static int estimateRetryAfterSeconds() {
+        double hashMillis = getAverageHashMillis() > 0 ? getAverageHashMillis() : 250;
+        double drainMillis = (getQueueDepth() + THREADS) * hashMillis / THREADS;
+        return (int) Math.max(1, Math.ceil(drainMillis / 1000));
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, QUEUE_DEPTH)), runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ScheduledExecutorService createReporter() {
+        if (STATS_INTERVAL_SECONDS <= 0) {
+            return null;
+        }
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bcrypt-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleWithFixedDelay(() -> {
+            try {
+                logStats();
+            } catch (RuntimeException e) {
+                logger.error("Failed to log password hashing metrics.", e);
+            }
+        }, STATS_INTERVAL_SECONDS, STATS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        return reporter;
+    }
+}
@@ -0,0 +1,272 @@
+package com.budgetbakers.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Applies numbered, checksummed SQL migrations to the database at startup.
+ * Migrations are read from the classpath as {@code db/migration/V1.sql}, {@code V2.sql}, ...
+ * in order until the next number is missing. The first comment line of each file is used
+ * as its description. Applied versions are recorded in the {@code schema_migrations} table
+ * together with a SHA-256 checksum, so a migration that is edited after it has been applied
+ * is reported instead of silently diverging.
+ * <p>
+ * A MySQL named lock serializes the runner when several nodes start at the same time.
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LogManager.getLogger(SchemaMigrator.class);
+    private static final String LOCATION = "db/migration/";
+    private static final String LOCK_NAME = "budgettracker_schema_migrations";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+    /** MySQL error code for "Duplicate key name", raised when an index already exists. */
+    private static final int ER_DUP_KEYNAME = 1061;
+    /**
+     * Checksums of earlier revisions of migrations that were corrected after release, by version.
+     * A database that applied such a revision is accepted and its recorded checksum updated.
+     * V2 first created a unique index on users.email, which fails on databases with duplicates.
+     */
+    private static final Map<Integer, String> SUPERSEDED_CHECKSUMS =
+            Collections.singletonMap(2, "ec72692941dc8f2d0dda62e5efca63faa13185e45930913affd3c9b284869dea");
+
+    private final DataSource dataSource;
+
+    /**
+     * @param dataSource The data source to migrate.
+     */
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Applies every migration that has not been recorded in {@code schema_migrations} yet.
+     * @return The number of migrations applied by this call.
+     * @throws SQLException if a migration fails or the migration lock cannot be obtained.
+     * @throws IllegalStateException if an already applied migration has been modified.
+     */
+    public int migrate() throws SQLException {
+        List<Migration> migrations = loadMigrations();
+        int applied = 0;
+
+        try (Connection conn = dataSource.getConnection()) {
+            acquireLock(conn);
+            try {
+                createHistoryTable(conn);
+                Map<Integer, String> history = loadHistory(conn);
+
+                for (Migration migration : migrations) {
+                    String recordedChecksum = history.get(migration.version);
+                    if (recordedChecksum != null) {
+                        if (recordedChecksum.equals(SUPERSEDED_CHECKSUMS.get(migration.version))) {
+                            updateChecksum(conn, migration);
+                        } else if (!recordedChecksum.equals(migration.checksum)) {
+                            throw new IllegalStateException("Migration V" + migration.version + " (" + migration.description
+                                    + ") has been modified after it was applied.");
+                        }
+                        continue;
+                    }
+                    apply(conn, migration);
+                    applied++;
+                }
+            } finally {
+                releaseLock(conn);
+            }
+        }
+
+        logger.info("Schema is up to date: {} migration(s) available, {} applied now.", migrations.size(), applied);
+        return applied;
+    }
+
+    /**
+     * Loads all migrations from the classpath in version order.
+     */
+    private List<Migration> loadMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        ClassLoader loader = SchemaMigrator.class.getClassLoader();
+        for (int version = 1; ; version++) {
+            try (InputStream input = loader.getResourceAsStream(LOCATION + "V" + version + ".sql")) {
+                if (input == null) {
+                    break;
+                }
+                String script = new String(input.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+                migrations.add(new Migration(version, script));
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read migration V" + version, e);
+            }
+        }
+        return migrations;
+    }
+
+    private void createHistoryTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_migrations (" +
+                         "version INT PRIMARY KEY, " +
+                         "description VARCHAR(200) NOT NULL, " +
+                         "checksum CHAR(64) NOT NULL, " +
+                         "execution_ms INT NOT NULL, " +
+                         "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+    private Map<Integer, String> loadHistory(Connection conn) throws SQLException {
+        Map<Integer, String> history = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                history.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Runs every statement of a migration and records it in the history table.
+     * MySQL commits DDL implicitly, so statements are executed one by one; an index that
+     * already exists (e.g. created by hand) is logged and skipped rather than failing the run.
+     */
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        logger.info("Applying migration V{}: {}", migration.version, migration.description);
+        long start = System.currentTimeMillis();
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : migration.statements()) {
+                try {
+                    stmt.execute(sql);
+                } catch (SQLException e) {
+                    if (e.getErrorCode() != ER_DUP_KEYNAME) {
+                        throw e;
+                    }
+                    logger.warn("Migration V{}: index already exists, skipping: {}", migration.version, sql);
+                }
+            }
+        }
+
+        String insertSql = "INSERT INTO schema_migrations (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.setString(3, migration.checksum);
+            stmt.setInt(4, (int) (System.currentTimeMillis() - start));
+            stmt.executeUpdate();
+        }
+        logger.info("Migration V{} applied in {} ms.", migration.version, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Records the current checksum of a migration that was applied in a superseded revision.
+     */
+    private void updateChecksum(Connection conn, Migration migration) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE schema_migrations SET checksum = ? WHERE version = ?")) {
+            stmt.setString(1, migration.checksum);
+            stmt.setInt(2, migration.version);
+            stmt.executeUpdate();
+        }
+        logger.info("Migration V{} was applied in a superseded revision; recorded the current checksum.", migration.version);
+    }
+
+    private void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Could not obtain the schema migration lock within " + LOCK_TIMEOUT_SECONDS + " seconds.");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            logger.warn("Failed to release the schema migration lock.", e);
+        }
+    }
+
+    /**
+     * A single versioned migration script.
+     */
+    private static final class Migration {
+        private final int version;
+        private final String script;
+        private final String description;
+        private final String checksum;
+
+        Migration(int version, String script) {
+            this.version = version;
+            this.script = script;
+            this.description = describe(script);
+            this.checksum = sha256(script);
+        }
+
+        /**
+         * Splits the script into statements on semicolons that end a line, ignoring comment lines.
+         */
+        List<String> statements() {
+            List<String> statements = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            for (String line : script.split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                current.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    String sql = current.toString().trim();
+                    statements.add(sql.substring(0, sql.length() - 1));
+                    current.setLength(0);
+                }
+            }
+            if (current.toString().trim().length() > 0) {
+                statements.add(current.toString().trim());
+            }
+            return statements;
+        }
+
+        private static String describe(String script) {
+            for (String line : script.split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("--")) {
+                    return trimmed.substring(2).trim();
+                }
+                if (!trimmed.isEmpty()) {
+                    break;
+                }
+            }
+            return "(no description)";
+        }
+
+        private static String sha256(String script) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(script.getBytes(StandardCharsets.UTF_8));
+                StringBuilder hex = new StringBuilder(digest.length * 2);
+                for (byte b : digest) {
+                    hex.append(String.format("%02x", b));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
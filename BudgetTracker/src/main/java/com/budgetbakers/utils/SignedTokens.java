@@ -0,0 +1,189 @@
+package com.budgetbakers.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Issues and verifies compact tokens signed with HMAC-SHA256, for state the server hands to the
+ * browser and must get back unmodified, such as the stateless login cookie.
+ * <p>
+ * A token reads {@code <keyId>.<payload>.<signature>}, with the payload and signature in
+ * unpadded base64url; the payload ends with its expiry in epoch seconds. Keys form a ring: the
+ * first signs new tokens and every key verifies, so a key is rotated by putting a new one first,
+ * then removing the old one once the tokens it signed have expired. The ring is read from the
+ * {@code BUDGETTRACKER_AUTH_KEYS} environment variable or the {@code budgettracker.auth.keys}
+ * system property, as comma-separated {@code keyId:base64Secret} pairs with secrets of at least
+ * 32 bytes.
+ */
+public final class SignedTokens {
+
+    private static final Logger logger = LogManager.getLogger(SignedTokens.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final String signingKeyId;
+    private final Map<String, SigningKey> keys;
+
+    /**
+     * @param keys The key ring, in order: the first key signs. Key IDs may not contain '.'.
+     * @throws IllegalArgumentException if the ring is empty, or a key ID or secret is unusable.
+     */
+    public SignedTokens(Map<String, byte[]> keys) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("At least one signing key is required.");
+        }
+        this.keys = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> key : keys.entrySet()) {
+            if (key.getKey().isEmpty() || key.getKey().contains(".")) {
+                throw new IllegalArgumentException("Invalid signing key ID '" + key.getKey() + "'.");
+            }
+            if (key.getValue().length < MIN_SECRET_BYTES) {
+                throw new IllegalArgumentException("Signing key '" + key.getKey() + "' is shorter than " + MIN_SECRET_BYTES + " bytes.");
+            }
+            this.keys.put(key.getKey(), new SigningKey(key.getValue()));
+        }
+        this.signingKeyId = keys.keySet().iterator().next();
+    }
+
+    /**
+     * Reads the key ring from the environment or the system properties.
+     * @return The tokens, or null if no key ring is configured or it is invalid.
+     */
+    public static SignedTokens fromEnvironment() {
+        String spec = System.getenv("BUDGETTRACKER_AUTH_KEYS");
+        if (spec == null || spec.trim().isEmpty()) {
+            spec = System.getProperty("budgettracker.auth.keys");
+        }
+        if (spec == null || spec.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            Map<String, byte[]> keys = new LinkedHashMap<>();
+            for (String pair : spec.split(",")) {
+                int colon = pair.indexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException("Expected keyId:base64Secret but found '" + pair.trim() + "'.");
+                }
+                keys.put(pair.substring(0, colon).trim(), Base64.getDecoder().decode(pair.substring(colon + 1).trim()));
+            }
+            return new SignedTokens(keys);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid signing key configuration: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Signs a payload with the current signing key.
+     * @param payload The payload; it is readable by the browser, so it must not hold secrets.
+     * @param expiresAtSeconds When the token expires, in epoch seconds.
+     * @return The token, safe to use as a cookie value.
+     */
+    public String sign(String payload, long expiresAtSeconds) {
+        String body = signingKeyId + "." + ENCODER.encodeToString((payload + "|" + expiresAtSeconds).getBytes(StandardCharsets.UTF_8));
+        return body + "." + ENCODER.encodeToString(keys.get(signingKeyId).mac(body));
+    }
+
+    /**
+     * Verifies a token's signature with the key it names, and its expiry.
+     * @param token The token, e.g. a cookie value.
+     * @return The payload and expiry, or null if the token is malformed, signed with an unknown
+     *         key, tampered with or expired.
+     */
+    public Verified verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot <= firstDot) {
+            return null;
+        }
+        SigningKey key = keys.get(token.substring(0, firstDot));
+        if (key == null) {
+            return null;
+        }
+        String body = token.substring(0, lastDot);
+        try {
+            if (!MessageDigest.isEqual(key.mac(body), DECODER.decode(token.substring(lastDot + 1)))) {
+                return null;
+            }
+            String content = new String(DECODER.decode(body.substring(firstDot + 1)), StandardCharsets.UTF_8);
+            int bar = content.lastIndexOf('|');
+            long expiresAtSeconds = Long.parseLong(content.substring(bar + 1));
+            if (System.currentTimeMillis() / 1000 >= expiresAtSeconds) {
+                return null;
+            }
+            return new Verified(content.substring(0, bar), expiresAtSeconds);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The content of a valid token.
+     */
+    public static final class Verified {
+        private final String payload;
+        private final long expiresAtSeconds;
+
+        private Verified(String payload, long expiresAtSeconds) {
+            this.payload = payload;
+            this.expiresAtSeconds = expiresAtSeconds;
+        }
+
+        /**
+         * @return The payload passed to {@link SignedTokens#sign(String, long)}.
+         */
+        public String getPayload() {
+            return payload;
+        }
+
+        /**
+         * @return When the token expires, in epoch seconds.
+         */
+        public long getExpiresAtSeconds() {
+            return expiresAtSeconds;
+        }
+    }
+
+    /**
+     * One key of the ring. Each call works on a clone of an initialized {@link Mac}, which is
+     * cheaper than looking up and initializing a new one.
+     */
+    private static final class SigningKey {
+        private final Mac prototype;
+
+        private SigningKey(byte[] secret) {
+            try {
+                this.prototype = Mac.getInstance(ALGORITHM);
+                prototype.init(new SecretKeySpec(secret.clone(), ALGORITHM));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 is not available.", e);
+            }
+        }
+
+        private byte[] mac(String body) {
+            Mac mac;
+            try {
+                mac = (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException("HmacSHA256 cannot be cloned.", e);
+            }
+            return mac.doFinal(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
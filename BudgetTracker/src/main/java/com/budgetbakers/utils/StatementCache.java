@@ -0,0 +1,254 @@
+package com.budgetbakers.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A per-connection cache of {@link PreparedStatement}s keyed by their SQL text.
+ * Statements handed out by the cache are proxies; closing them clears their parameters and
+ * pending batch, restores the fetch size, row limit and query timeout they were prepared with,
+ * and makes them available to the next caller preparing the same SQL on the same physical
+ * connection, instead of closing them. A statement whose other settings were changed (e.g. its
+ * fetch direction) is closed instead. The least recently used statements are closed once the
+ * cache grows beyond its maximum size.
+ * <p>
+ * Hit, miss and eviction counts are aggregated in a shared {@link Stats} instance so that
+ * the effect across all connections of a pool can be observed.
+ */
+class StatementCache {
+
+    private static final Logger logger = LogManager.getLogger(StatementCache.class);
+
+    /** Setters whose effect is undone on checkin by restoring the statement's initial settings. */
+    private static final Set<String> RESTORED_SETTINGS = new HashSet<>(Arrays.asList(
+            "setFetchSize", "setMaxRows", "setLargeMaxRows", "setQueryTimeout"));
+    /** Setters whose effect is not undone on checkin; a statement they were called on is closed. */
+    private static final Set<String> DISCARDING_SETTINGS = new HashSet<>(Arrays.asList(
+            "setFetchDirection", "setMaxFieldSize", "setEscapeProcessing", "setCursorName", "setPoolable", "closeOnCompletion"));
+
+    private final Connection physical;
+    private final int maxSize;
+    private final Stats stats;
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param physical The physical connection the statements are prepared on.
+     * @param maxSize The maximum number of statements kept open for this connection.
+     * @param stats The counters shared by every cache of the owning pool.
+     */
+    StatementCache(Connection physical, int maxSize, Stats stats) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.stats = stats;
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, reusing a cached one when it is available.
+     * If the cached statement for this SQL is still in use (e.g. a nested query with the same
+     * shape), a one-off statement is prepared and closed normally.
+     *
+     * @param sql The SQL text of the statement.
+     * @param owner The pooled connection the statement is prepared through, which the statement's
+     * {@code getConnection()} returns instead of the physical connection.
+     * @return A {@link PreparedStatement} whose {@code close()} returns it to the cache.
+     * @throws SQLException if the statement cannot be prepared.
+     */
+    synchronized PreparedStatement prepare(String sql, Connection owner) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && !cached.inUse) {
+            stats.hits.incrementAndGet();
+            cached.inUse = true;
+            return cached.checkout(owner);
+        }
+        stats.misses.incrementAndGet();
+        PreparedStatement statement = physical.prepareStatement(sql);
+        if (cached != null) {
+            return statement;
+        }
+        cached = new CachedStatement(sql, statement);
+        cached.inUse = true;
+        statements.put(sql, cached);
+        evictOverflow();
+        return cached.checkout(owner);
+    }
+
+    /**
+     * Closes every cached statement. Called when the physical connection is retired.
+     */
+    synchronized void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closePhysical();
+        }
+        statements.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            CachedStatement eldest = it.next();
+            if (eldest.inUse) {
+                continue;
+            }
+            it.remove();
+            eldest.closePhysical();
+            stats.evictions.incrementAndGet();
+        }
+    }
+
+    private synchronized void checkin(CachedStatement cached, Checkout checkout) {
+        cached.inUse = false;
+        if (statements.get(cached.sql) != cached || checkout.discard) {
+            statements.remove(cached.sql, cached);
+            cached.closePhysical();
+            return;
+        }
+        try {
+            cached.statement.clearParameters();
+            cached.statement.clearBatch();
+            cached.statement.clearWarnings();
+            if (checkout.settingsChanged) {
+                cached.statement.setFetchSize(cached.fetchSize);
+                cached.statement.setMaxRows(cached.maxRows);
+                cached.statement.setQueryTimeout(cached.queryTimeout);
+            }
+        } catch (SQLException e) {
+            logger.debug("Dropping cached statement that could not be reset.", e);
+            statements.remove(cached.sql);
+            cached.closePhysical();
+            return;
+        }
+        evictOverflow();
+    }
+
+    /**
+     * A cached statement and the handler used for the proxy of its current checkout.
+     */
+    private final class CachedStatement {
+        private final String sql;
+        private final PreparedStatement statement;
+        /** The settings the statement was prepared with, restored on checkin. */
+        private final int fetchSize;
+        private final int maxRows;
+        private final int queryTimeout;
+        private boolean inUse;
+
+        CachedStatement(String sql, PreparedStatement statement) throws SQLException {
+            this.sql = sql;
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.maxRows = statement.getMaxRows();
+            this.queryTimeout = statement.getQueryTimeout();
+        }
+
+        PreparedStatement checkout(Connection owner) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, new Checkout(this, owner));
+        }
+
+        void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing cached statement.", e);
+            }
+        }
+    }
+
+    /**
+     * Intercepts {@code close()} on a checked-out statement so it goes back to the cache,
+     * {@code getConnection()} so the caller only sees the pooled connection, and the setters
+     * that have to be undone before the statement is reused.
+     */
+    private final class Checkout implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection owner;
+        private boolean returned;
+        /** Whether a setter in {@link #RESTORED_SETTINGS} was called. */
+        private boolean settingsChanged;
+        /** Whether a setter in {@link #DISCARDING_SETTINGS} was called. */
+        private boolean discard;
+
+        Checkout(CachedStatement cached, Connection owner) {
+            this.cached = cached;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxyInstance, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        checkin(cached, this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || cached.statement.isClosed();
+                case "getConnection":
+                    if (returned) {
+                        throw new SQLException("Statement has already been closed.");
+                    }
+                    return owner;
+                case "equals":
+                    return proxyInstance == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyInstance);
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Statement has already been closed.");
+            }
+            if (RESTORED_SETTINGS.contains(method.getName())) {
+                settingsChanged = true;
+            } else if (DISCARDING_SETTINGS.contains(method.getName())) {
+                discard = true;
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Hit, miss and eviction counters shared by all statement caches of one pool.
+     */
+    static final class Stats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        long getHits() {
+            return hits.get();
+        }
+
+        long getMisses() {
+            return misses.get();
+        }
+
+        long getEvictions() {
+            return evictions.get();
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits.get() + ", misses=" + misses.get() + ", evictions=" + evictions.get();
+        }
+    }
+}
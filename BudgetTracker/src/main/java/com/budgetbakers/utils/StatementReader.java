@@ -0,0 +1,119 @@
+package com.budgetbakers.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the rows of an uploaded bank statement one at a time, so that a statement of any size
+ * can be imported without holding it in memory. Values are returned as found in the file;
+ * resolving names and parsing dates and amounts is left to the importer, which can then report
+ * a bad value against the line it came from.
+ */
+public interface StatementReader extends Closeable {
+
+    /**
+     * Reads the next row of the statement.
+     * @return The row, or null at the end of the statement.
+     * @throws IOException if the statement cannot be read or is not in the expected format.
+     */
+    Row next() throws IOException;
+
+    /**
+     * One transaction of a statement, as raw text. Fields missing from the file are null.
+     */
+    final class Row {
+        private final int line;
+        private final String date;
+        private final String type;
+        private final String amount;
+        private final String account;
+        private final String toAccount;
+        private final String category;
+        private final String note;
+
+        /**
+         * @param line The line of the file the row starts on, for error messages.
+         * @param date The transaction date.
+         * @param type The transaction type ("Income", "Expense" or "Transfer"), or null to infer it from the sign of the amount.
+         * @param amount The amount.
+         * @param account The name of the account.
+         * @param toAccount The name of the receiving account of a transfer.
+         * @param category The name of the category.
+         * @param note The note.
+         */
+        public Row(int line, String date, String type, String amount, String account, String toAccount, String category, String note) {
+            this.line = line;
+            this.date = date;
+            this.type = type;
+            this.amount = amount;
+            this.account = account;
+            this.toAccount = toAccount;
+            this.category = category;
+            this.note = note;
+        }
+
+        /**
+         * Gets the line of the file the row starts on.
+         * @return The line number, counting from 1.
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * Gets the transaction date.
+         * @return The date as written in the file.
+         */
+        public String getDate() {
+            return date;
+        }
+
+        /**
+         * Gets the transaction type.
+         * @return "Income", "Expense" or "Transfer" as written in the file, or null.
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Gets the amount.
+         * @return The amount as written in the file.
+         */
+        public String getAmount() {
+            return amount;
+        }
+
+        /**
+         * Gets the name of the account.
+         * @return The account name, or null.
+         */
+        public String getAccount() {
+            return account;
+        }
+
+        /**
+         * Gets the name of the receiving account of a transfer.
+         * @return The account name, or null.
+         */
+        public String getToAccount() {
+            return toAccount;
+        }
+
+        /**
+         * Gets the name of the category.
+         * @return The category name, or null.
+         */
+        public String getCategory() {
+            return category;
+        }
+
+        /**
+         * Gets the note.
+         * @return The note, or null.
+         */
+        public String getNote() {
+            return note;
+        }
+    }
+}
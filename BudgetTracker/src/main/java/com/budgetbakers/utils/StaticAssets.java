@@ -0,0 +1,258 @@
+package com.budgetbakers.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletContext;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * The fingerprinted copies of the stylesheets and scripts, prepared once when the application
+ * starts.
+ * <p>
+ * Each asset gets a URL with a hash of its content in the file name, e.g.
+ * {@code css/header.css} becomes {@code css/header.1a2b3c4d5e6f.css}, so the URL changes
+ * whenever the content does and browsers may cache it for good. A gzip variant is kept when it
+ * is smaller. Assets of at least {@link #FILE_THRESHOLD_BYTES} are written to a work directory,
+ * so that the container can send them straight from the file; smaller ones are kept in memory.
+ */
+public final class StaticAssets {
+
+    /** The directories of the web application holding assets. */
+    public static final String[] ROOTS = { "/css/", "/js/" };
+    /** The size from which an asset variant is served from a file rather than from memory. */
+    public static final int FILE_THRESHOLD_BYTES = 48 * 1024;
+
+    private static final int HASH_LENGTH = 12;
+
+    /** Fingerprinted URL by logical path, e.g. "css/header.css" to "css/header.1a2b3c4d5e6f.css". */
+    private final Map<String, String> urls;
+    /** Asset by fingerprinted path, with a leading '/'. */
+    private final Map<String, Asset> assets;
+
+    /**
+     * Fingerprints and compresses assets.
+     * @param sources The content of each asset, by logical path without a leading '/'.
+     * @param contentTypes Resolves the content type of a file name, e.g. {@link ServletContext#getMimeType(String)}.
+     * @param workDir The directory the large variants are written to; its previous content is replaced.
+     * @throws IOException if a variant cannot be written.
+     */
+    public StaticAssets(Map<String, byte[]> sources, Function<String, String> contentTypes, Path workDir) throws IOException {
+        Files.createDirectories(workDir);
+        try (Stream<Path> stale = Files.list(workDir)) {
+            for (Path file : (Iterable<Path>) stale::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        Map<String, String> urls = new TreeMap<>();
+        Map<String, Asset> assets = new HashMap<>();
+        for (Map.Entry<String, byte[]> source : sources.entrySet()) {
+            String path = source.getKey();
+            byte[] content = source.getValue();
+            String hash = Hashing.sha256().hashBytes(content).toString().substring(0, HASH_LENGTH);
+            String url = fingerprint(path, hash);
+
+            String fileName = url.replace('/', '_');
+            Variant identity = variant(content, "\"" + hash + "\"", workDir.resolve(fileName));
+            byte[] gzipped = gzip(content);
+            Variant gzip = gzipped.length < content.length
+                    ? variant(gzipped, "\"" + hash + "-gzip\"", workDir.resolve(fileName + ".gz"))
+                    : null;
+            String contentType = contentTypes.apply(path);
+
+            urls.put(path, url);
+            assets.put("/" + url, new Asset(contentType != null ? contentType : "application/octet-stream", identity, gzip));
+        }
+        this.urls = Collections.unmodifiableMap(urls);
+        this.assets = assets;
+    }
+
+    /**
+     * Reads every asset under the {@link #ROOTS} of a web application.
+     * @param context The web application.
+     * @return The content of each asset, by logical path without a leading '/'.
+     * @throws IOException if an asset cannot be read.
+     */
+    public static Map<String, byte[]> readSources(ServletContext context) throws IOException {
+        Map<String, byte[]> sources = new TreeMap<>();
+        for (String root : ROOTS) {
+            readSources(context, root, sources);
+        }
+        return sources;
+    }
+
+    /**
+     * Returns the fingerprinted URL of each asset, for the JSPs to link to.
+     * @return The URL relative to the context path, by logical path, e.g. "css/header.css".
+     */
+    public Map<String, String> getUrls() {
+        return urls;
+    }
+
+    /**
+     * Finds an asset by its fingerprinted path.
+     * @param path The path relative to the context path, with a leading '/'.
+     * @return The {@link Asset}, or null if the path is not a fingerprinted asset.
+     */
+    public Asset find(String path) {
+        return assets.get(path);
+    }
+
+    /**
+     * Private helper method to read the assets of one directory, recursively.
+     */
+    private static void readSources(ServletContext context, String dir, Map<String, byte[]> sources) throws IOException {
+        Set<String> paths = context.getResourcePaths(dir);
+        if (paths == null) {
+            return;
+        }
+        for (String path : paths) {
+            if (path.endsWith("/")) {
+                readSources(context, path, sources);
+                continue;
+            }
+            try (InputStream in = context.getResourceAsStream(path)) {
+                if (in != null) {
+                    sources.put(path.substring(1), readAll(in));
+                }
+            }
+        }
+    }
+
+    /**
+     * Private helper method to insert the hash before the extension of a path.
+     */
+    private static String fingerprint(String path, String hash) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        return dot <= slash ? path + "." + hash : path.substring(0, dot) + "." + hash + path.substring(dot);
+    }
+
+    /**
+     * Private helper method to keep a small variant in memory, or write a large one to a file.
+     */
+    private static Variant variant(byte[] content, String etag, Path file) throws IOException {
+        if (content.length < FILE_THRESHOLD_BYTES) {
+            return new Variant(content, null, content.length, etag);
+        }
+        Files.write(file, content);
+        return new Variant(null, file, content.length, etag);
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * One fingerprinted asset.
+     */
+    public static final class Asset {
+        private final String contentType;
+        private final Variant identity;
+        private final Variant gzip;
+
+        private Asset(String contentType, Variant identity, Variant gzip) {
+            this.contentType = contentType;
+            this.identity = identity;
+            this.gzip = gzip;
+        }
+
+        /**
+         * @return The content type, e.g. "text/css".
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return The uncompressed variant.
+         */
+        public Variant getIdentity() {
+            return identity;
+        }
+
+        /**
+         * @return The gzip variant, or null if compressing does not make the asset smaller.
+         */
+        public Variant getGzip() {
+            return gzip;
+        }
+    }
+
+    /**
+     * The bytes of an asset in one content encoding, held either in memory or in a file.
+     */
+    public static final class Variant {
+        private final byte[] content;
+        private final Path file;
+        private final long length;
+        private final String etag;
+
+        private Variant(byte[] content, Path file, long length, String etag) {
+            this.content = content;
+            this.file = file;
+            this.length = length;
+            this.etag = etag;
+        }
+
+        /**
+         * @return The bytes, or null if they are in {@link #getFile()}.
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * @return The file holding the bytes, or null if they are in memory.
+         */
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * @return The length in bytes.
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return The strong entity tag, quoted.
+         */
+        public String getETag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.budgetbakers.utils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A small structured-concurrency scope for running independent queries of one request in parallel.
+ * <p>
+ * Subtasks are {@linkplain #fork(Callable) forked} into the scope and awaited together with
+ * {@link #join()}. The scope has a deadline and a concurrency limit: at most {@code maxConcurrency}
+ * subtasks of the scope run at the same time, so a user with many accounts cannot occupy the whole
+ * connection pool. If a subtask fails or the deadline passes, the remaining subtasks are cancelled.
+ * Closing the scope cancels anything still running, so subtasks never outlive the request.
+ * <p>
+ * Subtasks run on virtual threads when the JDK provides them (Java 21+), otherwise on a shared
+ * pool of daemon platform threads.
+ *
+ * <pre>
+ * try (TaskScope scope = new TaskScope(2, 5000)) {
+ *     TaskScope.Subtask&lt;List&lt;Account&gt;&gt; accounts = scope.fork(() -&gt; loadAccounts(userId));
+ *     TaskScope.Subtask&lt;Map&lt;String, Double&gt;&gt; kpis = scope.fork(() -&gt; loadKpis(userId));
+ *     scope.join();
+ *     render(accounts.get(), kpis.get());
+ * }
+ * </pre>
+ */
+public final class TaskScope implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(TaskScope.class);
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    /**
+     * Default number of subtasks of one request running at once. Sized together with the
+     * connection pool (10 connections by default): at 2, five pages can load in parallel before
+     * requests wait for connections, and the pool's lease timeout (2 s) is shorter than the
+     * deadline below, so a saturated pool fails a query rather than the deadline.
+     */
+    private static final int REQUEST_CONCURRENCY = Integer.getInteger("budgettracker.query.concurrency", 2);
+    /** Default deadline in milliseconds for the subtasks of one request. */
+    private static final long REQUEST_TIMEOUT_MS = Long.getLong("budgettracker.query.timeoutMs", 5000L);
+
+    private final Semaphore permits;
+    private final long timeoutMs;
+    private final long deadlineNanos;
+    private final List<Subtask<?>> subtasks = new ArrayList<>();
+    private final BlockingQueue<Subtask<?>> completed = new LinkedBlockingQueue<>();
+    private int joined;
+
+    /**
+     * @param maxConcurrency The maximum number of subtasks of this scope running at once.
+     * @param timeoutMs The time in milliseconds, from now, by which all subtasks must have completed.
+     */
+    public TaskScope(int maxConcurrency, long timeoutMs) {
+        this.permits = new Semaphore(Math.max(1, maxConcurrency));
+        this.timeoutMs = timeoutMs;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * Opens a scope with the default limits for the queries of one web request, configurable with the
+     * {@code budgettracker.query.concurrency} and {@code budgettracker.query.timeoutMs} system properties.
+     * @return A new scope.
+     */
+    public static TaskScope forRequest() {
+        return new TaskScope(REQUEST_CONCURRENCY, REQUEST_TIMEOUT_MS);
+    }
+
+    /**
+     * @return The timeout this scope was opened with, in milliseconds.
+     */
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * Starts a subtask in this scope.
+     * @param task The work to run.
+     * @return A handle to the subtask's result, available after {@link #join()}.
+     */
+    public <T> Subtask<T> fork(Callable<T> task) {
+        Subtask<T> subtask = new Subtask<>(task);
+        subtasks.add(subtask);
+        EXECUTOR.execute(subtask);
+        return subtask;
+    }
+
+    /**
+     * Waits for all forked subtasks to complete.
+     * @throws ExecutionException if a subtask failed; the other subtasks are cancelled.
+     * @throws TimeoutException if the deadline passed first; unfinished subtasks are cancelled.
+     * @throws InterruptedException if the calling thread was interrupted; subtasks are cancelled.
+     */
+    public void join() throws ExecutionException, TimeoutException, InterruptedException {
+        try {
+            while (joined < subtasks.size()) {
+                long remaining = deadlineNanos - System.nanoTime();
+                Subtask<?> done = remaining > 0 ? completed.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (done == null) {
+                    cancelAll();
+                    throw new TimeoutException("Subtasks did not complete within the deadline.");
+                }
+                joined++;
+                Throwable failure = done.failure();
+                if (failure != null) {
+                    cancelAll();
+                    throw new ExecutionException(failure);
+                }
+            }
+        } catch (InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels all subtasks that have not completed yet.
+     */
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    private void cancelAll() {
+        for (Subtask<?> subtask : subtasks) {
+            subtask.cancel(true);
+        }
+    }
+
+    /**
+     * Stops the shared executor. Called when the web application is undeployed.
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    /**
+     * Uses {@code Executors.newVirtualThreadPerTaskExecutor()} when running on a JDK that has it.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            logger.info("Running parallel subtasks on virtual threads.");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads are not available; running parallel subtasks on platform threads.");
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "task-scope-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+
+    /**
+     * A forked subtask. It waits for a permit of its scope before running and reports its
+     * completion to the scope.
+     */
+    public final class Subtask<T> extends FutureTask<T> {
+
+        Subtask(Callable<T> task) {
+            super(() -> {
+                permits.acquire();
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        /**
+         * @return The result of the subtask.
+         * @throws IllegalStateException if the subtask did not complete successfully.
+         */
+        @Override
+        public T get() {
+            if (!isDone()) {
+                throw new IllegalStateException("Subtask has not completed; call join() first.");
+            }
+            try {
+                return super.get();
+            } catch (ExecutionException | CancellationException e) {
+                throw new IllegalStateException("Subtask did not complete successfully.", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * @param fallback The value to return if the subtask failed, was cancelled or has not finished.
+         * @return The result of the subtask, or the fallback.
+         */
+        public T getOrDefault(T fallback) {
+            if (!isDone() || isCancelled()) {
+                return fallback;
+            }
+            try {
+                return super.get();
+            } catch (ExecutionException | InterruptedException e) {
+                return fallback;
+            }
+        }
+
+        /**
+         * @return The exception the subtask failed with, or null if it succeeded or was cancelled.
+         */
+        Throwable failure() {
+            if (isCancelled()) {
+                return null;
+            }
+            try {
+                super.get();
+                return null;
+            } catch (ExecutionException e) {
+                return e.getCause();
+            } catch (InterruptedException | CancellationException e) {
+                return null;
+            }
+        }
+
+        @Override
+        protected void done() {
+            completed.add(this);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+-- Composite and covering indexes for the dashboard, records and analysis queries
+
+-- Login lookups (UserService.findUserByEmail). Not unique: the users table never required
+-- unique emails, and existing duplicates must not make this migration fail.
+CREATE INDEX idx_users_email ON users (email);
+
+-- Per-user account lists and currency filters.
+CREATE INDEX idx_accounts_user_currency ON accounts (user_id, currency);
+
+-- Records list ordered by date, monthly KPIs, per-account totals and analysis date ranges.
+-- Covers AccountService.getDashboardKPIs and the date-bounded analysis aggregates without row lookups.
+CREATE INDEX idx_transactions_user_date ON transactions (user_id, transaction_date, transaction_type, account_id, amount);
+
+-- Top spending categories per account for the current month (covering).
+CREATE INDEX idx_transactions_account_type_date ON transactions (account_id, transaction_type, transaction_date, category_id, amount);
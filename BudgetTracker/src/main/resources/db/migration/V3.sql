@@ -0,0 +1,32 @@
+-- Materialized per-account running totals, maintained with every ledger write
+
+-- One row per account that has transactions. Transfers are booked as transfer_out on the
+-- source account and transfer_in on the target account.
+CREATE TABLE IF NOT EXISTS account_balances (
+    account_id INT PRIMARY KEY,
+    user_id INT NOT NULL,
+    total_income DECIMAL(15, 2) NOT NULL DEFAULT 0,
+    total_expense DECIMAL(15, 2) NOT NULL DEFAULT 0,
+    transfer_in DECIMAL(15, 2) NOT NULL DEFAULT 0,
+    transfer_out DECIMAL(15, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    CONSTRAINT fk_account_balances_account FOREIGN KEY (account_id) REFERENCES accounts (id) ON DELETE CASCADE,
+    INDEX idx_account_balances_user (user_id)
+) ENGINE=InnoDB;
+
+-- Backfill from the existing ledger (the same statement LedgerRepository.rebuildAccountBalances runs).
+INSERT INTO account_balances (account_id, user_id, total_income, total_expense, transfer_in, transfer_out)
+SELECT account_id, user_id, SUM(income), SUM(expense), SUM(transfer_in), SUM(transfer_out)
+FROM (
+    SELECT account_id, user_id,
+           CASE WHEN transaction_type = 'Income' THEN amount ELSE 0 END AS income,
+           CASE WHEN transaction_type = 'Expense' THEN amount ELSE 0 END AS expense,
+           0 AS transfer_in,
+           CASE WHEN transaction_type = 'Transfer' THEN amount ELSE 0 END AS transfer_out
+    FROM transactions
+    UNION ALL
+    SELECT to_account_id, user_id, 0, 0, amount, 0
+    FROM transactions
+    WHERE transaction_type = 'Transfer' AND to_account_id IS NOT NULL
+) movements
+GROUP BY account_id, user_id;
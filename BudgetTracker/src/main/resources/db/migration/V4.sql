@@ -0,0 +1,21 @@
+-- Monthly rollup of the ledger for month-grained analysis and KPI queries
+
+-- One row per user, month, account, category and transaction type. Uncategorized transactions
+-- are rolled up under category_id 0 so the column can be part of the primary key.
+CREATE TABLE IF NOT EXISTS monthly_rollups (
+    user_id INT NOT NULL,
+    period_month DATE NOT NULL,
+    account_id INT NOT NULL,
+    category_id INT NOT NULL DEFAULT 0,
+    transaction_type VARCHAR(20) NOT NULL,
+    total_amount DECIMAL(15, 2) NOT NULL DEFAULT 0,
+    txn_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, period_month, account_id, category_id, transaction_type),
+    CONSTRAINT fk_monthly_rollups_account FOREIGN KEY (account_id) REFERENCES accounts (id) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- Backfill from the existing ledger (the same statement LedgerRepository.rebuildMonthlyRollups runs).
+INSERT INTO monthly_rollups (user_id, period_month, account_id, category_id, transaction_type, total_amount, txn_count)
+SELECT user_id, DATE_FORMAT(transaction_date, '%Y-%m-01'), account_id, COALESCE(category_id, 0), transaction_type, SUM(amount), COUNT(*)
+FROM transactions
+GROUP BY user_id, DATE_FORMAT(transaction_date, '%Y-%m-01'), account_id, COALESCE(category_id, 0), transaction_type;
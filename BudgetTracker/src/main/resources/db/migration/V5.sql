@@ -0,0 +1,13 @@
+-- Month-start balance checkpoints per account for the balance trend's opening balance
+
+-- net_before is the account's income minus expense over all transactions dated before
+-- period_month. Rows are created on first use from monthly_rollups and repaired by every
+-- write dated before period_month, so no backfill is needed.
+CREATE TABLE IF NOT EXISTS balance_checkpoints (
+    account_id INT NOT NULL,
+    period_month DATE NOT NULL,
+    user_id INT NOT NULL,
+    net_before DECIMAL(15, 2) NOT NULL,
+    PRIMARY KEY (account_id, period_month),
+    CONSTRAINT fk_balance_checkpoints_account FOREIGN KEY (account_id) REFERENCES accounts (id) ON DELETE CASCADE
+) ENGINE=InnoDB;
@@ -0,0 +1,19 @@
+-- Transactional outbox of emails, delivered in batches by the background EmailDispatcher
+
+-- Rows are written in the same database transaction as the change they announce, so an email
+-- is queued if and only if that change commits. A dispatcher claims due PENDING rows by pushing
+-- next_attempt_at past a lease, then marks them SENT (clearing the body, which may hold a
+-- temporary password), reschedules them with backoff, or gives up with status FAILED.
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(10) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(500) NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP NULL,
+    KEY idx_email_outbox_due (status, next_attempt_at)
+) ENGINE=InnoDB;
@@ -2,6 +2,7 @@ document.addEventListener('DOMContentLoaded', function() {
 	const analysisForm = document.getElementById('analysisForm');
 	const graphTypeSelect = document.getElementById('graphType');
 	const dateRangeSelect = document.getElementById('dateRange');
+	const customRangeGroup = document.getElementById('customRangeGroup');
 	const chartCanvas = document.getElementById('analysisChart');
 	const tableContainer = document.getElementById('transactionTableContainer');
 	const spinner = document.getElementById('chartSpinner');
@@ -17,6 +18,9 @@ document.addEventListener('DOMContentLoaded', function() {
 	// 2. Dynamically update date range options when the graph type changes
 	graphTypeSelect.addEventListener('change', updateDateRangeOptions);
 
+	// 3. Show the start/end date pickers only for a custom range
+	dateRangeSelect.addEventListener('change', toggleCustomRange);
+
 
 	/**
 	 * Fetches the report data from the AnalysisServlet via AJAX.
@@ -34,6 +38,10 @@ document.addEventListener('DOMContentLoaded', function() {
 		// Append other form fields
 		params.append('graphType', formData.get('graphType'));
 		params.append('dateRange', formData.get('dateRange'));
+		if (formData.get('dateRange') === 'custom') {
+			params.append('startDate', formData.get('startDate'));
+			params.append('endDate', formData.get('endDate'));
+		}
 		params.append('currency', formData.get('currency'));
 
 		// CORRECTED: Build a full, absolute URL using the global contextPath variable.
@@ -240,13 +248,40 @@ document.addEventListener('DOMContentLoaded', function() {
 			options = `<option value="last30days">Last 30 Days</option>
                        <option value="last3months">Last 3 Months</option>
                        <option value="last6months">Last 6 Months</option>
-                       <option value="last12months">Last 12 Months</option>`;
+                       <option value="last12months">Last 12 Months</option>
+                       <option value="custom">Custom Range</option>`;
 		} else {
 			options = `<option value="last30days">Last 30 Days (Daily)</option>
                        <option value="last6months">Last 6 Months (Monthly)</option>
-                       <option value="last12months">Last 12 Months (Monthly)</option>`;
+                       <option value="last12months">Last 12 Months (Monthly)</option>
+                       <option value="custom">Custom Range</option>`;
 		}
 		dateRangeSelect.innerHTML = options;
+		toggleCustomRange();
+	}
+
+	/**
+	 * Shows the start/end date inputs when a custom range is selected.
+	 */
+	function toggleCustomRange() {
+		const isCustom = dateRangeSelect.value === 'custom';
+		customRangeGroup.style.display = isCustom ? 'block' : 'none';
+		if (isCustom && !document.getElementById('endDate').value) {
+			const today = new Date();
+			const monthAgo = new Date(today.getFullYear(), today.getMonth() - 1, today.getDate());
+			document.getElementById('endDate').value = formatLocalDate(today);
+			document.getElementById('startDate').value = formatLocalDate(monthAgo);
+		}
+	}
+
+	/**
+	 * Formats a date as YYYY-MM-DD in the browser's time zone; toISOString() would use UTC
+	 * and shift the day for users east or west of it.
+	 */
+	function formatLocalDate(date) {
+		const month = String(date.getMonth() + 1).padStart(2, '0');
+		const day = String(date.getDate()).padStart(2, '0');
+		return `${date.getFullYear()}-${month}-${day}`;
 	}
 
 	// --- INITIALIZATION ---
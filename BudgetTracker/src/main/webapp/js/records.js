@@ -26,18 +26,108 @@ document.addEventListener('DOMContentLoaded', function() {
         });
     }
 
+    // --- "Import Statement" Modal Functionality ---
+
+    const importModal = document.getElementById('importModal');
+    const importForm = document.getElementById('importForm');
+    const importStatus = document.getElementById('importStatus');
+    const importErrors = document.getElementById('importErrors');
+    const importSubmitBtn = document.getElementById('importSubmitBtn');
+    let importedRows = 0;
+
+    function closeImportModal() {
+        if (!importModal) return;
+        importModal.style.display = 'none';
+        // Show the imported records
+        if (importedRows > 0) window.location.reload();
+    }
+
+    const openImportBtn = document.getElementById('openImportModalBtn');
+    const closeImportBtn = document.getElementById('closeImportModalBtn');
+    if (openImportBtn) openImportBtn.addEventListener('click', () => importModal.style.display = 'flex');
+    if (closeImportBtn) closeImportBtn.addEventListener('click', closeImportModal);
+    if (importModal) {
+        importModal.addEventListener('click', function(event) {
+            if (event.target === importModal) {
+                closeImportModal();
+            }
+        });
+    }
+
+    /**
+     * Shows the progress or outcome of an import.
+     * @param {object} result - An ImportResult as serialized by ImportServlet.
+     */
+    function showImportResult(result) {
+        let text = `${result.rowsRead} rows read, ${result.rowsImported} imported`;
+        if (result.rowsFailed > 0) text += `, ${result.rowsFailed} failed`;
+        if (result.finished && result.failure) text += `. The import stopped: ${result.failure}`;
+        importStatus.textContent = result.finished ? text + '.' : text + '...';
+
+        importErrors.replaceChildren(...result.errors.map(error => {
+            const item = document.createElement('li');
+            item.textContent = `Line ${error.line}: ${error.message}`;
+            return item;
+        }));
+    }
+
+    if (importForm) {
+        importForm.addEventListener('submit', function(event) {
+            event.preventDefault();
+            importSubmitBtn.disabled = true;
+            importStatus.textContent = 'Uploading...';
+            importErrors.replaceChildren();
+
+            // The response is a line of JSON per progress report, the last one being the outcome
+            fetch(importForm.action, { method: 'POST', body: new FormData(importForm) })
+                .then(async response => {
+                    if (!response.ok) {
+                        throw new Error(response.status === 413 ? 'The file is too large to import.' : `Server responded with status: ${response.status}`);
+                    }
+                    const reader = response.body.getReader();
+                    const decoder = new TextDecoder();
+                    let buffered = '';
+                    let result = null;
+                    for (;;) {
+                        const { done, value } = await reader.read();
+                        if (done) break;
+                        buffered += decoder.decode(value, { stream: true });
+                        const lines = buffered.split('\n');
+                        buffered = lines.pop();
+                        for (const line of lines) {
+                            if (!line) continue;
+                            result = JSON.parse(line);
+                            showImportResult(result);
+                        }
+                    }
+                    if (result) importedRows += result.rowsImported;
+                    if (!result || !result.finished) throw new Error('The import was interrupted.');
+                })
+                .catch(error => {
+                    console.error('Error importing statement:', error);
+                    importStatus.textContent = error.message;
+                })
+                .finally(() => {
+                    importSubmitBtn.disabled = false;
+                });
+        });
+    }
+
     // --- NEW: Card Actions Menu (Three-dots menu) Functionality ---
 
-    // Get all the action buttons on the page
-    const actionButtons = document.querySelectorAll('.action-btn');
+    // Listen on the list rather than on each button, so cards appended while scrolling work too
+    const recordsList = document.querySelector('.records-list');
+
+    if (recordsList) {
+        recordsList.addEventListener('click', function(event) {
+            const button = event.target.closest('.action-btn');
+            if (!button) return;
 
-    actionButtons.forEach(button => {
-        button.addEventListener('click', function(event) {
             // Stop the click from bubbling up to the window listener immediately
             event.stopPropagation();
             
             // Find the menu associated with this specific button
-            const menu = this.nextElementSibling;
+            const menu = button.nextElementSibling;
 
             // Close all other open menus first
             closeAllMenus(menu);
@@ -47,7 +137,7 @@ document.addEventListener('DOMContentLoaded', function() {
                 menu.classList.toggle('show');
             }
         });
-    });
+    }
 
     /**
      * Helper function to close all action menus.
@@ -67,5 +157,111 @@ document.addEventListener('DOMContentLoaded', function() {
         closeAllMenus();
     });
 
+    // --- Infinite Scroll: load further pages of records from RecordsApiServlet ---
+
+    const scroller = document.getElementById('recordsScroller');
+    const sentinel = document.getElementById('recordsSentinel');
+    const dateFormat = new Intl.DateTimeFormat('en-US', { month: 'short' });
+    const amountFormat = new Intl.NumberFormat('en-IN', { minimumFractionDigits: 2, maximumFractionDigits: 2 });
+    let loading = false;
+
+    /**
+     * Fetches the page after the sentinel's cursor, with the same filters as the current page,
+     * and appends its records to the list.
+     */
+    function loadNextPage() {
+        const cursor = sentinel.dataset.nextCursor;
+        if (loading || !cursor) return;
+        loading = true;
+
+        const params = new URLSearchParams(window.location.search);
+        params.set('cursor', cursor);
+
+        fetch(`${contextPath}/RecordsApiServlet?${params.toString()}`)
+            .then(response => {
+                if (!response.ok) {
+                    throw new Error(`Server responded with status: ${response.status}`);
+                }
+                return response.json();
+            })
+            .then(page => {
+                page.transactions.forEach(tx => recordsList.appendChild(createCard(tx)));
+                if (page.nextCursor) {
+                    sentinel.dataset.nextCursor = page.nextCursor;
+                    // Re-observe so a sentinel that is still in view loads the following page as well
+                    observer.unobserve(sentinel);
+                    observer.observe(sentinel);
+                } else {
+                    observer.disconnect();
+                    sentinel.remove();
+                }
+            })
+            .catch(error => {
+                console.error('Error loading more records:', error);
+                sentinel.textContent = 'Could not load more records.';
+            })
+            .finally(() => {
+                loading = false;
+            });
+    }
+
+    /**
+     * Builds a transaction card with the same markup as records.jsp renders.
+     * @param {object} tx - A transaction as serialized by RecordsApiServlet.
+     * @returns {Element} The card element.
+     */
+    function createCard(tx) {
+        const date = new Date(tx.transactionDate);
+        const card = element('div', `transaction-card ${tx.transactionType.toLowerCase()}`);
+
+        const dateBox = element('div', 'date');
+        dateBox.append(element('span', 'day', String(date.getDate()).padStart(2, '0')), ' ',
+            element('span', 'month', dateFormat.format(date)));
+
+        const details = element('div', 'details');
+        details.append(element('span', 'type', tx.transactionType), element('div', 'note', tx.note || ''));
+
+        const meta = element('div', 'meta');
+        meta.append(element('div', 'amount', `₹ ${amountFormat.format(tx.amount)}`),
+            element('div', 'category', tx.category ? tx.category.name : ''),
+            element('div', 'category', tx.account ? tx.account.name : ''));
+
+        const actions = element('div', 'card-actions');
+        const menu = element('div', 'action-menu');
+        const deleteLink = element('a', 'delete-link', 'Delete');
+        deleteLink.href = `${contextPath}/DeleteTransactionServlet?id=${tx.id}`;
+        deleteLink.addEventListener('click', function(event) {
+            if (!confirm('Are you sure you want to delete this transaction? This action cannot be undone.')) {
+                event.preventDefault();
+            }
+        });
+        menu.appendChild(deleteLink);
+        actions.append(element('button', 'action-btn', '⋮'), menu);
+
+        card.append(dateBox, details, meta, actions);
+        return card;
+    }
+
+    /**
+     * Helper function to create an element with a class and optional text content.
+     */
+    function element(tag, className, text) {
+        const el = document.createElement(tag);
+        el.className = className;
+        if (text !== undefined) el.textContent = text;
+        return el;
+    }
+
+    let observer = null;
+    if (sentinel && recordsList && 'IntersectionObserver' in window) {
+        // Start loading a little before the sentinel becomes visible
+        observer = new IntersectionObserver(entries => {
+            if (entries.some(entry => entry.isIntersecting)) {
+                loadNextPage();
+            }
+        }, { root: scroller, rootMargin: '200px' });
+        observer.observe(sentinel);
+    }
+
 });
 
@@ -7,9 +7,9 @@
 	href="https://fonts.googleapis.com/css2?family=Roboto:wght@400;500;700&display=swap"
 	rel="stylesheet">
 <link rel="stylesheet"
-	href="${pageContext.request.contextPath}/css/login.css">
+	href="${pageContext.request.contextPath}/${assets['css/login.css']}">
 <link rel="stylesheet"
-	href="${pageContext.request.contextPath}/css/gbutton.css">
+	href="${pageContext.request.contextPath}/${assets['css/gbutton.css']}">
 <style>
 .divider {
 	text-align: center;
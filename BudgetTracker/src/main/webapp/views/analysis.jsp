@@ -4,8 +4,8 @@
 <html>
 <head>
     <title>Analysis</title>
-    <link rel="stylesheet" href="${pageContext.request.contextPath}/css/header.css">
-    <link rel="stylesheet" href="${pageContext.request.contextPath}/css/analysis.css">
+    <link rel="stylesheet" href="${pageContext.request.contextPath}/${assets['css/header.css']}">
+    <link rel="stylesheet" href="${pageContext.request.contextPath}/${assets['css/analysis.css']}">
 	<link rel="icon" href="data:image/svg+xml,%3Csvg xmlns='http://www.w3.org/2000/svg' viewBox='0 0 100 100'%3E%3Crect width='100' height='100' fill='%232D9A7A' rx='15'/%3E%3Ctext x='50%25' y='50%25' dominant-baseline='middle' text-anchor='middle' fill='white' font-size='70' font-family='Arial,sans-serif' font-weight='bold'%3EBT%3C/text%3E%3C/svg%3E">
     <script>
         const contextPath = '${pageContext.request.contextPath}';
@@ -40,6 +40,13 @@
                     </select>
                 </div>
 
+                <div class="control-group" id="customRangeGroup" style="display: none;">
+                    <label for="startDate">From</label>
+                    <input type="date" id="startDate" name="startDate">
+                    <label for="endDate">To</label>
+                    <input type="date" id="endDate" name="endDate">
+                </div>
+
                 <div class="control-group">
                     <label for="currency">Currency</label>
                     <select id="currency" name="currency" required>
@@ -80,9 +87,9 @@
 
     </main>
 
-    <script src="${pageContext.request.contextPath}/js/chart.umd.min.js"></script>
-    <script src="${pageContext.request.contextPath}/js/analysis.js"></script>
-    <script src="${pageContext.request.contextPath}/js/header.js"></script>
+    <script src="${pageContext.request.contextPath}/${assets['js/chart.umd.min.js']}"></script>
+    <script src="${pageContext.request.contextPath}/${assets['js/analysis.js']}"></script>
+    <script src="${pageContext.request.contextPath}/${assets['js/header.js']}"></script>
 
 </body>
 </html>
@@ -13,8 +13,8 @@
 <html>
 <head>
     <title>Dashboard</title>
-    <link rel="stylesheet" href="${pageContext.request.contextPath}/css/header.css">
-    <link rel="stylesheet" href="${pageContext.request.contextPath}/css/dashboard.css">
+    <link rel="stylesheet" href="${pageContext.request.contextPath}/${assets['css/header.css']}">
+    <link rel="stylesheet" href="${pageContext.request.contextPath}/${assets['css/dashboard.css']}">
 	<link rel="icon" href="data:image/svg+xml,%3Csvg xmlns='http://www.w3.org/2000/svg' viewBox='0 0 100 100'%3E%3Crect width='100' height='100' fill='%232D9A7A' rx='15'/%3E%3Ctext x='50%25' y='50%25' dominant-baseline='middle' text-anchor='middle' fill='white' font-size='70' font-family='Arial,sans-serif' font-weight='bold'%3EBT%3C/text%3E%3C/svg%3E">
 </head>
 <body>
@@ -105,9 +105,9 @@
         </section>
     </main>
 
-    <script src="${pageContext.request.contextPath}/js/chart.umd.min.js"></script>
-    <script src="${pageContext.request.contextPath}/js/dashboard.js"></script>
-    <script src="${pageContext.request.contextPath}/js/header.js"></script>
+    <script src="${pageContext.request.contextPath}/${assets['js/chart.umd.min.js']}"></script>
+    <script src="${pageContext.request.contextPath}/${assets['js/dashboard.js']}"></script>
+    <script src="${pageContext.request.contextPath}/${assets['js/header.js']}"></script>
 
     <script>
         document.addEventListener('DOMContentLoaded', function () {
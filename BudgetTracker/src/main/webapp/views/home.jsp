@@ -3,8 +3,8 @@
 <html>
 <head>
     <title>Dashboard</title>
-    <link rel="stylesheet" href="${pageContext.request.contextPath}/css/records.css">
-    <link rel="stylesheet" href="${pageContext.request.contextPath}/css/header.css">
+    <link rel="stylesheet" href="${pageContext.request.contextPath}/${assets['css/records.css']}">
+    <link rel="stylesheet" href="${pageContext.request.contextPath}/${assets['css/header.css']}">
     <style>
         /* Styles to recreate the original simple layout */
         body {
@@ -77,6 +77,6 @@
     </main>
 
 </body>
-<script src="${pageContext.request.contextPath}/js/header.js"></script>
+<script src="${pageContext.request.contextPath}/${assets['js/header.js']}"></script>
 </html>
 
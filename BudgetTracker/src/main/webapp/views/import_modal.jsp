@@ -0,0 +1,40 @@
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%-- A self-contained component for the "Import Statement" pop-up modal. --%>
+<%-- It should be included at the end of the main JSP's body. --%>
+<%-- The styles for this are in records.css and it's controlled by records.js --%>
+<div class="modal-backdrop" id="importModal">
+    <div class="modal-content">
+        <div class="modal-header">
+            <h2>Import Statement</h2>
+            <span class="close-btn" id="closeImportModalBtn">&times;</span>
+        </div>
+        <div class="modal-body">
+            <form id="importForm" action="<c:url value='/ImportServlet' />" method="post" enctype="multipart/form-data">
+
+                <div class="form-group">
+                    <label for="importFile">CSV or OFX file</label>
+                    <input type="file" id="importFile" name="file" accept=".csv,.ofx,.qfx,text/csv" required>
+                    <small class="import-hint">CSV files need a header row with at least <b>date</b> and <b>amount</b>;
+                        <b>type</b>, <b>account</b>, <b>to_account</b>, <b>category</b> and <b>note</b> are optional.</small>
+                </div>
+
+                <div class="form-group">
+                    <label for="importAccount">Account for rows without one</label>
+                    <select id="importAccount" name="account">
+                        <option value="">-- Every row names its account --</option>
+                        <c:forEach var="acc" items="${accounts}">
+                            <option value="${acc.id}">${acc.name}</option>
+                        </c:forEach>
+                    </select>
+                </div>
+
+                <div id="importStatus" class="import-status"></div>
+                <ul id="importErrors" class="import-errors"></ul>
+
+                <div class="modal-footer">
+                    <button type="submit" class="submit-btn" id="importSubmitBtn">Import</button>
+                </div>
+            </form>
+        </div>
+    </div>
+</div>
@@ -6,11 +6,12 @@
 <head>
 <title>Records</title>
 <link rel="stylesheet"
-	href="${pageContext.request.contextPath}/css/header.css">
+	href="${pageContext.request.contextPath}/${assets['css/header.css']}">
 <link rel="stylesheet"
-	href="${pageContext.request.contextPath}/css/records.css">
+	href="${pageContext.request.contextPath}/${assets['css/records.css']}">
 <link rel="stylesheet"
-	href="${pageContext.request.contextPath}/css/modal.css">
+	href="${pageContext.request.contextPath}/${assets['css/modal.css']}">
+	<script>const contextPath = '${pageContext.request.contextPath}';</script>
 	<link rel="icon" href="data:image/svg+xml,%3Csvg xmlns='http://www.w3.org/2000/svg' viewBox='0 0 100 100'%3E%3Crect width='100' height='100' fill='%232D9A7A' rx='15'/%3E%3Ctext x='50%25' y='50%25' dominant-baseline='middle' text-anchor='middle' fill='white' font-size='70' font-family='Arial,sans-serif' font-weight='bold'%3EBT%3C/text%3E%3C/svg%3E">
 </head>
 
@@ -71,12 +72,22 @@
 
 		<section class="records-container">
 			<div class="records-header">
+				<%-- Exports every record matching the current filters, not just the loaded pages --%>
+				<c:url var="exportUrl" value="/ExportServlet">
+					<c:param name="format" value="csv" />
+					<c:param name="filterDate" value="${param.filterDate}" />
+					<c:param name="filterType" value="${param.filterType}" />
+					<c:param name="filterCategory" value="${param.filterCategory}" />
+					<c:param name="filterAccount" value="${param.filterAccount}" />
+				</c:url>
+				<a href="${exportUrl}" class="add-record-btn import-btn">Export CSV</a>
+				<button id="openImportModalBtn" class="add-record-btn import-btn">Import</button>
 				<button id="openModalBtn" class="add-record-btn">+ Add
 					Record</button>
 			</div>
 			<div
 				style="background-color: white; padding: 10px; border: none; border-radius: 5px;">
-				<div style="max-height: 70vh; overflow-y: auto;">
+				<div id="recordsScroller" style="max-height: 70vh; overflow-y: auto;">
 					<div class="records-list">
 						<c:if test="${empty transactions}">
 							<div class="empty-state">
@@ -121,14 +132,21 @@
 							</div>
 						</c:forEach>
 					</div>
+
+					<%-- Scrolling this into view loads the next page from RecordsApiServlet --%>
+					<c:if test="${not empty nextCursor}">
+						<div id="recordsSentinel" class="records-sentinel"
+							data-next-cursor="${nextCursor}">Loading more records...</div>
+					</c:if>
 				</div>
 			</div>
 
 		</section>
 	</main>
 	<jsp:include page="add_record_modal.jsp" />
-	<script src="${pageContext.request.contextPath}/js/records.js"></script>
-	<script src="${pageContext.request.contextPath}/js/header.js"></script>
+	<jsp:include page="import_modal.jsp" />
+	<script src="${pageContext.request.contextPath}/${assets['js/records.js']}"></script>
+	<script src="${pageContext.request.contextPath}/${assets['js/header.js']}"></script>
 
 </body>
 </html>
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.budgetbakers.benchmarks;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.budgetbakers.repository.EmailOutboxRepository;
+import com.budgetbakers.repository.memory.InMemoryEmailOutboxRepository;
+import com.budgetbakers.repository.memory.InMemoryStore;
+import com.budgetbakers.services.EmailDispatcher;
+import com.budgetbakers.services.EmailService;
+
+/**
+ * Throughput of the outbox delivery path, in emails per second, against an {@link SmtpStandIn}.
+ * {@code batchSize=1} opens a connection per email, as sending each email on its own did;
+ * larger batches share one connection. {@code replyDelayMillis} stands in for the round trip
+ * to a remote SMTP server.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+public class EmailDeliveryBenchmark {
+
+    /** Emails queued and delivered by one invocation. */
+    private static final int EMAILS_PER_INVOCATION = 50;
+
+    /**
+     * An in-memory outbox delivering to a local stand-in server.
+     */
+    @State(Scope.Benchmark)
+    public static class Outbox {
+        /** Emails sent over one connection. */
+        @Param({ "1", "50" })
+        public int batchSize;
+
+        /** Delay of each SMTP reply, in milliseconds. */
+        @Param({ "0", "1" })
+        public long replyDelayMillis;
+
+        SmtpStandIn server;
+        EmailOutboxRepository outbox;
+        EmailDispatcher dispatcher;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            server = new SmtpStandIn(replyDelayMillis);
+            outbox = new InMemoryEmailOutboxRepository(new InMemoryStore());
+            dispatcher = new EmailDispatcher(outbox, new EmailService(server.emailProperties()), batchSize);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            server.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EMAILS_PER_INVOCATION)
+    public long queueAndDeliver(Outbox state) throws SQLException {
+        for (int i = 0; i < EMAILS_PER_INVOCATION; i++) {
+            state.outbox.insert(EmailService.temporaryPasswordEmail("user" + i + "@example.com", "temp" + i));
+        }
+        while (state.dispatcher.dispatchBatch() > 0) {
+            // Keep claiming until the outbox is drained.
+        }
+        return state.dispatcher.getSentCount();
+    }
+}
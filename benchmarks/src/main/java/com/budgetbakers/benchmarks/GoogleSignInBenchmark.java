@@ -0,0 +1,80 @@
+package com.budgetbakers.benchmarks;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.budgetbakers.services.GoogleAuthService;
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+
+/**
+ * Latency of the server side of one Google sign-in, the code exchange and the ID token check,
+ * against an {@link OAuthStandIn}. {@code shared=true} is the application's long-lived
+ * {@link GoogleAuthService}; {@code shared=false} builds a new one per sign-in, as the callback
+ * servlet used to build its transports and verifier, so every sign-in fetches the keys again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+public class GoogleSignInBenchmark {
+
+    /**
+     * A stand-in OAuth server and the service signing in against it.
+     */
+    @State(Scope.Benchmark)
+    public static class SignIn {
+        /** Whether one service serves every sign-in. */
+        @Param({ "true", "false" })
+        public boolean shared;
+
+        OAuthStandIn server;
+        GoogleAuthService service;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException, GeneralSecurityException {
+            server = new OAuthStandIn(3600);
+            service = new GoogleAuthService(server.googleProperties());
+            service.verify(service.exchangeCode("warmup@example.com"));
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            service.close();
+            server.close();
+        }
+    }
+
+    @Benchmark
+    public String signIn(SignIn state) throws IOException {
+        if (state.shared) {
+            return verifiedEmail(state.service);
+        }
+        GoogleAuthService service = new GoogleAuthService(state.server.googleProperties());
+        try {
+            return verifiedEmail(service);
+        } finally {
+            service.close();
+        }
+    }
+
+    private static String verifiedEmail(GoogleAuthService service) throws IOException {
+        GoogleIdToken.Payload payload = service.verify(service.exchangeCode("user@example.com"));
+        return payload == null ? null : payload.getEmail();
+    }
+}
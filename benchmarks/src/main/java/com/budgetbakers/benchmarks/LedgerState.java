@@ -0,0 +1,65 @@
+package com.budgetbakers.benchmarks;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.budgetbakers.repository.Repositories;
+import com.budgetbakers.repository.memory.InMemoryStore;
+import com.budgetbakers.services.AccountService;
+import com.budgetbakers.services.RecordService;
+import com.budgetbakers.utils.DateRange;
+
+/**
+ * A seeded backend shared by all benchmark threads, with services wired to it.
+ * <p>
+ * {@code backend=memory} (the default) seeds a fresh {@link InMemoryStore} per trial.
+ * {@code backend=mysql} seeds a new user in the database configured by a {@code db.properties}
+ * on the classpath, so both backends can be compared with the same data shape.
+ * <p>
+ * {@code caches=off} builds the bundle with its caches disabled, so the benchmarks measure the
+ * balance-trend, cash-flow, spending and KPI code rather than a cache hit; every invocation
+ * repeats the same arguments, so with {@code caches=on} all but the first are served from memory.
+ */
+@State(Scope.Benchmark)
+public class LedgerState {
+
+    /** Transactions seeded for the benchmark user. */
+    @Param({ "1000", "100000", "1000000" })
+    public int transactionsPerUser;
+
+    /** Which repository backend the services run against. */
+    @Param({ "memory" })
+    public String backend;
+
+    /** Whether the bundle's ledger, analysis, reference data and user caches are enabled. */
+    @Param({ "off", "on" })
+    public String caches;
+
+    public RecordService recordService;
+    public AccountService accountService;
+    public int userId;
+    /** The user's INR accounts, as selected on the Analysis page. */
+    public List<Integer> accountIds;
+
+    public final DateRange last30Days = DateRange.fromKey("last30days");
+    public final DateRange last12Months = DateRange.fromKey("last12months");
+
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        boolean caching = "on".equals(caches);
+        Repositories repositories = "mysql".equals(backend) ? Repositories.mysql(caching) : Repositories.inMemory(new InMemoryStore(), caching);
+        String email = "bench-" + transactionsPerUser + "-" + System.nanoTime() + "@example.com";
+        SyntheticLedger ledger = SyntheticLedger.seed(repositories, email, transactionsPerUser, 42L);
+
+        recordService = new RecordService(repositories);
+        accountService = new AccountService(repositories);
+        userId = ledger.getUserId();
+        accountIds = ledger.getAccountIds();
+    }
+}
@@ -0,0 +1,188 @@
+package com.budgetbakers.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.json.webtoken.JsonWebSignature;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A minimal in-process stand-in for Google's OAuth endpoints, so that the Google Sign-In flow
+ * of {@code GoogleAuthService} can be measured without Google.
+ * <p>
+ * {@code POST /token} answers any authorization code with an ID token for the email address
+ * given as the code, signed RS256 with a key generated at startup. {@code GET /certs} publishes
+ * that key as a JWKS with {@code Cache-Control: max-age}, like Google's endpoint.
+ */
+public final class OAuthStandIn implements Closeable {
+
+    /** The client ID tokens are issued for. */
+    public static final String CLIENT_ID = "stand-in.apps.googleusercontent.com";
+    private static final String KEY_ID = "stand-in-key";
+
+    @SuppressWarnings("deprecation")
+    private final JsonFactory jsonFactory = JacksonFactory.getDefaultInstance();
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final KeyPair keyPair;
+    private final long certsMaxAgeSeconds;
+    private final LongAdder tokenRequests = new LongAdder();
+    private final LongAdder certsRequests = new LongAdder();
+
+    /**
+     * Starts serving on a free port of the loopback interface.
+     * @param certsMaxAgeSeconds The max-age of the key set.
+     * @throws IOException if no port can be bound.
+     * @throws GeneralSecurityException if no RSA key can be generated.
+     */
+    public OAuthStandIn(long certsMaxAgeSeconds) throws IOException, GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        this.keyPair = generator.generateKeyPair();
+        this.certsMaxAgeSeconds = certsMaxAgeSeconds;
+        // Without TCP_NODELAY, the JDK server's separate header and body writes add a delayed-ACK wait to every response.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 50);
+        this.handlers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "oauth-stand-in");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(handlers);
+        server.createContext("/token", this::token);
+        server.createContext("/certs", this::certs);
+        server.start();
+    }
+
+    /**
+     * @return The configuration of a {@code GoogleAuthService} using this server.
+     */
+    public Properties googleProperties() {
+        String base = "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+        Properties props = new Properties();
+        props.setProperty("google.client.id", CLIENT_ID);
+        props.setProperty("google.client.secret", "secret");
+        props.setProperty("google.redirect.uri", "http://localhost/GoogleCallbackServlet");
+        props.setProperty("google.token.uri", base + "/token");
+        props.setProperty("google.certs.uri", base + "/certs");
+        return props;
+    }
+
+    /**
+     * @return The number of token requests served.
+     */
+    public long getTokenRequestCount() {
+        return tokenRequests.sum();
+    }
+
+    /**
+     * @return The number of key set requests served.
+     */
+    public long getCertsRequestCount() {
+        return certsRequests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    private void token(HttpExchange exchange) throws IOException {
+        tokenRequests.increment();
+        String code = null;
+        for (String pair : readBody(exchange).split("&")) {
+            if (pair.startsWith("code=")) {
+                code = URLDecoder.decode(pair.substring("code=".length()), "UTF-8");
+            }
+        }
+
+        long now = System.currentTimeMillis() / 1000;
+        JsonWebSignature.Header header = new JsonWebSignature.Header();
+        header.setAlgorithm("RS256");
+        header.setType("JWT");
+        header.setKeyId(KEY_ID);
+        GoogleIdToken.Payload payload = new GoogleIdToken.Payload();
+        payload.setIssuer("https://accounts.google.com");
+        payload.setAudience(CLIENT_ID);
+        payload.setSubject(String.valueOf(code == null ? 0 : code.hashCode()));
+        payload.setEmail(code);
+        payload.setEmailVerified(Boolean.TRUE);
+        payload.setIssuedAtTimeSeconds(now);
+        payload.setExpirationTimeSeconds(now + 3600);
+        String idToken;
+        try {
+            idToken = JsonWebSignature.signUsingRsaSha256(keyPair.getPrivate(), jsonFactory, header, payload);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+        respond(exchange, "{\"access_token\":\"stand-in\",\"token_type\":\"Bearer\",\"expires_in\":3600,\"id_token\":\"" + idToken + "\"}", null);
+    }
+
+    private void certs(HttpExchange exchange) throws IOException {
+        certsRequests.increment();
+        readBody(exchange);
+        RSAPublicKey key = (RSAPublicKey) keyPair.getPublic();
+        String jwks = "{\"keys\":[{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"" + KEY_ID + "\","
+                + "\"n\":\"" + base64Url(key.getModulus()) + "\",\"e\":\"" + base64Url(key.getPublicExponent()) + "\"}]}";
+        respond(exchange, jwks, "public, max-age=" + certsMaxAgeSeconds + ", must-revalidate, no-transform");
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String json, String cacheControl) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        if (cacheControl != null) {
+            exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        }
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Encodes an unsigned big-endian integer as JWK wants it: base64url without padding or a sign byte.
+     */
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] unsigned = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, unsigned, 0, unsigned.length);
+            bytes = unsigned;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,59 @@
+package com.budgetbakers.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.budgetbakers.entities.DailyBalance;
+import com.budgetbakers.entities.Transaction;
+import com.google.gson.Gson;
+
+/**
+ * Gson serialization of the payloads {@code AnalysisServlet} writes for the transaction list
+ * and the balance trend. The payloads are computed once per trial, so only serialization is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class SerializationBenchmark {
+
+    /**
+     * The payloads of one user's Analysis page for the last 12 months.
+     */
+    @State(Scope.Benchmark)
+    public static class Payloads {
+        /** Configured like the servlet's instance. */
+        final Gson gson = new Gson();
+        List<Transaction> transactions;
+        List<DailyBalance> balanceTrend;
+
+        @Setup(Level.Trial)
+        public void load(LedgerState state) {
+            transactions = state.recordService.getTransactionsForAnalysis(state.userId, state.last12Months, state.accountIds, SyntheticLedger.CURRENCY);
+            balanceTrend = state.recordService.getBalanceTrendForAnalysis(state.userId, state.last12Months, state.accountIds, SyntheticLedger.CURRENCY);
+        }
+    }
+
+    @Benchmark
+    public String transactionListJson(Payloads payloads) {
+        return payloads.gson.toJson(payloads.transactions);
+    }
+
+    @Benchmark
+    public String balanceTrendJson(Payloads payloads) {
+        return payloads.gson.toJson(payloads.balanceTrend);
+    }
+}
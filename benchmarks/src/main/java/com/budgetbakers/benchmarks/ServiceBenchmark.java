@@ -0,0 +1,132 @@
+package com.budgetbakers.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.CategorySpending;
+import com.budgetbakers.entities.DailyBalance;
+import com.budgetbakers.entities.DashboardSnapshot;
+import com.budgetbakers.entities.MonthlyCashFlow;
+import com.budgetbakers.entities.Transaction;
+import com.budgetbakers.entities.TransactionPage;
+import com.budgetbakers.services.RecordService;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Throughput of the service calls behind the Dashboard, Accounts, Records and Analysis pages.
+ * Run with {@code -prof gc} to also get the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ServiceBenchmark {
+
+    private static final Gson GSON = new Gson();
+
+    /** Stands in for the response writer: discards the output but counts it. */
+    private static final class CountingWriter extends Writer {
+        int count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Benchmark
+    public List<DailyBalance> balanceTrend12Months(LedgerState state) {
+        return state.recordService.getBalanceTrendForAnalysis(state.userId, state.last12Months, state.accountIds, SyntheticLedger.CURRENCY);
+    }
+
+    @Benchmark
+    public List<MonthlyCashFlow> cashFlowTrend12Months(LedgerState state) {
+        return state.recordService.getCashFlowTrendForAnalysis(state.userId, state.last12Months, state.accountIds, SyntheticLedger.CURRENCY);
+    }
+
+    @Benchmark
+    public List<MonthlyCashFlow> cashFlowTrend30Days(LedgerState state) {
+        return state.recordService.getCashFlowTrendForAnalysis(state.userId, state.last30Days, state.accountIds, SyntheticLedger.CURRENCY);
+    }
+
+    @Benchmark
+    public List<CategorySpending> spendingByCategory12Months(LedgerState state) {
+        return state.recordService.getSpendingByCategoryForAnalysis(state.userId, state.last12Months, state.accountIds, SyntheticLedger.CURRENCY);
+    }
+
+    @Benchmark
+    public List<Transaction> transactionList30Days(LedgerState state) {
+        return state.recordService.getTransactionsForAnalysis(state.userId, state.last30Days, state.accountIds, SyntheticLedger.CURRENCY);
+    }
+
+    /** The transaction list of AnalysisServlet as it was written before streaming: collected, then serialized to one string. */
+    @Benchmark
+    public int transactionListJson12Months(LedgerState state) {
+        List<Transaction> transactions = state.recordService.getTransactionsForAnalysis(state.userId, state.last12Months, state.accountIds, SyntheticLedger.CURRENCY);
+        return GSON.toJson(transactions).length();
+    }
+
+    /** The transaction list as AnalysisServlet streams it: each row is written as it is read. */
+    @Benchmark
+    public int transactionListStreamed12Months(LedgerState state) throws IOException {
+        CountingWriter out = new CountingWriter();
+        JsonWriter writer = GSON.newJsonWriter(out);
+        writer.beginArray();
+        state.recordService.streamTransactionsForAnalysis(state.userId, state.last12Months, state.accountIds, SyntheticLedger.CURRENCY,
+                tx -> GSON.toJson(tx, Transaction.class, writer));
+        writer.endArray();
+        writer.flush();
+        return out.count;
+    }
+
+    /** The first unfiltered page rendered by records.jsp. */
+    @Benchmark
+    public TransactionPage recordsPage(LedgerState state) {
+        return state.recordService.getTransactionPage(state.userId, Collections.emptyMap(), null, RecordService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Account> accountSummaries(LedgerState state) {
+        return state.accountService.getAccountSummariesForUser(state.userId);
+    }
+
+    /** Everything the Dashboard and Accounts pages render. */
+    @Benchmark
+    public DashboardSnapshot dashboardSnapshot(LedgerState state) {
+        return state.accountService.getDashboardSnapshot(state.userId);
+    }
+
+    /** The KPIs as DashboardServlet derives them from the snapshot. */
+    @Benchmark
+    public Map<String, Double> dashboardKPIs(LedgerState state) {
+        return state.accountService.getDashboardSnapshot(state.userId).getKpis();
+    }
+}
@@ -0,0 +1,169 @@
+package com.budgetbakers.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A minimal in-process SMTP server that accepts and discards every message, so that email
+ * delivery can be measured without a real mail server or network.
+ * <p>
+ * It speaks just enough of the protocol for JavaMail: EHLO, AUTH PLAIN and LOGIN (any
+ * credentials), MAIL, RCPT, DATA, RSET, NOOP and QUIT, but not STARTTLS. Each reply can be
+ * delayed to stand in for the round trip to a remote server, which is what makes reusing a
+ * connection pay off. Recipients whose address starts with {@code bounce} are rejected with a
+ * permanent error.
+ */
+public final class SmtpStandIn implements Closeable {
+
+    private final ServerSocket server;
+    private final long replyDelayMillis;
+    private final ExecutorService sessions;
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder connections = new LongAdder();
+
+    /**
+     * Starts listening on a free port of the loopback interface.
+     * @param replyDelayMillis How long each reply is delayed, in milliseconds.
+     * @throws IOException if no port can be bound.
+     */
+    public SmtpStandIn(long replyDelayMillis) throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.replyDelayMillis = replyDelayMillis;
+        AtomicInteger counter = new AtomicInteger();
+        this.sessions = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-stand-in-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        sessions.execute(this::accept);
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return The configuration of an {@code EmailService} delivering to this server.
+     */
+    public Properties emailProperties() {
+        Properties props = new Properties();
+        props.setProperty("mail.smtp.host", server.getInetAddress().getHostAddress());
+        props.setProperty("mail.smtp.port", String.valueOf(getPort()));
+        props.setProperty("mail.smtp.auth", "true");
+        props.setProperty("mail.smtp.starttls.enable", "false");
+        props.setProperty("mail.smtp.username", "budgettracker@example.com");
+        props.setProperty("mail.smtp.password", "secret");
+        return props;
+    }
+
+    /**
+     * @return The number of messages accepted.
+     */
+    public long getMessageCount() {
+        return messages.sum();
+    }
+
+    /**
+     * @return The number of connections accepted.
+     */
+    public long getConnectionCount() {
+        return connections.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        sessions.shutdownNow();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connections.increment();
+                sessions.execute(() -> converse(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs one SMTP session until the client quits or disconnects.
+     */
+    private void converse(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = s.getOutputStream()) {
+            reply(out, "220 localhost ESMTP stand-in");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase(Locale.ROOT);
+                if (command.startsWith("EHLO")) {
+                    reply(out, "250-localhost\r\n250-AUTH PLAIN LOGIN\r\n250 8BITMIME");
+                } else if (command.startsWith("HELO")) {
+                    reply(out, "250 localhost");
+                } else if (command.startsWith("AUTH PLAIN")) {
+                    if (command.trim().equals("AUTH PLAIN")) {
+                        reply(out, "334 ");
+                        in.readLine();
+                    }
+                    reply(out, "235 2.7.0 Authentication successful");
+                } else if (command.startsWith("AUTH LOGIN")) {
+                    if (command.trim().equals("AUTH LOGIN")) {
+                        reply(out, "334 VXNlcm5hbWU6");
+                        in.readLine();
+                    }
+                    reply(out, "334 UGFzc3dvcmQ6");
+                    in.readLine();
+                    reply(out, "235 2.7.0 Authentication successful");
+                } else if (command.startsWith("RCPT TO:")) {
+                    boolean bounce = command.substring("RCPT TO:".length()).trim().startsWith("<BOUNCE");
+                    reply(out, bounce ? "550 5.1.1 No such user" : "250 2.1.5 OK");
+                } else if (command.startsWith("MAIL FROM:") || command.startsWith("RSET") || command.startsWith("NOOP")) {
+                    reply(out, "250 2.0.0 OK");
+                } else if (command.startsWith("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    while ((line = in.readLine()) != null && !line.equals(".")) {
+                        // The message is discarded.
+                    }
+                    messages.increment();
+                    reply(out, "250 2.0.0 OK queued");
+                } else if (command.startsWith("QUIT")) {
+                    reply(out, "221 2.0.0 Bye");
+                    return;
+                } else {
+                    reply(out, "502 5.5.2 Command not recognized");
+                }
+            }
+        } catch (IOException e) {
+            // The client disconnected or the server was closed.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reply(OutputStream out, String response) throws IOException, InterruptedException {
+        if (replyDelayMillis > 0) {
+            Thread.sleep(replyDelayMillis);
+        }
+        out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
@@ -0,0 +1,141 @@
+package com.budgetbakers.benchmarks;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import com.budgetbakers.entities.Account;
+import com.budgetbakers.entities.Category;
+import com.budgetbakers.entities.Transaction;
+import com.budgetbakers.entities.User;
+import com.budgetbakers.repository.Repositories;
+import com.budgetbakers.services.AccountService;
+
+/**
+ * Seeds a repository backend with one user and a reproducible synthetic ledger.
+ * <p>
+ * The user gets three INR accounts and one USD account (the first account also creates the
+ * default category tree). Transactions are spread uniformly over the last three years up to
+ * now, so the current month and every Analysis page range contain data. About 30% are income,
+ * 65% expenses and 5% transfers between the INR accounts.
+ */
+public final class SyntheticLedger {
+
+    /** The currency most benchmarks analyse. */
+    public static final String CURRENCY = "INR";
+
+    private static final String[] NOTES = { null, "", "Weekly shop", "Monthly bill", "Dinner with friends", "Fuel top-up" };
+    private static final int HISTORY_DAYS = 3 * 365;
+
+    private final int userId;
+    private final List<Integer> accountIds;
+
+    private SyntheticLedger(int userId, List<Integer> accountIds) {
+        this.userId = userId;
+        this.accountIds = accountIds;
+    }
+
+    /**
+     * Creates a user with accounts and the given number of transactions.
+     * @param repositories The backend to seed.
+     * @param email The email of the user to create; must not exist yet.
+     * @param transactions The number of transactions to insert.
+     * @param seed The random seed, so runs with the same parameters see the same data.
+     * @return The seeded ledger.
+     * @throws SQLException if the backend rejects a row.
+     */
+    public static SyntheticLedger seed(Repositories repositories, String email, int transactions, long seed) throws SQLException {
+        User user = repositories.users().insertGoogleUser(email);
+        AccountService accountService = new AccountService(repositories);
+
+        List<Account> accounts = new ArrayList<>();
+        accounts.add(addAccount(accountService, user.getId(), "Cash", "Cash", CURRENCY, 5000));
+        accounts.add(addAccount(accountService, user.getId(), "Savings", "Bank", CURRENCY, 250000));
+        accounts.add(addAccount(accountService, user.getId(), "Credit Card", "Credit", CURRENCY, 0));
+        accounts.add(addAccount(accountService, user.getId(), "Travel", "Bank", "USD", 1200));
+
+        List<Category> categories = repositories.categories().findByUser(user.getId());
+        List<Category> incomeCategories = new ArrayList<>();
+        List<Category> expenseCategories = new ArrayList<>();
+        Integer incomeParentId = null;
+        for (Category category : categories) {
+            if ("Income".equals(category.getName()) && category.getParentId() == null) {
+                incomeParentId = category.getId();
+            }
+        }
+        for (Category category : categories) {
+            boolean income = Objects.equals(category.getId(), incomeParentId)
+                    || Objects.equals(category.getParentId(), incomeParentId);
+            (income ? incomeCategories : expenseCategories).add(category);
+        }
+
+        Random random = new Random(seed);
+        LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        long historyMinutes = HISTORY_DAYS * 24L * 60L;
+        List<Account> inrAccounts = accounts.subList(0, 3);
+
+        for (int i = 0; i < transactions; i++) {
+            Transaction tx = new Transaction();
+            tx.setUserId(user.getId());
+            tx.setTransactionDate(Timestamp.valueOf(end.minusMinutes((long) (random.nextDouble() * historyMinutes))));
+            tx.setNote(NOTES[random.nextInt(NOTES.length)]);
+
+            int kind = random.nextInt(100);
+            if (kind < 30) {
+                tx.setTransactionType("Income");
+                tx.setAccount(accounts.get(random.nextInt(accounts.size())));
+                tx.setCategory(incomeCategories.get(random.nextInt(incomeCategories.size())));
+                tx.setAmount(500 + random.nextInt(50000));
+            } else if (kind < 95) {
+                tx.setTransactionType("Expense");
+                tx.setAccount(accounts.get(random.nextInt(accounts.size())));
+                tx.setCategory(expenseCategories.get(random.nextInt(expenseCategories.size())));
+                tx.setAmount(10 + random.nextInt(5000));
+            } else {
+                int from = random.nextInt(inrAccounts.size());
+                tx.setTransactionType("Transfer");
+                tx.setAccount(inrAccounts.get(from));
+                tx.setToAccount(inrAccounts.get((from + 1) % inrAccounts.size()));
+                tx.setAmount(100 + random.nextInt(10000));
+            }
+            repositories.ledger().insert(tx);
+        }
+
+        List<Integer> accountIds = new ArrayList<>();
+        for (Account account : inrAccounts) {
+            accountIds.add(account.getId());
+        }
+        return new SyntheticLedger(user.getId(), accountIds);
+    }
+
+    private static Account addAccount(AccountService accountService, int userId, String name, String type, String currency, double initialBalance) {
+        Account account = new Account();
+        account.setUserId(userId);
+        account.setName(name);
+        account.setAccountType(type);
+        account.setCurrency(currency);
+        account.setInitialBalance(initialBalance);
+        account.setColor("#4a90e2");
+        accountService.addAccount(account);
+        return account;
+    }
+
+    /**
+     * @return The ID of the seeded user.
+     */
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return The IDs of the user's INR accounts, in creation order.
+     */
+    public List<Integer> getAccountIds() {
+        return accountIds;
+    }
+}